@@ -0,0 +1,8 @@
+# The DASH and HLS factories are only reached through reflection in
+# AudioSourceFactories, so keep their no-arg constructors.
+-keep class com.ryanheise.just_audio.*AudioSourceFactory { <init>(); }
+
+# An app may exclude either streaming module (justAudio.dash=false or
+# justAudio.hls=false), leaving references to it unresolved.
+-dontwarn com.google.android.exoplayer2.source.dash.**
+-dontwarn com.google.android.exoplayer2.source.hls.**
@@ -0,0 +1,241 @@
+package com.ryanheise.just_audio;
+
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioTrack;
+import android.os.Process;
+import java.util.Arrays;
+
+/**
+ * A process-wide software mixer that sums the decoded PCM of every player
+ * in mixer mode into a single stereo 16-bit AudioTrack.
+ *
+ * Each player writes into its own {@link Input} ring buffer from its
+ * playback thread, a whole buffer per lock. The mixer thread pulls one
+ * period from every input,
+ * applies the input's gain, sums and clips the result and writes it to the
+ * AudioTrack, whose blocking writes pace the loop. All buffers are
+ * allocated up front so the mixing loop does not allocate.
+ *
+ * While no input is playing, the AudioTrack is paused and the mixer thread
+ * waits for an input to start playing rather than writing silence. Audio
+ * already written stays in the AudioTrack and is played on resumption, as
+ * with a paused player's own AudioTrack.
+ */
+class AudioMixer {
+    static final int CHANNEL_COUNT = 2;
+    static final int PERIOD_FRAMES = 512;
+    // Per-input ring buffer capacity, in frames.
+    static final int INPUT_CAPACITY_FRAMES = 8 * PERIOD_FRAMES;
+
+    private static AudioMixer instance;
+
+    static synchronized AudioMixer getInstance() {
+        if (instance == null) {
+            instance = new AudioMixer();
+        }
+        return instance;
+    }
+
+    /**
+     * One source feeding the mixer. Writes happen on the owning player's
+     * playback thread and reads on the mixer thread.
+     */
+    static class Input {
+        private final AudioMixer mixer;
+        private final short[] ring = new short[INPUT_CAPACITY_FRAMES * CHANNEL_COUNT];
+        private int readFrame;
+        private int frameCount;
+        private long consumedFrames;
+        volatile float gain = 1f;
+        private volatile boolean playing;
+
+        Input(AudioMixer mixer) {
+            this.mixer = mixer;
+        }
+
+        void setPlaying(boolean playing) {
+            this.playing = playing;
+            if (playing) mixer.wake();
+        }
+
+        synchronized int availableFramesToWrite() {
+            return INPUT_CAPACITY_FRAMES - frameCount;
+        }
+
+        synchronized int getFrameCount() {
+            return frameCount;
+        }
+
+        synchronized long getConsumedFrames() {
+            return consumedFrames;
+        }
+
+        // Appends frames interleaved stereo frames from samples. Callers
+        // must first check availableFramesToWrite.
+        synchronized void write(short[] samples, int frames) {
+            int writeFrame = (readFrame + frameCount) % INPUT_CAPACITY_FRAMES;
+            int firstFrames = Math.min(frames, INPUT_CAPACITY_FRAMES - writeFrame);
+            System.arraycopy(samples, 0, ring, writeFrame * CHANNEL_COUNT, firstFrames * CHANNEL_COUNT);
+            System.arraycopy(samples, firstFrames * CHANNEL_COUNT, ring, 0, (frames - firstFrames) * CHANNEL_COUNT);
+            frameCount += frames;
+        }
+
+        synchronized void clear() {
+            readFrame = 0;
+            frameCount = 0;
+            consumedFrames = 0;
+        }
+
+        // Adds up to frames frames of this input, scaled by gain, into mix.
+        synchronized void mixInto(float[] mix, int frames) {
+            if (!playing) return;
+            int n = Math.min(frames, frameCount);
+            float g = gain;
+            for (int f = 0; f < n; f++) {
+                int i = ((readFrame + f) % INPUT_CAPACITY_FRAMES) * CHANNEL_COUNT;
+                mix[f * CHANNEL_COUNT] += ring[i] * g;
+                mix[f * CHANNEL_COUNT + 1] += ring[i + 1] * g;
+            }
+            readFrame = (readFrame + n) % INPUT_CAPACITY_FRAMES;
+            frameCount -= n;
+            consumedFrames += n;
+        }
+    }
+
+    final int sampleRate;
+    // Replaced rather than mutated so that the mixer thread can iterate it
+    // without locking or allocating.
+    private volatile Input[] inputs = new Input[0];
+    // Frames mixed but not yet played out by the AudioTrack.
+    private volatile int latencyFrames;
+    private Thread thread;
+    private AudioTrack audioTrack;
+
+    private AudioMixer() {
+        this(AudioTrack.getNativeOutputSampleRate(AudioManager.STREAM_MUSIC));
+    }
+
+    AudioMixer(int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * The number of frames already taken from the inputs that the AudioTrack
+     * has not yet played, to be subtracted from an input's consumed frames
+     * to get its audible position.
+     */
+    int getLatencyFrames() {
+        return latencyFrames;
+    }
+
+    synchronized Input addInput() {
+        Input input = new Input(this);
+        Input[] newInputs = new Input[inputs.length + 1];
+        System.arraycopy(inputs, 0, newInputs, 0, inputs.length);
+        newInputs[inputs.length] = input;
+        inputs = newInputs;
+        if (thread == null) {
+            start();
+        }
+        return input;
+    }
+
+    synchronized void removeInput(Input input) {
+        int index = -1;
+        for (int i = 0; i < inputs.length; i++) {
+            if (inputs[i] == input) index = i;
+        }
+        if (index == -1) return;
+        Input[] newInputs = new Input[inputs.length - 1];
+        System.arraycopy(inputs, 0, newInputs, 0, index);
+        System.arraycopy(inputs, index + 1, newInputs, index, newInputs.length - index);
+        inputs = newInputs;
+        if (inputs.length == 0) {
+            stop();
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private void start() {
+        int minBufferSize = AudioTrack.getMinBufferSize(sampleRate,
+                AudioFormat.CHANNEL_OUT_STEREO, AudioFormat.ENCODING_PCM_16BIT);
+        audioTrack = new AudioTrack(AudioManager.STREAM_MUSIC, sampleRate,
+                AudioFormat.CHANNEL_OUT_STEREO, AudioFormat.ENCODING_PCM_16BIT,
+                Math.max(minBufferSize, 2 * PERIOD_FRAMES * CHANNEL_COUNT * 2), AudioTrack.MODE_STREAM);
+        audioTrack.play();
+        final AudioTrack track = audioTrack;
+        thread = new Thread(() -> mixLoop(track), "just_audio:mixer");
+        thread.start();
+    }
+
+    private void stop() {
+        Thread stoppingThread = thread;
+        thread = null;
+        audioTrack = null;
+        stoppingThread.interrupt();
+    }
+
+    // Wakes the mixer thread if it is waiting for an input to play.
+    private synchronized void wake() {
+        notifyAll();
+    }
+
+    // Waits until an input is playing, returning false if the mixer thread
+    // was stopped first.
+    private synchronized boolean awaitPlayingInput() {
+        while (!isAnyPlaying(inputs)) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAnyPlaying(Input[] inputs) {
+        for (int i = 0; i < inputs.length; i++) {
+            if (inputs[i].playing) return true;
+        }
+        return false;
+    }
+
+    // Mixes one period of inputs into output, using mix as scratch space.
+    static void mixPeriod(Input[] inputs, float[] mix, short[] output) {
+        Arrays.fill(mix, 0f);
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i].mixInto(mix, PERIOD_FRAMES);
+        }
+        for (int i = 0; i < output.length; i++) {
+            float sample = mix[i];
+            if (sample > Short.MAX_VALUE) sample = Short.MAX_VALUE;
+            else if (sample < Short.MIN_VALUE) sample = Short.MIN_VALUE;
+            output[i] = (short)sample;
+        }
+    }
+
+    private void mixLoop(AudioTrack track) {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+        final float[] mix = new float[PERIOD_FRAMES * CHANNEL_COUNT];
+        final short[] output = new short[PERIOD_FRAMES * CHANNEL_COUNT];
+        int writtenFrames = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            Input[] currentInputs = inputs;
+            if (!isAnyPlaying(currentInputs)) {
+                track.pause();
+                if (!awaitPlayingInput()) break;
+                track.play();
+                continue;
+            }
+            mixPeriod(currentInputs, mix, output);
+            if (track.write(output, 0, output.length) < 0) break;
+            writtenFrames += PERIOD_FRAMES;
+            // Both counters wrap, so their int difference stays correct.
+            latencyFrames = Math.max(0, writtenFrames - track.getPlaybackHeadPosition());
+        }
+        latencyFrames = 0;
+        track.stop();
+        track.release();
+    }
+}
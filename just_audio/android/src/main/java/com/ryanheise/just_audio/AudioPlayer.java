@@ -1,5 +1,6 @@
 package com.ryanheise.just_audio;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.media.audiofx.AudioEffect;
 import android.media.audiofx.Equalizer;
@@ -7,7 +8,10 @@ import android.media.audiofx.LoudnessEnhancer;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
 import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.DefaultLivePlaybackSpeedControl;
 import com.google.android.exoplayer2.DefaultLoadControl;
@@ -20,29 +24,40 @@ import com.google.android.exoplayer2.PlaybackException;
 import com.google.android.exoplayer2.PlaybackParameters;
 import com.google.android.exoplayer2.Player;
 import com.google.android.exoplayer2.Player.PositionInfo;
+import com.google.android.exoplayer2.SeekParameters;
 import com.google.android.exoplayer2.ExoPlayer;
+import com.google.android.exoplayer2.Format;
 import com.google.android.exoplayer2.Timeline;
 import com.google.android.exoplayer2.Tracks;
+import com.google.android.exoplayer2.analytics.PlaybackStats;
+import com.google.android.exoplayer2.analytics.PlaybackStatsListener;
 import com.google.android.exoplayer2.audio.AudioAttributes;
+import com.google.android.exoplayer2.audio.AudioCapabilities;
+import com.google.android.exoplayer2.audio.AudioProcessor;
+import com.google.android.exoplayer2.audio.AudioSink;
+import com.google.android.exoplayer2.audio.DefaultAudioSink;
+import com.google.android.exoplayer2.audio.ForwardingAudioSink;
 import com.google.android.exoplayer2.extractor.DefaultExtractorsFactory;
 import com.google.android.exoplayer2.metadata.Metadata;
 import com.google.android.exoplayer2.metadata.MetadataOutput;
 import com.google.android.exoplayer2.metadata.icy.IcyHeaders;
 import com.google.android.exoplayer2.metadata.icy.IcyInfo;
+import com.google.android.exoplayer2.metadata.id3.TextInformationFrame;
 import com.google.android.exoplayer2.source.ClippingMediaSource;
 import com.google.android.exoplayer2.source.ConcatenatingMediaSource;
+import com.google.android.exoplayer2.source.LoopingMediaSource;
 import com.google.android.exoplayer2.source.MediaSource;
 import com.google.android.exoplayer2.source.ProgressiveMediaSource;
 import com.google.android.exoplayer2.source.ShuffleOrder;
 import com.google.android.exoplayer2.source.ShuffleOrder.DefaultShuffleOrder;
 import com.google.android.exoplayer2.source.SilenceMediaSource;
 import com.google.android.exoplayer2.source.TrackGroup;
-import com.google.android.exoplayer2.source.dash.DashMediaSource;
-import com.google.android.exoplayer2.source.hls.HlsMediaSource;
 import com.google.android.exoplayer2.trackselection.TrackSelectionArray;
+import com.google.android.exoplayer2.trackselection.TrackSelectionParameters;
 import com.google.android.exoplayer2.upstream.DataSource;
 import com.google.android.exoplayer2.upstream.DefaultDataSource;
 import com.google.android.exoplayer2.upstream.DefaultHttpDataSource;
+import com.google.android.exoplayer2.upstream.ResolvingDataSource;
 import com.google.android.exoplayer2.util.MimeTypes;
 import com.google.android.exoplayer2.util.Util;
 import io.flutter.Log;
@@ -54,50 +69,147 @@ import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
 import io.flutter.plugin.common.MethodChannel.Result;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class AudioPlayer implements MethodCallHandler, Player.Listener, MetadataOutput {
 
     static final String TAG = "AudioPlayer";
+    // Upper bound on how long a release waits for the playback thread to
+    // tear down before it is treated as complete. The main thread does not
+    // wait for it.
+    static final long RELEASE_TIMEOUT_MS = 1000;
 
     private static Random random = new Random();
 
     private final Context context;
-    private final MethodChannel methodChannel;
+    private final String id;
+    private final Map<BinaryMessenger, MethodChannel> methodChannels = new HashMap<BinaryMessenger, MethodChannel>();
     private final BetterEventChannel eventChannel;
     private final BetterEventChannel dataEventChannel;
+    private final BetterEventChannel metadataEventChannel;
+    private final MetadataPipeline metadataPipeline;
+    // Stream sources are served by one attached engine at a time, which
+    // changes if that engine detaches.
+    private final AtomicReference<MethodChannel> streamChannel = new AtomicReference<MethodChannel>();
+    private BinaryMessenger streamMessenger;
 
     private ProcessingState processingState;
     private long updatePosition;
     private long updateTime;
+    private long updateMonotonicTime;
+    // The wall clock time paired with a monotonic clock sample, from which
+    // updateTime is derived so that it does not jump when the wall clock is
+    // changed. The monotonic clock is elapsed realtime, which keeps counting
+    // while the device sleeps.
+    private final long wallClockBase = System.currentTimeMillis();
+    private final long monotonicBase = PositionTracker.elapsedRealtimeNanos();
+    private final PositionTracker positionTracker = new PositionTracker();
+    private long positionStreamInterval;
+    // Idle players may release their ExoPlayer, keeping only the state
+    // needed to rebuild it, which is held in hibernationState meanwhile.
+    private long hibernationIdleTimeout;
+    private boolean hibernateOnMemoryPressure;
+    private Map<String, Object> hibernationState;
+    private long restoreStartTime;
+    private final Runnable hibernator = this::hibernate;
+    // Methods that can run while hibernated without rebuilding the player.
+    private static final Set<String> PLAYER_INDEPENDENT_METHODS = new HashSet<String>(Arrays.asList(
+        "setAutomaticallyWaitsToMinimizeStalling",
+        "setCanUseNetworkResourcesForLiveStreamingWhilePaused",
+        "setPreferredPeakBitRate",
+        "setHibernationPolicy",
+        "setLoadDebounce",
+        "setPositionStreamEnabled",
+        "getPlaybackQualityMetrics",
+        "getSeekMetrics",
+        "saveSnapshot",
+        "audioEffectSetEnabled",
+        "setRequestCredentials",
+        "androidParametricEqualizerGetParameters",
+        "androidParametricEqualizerBandSetGain",
+        "androidParametricEqualizerSetGain"));
     private long bufferedPosition;
     private Long seekPos;
     private long initialPos;
     private Integer initialIndex;
     private Result prepareResult;
+    // A load deferred until no other load arrives within loadDebounceWindow
+    // (in milliseconds), so that only the last of a rapid series of loads is
+    // prepared.
+    private long loadDebounceWindow;
+    private Runnable pendingLoad;
+    private Result pendingLoadResult;
     private Result playResult;
     private Result seekResult;
+    // The latest seek requested while another seek was still settling. Only
+    // this target is executed once the in-flight seek completes.
+    private Long pendingSeekPos;
+    private Integer pendingSeekIndex;
+    private boolean pendingSeekFast;
+    private Result pendingSeekResult;
+    private long seekStartTime;
+    private boolean prepareTraced;
+    private boolean seekTraced;
+    private int seekRequestCount;
+    private int seekIssueCount;
+    private long lastSeekLatency;
+    private long totalSeekLatency;
     private Map<String, MediaSource> mediaSources = new HashMap<String, MediaSource>();
+    private Map<String, SharedConnectionDataSource.Connection> sharedConnections = new HashMap<String, SharedConnectionDataSource.Connection>();
+    // The source tree as last sent from Dart, kept in step with playlist
+    // edits so that it can be saved in a snapshot.
+    private Map<?, ?> audioSourceJson;
+    private Map<String, Map<?, ?>> audioSourceJsons = new HashMap<String, Map<?, ?>>();
     private IcyInfo icyInfo;
     private IcyHeaders icyHeaders;
     private int errorCount;
     private AudioAttributes pendingAudioAttributes;
     private LoadControl loadControl;
     private boolean offloadSchedulingEnabled;
+    // Why offload cannot currently be used, or null if it can. This is read
+    // by the audio sink on the playback thread.
+    private volatile String offloadDisabledReason = "disabled";
+    private boolean offloadActive;
+    private boolean sleepingForOffload;
+    private long offloadSleepStartTime;
+    private long offloadSleepTime;
+    private boolean mixerEnabled;
     private LivePlaybackSpeedControl livePlaybackSpeedControl;
+    private TrackingLivePlaybackSpeedControl liveSpeedControl;
     private List<Object> rawAudioEffects;
     private List<AudioEffect> audioEffects = new ArrayList<AudioEffect>();
     private Map<String, AudioEffect> audioEffectsMap = new HashMap<String, AudioEffect>();
+    private ParametricEqualizerAudioProcessor parametricEqualizer;
+    private LoudnessGainAudioProcessor loudnessProcessor;
+    private LoudnessNormalizer loudnessNormalizer;
+    private double targetLoudness;
+    // The gains last given to loudnessProcessor for the current and next
+    // items.
+    private float currentLoudnessGain = 1f;
+    private float nextLoudnessGain = 1f;
+    private List<AudioProcessor> audioProcessors = new ArrayList<AudioProcessor>();
+    private SpeechTimeStretchAudioProcessor speechTimeStretch;
     private int lastPlaylistLength = 0;
     private Map<String, Object> pendingPlaybackEvent;
+    private final RequestCredentials requestCredentials;
 
     private ExoPlayer player;
+    // The playback thread of player, which is ours rather than ExoPlayer's
+    // so that we can tell when its release has finished.
+    private HandlerThread playbackThread;
+    private PlaybackStatsListener playbackStatsListener;
     private Integer audioSessionId;
     private MediaSource mediaSource;
     private Integer currentIndex;
@@ -137,16 +249,42 @@ public class AudioPlayer implements MethodCallHandler, Player.Listener, Metadata
         final String id,
         Map<?, ?> audioLoadConfiguration,
         List<Object> rawAudioEffects,
-        Boolean offloadSchedulingEnabled
+        Boolean offloadSchedulingEnabled,
+        Boolean mixerEnabled
     ) {
         this.context = applicationContext;
         this.rawAudioEffects = rawAudioEffects;
         this.offloadSchedulingEnabled = offloadSchedulingEnabled != null ? offloadSchedulingEnabled : false;
-        methodChannel = new MethodChannel(messenger, "com.ryanheise.just_audio.methods." + id);
+        this.mixerEnabled = mixerEnabled != null ? mixerEnabled : false;
+        this.id = id;
+        MethodChannel methodChannel = new MethodChannel(messenger, "com.ryanheise.just_audio.methods." + id);
         methodChannel.setMethodCallHandler(this);
-        eventChannel = new BetterEventChannel(messenger, "com.ryanheise.just_audio.events." + id);
+        methodChannels.put(messenger, methodChannel);
+        eventChannel = new BetterEventChannel(messenger, "com.ryanheise.just_audio.events." + id, true);
         dataEventChannel = new BetterEventChannel(messenger, "com.ryanheise.just_audio.data." + id);
+        metadataEventChannel = new BetterEventChannel(messenger, "com.ryanheise.just_audio.metadata." + id);
+        metadataPipeline = new MetadataPipeline(metadataEventChannel, handler);
+        bindStreamChannel(messenger);
+        requestCredentials = new RequestCredentials(() ->
+            handler.post(() -> dataEventChannel.success(mapOf("requestCredentialsExpired", true))));
         processingState = ProcessingState.none;
+        for (Object rawAudioEffect : rawAudioEffects) {
+            Map<?, ?> json = (Map<?, ?>)rawAudioEffect;
+            if (ParametricEqualizerAudioProcessor.TYPE.equals(json.get("type"))) {
+                parametricEqualizer = new ParametricEqualizerAudioProcessor(json);
+                audioProcessors.add(parametricEqualizer);
+            } else if (LoudnessGainAudioProcessor.TYPE.equals(json.get("type"))) {
+                loudnessProcessor = new LoudnessGainAudioProcessor((Boolean)json.get("enabled"));
+                loudnessNormalizer = LoudnessNormalizer.getInstance(context);
+                Double target = (Double)json.get("targetLoudness");
+                targetLoudness = target != null ? target : LoudnessNormalizer.REFERENCE_LOUDNESS;
+                audioProcessors.add(loudnessProcessor);
+            } else if (SpeechTimeStretchAudioProcessor.TYPE.equals(json.get("type"))) {
+                // Replaces Sonic for speed changes rather than joining the
+                // other processors, so it is not in audioProcessors.
+                speechTimeStretch = new SpeechTimeStretchAudioProcessor(Boolean.TRUE.equals(json.get("enabled")));
+            }
+        }
         if (audioLoadConfiguration != null) {
             Map<?, ?> loadControlMap = (Map<?, ?>)audioLoadConfiguration.get("androidLoadControl");
             if (loadControlMap != null) {
@@ -194,6 +332,9 @@ public class AudioPlayer implements MethodCallHandler, Player.Listener, Metadata
         if (this.audioSessionId != null) {
             for (Object rawAudioEffect : rawAudioEffects) {
                 Map<?, ?> json = (Map<?, ?>)rawAudioEffect;
+                // Audio processors live in the audio sink rather than on
+                // the audio session.
+                if (isAudioProcessorType(json.get("type"))) continue;
                 AudioEffect audioEffect = decodeAudioEffect(rawAudioEffect, this.audioSessionId);
                 if ((Boolean)json.get("enabled")) {
                     audioEffect.setEnabled(true);
@@ -202,9 +343,16 @@ public class AudioPlayer implements MethodCallHandler, Player.Listener, Metadata
                 audioEffectsMap.put((String)json.get("type"), audioEffect);
             }
         }
+        updateOffloadEligibility();
         enqueuePlaybackEvent();
     }
 
+    private static boolean isAudioProcessorType(Object type) {
+        return ParametricEqualizerAudioProcessor.TYPE.equals(type)
+            || LoudnessGainAudioProcessor.TYPE.equals(type)
+            || SpeechTimeStretchAudioProcessor.TYPE.equals(type);
+    }
+
     @Override
     public void onAudioSessionIdChanged(int audioSessionId) {
         setAudioSessionId(audioSessionId);
@@ -213,50 +361,127 @@ public class AudioPlayer implements MethodCallHandler, Player.Listener, Metadata
 
     @Override
     public void onMetadata(Metadata metadata) {
+        // Timed metadata arrives at its presentation time and goes to the
+        // metadata channel. Only a changed ICY title also updates the
+        // playback event.
+        metadataPipeline.add(metadata, 1000 * player.getCurrentPosition(), player.getCurrentMediaItemIndex());
+        boolean icyChanged = false;
         for (int i = 0; i < metadata.length(); i++) {
             final Metadata.Entry entry = metadata.get(i);
-            if (entry instanceof IcyInfo) {
+            if (entry instanceof IcyInfo && !entry.equals(icyInfo)) {
                 icyInfo = (IcyInfo) entry;
-                broadcastImmediatePlaybackEvent();
+                icyChanged = true;
             }
         }
+        if (icyChanged) {
+            broadcastImmediatePlaybackEvent();
+        }
     }
 
     @Override
     public void onTracksChanged(Tracks tracks) {
+        // Only the formats of the selected tracks describe what is playing.
+        boolean icyChanged = false;
         for (int i = 0; i < tracks.getGroups().size(); i++) {
-            TrackGroup trackGroup = tracks.getGroups().get(i).getMediaTrackGroup();
+            Tracks.Group group = tracks.getGroups().get(i);
+            if (!group.isSelected()) continue;
+            TrackGroup trackGroup = group.getMediaTrackGroup();
 
             for (int j = 0; j < trackGroup.length; j++) {
+                if (!group.isTrackSelected(j)) continue;
                 Metadata metadata = trackGroup.getFormat(j).metadata;
 
                 if (metadata != null) {
+                    // Format metadata describes the whole item rather than
+                    // a point in it, so it is sent without a position.
+                    metadataPipeline.add(metadata, null, player.getCurrentMediaItemIndex());
                     for (int k = 0; k < metadata.length(); k++) {
                         final Metadata.Entry entry = metadata.get(k);
-                        if (entry instanceof IcyHeaders) {
+                        if (entry instanceof IcyHeaders && !entry.equals(icyHeaders)) {
                             icyHeaders = (IcyHeaders) entry;
-                            broadcastImmediatePlaybackEvent();
+                            icyChanged = true;
+                        } else if (entry instanceof TextInformationFrame && loudnessNormalizer != null) {
+                            recordReplayGain((TextInformationFrame) entry);
                         }
                     }
                 }
             }
         }
+        if (icyChanged) {
+            broadcastImmediatePlaybackEvent();
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private void recordReplayGain(TextInformationFrame frame) {
+        if (!"TXXX".equals(frame.id) || !"REPLAYGAIN_TRACK_GAIN".equalsIgnoreCase(frame.description)) return;
+        String uri = getMediaItemUri(player.getCurrentMediaItemIndex());
+        if (uri == null) return;
+        try {
+            loudnessNormalizer.putReplayGain(uri, Double.parseDouble(frame.value.replaceAll("(?i)\\s*dB\\s*$", "").trim()));
+        } catch (NumberFormatException e) {
+            return;
+        }
+        updateLoudnessGains(false);
+    }
+
+    private String getMediaItemUri(int index) {
+        if (index == C.INDEX_UNSET || index >= player.getMediaItemCount()) return null;
+        MediaItem.LocalConfiguration localConfiguration = player.getMediaItemAt(index).localConfiguration;
+        return localConfiguration != null ? localConfiguration.uri.toString() : null;
+    }
+
+    private float getLoudnessGain(int index) {
+        String uri = getMediaItemUri(index);
+        if (uri == null) return 1f;
+        Double loudness = loudnessNormalizer.getLoudness(uri, loadedUri -> {
+            if (player != null) updateLoudnessGains(false);
+        });
+        if (loudness == null) return 1f;
+        return (float)Math.pow(10.0, (targetLoudness - loudness) / 20.0);
+    }
+
+    // Stages the normalization gain of the next item and, if
+    // includeCurrent, also sets the gain of the current item. The current
+    // gain is otherwise switched by the processor itself at the stream
+    // boundary, which on a gapless transition happens before the main
+    // thread is told about it. A current gain that only became known
+    // while the item plays, from its ReplayGain tag or its analysis, is
+    // ramped to.
+    private void updateLoudnessGains(boolean includeCurrent) {
+        if (loudnessProcessor == null || player == null) return;
+        float gain = getLoudnessGain(player.getCurrentMediaItemIndex());
+        if (includeCurrent) {
+            loudnessProcessor.setGain(gain);
+        } else if (gain != currentLoudnessGain) {
+            loudnessProcessor.rampToGain(gain);
+        }
+        currentLoudnessGain = gain;
+        nextLoudnessGain = getLoudnessGain(player.getNextMediaItemIndex());
+        loudnessProcessor.setNextGain(nextLoudnessGain);
     }
 
     private boolean updatePositionIfChanged() {
         if (getCurrentPosition() == updatePosition) return false;
-        updatePosition = getCurrentPosition();
-        updateTime = System.currentTimeMillis();
+        updatePosition();
         return true;
     }
 
     private void updatePosition() {
         updatePosition = getCurrentPosition();
-        updateTime = System.currentTimeMillis();
+        long now = PositionTracker.elapsedRealtimeNanos();
+        updateMonotonicTime = now / 1000;
+        updateTime = wallClockBase + (now - monotonicBase) / 1000000;
     }
 
     @Override
     public void onPositionDiscontinuity(PositionInfo oldPosition, PositionInfo newPosition, int reason) {
+        positionTracker.reset();
+        if (reason == Player.DISCONTINUITY_REASON_AUTO_TRANSITION) {
+            metadataPipeline.reset();
+            // The processor has already switched to the staged gain.
+            currentLoudnessGain = nextLoudnessGain;
+        }
         updatePosition();
         switch (reason) {
         case Player.DISCONTINUITY_REASON_AUTO_TRANSITION:
@@ -264,9 +489,203 @@ public class AudioPlayer implements MethodCallHandler, Player.Listener, Metadata
             updateCurrentIndex();
             break;
         }
+        updateLoudnessGains(reason != Player.DISCONTINUITY_REASON_AUTO_TRANSITION);
         broadcastImmediatePlaybackEvent();
     }
 
+    @Override
+    public void onIsPlayingChanged(boolean isPlaying) {
+        scheduleHibernation();
+        if (positionStreamInterval > 0) {
+            handler.removeCallbacks(positionStreamer);
+            handler.post(positionStreamer);
+        }
+    }
+
+    // (Re)starts the idle timer after which the player hibernates.
+    private void scheduleHibernation() {
+        handler.removeCallbacks(hibernator);
+        if (hibernationIdleTimeout > 0 && canHibernate()) {
+            handler.postDelayed(hibernator, hibernationIdleTimeout);
+        }
+    }
+
+    private boolean canHibernate() {
+        return player != null && hibernationState == null && audioSourceJson != null
+                && !player.getPlayWhenReady() && processingState != ProcessingState.loading
+                && prepareResult == null && seekResult == null && pendingLoad == null;
+    }
+
+    // Releases the ExoPlayer with its decoders, audio track, buffers and
+    // media sources, keeping only what is needed to rebuild it on the next
+    // method call that uses it. The last playback event stays valid, since
+    // the position does not move while paused.
+    private void hibernate() {
+        if (!canHibernate()) return;
+        long start = SystemClock.elapsedRealtime();
+        PlaybackParameters params = player.getPlaybackParameters();
+        Map<String, Object> effectsEnabled = new HashMap<String, Object>();
+        for (Map.Entry<String, AudioEffect> entry : audioEffectsMap.entrySet()) {
+            effectsEnabled.put(entry.getKey(), entry.getValue().getEnabled());
+        }
+        Map<String, Object> state = mapOf(
+            "index", player.getCurrentMediaItemIndex(),
+            "position", getCurrentPosition(),
+            "loopMode", player.getRepeatMode(),
+            "shuffleModeEnabled", player.getShuffleModeEnabled(),
+            "speed", params.speed,
+            "pitch", params.pitch,
+            "volume", player.getVolume(),
+            "skipSilenceEnabled", player.getSkipSilenceEnabled(),
+            "audioEffects", effectsEnabled);
+        handler.removeCallbacks(bufferWatcher);
+        handler.removeCallbacks(positionStreamer);
+        clearAudioEffects();
+        mediaSources.clear();
+        sharedConnections.clear();
+        audioSourceJsons.clear();
+        mediaSource = null;
+        final ExoPlayer releasingPlayer = player;
+        releasingPlayer.removeListener(this);
+        releasingPlayer.stop();
+        player = null;
+        hibernationState = state;
+        releasePlayer(releasingPlayer, playbackThread, null);
+        playbackThread = null;
+        dataEventChannel.success(mapOf("hibernation", mapOf(
+            "hibernated", true,
+            "duration", 1000 * (SystemClock.elapsedRealtime() - start))));
+    }
+
+    // Rebuilds the hibernated player into the newly initialized ExoPlayer.
+    @SuppressWarnings("unchecked")
+    private void restoreFromHibernation() {
+        Map<String, Object> state = hibernationState;
+        hibernationState = null;
+        restoreStartTime = SystemClock.elapsedRealtime();
+        player.setRepeatMode((Integer)state.get("loopMode"));
+        player.setShuffleModeEnabled((Boolean)state.get("shuffleModeEnabled"));
+        player.setPlaybackParameters(new PlaybackParameters((Float)state.get("speed"), (Float)state.get("pitch")));
+        player.setVolume((Float)state.get("volume"));
+        player.setSkipSilenceEnabled((Boolean)state.get("skipSilenceEnabled"));
+        for (Map.Entry<String, Object> entry : ((Map<String, Object>)state.get("audioEffects")).entrySet()) {
+            AudioEffect audioEffect = audioEffectsMap.get(entry.getKey());
+            if (audioEffect != null) audioEffect.setEnabled((Boolean)entry.getValue());
+        }
+        updateOffloadEligibility();
+        load(getAudioSource(audioSourceJson), (Long)state.get("position"), (Integer)state.get("index"), null);
+    }
+
+    // Applies a setting to a hibernated player by updating the state it is
+    // rebuilt from, returning false if the call is not such a setting.
+    @SuppressWarnings("unchecked")
+    private boolean updateHibernationState(final MethodCall call) {
+        switch (call.method) {
+        case "pause":
+            // Hibernated players are always paused.
+            return true;
+        case "setVolume":
+            hibernationState.put("volume", (float) ((double) ((Double) call.argument("volume"))));
+            return true;
+        case "setSpeed":
+            hibernationState.put("speed", (float) ((double) ((Double) call.argument("speed"))));
+            return true;
+        case "setPitch":
+            hibernationState.put("pitch", (float) ((double) ((Double) call.argument("pitch"))));
+            return true;
+        case "setSkipSilence":
+            hibernationState.put("skipSilenceEnabled", (Boolean) call.argument("enabled"));
+            return true;
+        case "setLoopMode":
+            hibernationState.put("loopMode", (Integer) call.argument("loopMode"));
+            return true;
+        case "setShuffleMode":
+            hibernationState.put("shuffleModeEnabled", (Integer) call.argument("shuffleMode") == 1);
+            return true;
+        case "audioEffectSetEnabled":
+            // Session effects are released with the player, while the audio
+            // processors outlive it and are enabled directly instead.
+            Map<String, Object> effectsEnabled = (Map<String, Object>)hibernationState.get("audioEffects");
+            if (!effectsEnabled.containsKey(call.<String>argument("type"))) return false;
+            effectsEnabled.put(call.<String>argument("type"), call.<Boolean>argument("enabled"));
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    // Rebuilds a hibernated player for a method call that needs it, which
+    // is play and seek, but also any call that edits the playlist or the
+    // session effects, since those were released with the player.
+    private void wakeFromHibernation(final MethodCall call) {
+        ensurePlayerInitialized();
+        if ("load".equals(call.method) || "restoreSnapshot".equals(call.method)) {
+            // The player is rebuilt from the new source instead.
+            hibernationState = null;
+            return;
+        }
+        if ("seek".equals(call.method)) {
+            // The restore is still loading when seek runs, so the seek
+            // becomes the restored position instead.
+            Long position = getLong(call.argument("position"));
+            Integer index = call.argument("index");
+            hibernationState.put("position", position == null ? C.TIME_UNSET : position / 1000);
+            if (index != null) {
+                hibernationState.put("index", index);
+            }
+        }
+        restoreFromHibernation();
+    }
+
+    void onTrimMemory(int level) {
+        if (!hibernateOnMemoryPressure) return;
+        if (level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL
+                || level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            hibernate();
+        }
+    }
+
+    // Sends the position as a compact binary frame on the data channel:
+    // little-endian position (int64, microseconds), monotonic time of the
+    // position (int64, microseconds on the same clock as
+    // updateMonotonicTime), speed (float32, 0 while not playing) and
+    // current index (int32). Frames are sent at the configured interval
+    // while playing, and once when playback stops.
+    private final Runnable positionStreamer = new Runnable() {
+        @Override
+        public void run() {
+            if (player == null || positionStreamInterval == 0) return;
+            boolean playing = player.isPlaying();
+            float speed = playing ? player.getPlaybackParameters().speed : 0.0f;
+            long now = PositionTracker.elapsedRealtimeNanos();
+            long position = positionTracker.getPositionUs(getCurrentPosition(), playing, speed, now);
+            long duration = getDuration();
+            if (duration != C.TIME_UNSET) {
+                position = Math.min(position, 1000 * duration);
+            }
+            ByteBuffer frame = ByteBuffer.allocate(24).order(ByteOrder.LITTLE_ENDIAN);
+            frame.putLong(position);
+            frame.putLong(now / 1000);
+            frame.putFloat(speed);
+            frame.putInt(currentIndex != null ? currentIndex : 0);
+            dataEventChannel.success(mapOf("positionFrame", frame.array()));
+            if (playing) {
+                handler.postDelayed(this, positionStreamInterval);
+            }
+        }
+    };
+
+    // Enables the position stream with the given interval in milliseconds,
+    // or disables it if the interval is 0.
+    private void setPositionStreamInterval(long interval) {
+        positionStreamInterval = interval > 0 ? Math.max(16, interval) : 0;
+        handler.removeCallbacks(positionStreamer);
+        if (positionStreamInterval > 0) {
+            handler.post(positionStreamer);
+        }
+    }
+
     @Override
     public void onTimelineChanged(Timeline timeline, int reason) {
         if (initialPos != C.TIME_UNSET || initialIndex != null) {
@@ -278,6 +697,7 @@ public class AudioPlayer implements MethodCallHandler, Player.Listener, Metadata
         if (updateCurrentIndex()) {
             broadcastImmediatePlaybackEvent();
         }
+        updateLoudnessGains(processingState == ProcessingState.loading);
         if (player.getPlaybackState() == Player.STATE_ENDED) {
             try {
                 if (player.getPlayWhenReady()) {
@@ -317,11 +737,18 @@ public class AudioPlayer implements MethodCallHandler, Player.Listener, Metadata
                 updatePosition();
             processingState = ProcessingState.ready;
             broadcastImmediatePlaybackEvent();
+            if (restoreStartTime != 0) {
+                dataEventChannel.success(mapOf("hibernation", mapOf(
+                    "hibernated", false,
+                    "restoreTime", 1000 * (SystemClock.elapsedRealtime() - restoreStartTime))));
+                restoreStartTime = 0;
+            }
             if (prepareResult != null) {
                 Map<String, Object> response = new HashMap<>();
                 response.put("duration", getDuration() == C.TIME_UNSET ? null : (1000 * getDuration()));
                 prepareResult.success(response);
                 prepareResult = null;
+                endPrepareTrace();
                 if (pendingAudioAttributes != null) {
                     player.setAudioAttributes(pendingAudioAttributes, false);
                     pendingAudioAttributes = null;
@@ -330,6 +757,7 @@ public class AudioPlayer implements MethodCallHandler, Player.Listener, Metadata
             if (seekResult != null) {
                 completeSeek();
             }
+            scheduleHibernation();
             break;
         case Player.STATE_BUFFERING:
             updatePositionIfChanged();
@@ -349,6 +777,7 @@ public class AudioPlayer implements MethodCallHandler, Player.Listener, Metadata
                 Map<String, Object> response = new HashMap<>();
                 prepareResult.success(response);
                 prepareResult = null;
+                endPrepareTrace();
                 if (pendingAudioAttributes != null) {
                     player.setAudioAttributes(pendingAudioAttributes, false);
                     pendingAudioAttributes = null;
@@ -358,6 +787,12 @@ public class AudioPlayer implements MethodCallHandler, Player.Listener, Metadata
                 playResult.success(new HashMap<String, Object>());
                 playResult = null;
             }
+            if (seekResult != null) {
+                completeSeek();
+            }
+            break;
+        case Player.STATE_IDLE:
+            abortSeeks();
             break;
         }
     }
@@ -388,6 +823,7 @@ public class AudioPlayer implements MethodCallHandler, Player.Listener, Metadata
             Log.e(TAG, "default PlaybackException: " + error.getMessage());
             sendError(String.valueOf(error.errorCode), error.getMessage());
         }
+        abortSeeks();
         errorCount++;
         if (player.hasNextMediaItem() && currentIndex != null && errorCount <= 5) {
             int nextIndex = currentIndex + 1;
@@ -402,24 +838,59 @@ public class AudioPlayer implements MethodCallHandler, Player.Listener, Metadata
         }
     }
 
+    private void endSeekTrace() {
+        Tracing.endAsync(seekTraced, "seek", hashCode());
+        seekTraced = false;
+    }
+
     private void completeSeek() {
+        endSeekTrace();
+        lastSeekLatency = SystemClock.elapsedRealtime() - seekStartTime;
+        totalSeekLatency += lastSeekLatency;
         seekPos = null;
         seekResult.success(new HashMap<String, Object>());
         seekResult = null;
+        if (pendingSeekResult != null) {
+            final Result result = pendingSeekResult;
+            pendingSeekResult = null;
+            try {
+                issueSeek(pendingSeekPos, pendingSeekIndex, pendingSeekFast, result);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                result.error("Error: " + e, null, null);
+            }
+        }
     }
 
     @Override
     public void onMethodCall(final MethodCall call, final Result result) {
-        ensurePlayerInitialized();
-
+        boolean traced = Tracing.begin("onMethodCall", call.method);
         try {
+            if (hibernationState == null) {
+                ensurePlayerInitialized();
+            } else if (updateHibernationState(call)) {
+                result.success(new HashMap<String, Object>());
+                return;
+            } else if (!PLAYER_INDEPENDENT_METHODS.contains(call.method)) {
+                wakeFromHibernation(call);
+            }
+            if (pendingLoad != null && !"load".equals(call.method)) {
+                // Other methods apply to the source being loaded.
+                runPendingLoad();
+            }
             switch (call.method) {
             case "load":
+                cancelPendingLoad();
                 Long initialPosition = getLong(call.argument("initialPosition"));
                 Integer initialIndex = call.argument("initialIndex");
-                load(getAudioSource(call.argument("audioSource")),
-                        initialPosition == null ? C.TIME_UNSET : initialPosition / 1000,
-                        initialIndex, result);
+                audioSourceJson = call.argument("audioSource");
+                MediaSource loadingSource = getAudioSource(audioSourceJson);
+                long startPosition = initialPosition == null ? C.TIME_UNSET : initialPosition / 1000;
+                if (loadDebounceWindow > 0) {
+                    debounceLoad(loadingSource, startPosition, initialIndex, result);
+                } else {
+                    load(loadingSource, startPosition, initialIndex, result);
+                }
                 break;
             case "play":
                 play(result);
@@ -468,21 +939,63 @@ public class AudioPlayer implements MethodCallHandler, Player.Listener, Metadata
             case "seek":
                 Long position = getLong(call.argument("position"));
                 Integer index = call.argument("index");
-                seek(position == null ? C.TIME_UNSET : position / 1000, index, result);
+                Integer seekMode = call.argument("seekMode");
+                seek(position == null ? C.TIME_UNSET : position / 1000, index, seekMode != null && seekMode == 1, result);
+                break;
+            case "setHibernationPolicy":
+                Long idleTimeout = getLong(call.argument("idleTimeout"));
+                hibernationIdleTimeout = idleTimeout != null ? idleTimeout / 1000 : 0;
+                hibernateOnMemoryPressure = (Boolean)call.argument("onMemoryPressure");
+                scheduleHibernation();
+                result.success(new HashMap<String, Object>());
+                break;
+            case "setLoadDebounce":
+                Long window = getLong(call.argument("window"));
+                loadDebounceWindow = window != null ? window / 1000 : 0;
+                result.success(new HashMap<String, Object>());
+                break;
+            case "setPositionStreamEnabled":
+                Long interval = getLong(call.argument("interval"));
+                setPositionStreamInterval((Boolean)call.argument("enabled")
+                        ? (interval != null ? interval / 1000 : 50)
+                        : 0);
+                result.success(new HashMap<String, Object>());
+                break;
+            case "getPlaybackQualityMetrics":
+                result.success(getPlaybackQualityMetrics());
+                break;
+            case "getSeekMetrics":
+                result.success(mapOf(
+                    "requestCount", seekRequestCount,
+                    "issueCount", seekIssueCount,
+                    "lastLatency", 1000 * lastSeekLatency,
+                    "averageLatency", seekIssueCount == 0 ? 0L : 1000 * totalSeekLatency / seekIssueCount));
+                break;
+            case "saveSnapshot":
+                saveSnapshot(call.argument("key"), result);
+                break;
+            case "restoreSnapshot":
+                restoreSnapshot(call.argument("key"), call.argument("ids"), call.argument("types"), result);
                 break;
             case "concatenatingInsertAll":
+                concatenatingJson(call.argument("id"), call.argument("shuffleOrder"))
+                        .addAll(call.argument("index"), call.argument("children"));
                 concatenating(call.argument("id"))
                         .addMediaSources(call.argument("index"), getAudioSources(call.argument("children")), handler, () -> result.success(new HashMap<String, Object>()));
                 concatenating(call.argument("id"))
                         .setShuffleOrder(decodeShuffleOrder(call.argument("shuffleOrder")));
                 break;
             case "concatenatingRemoveRange":
+                concatenatingJson(call.argument("id"), call.argument("shuffleOrder"))
+                        .subList(call.argument("startIndex"), call.argument("endIndex")).clear();
                 concatenating(call.argument("id"))
                         .removeMediaSourceRange(call.argument("startIndex"), call.argument("endIndex"), handler, () -> result.success(new HashMap<String, Object>()));
                 concatenating(call.argument("id"))
                         .setShuffleOrder(decodeShuffleOrder(call.argument("shuffleOrder")));
                 break;
             case "concatenatingMove":
+                List<Object> moveChildren = concatenatingJson(call.argument("id"), call.argument("shuffleOrder"));
+                moveChildren.add(call.argument("newIndex"), moveChildren.remove(call.<Integer>argument("currentIndex").intValue()));
                 concatenating(call.argument("id"))
                         .moveMediaSource(call.argument("currentIndex"), call.argument("newIndex"), handler, () -> result.success(new HashMap<String, Object>()));
                 concatenating(call.argument("id"))
@@ -503,6 +1016,26 @@ public class AudioPlayer implements MethodCallHandler, Player.Listener, Metadata
             case "androidEqualizerGetParameters":
                 result.success(equalizerAudioEffectGetParameters());
                 break;
+            case "setRequestCredentials":
+                Long ttl = getLong(call.argument("ttl"));
+                requestCredentials.set(
+                    castToStringMap(call.argument("headers")),
+                    castToStringMap(call.argument("uris")),
+                    castToStringMap(call.argument("queryParameters")),
+                    ttl == null ? null : ttl / 1000);
+                result.success(new HashMap<String, Object>());
+                break;
+            case "androidParametricEqualizerGetParameters":
+                result.success(mapOf("parameters", parametricEqualizer.getParameters()));
+                break;
+            case "androidParametricEqualizerBandSetGain":
+                parametricEqualizer.setBandGain(call.argument("bandIndex"), call.argument("gain"));
+                result.success(new HashMap<String, Object>());
+                break;
+            case "androidParametricEqualizerSetGain":
+                parametricEqualizer.setGain(call.argument("gain"));
+                result.success(new HashMap<String, Object>());
+                break;
             case "androidEqualizerBandSetGain":
                 equalizerBandSetGain(call.argument("bandIndex"), call.argument("gain"));
                 result.success(new HashMap<String, Object>());
@@ -519,6 +1052,7 @@ public class AudioPlayer implements MethodCallHandler, Player.Listener, Metadata
             result.error("Error: " + e, null, null);
         } finally {
             broadcastPendingPlaybackEvent();
+            Tracing.end(traced);
         }
     }
 
@@ -560,6 +1094,15 @@ public class AudioPlayer implements MethodCallHandler, Player.Listener, Metadata
         return (ConcatenatingMediaSource)mediaSources.get((String)index);
     }
 
+    // Returns the mutable children list of a concatenating node of the
+    // source tree, after recording its new shuffle order.
+    @SuppressWarnings("unchecked")
+    private List<Object> concatenatingJson(final Object id, final List<Integer> shuffleOrder) {
+        Map<Object, Object> map = (Map<Object, Object>)audioSourceJsons.get((String)id);
+        map.put("shuffleOrder", shuffleOrder);
+        return (List<Object>)map.get("children");
+    }
+
     private void setShuffleOrder(final Object json) {
         Map<?, ?> map = (Map<?, ?>)json;
         String id = mapGet(map, "id");
@@ -567,6 +1110,7 @@ public class AudioPlayer implements MethodCallHandler, Player.Listener, Metadata
         if (mediaSource == null) return;
         switch ((String)mapGet(map, "type")) {
         case "concatenating":
+            concatenatingJson(id, mapGet(map, "shuffleOrder"));
             ConcatenatingMediaSource concatenatingMediaSource = (ConcatenatingMediaSource)mediaSource;
             concatenatingMediaSource.setShuffleOrder(decodeShuffleOrder(mapGet(map, "shuffleOrder")));
             List<Object> children = mapGet(map, "children");
@@ -583,6 +1127,7 @@ public class AudioPlayer implements MethodCallHandler, Player.Listener, Metadata
     private MediaSource getAudioSource(final Object json) {
         Map<?, ?> map = (Map<?, ?>)json;
         String id = (String)map.get("id");
+        audioSourceJsons.put(id, map);
         MediaSource mediaSource = mediaSources.get(id);
         if (mediaSource == null) {
             mediaSource = decodeAudioSource(map);
@@ -611,28 +1156,20 @@ public class AudioPlayer implements MethodCallHandler, Player.Listener, Metadata
     }
 
     private MediaSource decodeAudioSource(final Object json) {
-        Map<?, ?> map = (Map<?, ?>)json;
+        boolean traced = Tracing.begin("decodeAudioSource", null);
+        try {
+            return doDecodeAudioSource((Map<?, ?>)json);
+        } finally {
+            Tracing.end(traced);
+        }
+    }
+
+    private MediaSource doDecodeAudioSource(final Map<?, ?> map) {
         String id = (String)map.get("id");
         switch ((String)map.get("type")) {
         case "progressive":
-            return new ProgressiveMediaSource.Factory(buildDataSourceFactory(mapGet(map, "headers")), buildExtractorsFactory(mapGet(map, "options")))
-                    .createMediaSource(new MediaItem.Builder()
-                            .setUri(Uri.parse((String)map.get("uri")))
-                            .setTag(id)
-                            .build());
-        case "dash":
-            return new DashMediaSource.Factory(buildDataSourceFactory(mapGet(map, "headers")))
-                    .createMediaSource(new MediaItem.Builder()
-                            .setUri(Uri.parse((String)map.get("uri")))
-                            .setMimeType(MimeTypes.APPLICATION_MPD)
-                            .setTag(id)
-                            .build());
-        case "hls":
-            return new HlsMediaSource.Factory(buildDataSourceFactory(mapGet(map, "headers")))
-                    .createMediaSource(new MediaItem.Builder()
-                            .setUri(Uri.parse((String)map.get("uri")))
-                            .setMimeType(MimeTypes.APPLICATION_M3U8)
-                            .build());
+            Uri uri = Uri.parse((String)map.get("uri"));
+            return buildProgressiveMediaSource(map, buildProgressiveDataSourceFactory(uri, map));
         case "silence":
             return new SilenceMediaSource.Factory()
                     .setDurationUs(getLong(map.get("duration")))
@@ -648,33 +1185,94 @@ public class AudioPlayer implements MethodCallHandler, Player.Listener, Metadata
         case "clipping":
             Long start = getLong(map.get("start"));
             Long end = getLong(map.get("end"));
-            return new ClippingMediaSource(getAudioSource(map.get("child")),
+            return new ClippingMediaSource(getClippingChildSource(map.get("child")),
                     start != null ? start : 0,
                     end != null ? end : C.TIME_END_OF_SOURCE);
         case "looping":
             Integer count = (Integer)map.get("count");
             MediaSource looperChild = getAudioSource(map.get("child"));
-            MediaSource[] looperChildren = new MediaSource[count];
-            for (int i = 0; i < looperChildren.length; i++) {
-                looperChildren[i] = looperChild;
-            }
-            return new ConcatenatingMediaSource(looperChildren);
+            return createLoopingMediaSource(looperChild, count);
         default:
-            throw new IllegalArgumentException("Unknown AudioSource type: " + map.get("type"));
+            AudioSourceFactory factory = AudioSourceFactories.get((String)map.get("type"));
+            if (factory == null) {
+                throw new IllegalArgumentException("Unknown AudioSource type: " + map.get("type"));
+            }
+            return factory.createMediaSource(map, buildDataSourceFactory(mapGet(map, "headers")));
+        }
+    }
+
+    private DataSource.Factory buildProgressiveDataSourceFactory(final Uri uri, final Map<?, ?> map) {
+        if (StreamDataSource.SCHEME.equals(uri.getScheme())) {
+            return new StreamDataSource.Factory(streamChannel, handler);
+        } else if (FlutterAssetDataSource.SCHEME.equals(uri.getScheme())) {
+            return new FlutterAssetDataSource.Factory(context);
+        } else if (MappedFileDataSource.SCHEME.equals(uri.getScheme())) {
+            return new MappedFileDataSource.Factory(context);
+        } else {
+            return buildDataSourceFactory(mapGet(map, "headers"));
+        }
+    }
+
+    private MediaSource buildProgressiveMediaSource(final Map<?, ?> map, final DataSource.Factory dataSourceFactory) {
+        return new ProgressiveMediaSource.Factory(dataSourceFactory, buildExtractorsFactory(mapGet(map, "options")))
+                .createMediaSource(new MediaItem.Builder()
+                        .setUri(Uri.parse((String)map.get("uri")))
+                        .setTag(map.get("id"))
+                        .build());
+    }
+
+    // Clips over the same remote progressive source (e.g. one clip per
+    // chapter of a long audiobook file) read it through one shared
+    // connection, so that moving on to the next chapter continues the
+    // current request rather than issuing a new one.
+    private MediaSource getClippingChildSource(final Object json) {
+        Map<?, ?> map = (Map<?, ?>)json;
+        Uri uri = "progressive".equals(map.get("type")) ? Uri.parse((String)map.get("uri")) : null;
+        if (uri == null || !("http".equals(uri.getScheme()) || "https".equals(uri.getScheme()))) {
+            return getAudioSource(map);
+        }
+        String id = (String)map.get("id");
+        audioSourceJsons.put(id, map);
+        MediaSource mediaSource = mediaSources.get(id);
+        if (mediaSource == null) {
+            String key = map.get("uri") + "|" + map.get("headers");
+            SharedConnectionDataSource.Connection connection = sharedConnections.get(key);
+            if (connection == null) {
+                connection = new SharedConnectionDataSource.Connection(buildProgressiveDataSourceFactory(uri, map));
+                sharedConnections.put(key, connection);
+            }
+            mediaSource = buildProgressiveMediaSource(map, new SharedConnectionDataSource.Factory(connection));
+            mediaSources.put(id, mediaSource);
         }
+        return mediaSource;
+    }
+
+    // LoopingMediaSource exposes the child timeline count times by index
+    // arithmetic rather than by building a window per repetition, so memory
+    // and timeline-building cost stay constant for large loop counts while
+    // the window indices match those of the equivalent concatenation.
+    @SuppressWarnings("deprecation")
+    private MediaSource createLoopingMediaSource(MediaSource child, int count) {
+        if (count <= 0) {
+            return new ConcatenatingMediaSource();
+        }
+        return new LoopingMediaSource(child, count);
     }
 
     private MediaSource[] getAudioSourcesArray(final Object json) {
-        List<MediaSource> mediaSources = getAudioSources(json);
-        MediaSource[] mediaSourcesArray = new MediaSource[mediaSources.size()];
-        mediaSources.toArray(mediaSourcesArray);
+        if (!(json instanceof List)) throw new RuntimeException("List expected: " + json);
+        List<?> audioSources = (List<?>)json;
+        MediaSource[] mediaSourcesArray = new MediaSource[audioSources.size()];
+        for (int i = 0; i < mediaSourcesArray.length; i++) {
+            mediaSourcesArray[i] = getAudioSource(audioSources.get(i));
+        }
         return mediaSourcesArray;
     }
 
     private List<MediaSource> getAudioSources(final Object json) {
         if (!(json instanceof List)) throw new RuntimeException("List expected: " + json);
         List<?> audioSources = (List<?>)json;
-        List<MediaSource> mediaSources = new ArrayList<MediaSource>();
+        List<MediaSource> mediaSources = new ArrayList<MediaSource>(audioSources.size());
         for (int i = 0 ; i < audioSources.size(); i++) {
             mediaSources.add(getAudioSource(audioSources.get(i)));
         }
@@ -727,10 +1325,21 @@ public class AudioPlayer implements MethodCallHandler, Player.Listener, Metadata
         if (stringHeaders != null && stringHeaders.size() > 0) {
             httpDataSourceFactory.setDefaultRequestProperties(stringHeaders);
         }
-        return new DefaultDataSource.Factory(context, httpDataSourceFactory);
+        return new ResolvingDataSource.Factory(
+            new DefaultDataSource.Factory(context, httpDataSourceFactory),
+            requestCredentials);
     }
 
     private void load(final MediaSource mediaSource, final long initialPosition, final Integer initialIndex, final Result result) {
+        boolean traced = Tracing.begin("load", null);
+        try {
+            doLoad(mediaSource, initialPosition, initialIndex, result);
+        } finally {
+            Tracing.end(traced);
+        }
+    }
+
+    private void doLoad(final MediaSource mediaSource, final long initialPosition, final Integer initialIndex, final Result result) {
         this.initialPos = initialPosition;
         this.initialIndex = initialIndex;
         currentIndex = initialIndex != null ? initialIndex : 0;
@@ -738,41 +1347,348 @@ public class AudioPlayer implements MethodCallHandler, Player.Listener, Metadata
         case none:
             break;
         case loading:
-            abortExistingConnection();
+            // Stopping cancels the previous source's network and extractor
+            // work.
+            cancelPrepare();
             player.stop();
             break;
         default:
             player.stop();
             break;
         }
+        abortPendingSeek();
+        metadataPipeline.reset();
         errorCount = 0;
         prepareResult = result;
         updatePosition();
         processingState = ProcessingState.loading;
         enqueuePlaybackEvent();
         this.mediaSource = mediaSource;
+        endPrepareTrace();
+        prepareTraced = Tracing.beginAsync("prepare", hashCode());
         // TODO: pass in initial position here.
         player.setMediaSource(mediaSource);
         player.prepare();
     }
 
+    private void debounceLoad(final MediaSource mediaSource, final long initialPosition, final Integer initialIndex, final Result result) {
+        pendingLoadResult = result;
+        pendingLoad = () -> {
+            pendingLoad = null;
+            pendingLoadResult = null;
+            load(mediaSource, initialPosition, initialIndex, result);
+        };
+        handler.postDelayed(pendingLoad, loadDebounceWindow);
+    }
+
+    private void runPendingLoad() {
+        Runnable loader = pendingLoad;
+        handler.removeCallbacks(loader);
+        loader.run();
+    }
+
+    // Completes a debounced load that was superseded before it ran.
+    private void cancelPendingLoad() {
+        if (pendingLoad == null) return;
+        handler.removeCallbacks(pendingLoad);
+        pendingLoadResult.success(mapOf("duration", null, "cancelled", true));
+        pendingLoad = null;
+        pendingLoadResult = null;
+    }
+
+    // Completes a load that was superseded before it was prepared. Unlike
+    // an aborted connection this is not an error, so no error event is sent.
+    private void cancelPrepare() {
+        if (prepareResult != null) {
+            prepareResult.success(mapOf("duration", null, "cancelled", true));
+            prepareResult = null;
+            endPrepareTrace();
+        }
+    }
+
+    // Saves the source tree, current index and position and the loop and
+    // shuffle modes so that the queue can be restored after a cold start
+    // without sending the tree from Dart again.
+    private void saveSnapshot(final String key, final Result result) {
+        if (audioSourceJson == null) {
+            throw new IllegalStateException("Nothing loaded");
+        }
+        Map<String, Object> snapshot = new HashMap<String, Object>();
+        snapshot.put("audioSource", audioSourceJson);
+        if (hibernationState != null) {
+            snapshot.put("index", hibernationState.get("index"));
+            snapshot.put("position", 1000 * (Long)hibernationState.get("position"));
+            snapshot.put("loopMode", hibernationState.get("loopMode"));
+            snapshot.put("shuffleMode", (Boolean)hibernationState.get("shuffleModeEnabled") ? 1 : 0);
+        } else {
+            snapshot.put("index", player.getCurrentMediaItemIndex());
+            snapshot.put("position", 1000 * player.getCurrentPosition());
+            snapshot.put("loopMode", player.getRepeatMode());
+            snapshot.put("shuffleMode", player.getShuffleModeEnabled() ? 1 : 0);
+        }
+        PlayerSnapshotStore.getInstance(context).save(key, snapshot, result);
+    }
+
+    // Loads a saved snapshot as if it had been passed to load. The Dart side
+    // rebuilds its sources with new IDs after a cold start, so the snapshot's
+    // tree adopts those IDs once its types are checked against them, and the
+    // restored shuffle orders are returned for Dart to adopt in turn.
+    private void restoreSnapshot(final String key, final List<Object> ids, final List<Object> types, final Result result) {
+        PlayerSnapshotStore.getInstance(context).load(key, new PlayerSnapshotStore.Callback() {
+            @Override
+            public void onLoaded(Map<?, ?> snapshot) {
+                if (player == null) {
+                    result.error("Player disposed", null, null);
+                    return;
+                }
+                try {
+                    Map<?, ?> restoredJson = (Map<?, ?>)snapshot.get("audioSource");
+                    PlayerSnapshotStore.adoptSourceIds(restoredJson, ids, types);
+                    final List<Object> shuffleOrders = PlayerSnapshotStore.getShuffleOrders(restoredJson);
+                    setLoopMode((Integer)snapshot.get("loopMode"));
+                    setShuffleModeEnabled((Integer)snapshot.get("shuffleMode") == 1);
+                    audioSourceJson = restoredJson;
+                    Long position = getLong(snapshot.get("position"));
+                    load(getAudioSource(audioSourceJson), position / 1000, (Integer)snapshot.get("index"), new Result() {
+                        @Override
+                        public void success(Object response) {
+                            Map<String, Object> map = new HashMap<String, Object>();
+                            for (Map.Entry<?, ?> entry : ((Map<?, ?>)response).entrySet()) {
+                                map.put((String)entry.getKey(), entry.getValue());
+                            }
+                            map.put("shuffleOrders", shuffleOrders);
+                            result.success(map);
+                        }
+
+                        @Override
+                        public void error(String errorCode, String errorMessage, Object errorDetails) {
+                            result.error(errorCode, errorMessage, errorDetails);
+                        }
+
+                        @Override
+                        public void notImplemented() {
+                            result.notImplemented();
+                        }
+                    });
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    result.error("Error: " + e, null, null);
+                } finally {
+                    broadcastPendingPlaybackEvent();
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                result.error("Error: " + e, null, null);
+            }
+        });
+    }
+
+    private void endPrepareTrace() {
+        Tracing.endAsync(prepareTraced, "prepare", hashCode());
+        prepareTraced = false;
+    }
+
     private void ensurePlayerInitialized() {
         if (player == null) {
-            ExoPlayer.Builder builder = new ExoPlayer.Builder(context);
+            playbackThread = new HandlerThread("ExoPlayer:Playback", Process.THREAD_PRIORITY_AUDIO);
+            playbackThread.start();
+            ExoPlayer.Builder builder = new ExoPlayer.Builder(context)
+                .setPlaybackLooper(playbackThread.getLooper())
+                // release() then returns without waiting for the playback
+                // thread, which releasePlayer waits for instead.
+                .setReleaseTimeoutMs(0);
             if (loadControl != null) {
                 builder.setLoadControl(loadControl);
             }
-            if (livePlaybackSpeedControl != null) {
-                builder.setLivePlaybackSpeedControl(livePlaybackSpeedControl);
-            }
-            if (offloadSchedulingEnabled) {
-                builder.setRenderersFactory(new DefaultRenderersFactory(context).setEnableAudioOffload(true));
-            }
+            liveSpeedControl = new TrackingLivePlaybackSpeedControl(livePlaybackSpeedControl != null
+                    ? livePlaybackSpeedControl
+                    : new DefaultLivePlaybackSpeedControl.Builder().build());
+            builder.setLivePlaybackSpeedControl(liveSpeedControl);
+            builder.setRenderersFactory(buildRenderersFactory());
             player = builder.build();
-            player.experimentalSetOffloadSchedulingEnabled(offloadSchedulingEnabled);
+            player.addAudioOffloadListener(new ExoPlayer.AudioOffloadListener() {
+                @Override
+                public void onExperimentalSleepingForOffloadChanged(boolean sleeping) {
+                    setSleepingForOffload(sleeping);
+                }
+            });
             setAudioSessionId(player.getAudioSessionId());
             player.addListener(this);
+            playbackStatsListener = new PlaybackStatsListener(false, null);
+            player.addAnalyticsListener(playbackStatsListener);
+        }
+    }
+
+    // Startup and rebuffering metrics across all items played so far, with
+    // durations in microseconds.
+    private Map<String, Object> getPlaybackQualityMetrics() {
+        PlaybackStats stats = playbackStatsListener.getCombinedPlaybackStats();
+        long rebufferTimeMs = stats.getTotalRebufferTimeMs();
+        long playTimeMs = stats.getTotalPlayTimeMs();
+        long joinTimeMs = stats.getMeanJoinTimeMs();
+        return mapOf(
+            "timeToFirstAudio", joinTimeMs == C.TIME_UNSET ? null : 1000 * joinTimeMs,
+            "rebufferCount", stats.totalRebufferCount,
+            "rebufferTime", 1000 * rebufferTimeMs,
+            "playTime", 1000 * playTimeMs,
+            "stallRatio", rebufferTimeMs + playTimeMs == 0 ? 0.0 : (double)rebufferTimeMs / (rebufferTimeMs + playTimeMs));
+    }
+
+    // Offload bypasses the audio processors and the mixer.
+    private boolean isOffloadAllowed() {
+        return offloadSchedulingEnabled && !mixerEnabled && audioProcessors.isEmpty();
+    }
+
+    // Returns why offload cannot be used with the current settings, or null
+    // if it can. Speed, pitch and skip silence are not applied to offloaded
+    // audio, and session effects are unreliable on an offloaded track.
+    private String getOffloadDisabledReason() {
+        if (!offloadSchedulingEnabled) return "disabled";
+        if (mixerEnabled) return "mixer";
+        if (!audioProcessors.isEmpty()) return "audioProcessor";
+        if (Build.VERSION.SDK_INT < 29) return "unsupported";
+        if (player != null) {
+            PlaybackParameters params = player.getPlaybackParameters();
+            if (params.speed != 1.0f) return "speed";
+            if (params.pitch != 1.0f) return "pitch";
+            if (player.getSkipSilenceEnabled()) return "skipSilence";
+        }
+        for (AudioEffect audioEffect : audioEffects) {
+            if (audioEffect.getEnabled()) return "audioEffect";
+        }
+        return null;
+    }
+
+    // Re-evaluates offload eligibility after a setting changed. Items that
+    // become eligible are offloaded from their next configuration. If the
+    // current item is offloaded but no longer eligible, the audio renderer
+    // is briefly disabled so that it is reconfigured for decoding rather
+    // than ignoring the new setting until the next item.
+    private void updateOffloadEligibility() {
+        if (player == null) return;
+        String reason = getOffloadDisabledReason();
+        boolean wasEligible = offloadDisabledReason == null;
+        offloadDisabledReason = reason;
+        player.experimentalSetOffloadSchedulingEnabled(reason == null);
+        if (wasEligible && reason != null && offloadActive) {
+            TrackSelectionParameters params = player.getTrackSelectionParameters();
+            player.setTrackSelectionParameters(params.buildUpon()
+                    .setTrackTypeDisabled(C.TRACK_TYPE_AUDIO, true)
+                    .build());
+            player.setTrackSelectionParameters(params);
+        }
+        enqueuePlaybackEvent();
+    }
+
+    private void setOffloadActive(boolean active) {
+        if (player == null || active == offloadActive) return;
+        offloadActive = active;
+        broadcastImmediatePlaybackEvent();
+    }
+
+    private void setSleepingForOffload(boolean sleeping) {
+        if (sleeping == sleepingForOffload) return;
+        sleepingForOffload = sleeping;
+        if (sleeping) {
+            offloadSleepStartTime = SystemClock.elapsedRealtime();
+        } else {
+            offloadSleepTime += SystemClock.elapsedRealtime() - offloadSleepStartTime;
+        }
+        broadcastImmediatePlaybackEvent();
+    }
+
+    private Map<String, Object> createOffloadEvent() {
+        long sleepTime = offloadSleepTime;
+        if (sleepingForOffload) {
+            sleepTime += SystemClock.elapsedRealtime() - offloadSleepStartTime;
         }
+        return mapOf(
+            "active", offloadActive,
+            "sleeping", sleepingForOffload,
+            "sleepTime", 1000 * sleepTime,
+            "disabledReason", offloadDisabledReason);
+    }
+
+    // Live latency of the current item, or null if it is not live. Offsets
+    // and times are in microseconds.
+    private Map<String, Object> createLiveEvent() {
+        if (player == null || !player.isCurrentMediaItemLive()) return null;
+        long liveOffset = liveSpeedControl.getLiveOffsetUs();
+        long targetOffset = liveSpeedControl.getTargetOffsetUs();
+        return mapOf(
+            "offset", liveOffset == C.TIME_UNSET ? null : liveOffset,
+            "targetOffset", targetOffset == C.TIME_UNSET ? null : targetOffset,
+            "speed", (double)liveSpeedControl.getAdjustedSpeed(),
+            "behindTargetTime", liveSpeedControl.getBehindTargetTimeUs());
+    }
+
+    private DefaultRenderersFactory buildRenderersFactory() {
+        return new DefaultRenderersFactory(context) {
+            @Override
+            protected AudioSink buildAudioSink(Context context, boolean enableFloatOutput, boolean enableAudioTrackPlaybackParams, boolean enableOffload) {
+                if (mixerEnabled) {
+                    // In mixer mode, decoded PCM goes to the shared
+                    // AudioMixer rather than to an AudioTrack owned by this
+                    // player.
+                    return positionTracker.wrap(new MixerAudioSink(AudioMixer.getInstance()));
+                }
+                DefaultAudioSink.Builder sinkBuilder = new DefaultAudioSink.Builder()
+                    .setAudioCapabilities(AudioCapabilities.getCapabilities(context))
+                    .setEnableFloatOutput(enableFloatOutput)
+                    .setEnableAudioTrackPlaybackParams(enableAudioTrackPlaybackParams)
+                    .setOffloadMode(enableOffload
+                        ? DefaultAudioSink.OFFLOAD_MODE_ENABLED_GAPLESS_REQUIRED
+                        : DefaultAudioSink.OFFLOAD_MODE_DISABLED);
+                AudioProcessor[] processors = audioProcessors.toArray(new AudioProcessor[0]);
+                if (speechTimeStretch != null) {
+                    sinkBuilder.setAudioProcessorChain(new SpeechAudioProcessorChain(processors, speechTimeStretch));
+                } else {
+                    sinkBuilder.setAudioProcessors(processors);
+                }
+                AudioSink audioSink = sinkBuilder.build();
+                if (loudnessProcessor != null) {
+                    // The renderer signals a discontinuity to the sink when it
+                    // starts processing the next stream, which is where the
+                    // staged gain of the next item takes effect.
+                    audioSink = new ForwardingAudioSink(audioSink) {
+                        @Override
+                        public void handleDiscontinuity() {
+                            loudnessProcessor.onStreamChanged();
+                            super.handleDiscontinuity();
+                        }
+                    };
+                }
+                if (enableOffload) {
+                    // Encoded audio is only accepted directly, and hence
+                    // offloaded, while the current settings allow it.
+                    // Otherwise the renderer decodes it to PCM first.
+                    audioSink = new ForwardingAudioSink(audioSink) {
+                        @Override
+                        public boolean supportsFormat(Format format) {
+                            return getFormatSupport(format) != SINK_FORMAT_UNSUPPORTED;
+                        }
+
+                        @Override
+                        public int getFormatSupport(Format format) {
+                            if (offloadDisabledReason != null && !MimeTypes.AUDIO_RAW.equals(format.sampleMimeType)) {
+                                return SINK_FORMAT_UNSUPPORTED;
+                            }
+                            return super.getFormatSupport(format);
+                        }
+
+                        @Override
+                        public void configure(Format inputFormat, int specifiedBufferSize, int[] outputChannels) throws ConfigurationException {
+                            super.configure(inputFormat, specifiedBufferSize, outputChannels);
+                            boolean active = !MimeTypes.AUDIO_RAW.equals(inputFormat.sampleMimeType);
+                            handler.post(() -> setOffloadActive(active));
+                        }
+                    };
+                }
+                return positionTracker.wrap(audioSink);
+            }
+        }.setEnableAudioOffload(isOffloadAllowed());
     }
 
     private void setAudioAttributes(int contentType, int flags, int usage) {
@@ -792,7 +1708,21 @@ public class AudioPlayer implements MethodCallHandler, Player.Listener, Metadata
     }
 
     private void audioEffectSetEnabled(String type, boolean enabled) {
+        if (ParametricEqualizerAudioProcessor.TYPE.equals(type)) {
+            parametricEqualizer.setEnabled(enabled);
+            return;
+        }
+        if (LoudnessGainAudioProcessor.TYPE.equals(type)) {
+            loudnessProcessor.setEnabled(enabled);
+            return;
+        }
+        if (SpeechTimeStretchAudioProcessor.TYPE.equals(type)) {
+            // Takes effect when the speed is next set.
+            speechTimeStretch.setEnabled(enabled);
+            return;
+        }
         audioEffectsMap.get(type).setEnabled(enabled);
+        updateOffloadEligibility();
     }
 
     private void loudnessEnhancerSetTargetGain(double targetGain) {
@@ -827,17 +1757,29 @@ public class AudioPlayer implements MethodCallHandler, Player.Listener, Metadata
 
     /// Creates an event based on the current state.
     private Map<String, Object> createPlaybackEvent() {
+        boolean traced = Tracing.begin("createPlaybackEvent", null);
+        try {
+            return doCreatePlaybackEvent();
+        } finally {
+            Tracing.end(traced);
+        }
+    }
+
+    private Map<String, Object> doCreatePlaybackEvent() {
         final Map<String, Object> event = new HashMap<String, Object>();
         Long duration = getDuration() == C.TIME_UNSET ? null : (1000 * getDuration());
         bufferedPosition = player != null ? player.getBufferedPosition() : 0L;
         event.put("processingState", processingState.ordinal());
         event.put("updatePosition", 1000 * updatePosition);
         event.put("updateTime", updateTime);
+        event.put("updateMonotonicTime", updateMonotonicTime);
         event.put("bufferedPosition", 1000 * Math.max(updatePosition, bufferedPosition));
         event.put("icyMetadata", collectIcyMetadata());
         event.put("duration", duration);
         event.put("currentIndex", currentIndex);
         event.put("androidAudioSessionId", audioSessionId);
+        event.put("androidOffload", createOffloadEvent());
+        event.put("androidLive", createLiveEvent());
         return event;
     }
 
@@ -917,6 +1859,7 @@ public class AudioPlayer implements MethodCallHandler, Player.Listener, Metadata
         if (prepareResult != null) {
             prepareResult.error(errorCode, errorMsg, null);
             prepareResult = null;
+            endPrepareTrace();
         }
 
         eventChannel.error(errorCode, errorMsg, null);
@@ -969,18 +1912,19 @@ public class AudioPlayer implements MethodCallHandler, Player.Listener, Metadata
         player.setPlaybackParameters(new PlaybackParameters(speed, params.pitch));
         if (player.getPlayWhenReady())
             updatePosition();
-        enqueuePlaybackEvent();
+        updateOffloadEligibility();
     }
 
     public void setPitch(final float pitch) {
         PlaybackParameters params = player.getPlaybackParameters();
         if (params.pitch == pitch) return;
         player.setPlaybackParameters(new PlaybackParameters(params.speed, pitch));
-        enqueuePlaybackEvent();
+        updateOffloadEligibility();
     }
 
     public void setSkipSilenceEnabled(final boolean enabled) {
         player.setSkipSilenceEnabled(enabled);
+        updateOffloadEligibility();
     }
 
     public void setLoopMode(final int mode) {
@@ -991,25 +1935,102 @@ public class AudioPlayer implements MethodCallHandler, Player.Listener, Metadata
         player.setShuffleModeEnabled(enabled);
     }
 
-    public void seek(final long position, final Integer index, final Result result) {
+    // Seeks to the given position. If a previous seek is still settling,
+    // the request is coalesced: it replaces any other waiting request and
+    // is executed once the in-flight seek completes. A fast seek snaps to
+    // the closest sync point, which is cheaper while dragging a scrubber,
+    // while an exact seek lands on the requested position.
+    public void seek(final long position, final Integer index, final boolean fast, final Result result) {
         if (processingState == ProcessingState.none || processingState == ProcessingState.loading) {
             result.success(new HashMap<String, Object>());
             return;
         }
-        abortSeek();
+        seekRequestCount++;
+        if (seekResult != null) {
+            abortPendingSeek();
+            pendingSeekPos = position;
+            pendingSeekIndex = index;
+            pendingSeekFast = fast;
+            pendingSeekResult = result;
+            seekPos = position;
+            return;
+        }
+        issueSeek(position, index, fast, result);
+    }
+
+    private void issueSeek(final long position, final Integer index, final boolean fast, final Result result) {
         seekPos = position;
         seekResult = result;
         try {
+            SeekParameters seekParameters = fast ? SeekParameters.CLOSEST_SYNC : SeekParameters.EXACT;
+            if (!seekParameters.equals(player.getSeekParameters())) {
+                player.setSeekParameters(seekParameters);
+            }
             int windowIndex = index != null ? index : player.getCurrentMediaItemIndex();
+            seekIssueCount++;
+            seekStartTime = SystemClock.elapsedRealtime();
+            seekTraced = Tracing.beginAsync("seek", hashCode());
             player.seekTo(windowIndex, position);
         } catch (RuntimeException e) {
             seekResult = null;
             seekPos = null;
+            endSeekTrace();
             throw e;
         }
     }
 
+    // Lets another engine control and observe this player through its own
+    // messenger. Stream audio sources are still served by the engine that
+    // created the player until it detaches.
+    void attach(final BinaryMessenger messenger) {
+        if (methodChannels.containsKey(messenger)) return;
+        MethodChannel methodChannel = new MethodChannel(messenger, "com.ryanheise.just_audio.methods." + id);
+        methodChannel.setMethodCallHandler(this);
+        methodChannels.put(messenger, methodChannel);
+        eventChannel.attach(messenger);
+        dataEventChannel.attach(messenger);
+        metadataEventChannel.attach(messenger);
+    }
+
+    void detach(final BinaryMessenger messenger) {
+        MethodChannel methodChannel = methodChannels.remove(messenger);
+        if (methodChannel != null) methodChannel.setMethodCallHandler(null);
+        eventChannel.detach(messenger);
+        dataEventChannel.detach(messenger);
+        metadataEventChannel.detach(messenger);
+        if (methodChannels.isEmpty()) return;
+        if (messenger == streamMessenger) {
+            bindStreamChannel(methodChannels.keySet().iterator().next());
+        }
+        // The detached engine may have been the only one to hear that the
+        // credentials expired, so the engines that remain are asked.
+        requestCredentials.retryRefresh();
+    }
+
+    private void bindStreamChannel(final BinaryMessenger messenger) {
+        streamMessenger = messenger;
+        streamChannel.set(new MethodChannel(messenger, "com.ryanheise.just_audio.stream." + id));
+    }
+
     public void dispose() {
+        dispose(null);
+    }
+
+    // Disposes of this player without blocking on ExoPlayer's playback
+    // thread. The playback thread tears down its renderers in the
+    // background, in parallel with any other players disposed at the same
+    // time, and onDisposed is invoked on the main thread once it has
+    // finished or RELEASE_TIMEOUT_MS has passed.
+    public void dispose(final Runnable onDisposed) {
+        boolean traced = Tracing.begin("dispose", null);
+        try {
+            doDispose(onDisposed);
+        } finally {
+            Tracing.end(traced);
+        }
+    }
+
+    private void doDispose(final Runnable onDisposed) {
         if (processingState == ProcessingState.loading) {
             abortExistingConnection();
         }
@@ -1017,28 +2038,87 @@ public class AudioPlayer implements MethodCallHandler, Player.Listener, Metadata
             playResult.success(new HashMap<String, Object>());
             playResult = null;
         }
+        abortSeeks();
+        cancelPendingLoad();
         mediaSources.clear();
+        sharedConnections.clear();
+        audioSourceJsons.clear();
+        audioSourceJson = null;
         mediaSource = null;
         clearAudioEffects();
-        if (player != null) {
-            player.release();
+        handler.removeCallbacks(bufferWatcher);
+        handler.removeCallbacks(positionStreamer);
+        handler.removeCallbacks(hibernator);
+        hibernationState = null;
+        final ExoPlayer releasingPlayer = player;
+        if (releasingPlayer != null) {
+            releasingPlayer.removeListener(this);
+            releasingPlayer.stop();
             player = null;
             processingState = ProcessingState.none;
             broadcastImmediatePlaybackEvent();
         }
         eventChannel.endOfStream();
         dataEventChannel.endOfStream();
+        metadataPipeline.dispose();
+        if (releasingPlayer != null) {
+            releasePlayer(releasingPlayer, playbackThread, onDisposed);
+            playbackThread = null;
+        } else if (onDisposed != null) {
+            onDisposed.run();
+        }
     }
 
-    private void abortSeek() {
-        if (seekResult != null) {
+    // Releases an ExoPlayer without blocking the main thread. The renderers,
+    // codecs and audio track are torn down on the playback thread after
+    // release() has returned, and onReleased runs on the main thread once
+    // that has finished, or after RELEASE_TIMEOUT_MS if it has not.
+    private void releasePlayer(final ExoPlayer releasingPlayer, final HandlerThread releasingThread, final Runnable onReleased) {
+        boolean traced = Tracing.begin("release", null);
+        releasingPlayer.removeAnalyticsListener(playbackStatsListener);
+        releasingPlayer.release();
+        Tracing.end(traced);
+        final Runnable complete = new Runnable() {
+            private boolean completed;
+
+            @Override
+            public void run() {
+                if (completed) return;
+                completed = true;
+                handler.removeCallbacks(this);
+                releasingThread.quit();
+                if (onReleased != null) onReleased.run();
+            }
+        };
+        // Runs after the release message, which was queued before it.
+        new Handler(releasingThread.getLooper()).post(() -> handler.post(complete));
+        handler.postDelayed(complete, RELEASE_TIMEOUT_MS);
+    }
+
+    // Completes a coalesced seek that has been superseded before it ran.
+    private void abortPendingSeek() {
+        if (pendingSeekResult != null) {
             try {
-                seekResult.success(new HashMap<String, Object>());
+                pendingSeekResult.success(new HashMap<String, Object>());
             } catch (RuntimeException e) {
                 // Result already sent
             }
-            seekResult = null;
+            pendingSeekResult = null;
+            pendingSeekPos = null;
+            pendingSeekIndex = null;
+        }
+    }
+
+    // Completes the in-flight seek and any seek queued behind it once the
+    // player errors or goes idle, since it will then never reach READY or
+    // ENDED. Any error is reported on the event channel.
+    private void abortSeeks() {
+        abortPendingSeek();
+        if (seekResult != null) {
+            endSeekTrace();
             seekPos = null;
+            seekResult.success(new HashMap<String, Object>());
+            seekResult = null;
         }
     }
 
@@ -1063,6 +2143,26 @@ public class AudioPlayer implements MethodCallHandler, Player.Listener, Metadata
         }
     }
 
+    // Decodes the per-item live offset targets of a DASH or HLS source. Any
+    // value not given is left to the media or the live speed control.
+    static MediaItem.LiveConfiguration buildLiveConfiguration(Map<?, ?> options) {
+        Map<?, ?> json = options != null ? (Map<?, ?>)options.get("androidLiveConfiguration") : null;
+        MediaItem.LiveConfiguration.Builder builder = new MediaItem.LiveConfiguration.Builder();
+        if (json == null) return builder.build();
+        Long targetOffset = getLong(json.get("targetOffset"));
+        Long minOffset = getLong(json.get("minOffset"));
+        Long maxOffset = getLong(json.get("maxOffset"));
+        Double minPlaybackSpeed = (Double)json.get("minPlaybackSpeed");
+        Double maxPlaybackSpeed = (Double)json.get("maxPlaybackSpeed");
+        return builder
+            .setTargetOffsetMs(targetOffset != null ? targetOffset / 1000 : C.TIME_UNSET)
+            .setMinOffsetMs(minOffset != null ? minOffset / 1000 : C.TIME_UNSET)
+            .setMaxOffsetMs(maxOffset != null ? maxOffset / 1000 : C.TIME_UNSET)
+            .setMinPlaybackSpeed(minPlaybackSpeed != null ? minPlaybackSpeed.floatValue() : C.RATE_UNSET)
+            .setMaxPlaybackSpeed(maxPlaybackSpeed != null ? maxPlaybackSpeed.floatValue() : C.RATE_UNSET)
+            .build();
+    }
+
     static Map<String, Object> mapOf(Object... args) {
         Map<String, Object> map = new HashMap<>();
         for (int i = 0; i < args.length; i += 2) {
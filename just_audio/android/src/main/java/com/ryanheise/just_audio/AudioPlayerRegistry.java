@@ -0,0 +1,66 @@
+package com.ryanheise.just_audio;
+
+import io.flutter.plugin.common.BinaryMessenger;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Process-wide registry of players, shared by every engine the plugin is
+ * attached to (e.g. a UI engine and a background service engine).
+ *
+ * Each engine that creates or attaches to a player holds one reference to
+ * it through its messenger. The player is only disposed once the last
+ * engine releases it, so several engines can control and observe a single
+ * playback pipeline.
+ */
+class AudioPlayerRegistry {
+    private static class Entry {
+        final AudioPlayer player;
+        final Set<BinaryMessenger> messengers = new HashSet<>();
+
+        Entry(AudioPlayer player) {
+            this.player = player;
+        }
+    }
+
+    private static final Map<String, Entry> entries = new HashMap<>();
+
+    static synchronized boolean contains(String id) {
+        return entries.containsKey(id);
+    }
+
+    // Attaches the messenger to an existing player, returning null if there
+    // is no player with this ID.
+    static synchronized AudioPlayer attach(String id, BinaryMessenger messenger) {
+        Entry entry = entries.get(id);
+        if (entry == null) return null;
+        if (entry.messengers.add(messenger)) {
+            entry.player.attach(messenger);
+        }
+        return entry.player;
+    }
+
+    // Registers a newly created player, referenced by the messenger it was
+    // created with.
+    static synchronized void register(String id, BinaryMessenger messenger, AudioPlayer player) {
+        Entry entry = new Entry(player);
+        entry.messengers.add(messenger);
+        entries.put(id, entry);
+    }
+
+    // Releases the messenger's reference to a player. Returns true if this
+    // was the last reference, in which case the caller must dispose of the
+    // player.
+    static synchronized boolean release(String id, BinaryMessenger messenger) {
+        Entry entry = entries.get(id);
+        if (entry == null || !entry.messengers.remove(messenger)) return false;
+        if (entry.messengers.isEmpty()) {
+            entries.remove(id);
+            return true;
+        }
+        entry.player.detach(messenger);
+        return false;
+    }
+}
@@ -0,0 +1,55 @@
+package com.ryanheise.just_audio;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Registry of {@link AudioSourceFactory} instances keyed by audio source
+ * type.
+ *
+ * The streaming formats are backed by optional ExoPlayer modules. Their
+ * factories are only loaded the first time a source of that type is
+ * decoded, and only if the corresponding module is on the classpath, so
+ * apps that exclude a module neither ship nor load its classes.
+ */
+public class AudioSourceFactories {
+    private static final Map<String, AudioSourceFactory> factories = new HashMap<>();
+    // type -> { probe class, factory class, module }
+    private static final Map<String, String[]> optionalFactories = new HashMap<>();
+
+    static {
+        optionalFactories.put("dash", new String[] {
+            "com.google.android.exoplayer2.source.dash.DashMediaSource",
+            "com.ryanheise.just_audio.DashAudioSourceFactory",
+            "exoplayer-dash",
+        });
+        optionalFactories.put("hls", new String[] {
+            "com.google.android.exoplayer2.source.hls.HlsMediaSource",
+            "com.ryanheise.just_audio.HlsAudioSourceFactory",
+            "exoplayer-hls",
+        });
+    }
+
+    public static synchronized void register(String type, AudioSourceFactory factory) {
+        factories.put(type, factory);
+    }
+
+    static synchronized AudioSourceFactory get(String type) {
+        AudioSourceFactory factory = factories.get(type);
+        if (factory != null) return factory;
+        String[] optional = optionalFactories.get(type);
+        if (optional == null) return null;
+        try {
+            Class.forName(optional[0]);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("AudioSource type " + type + " requires the " + optional[2] + " module");
+        }
+        try {
+            factory = (AudioSourceFactory)Class.forName(optional[1]).getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to load factory for AudioSource type " + type, e);
+        }
+        factories.put(type, factory);
+        return factory;
+    }
+}
@@ -0,0 +1,14 @@
+package com.ryanheise.just_audio;
+
+import com.google.android.exoplayer2.source.MediaSource;
+import com.google.android.exoplayer2.upstream.DataSource;
+import java.util.Map;
+
+/**
+ * Creates a {@link MediaSource} for one type of audio source message, e.g.
+ * "dash" or "hls". Factories are looked up by type through
+ * {@link AudioSourceFactories}.
+ */
+public interface AudioSourceFactory {
+    MediaSource createMediaSource(Map<?, ?> json, DataSource.Factory dataSourceFactory);
+}
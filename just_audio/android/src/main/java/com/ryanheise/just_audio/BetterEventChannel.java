@@ -3,37 +3,75 @@ package com.ryanheise.just_audio;
 import io.flutter.plugin.common.BinaryMessenger;
 import io.flutter.plugin.common.EventChannel;
 import io.flutter.plugin.common.EventChannel.EventSink;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+// An event channel that may be attached to the messengers of several
+// engines at once, sending every event to each engine that is listening.
+// If replayLastEvent is set, an engine that starts listening first receives
+// the last event sent, which suits channels whose events carry full state.
 public class BetterEventChannel implements EventSink {
-    private EventSink eventSink;
+    private final String name;
+    private final boolean replayLastEvent;
+    private Object lastEvent;
+    private final Map<BinaryMessenger, EventChannel> eventChannels = new HashMap<>();
+    private final Map<BinaryMessenger, EventSink> eventSinks = new LinkedHashMap<>();
 
-	public BetterEventChannel(final BinaryMessenger messenger, final String id) {
-        EventChannel eventChannel = new EventChannel(messenger, id);
+	public BetterEventChannel(final BinaryMessenger messenger, final String name) {
+        this(messenger, name, false);
+	}
+
+    public BetterEventChannel(final BinaryMessenger messenger, final String name, final boolean replayLastEvent) {
+        this.name = name;
+        this.replayLastEvent = replayLastEvent;
+        attach(messenger);
+    }
+
+    public void attach(final BinaryMessenger messenger) {
+        if (eventChannels.containsKey(messenger)) return;
+        EventChannel eventChannel = new EventChannel(messenger, name);
         eventChannel.setStreamHandler(new EventChannel.StreamHandler() {
             @Override
             public void onListen(final Object arguments, final EventSink eventSink) {
-                BetterEventChannel.this.eventSink = eventSink;
+                eventSinks.put(messenger, eventSink);
+                if (lastEvent != null) eventSink.success(lastEvent);
             }
 
             @Override
             public void onCancel(final Object arguments) {
-                eventSink = null;
+                eventSinks.remove(messenger);
             }
         });
-	}
+        eventChannels.put(messenger, eventChannel);
+    }
+
+    public void detach(final BinaryMessenger messenger) {
+        EventChannel eventChannel = eventChannels.remove(messenger);
+        if (eventChannel != null) eventChannel.setStreamHandler(null);
+        eventSinks.remove(messenger);
+    }
 
     @Override
     public void success(Object event) {
-        if (eventSink != null) eventSink.success(event);
+        if (replayLastEvent) lastEvent = event;
+        for (EventSink eventSink : eventSinks.values()) {
+            eventSink.success(event);
+        }
     }
 
     @Override
     public void error(String errorCode, String errorMessage, Object errorDetails) {
-        if (eventSink != null) eventSink.error(errorCode, errorMessage, errorDetails);
+        for (EventSink eventSink : eventSinks.values()) {
+            eventSink.error(errorCode, errorMessage, errorDetails);
+        }
     }
 
     @Override
     public void endOfStream() {
-        if (eventSink != null) eventSink.endOfStream();
+        lastEvent = null;
+        for (EventSink eventSink : eventSinks.values()) {
+            eventSink.endOfStream();
+        }
     }
 }
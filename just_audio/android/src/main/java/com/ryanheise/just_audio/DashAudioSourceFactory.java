@@ -0,0 +1,23 @@
+package com.ryanheise.just_audio;
+
+import android.net.Uri;
+import com.google.android.exoplayer2.MediaItem;
+import com.google.android.exoplayer2.source.MediaSource;
+import com.google.android.exoplayer2.source.dash.DashMediaSource;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.util.MimeTypes;
+import java.util.Map;
+
+// Loaded reflectively by AudioSourceFactories when exoplayer-dash is present.
+class DashAudioSourceFactory implements AudioSourceFactory {
+    @Override
+    public MediaSource createMediaSource(Map<?, ?> map, DataSource.Factory dataSourceFactory) {
+        return new DashMediaSource.Factory(dataSourceFactory)
+                .createMediaSource(new MediaItem.Builder()
+                        .setUri(Uri.parse((String)map.get("uri")))
+                        .setMimeType(MimeTypes.APPLICATION_MPD)
+                        .setLiveConfiguration(AudioPlayer.buildLiveConfiguration(AudioPlayer.mapGet(map, "options")))
+                        .setTag(map.get("id"))
+                        .build());
+    }
+}
@@ -0,0 +1,161 @@
+package com.ryanheise.just_audio;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.net.Uri;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.PlaybackException;
+import com.google.android.exoplayer2.upstream.BaseDataSource;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSourceException;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import io.flutter.FlutterInjector;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads a Flutter asset identified by an asset:///key URI straight out of
+ * the APK.
+ *
+ * Uncompressed assets are read through the APK's file descriptor at the
+ * asset's offset, so seeking is a single reposition of the file channel.
+ * Compressed assets fall back to the AssetManager stream. Neither path
+ * copies the asset to a temporary file or loads it fully into memory.
+ */
+class FlutterAssetDataSource extends BaseDataSource {
+    static final String SCHEME = "asset";
+
+    static class Factory implements DataSource.Factory {
+        private final Context context;
+
+        Factory(Context context) {
+            this.context = context;
+        }
+
+        @Override
+        public DataSource createDataSource() {
+            return new FlutterAssetDataSource(context.getAssets());
+        }
+    }
+
+    private final AssetManager assetManager;
+    private Uri uri;
+    private AssetFileDescriptor assetFileDescriptor;
+    private InputStream inputStream;
+    private long bytesRemaining;
+    private boolean opened;
+
+    FlutterAssetDataSource(AssetManager assetManager) {
+        super(false);
+        this.assetManager = assetManager;
+    }
+
+    @Override
+    public long open(DataSpec dataSpec) throws IOException {
+        try {
+            uri = dataSpec.uri;
+            String key = uri.getPath();
+            if (key.startsWith("/")) key = key.substring(1);
+            String path = FlutterInjector.instance().flutterLoader().getLookupKeyForAsset(key);
+            transferInitializing(dataSpec);
+            long assetLength;
+            try {
+                assetFileDescriptor = assetManager.openFd(path);
+                inputStream = openInputStream(assetFileDescriptor, dataSpec.position);
+                assetLength = assetFileDescriptor.getLength();
+            } catch (FileNotFoundException e) {
+                // openFd fails for compressed assets.
+                assetFileDescriptor = null;
+                inputStream = assetManager.open(path, AssetManager.ACCESS_RANDOM);
+                long skipped = inputStream.skip(dataSpec.position);
+                if (skipped < dataSpec.position) {
+                    throw new DataSourceException(PlaybackException.ERROR_CODE_IO_READ_POSITION_OUT_OF_RANGE);
+                }
+                int available = inputStream.available();
+                // available() returns Integer.MAX_VALUE when the size is unknown.
+                assetLength = available == Integer.MAX_VALUE ? C.LENGTH_UNSET : dataSpec.position + available;
+            }
+            if (assetLength != C.LENGTH_UNSET && assetLength != AssetFileDescriptor.UNKNOWN_LENGTH) {
+                if (dataSpec.position > assetLength) {
+                    throw new DataSourceException(PlaybackException.ERROR_CODE_IO_READ_POSITION_OUT_OF_RANGE);
+                }
+                bytesRemaining = assetLength - dataSpec.position;
+                if (dataSpec.length != C.LENGTH_UNSET) {
+                    bytesRemaining = Math.min(bytesRemaining, dataSpec.length);
+                }
+            } else {
+                bytesRemaining = dataSpec.length;
+            }
+        } catch (DataSourceException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new DataSourceException(e, e instanceof FileNotFoundException
+                    ? PlaybackException.ERROR_CODE_IO_FILE_NOT_FOUND
+                    : PlaybackException.ERROR_CODE_IO_UNSPECIFIED);
+        }
+        opened = true;
+        transferStarted(dataSpec);
+        return bytesRemaining;
+    }
+
+    // Opens the APK itself at the given position in the asset, as
+    // RawResourceDataSource does. The stream of createInputStream() keeps
+    // its own count of the bytes left from the asset start, which a
+    // reposition of its channel would leave wrong, so reads are bounded by
+    // bytesRemaining instead.
+    static FileInputStream openInputStream(AssetFileDescriptor assetFileDescriptor, long position) throws IOException {
+        FileInputStream inputStream = new FileInputStream(assetFileDescriptor.getFileDescriptor());
+        try {
+            inputStream.getChannel().position(assetFileDescriptor.getStartOffset() + position);
+        } catch (IOException e) {
+            inputStream.close();
+            throw e;
+        }
+        return inputStream;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) return 0;
+        if (bytesRemaining == 0) return C.RESULT_END_OF_INPUT;
+        int bytesToRead = bytesRemaining == C.LENGTH_UNSET ? length : (int)Math.min(bytesRemaining, length);
+        int bytesRead;
+        try {
+            bytesRead = inputStream.read(buffer, offset, bytesToRead);
+        } catch (IOException e) {
+            throw new DataSourceException(e, PlaybackException.ERROR_CODE_IO_UNSPECIFIED);
+        }
+        if (bytesRead == -1) return C.RESULT_END_OF_INPUT;
+        if (bytesRemaining != C.LENGTH_UNSET) bytesRemaining -= bytesRead;
+        bytesTransferred(bytesRead);
+        return bytesRead;
+    }
+
+    @Nullable
+    @Override
+    public Uri getUri() {
+        return uri;
+    }
+
+    @Override
+    public void close() throws IOException {
+        uri = null;
+        try {
+            if (inputStream != null) inputStream.close();
+            if (assetFileDescriptor != null) assetFileDescriptor.close();
+        } catch (IOException e) {
+            throw new DataSourceException(e, PlaybackException.ERROR_CODE_IO_UNSPECIFIED);
+        } finally {
+            inputStream = null;
+            assetFileDescriptor = null;
+            if (opened) {
+                opened = false;
+                transferEnded();
+            }
+        }
+    }
+}
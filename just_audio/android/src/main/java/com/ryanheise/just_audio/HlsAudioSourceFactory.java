@@ -0,0 +1,22 @@
+package com.ryanheise.just_audio;
+
+import android.net.Uri;
+import com.google.android.exoplayer2.MediaItem;
+import com.google.android.exoplayer2.source.MediaSource;
+import com.google.android.exoplayer2.source.hls.HlsMediaSource;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.util.MimeTypes;
+import java.util.Map;
+
+// Loaded reflectively by AudioSourceFactories when exoplayer-hls is present.
+class HlsAudioSourceFactory implements AudioSourceFactory {
+    @Override
+    public MediaSource createMediaSource(Map<?, ?> map, DataSource.Factory dataSourceFactory) {
+        return new HlsMediaSource.Factory(dataSourceFactory)
+                .createMediaSource(new MediaItem.Builder()
+                        .setUri(Uri.parse((String)map.get("uri")))
+                        .setMimeType(MimeTypes.APPLICATION_M3U8)
+                        .setLiveConfiguration(AudioPlayer.buildLiveConfiguration(AudioPlayer.mapGet(map, "options")))
+                        .build());
+    }
+}
@@ -1,6 +1,8 @@
 package com.ryanheise.just_audio;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
 import androidx.annotation.NonNull;
 import io.flutter.embedding.engine.FlutterEngine;
 import io.flutter.embedding.engine.FlutterEngine.EngineLifecycleListener;
@@ -17,15 +19,32 @@ import io.flutter.plugin.common.MethodChannel.Result;
 public class JustAudioPlugin implements FlutterPlugin {
     private MethodChannel channel;
     private MainMethodCallHandler methodCallHandler;
+    private Context applicationContext;
+    private final ComponentCallbacks2 componentCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            if (methodCallHandler != null) methodCallHandler.onTrimMemory(level);
+        }
+
+        @Override
+        public void onConfigurationChanged(@NonNull Configuration newConfig) {
+        }
+
+        @Override
+        public void onLowMemory() {
+            onTrimMemory(TRIM_MEMORY_COMPLETE);
+        }
+    };
 
     @Override
     public void onAttachedToEngine(@NonNull FlutterPluginBinding binding) {
-        Context applicationContext = binding.getApplicationContext();
+        applicationContext = binding.getApplicationContext();
         BinaryMessenger messenger = binding.getBinaryMessenger();
         methodCallHandler = new MainMethodCallHandler(applicationContext, messenger);
 
         channel = new MethodChannel(messenger, "com.ryanheise.just_audio.methods");
         channel.setMethodCallHandler(methodCallHandler);
+        applicationContext.registerComponentCallbacks(componentCallbacks);
         @SuppressWarnings("deprecation")
         FlutterEngine engine = binding.getFlutterEngine();
         engine.addEngineLifecycleListener(new EngineLifecycleListener() {
@@ -42,6 +61,7 @@ public class JustAudioPlugin implements FlutterPlugin {
 
     @Override
     public void onDetachedFromEngine(@NonNull FlutterPluginBinding binding) {
+        applicationContext.unregisterComponentCallbacks(componentCallbacks);
         methodCallHandler.dispose();
         methodCallHandler = null;
 
@@ -0,0 +1,123 @@
+package com.ryanheise.just_audio;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.audio.BaseAudioProcessor;
+import java.nio.ByteBuffer;
+
+/**
+ * Applies a per-item loudness normalization gain.
+ *
+ * The gain for the item after the current one is staged in advance so
+ * that it can be switched in at the exact sample where the renderer starts
+ * processing the next stream (see {@link #onStreamChanged}), rather than
+ * when the transition is later reported on the main thread.
+ *
+ * The loudness of an item may only become known after it has started
+ * playing, once its ReplayGain tag is read or its analysis completes. That
+ * gain is ramped to over RAMP_DURATION_MS (see {@link #rampToGain}) so that
+ * the change does not click.
+ */
+class LoudnessGainAudioProcessor extends BaseAudioProcessor {
+    static final String TYPE = "AndroidLoudnessNormalizer";
+    static final int RAMP_DURATION_MS = 200;
+
+    // The gain of the item now being processed.
+    private volatile float gain = 1f;
+    // Whether gain is to be applied at once rather than ramped to.
+    private volatile boolean gainChanged;
+    private volatile float nextGain = 1f;
+    private volatile boolean enabled;
+    // The gain applied to the last frame, and its change per frame while
+    // ramping to rampTarget. Only used on the playback thread.
+    private float appliedGain = 1f;
+    private float rampTarget = 1f;
+    private float rampStep;
+
+    LoudnessGainAudioProcessor(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    // Sets the gain of the item now being processed, taking effect at
+    // once.
+    void setGain(float gain) {
+        this.gain = gain;
+        gainChanged = true;
+    }
+
+    // Changes the gain of the item now being processed while it plays,
+    // ramping to it from the gain currently applied.
+    void rampToGain(float gain) {
+        this.gain = gain;
+    }
+
+    // Stages the gain of the item that follows the one being processed.
+    void setNextGain(float nextGain) {
+        this.nextGain = nextGain;
+    }
+
+    // Called on the playback thread when the renderer begins processing
+    // the next stream.
+    void onStreamChanged() {
+        setGain(nextGain);
+    }
+
+    @Override
+    protected AudioFormat onConfigure(AudioFormat inputAudioFormat) throws UnhandledAudioFormatException {
+        if (inputAudioFormat.encoding != C.ENCODING_PCM_16BIT) {
+            throw new UnhandledAudioFormatException(inputAudioFormat);
+        }
+        return inputAudioFormat;
+    }
+
+    @Override
+    public void queueInput(ByteBuffer inputBuffer) {
+        int remaining = inputBuffer.remaining();
+        if (remaining == 0) return;
+        ByteBuffer outputBuffer = replaceOutputBuffer(remaining);
+        // gain is written before gainChanged, so it is read after it.
+        if (gainChanged) {
+            gainChanged = false;
+            appliedGain = gain;
+        }
+        float target = gain;
+        if (target != rampTarget) {
+            int rampFrames = Math.max(1, inputAudioFormat.sampleRate * RAMP_DURATION_MS / 1000);
+            rampTarget = target;
+            rampStep = (target - appliedGain) / rampFrames;
+        }
+        if (!enabled || (appliedGain == 1f && target == 1f)) {
+            appliedGain = target;
+            outputBuffer.put(inputBuffer);
+        } else {
+            int channelCount = inputAudioFormat.channelCount;
+            float g = appliedGain;
+            while (inputBuffer.remaining() >= 2 * channelCount) {
+                if (g != target) {
+                    g += rampStep;
+                    if (rampStep > 0 ? g > target : g < target) g = target;
+                }
+                for (int c = 0; c < channelCount; c++) {
+                    float sample = inputBuffer.getShort() * g;
+                    if (sample > Short.MAX_VALUE) sample = Short.MAX_VALUE;
+                    else if (sample < Short.MIN_VALUE) sample = Short.MIN_VALUE;
+                    outputBuffer.putShort((short)sample);
+                }
+            }
+            appliedGain = g;
+            inputBuffer.position(inputBuffer.limit());
+        }
+        outputBuffer.flip();
+    }
+
+    @Override
+    protected void onFlush() {
+        // A flush is a seek or a new item, where there is nothing to ramp
+        // from.
+        appliedGain = gain;
+        rampTarget = appliedGain;
+    }
+}
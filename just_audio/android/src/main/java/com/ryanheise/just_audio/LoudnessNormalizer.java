@@ -0,0 +1,316 @@
+package com.ryanheise.just_audio;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import io.flutter.Log;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the integrated loudness of audio items (EBU R128) on a bounded
+ * background worker pool and keeps the results in a persistent cache keyed
+ * by URI. Only file, content and asset URIs are analyzed. The loudness of
+ * remote items is taken from ReplayGain tags observed during playback,
+ * which are recorded in the same cache.
+ */
+class LoudnessNormalizer {
+    static final String TAG = "LoudnessNormalizer";
+    // The ReplayGain 2.0 reference level, in LUFS.
+    static final double REFERENCE_LOUDNESS = -18.0;
+    static final int MAX_CACHE_ENTRIES = 5000;
+    static final int WORKER_COUNT = 2;
+    private static final int CACHE_VERSION = 1;
+
+    interface Listener {
+        // Called on the main thread when the loudness of uri becomes known.
+        void onLoudnessAvailable(String uri);
+    }
+
+    private static LoudnessNormalizer instance;
+
+    static synchronized LoudnessNormalizer getInstance(Context context) {
+        if (instance == null) {
+            instance = new LoudnessNormalizer(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private final Context context;
+    private final File cacheFile;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            WORKER_COUNT, WORKER_COUNT, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+            runnable -> new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, "just_audio:loudness"));
+    // uri -> integrated loudness in LUFS, in least recently used order.
+    private final Map<String, Double> loudnessCache = new LinkedHashMap<String, Double>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Double> eldest) {
+            return size() > MAX_CACHE_ENTRIES;
+        }
+    };
+    private final Set<String> pending = new HashSet<>();
+    // Guards cacheLoaded and all access to cacheFile.
+    private final Object cacheLoadLock = new Object();
+    private boolean cacheLoaded;
+
+    private LoudnessNormalizer(Context context) {
+        this.context = context;
+        cacheFile = new File(context.getCacheDir(), "just_audio_loudness");
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    // Returns the cached loudness of uri in LUFS, or null if it is not yet
+    // known, in which case an analysis is scheduled.
+    synchronized Double getLoudness(String uri, Listener listener) {
+        Double loudness = loudnessCache.get(uri);
+        if (loudness == null && !pending.contains(uri) && isAnalyzable(uri)) {
+            pending.add(uri);
+            executor.execute(() -> analyze(uri, listener));
+        }
+        return loudness;
+    }
+
+    // Records a ReplayGain track gain read from the item's tags.
+    void putReplayGain(String uri, double trackGainDb) {
+        put(uri, REFERENCE_LOUDNESS - trackGainDb);
+    }
+
+    private void put(String uri, double loudness) {
+        synchronized (this) {
+            loudnessCache.put(uri, loudness);
+        }
+        executor.execute(this::saveCache);
+    }
+
+    // Only local items are decoded for analysis. Remote items would be
+    // downloaded a second time, and live or ICY streams never end, so their
+    // loudness is only known from ReplayGain tags.
+    private static boolean isAnalyzable(String uri) {
+        Uri parsed = Uri.parse(uri);
+        String scheme = parsed.getScheme();
+        if (MappedFileDataSource.SCHEME.equals(scheme)) {
+            if (parsed.getPath() == null) return false;
+            File file = new File(parsed.getPath());
+            // A LockCachingAudioSource file is complete once its ".part"
+            // file has been renamed over it.
+            return file.isFile() && !new File(file.getPath() + ".part").exists();
+        }
+        return ContentResolver.SCHEME_CONTENT.equals(scheme) || FlutterAssetDataSource.SCHEME.equals(scheme);
+    }
+
+    private void analyze(String uri, Listener listener) {
+        ensureCacheLoaded();
+        Double loudness;
+        synchronized (this) {
+            loudness = loudnessCache.get(uri);
+        }
+        if (loudness == null) {
+            try {
+                loudness = measureIntegratedLoudness(uri);
+            } catch (Exception e) {
+                Log.w(TAG, "Loudness analysis failed for " + uri + ": " + e);
+            }
+            if (loudness != null) put(uri, loudness);
+        }
+        synchronized (this) {
+            pending.remove(uri);
+        }
+        if (loudness != null) {
+            handler.post(() -> listener.onLoudnessAvailable(uri));
+        }
+    }
+
+    private Double measureIntegratedLoudness(String uri) throws IOException {
+        final LoudnessMeter[] meter = new LoudnessMeter[1];
+        PcmDecoder.decode(context, Uri.parse(uri), 0, -1, new PcmDecoder.Callback() {
+            @Override
+            public void onFormat(int sampleRate, int channelCount) {
+                if (meter[0] == null) meter[0] = new LoudnessMeter(sampleRate, channelCount);
+            }
+
+            @Override
+            public void onPcm(ByteBuffer pcm, long presentationTimeUs) {
+                meter[0].process(pcm);
+            }
+        });
+        return meter[0] != null ? meter[0].getIntegratedLoudness() : null;
+    }
+
+    private void ensureCacheLoaded() {
+        synchronized (cacheLoadLock) {
+            if (!cacheLoaded) {
+                loadCache();
+                cacheLoaded = true;
+            }
+        }
+    }
+
+    private void loadCache() {
+        Map<String, Double> loaded = new LinkedHashMap<>();
+        if (cacheFile.exists()) {
+            try (DataInputStream in = new DataInputStream(new FileInputStream(cacheFile))) {
+                if (in.readInt() == CACHE_VERSION) {
+                    int count = in.readInt();
+                    for (int i = 0; i < count; i++) {
+                        String uri = in.readUTF();
+                        loaded.put(uri, in.readDouble());
+                    }
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to read loudness cache: " + e);
+            }
+        }
+        synchronized (this) {
+            for (Map.Entry<String, Double> entry : loaded.entrySet()) {
+                if (!loudnessCache.containsKey(entry.getKey())) {
+                    loudnessCache.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    private void saveCache() {
+        ensureCacheLoaded();
+        Map<String, Double> snapshot;
+        synchronized (this) {
+            snapshot = new LinkedHashMap<>(loudnessCache);
+        }
+        synchronized (cacheLoadLock) {
+            File tempFile = new File(cacheFile.getPath() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tempFile))) {
+                out.writeInt(CACHE_VERSION);
+                out.writeInt(snapshot.size());
+                for (Map.Entry<String, Double> entry : snapshot.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeDouble(entry.getValue());
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to write loudness cache: " + e);
+                return;
+            }
+            if (!tempFile.renameTo(cacheFile)) {
+                Log.w(TAG, "Failed to replace loudness cache");
+            }
+        }
+    }
+
+    /**
+     * Computes integrated loudness per ITU-R BS.1770 / EBU R128: K-weighting,
+     * 400 ms gating blocks with 75% overlap, an absolute gate at -70 LUFS and
+     * a relative gate 10 LU below the absolutely gated loudness.
+     */
+    static class LoudnessMeter {
+        private final int channelCount;
+        private final int subBlockFrames;
+        // K-weighting filter coefficients: a high shelf then a high pass.
+        private final double[] shelfB = new double[3];
+        private final double[] shelfA = new double[3];
+        private final double[] passB = { 1.0, -2.0, 1.0 };
+        private final double[] passA = new double[3];
+        private final double[] state;
+        private double subBlockEnergy;
+        private int subBlockFrameCount;
+        // Mean square energy of each 100 ms sub-block.
+        private double[] subBlocks = new double[1024];
+        private int subBlockCount;
+
+        LoudnessMeter(int sampleRate, int channelCount) {
+            this.channelCount = channelCount;
+            subBlockFrames = sampleRate / 10;
+            state = new double[channelCount * 4];
+            double k = Math.tan(Math.PI * 1681.974450955533 / sampleRate);
+            double q = 0.7071752369554196;
+            double vh = Math.pow(10.0, 3.999843853973347 / 20.0);
+            double vb = Math.pow(vh, 0.4996667741545416);
+            double a0 = 1.0 + k / q + k * k;
+            shelfB[0] = (vh + vb * k / q + k * k) / a0;
+            shelfB[1] = 2.0 * (k * k - vh) / a0;
+            shelfB[2] = (vh - vb * k / q + k * k) / a0;
+            shelfA[1] = 2.0 * (k * k - 1.0) / a0;
+            shelfA[2] = (1.0 - k / q + k * k) / a0;
+            k = Math.tan(Math.PI * 38.13547087602444 / sampleRate);
+            q = 0.5003270373238773;
+            a0 = 1.0 + k / q + k * k;
+            passA[1] = 2.0 * (k * k - 1.0) / a0;
+            passA[2] = (1.0 - k / q + k * k) / a0;
+        }
+
+        void process(ByteBuffer pcm) {
+            while (pcm.remaining() >= 2 * channelCount) {
+                double frameEnergy = 0;
+                for (int c = 0; c < channelCount; c++) {
+                    double x = pcm.getShort() / 32768.0;
+                    int s = c * 4;
+                    double y = shelfB[0] * x + state[s];
+                    state[s] = shelfB[1] * x - shelfA[1] * y + state[s + 1];
+                    state[s + 1] = shelfB[2] * x - shelfA[2] * y;
+                    x = y;
+                    y = passB[0] * x + state[s + 2];
+                    state[s + 2] = passB[1] * x - passA[1] * y + state[s + 3];
+                    state[s + 3] = passB[2] * x - passA[2] * y;
+                    // Surround channels of 5.1 layouts are weighted by 1.41.
+                    double weight = channelCount >= 5 && c >= 4 ? 1.41 : 1.0;
+                    frameEnergy += weight * y * y;
+                }
+                subBlockEnergy += frameEnergy;
+                if (++subBlockFrameCount == subBlockFrames) {
+                    if (subBlockCount == subBlocks.length) {
+                        double[] grown = new double[subBlocks.length * 2];
+                        System.arraycopy(subBlocks, 0, grown, 0, subBlockCount);
+                        subBlocks = grown;
+                    }
+                    subBlocks[subBlockCount++] = subBlockEnergy / subBlockFrames;
+                    subBlockEnergy = 0;
+                    subBlockFrameCount = 0;
+                }
+            }
+        }
+
+        Double getIntegratedLoudness() {
+            int blockCount = subBlockCount - 3;
+            if (blockCount <= 0) return null;
+            double[] blocks = new double[blockCount];
+            double sum = 0;
+            int count = 0;
+            double absoluteGate = Math.pow(10.0, (-70.0 + 0.691) / 10.0);
+            for (int i = 0; i < blockCount; i++) {
+                blocks[i] = (subBlocks[i] + subBlocks[i + 1] + subBlocks[i + 2] + subBlocks[i + 3]) / 4.0;
+                if (blocks[i] > absoluteGate) {
+                    sum += blocks[i];
+                    count++;
+                }
+            }
+            if (count == 0) return null;
+            double relativeGate = sum / count * Math.pow(10.0, -10.0 / 10.0);
+            sum = 0;
+            count = 0;
+            for (double block : blocks) {
+                if (block > absoluteGate && block > relativeGate) {
+                    sum += block;
+                    count++;
+                }
+            }
+            if (count == 0) return null;
+            return -0.691 + 10.0 * Math.log10(sum / count);
+        }
+    }
+}
@@ -16,6 +16,8 @@ public class MainMethodCallHandler implements MethodCallHandler {
     private final Context applicationContext;
     private final BinaryMessenger messenger;
 
+    // The players referenced by this engine. Players themselves live in the
+    // process-wide AudioPlayerRegistry so that other engines may share them.
     private final Map<String, AudioPlayer> players = new HashMap<>();
 
     public MainMethodCallHandler(Context applicationContext,
@@ -26,6 +28,15 @@ public class MainMethodCallHandler implements MethodCallHandler {
 
     @Override
     public void onMethodCall(MethodCall call, @NonNull Result result) {
+        boolean traced = Tracing.begin("onMethodCall", call.method);
+        try {
+            doOnMethodCall(call, result);
+        } finally {
+            Tracing.end(traced);
+        }
+    }
+
+    private void doOnMethodCall(MethodCall call, Result result) {
         switch (call.method) {
         case "init": {
             String id = call.argument("id");
@@ -33,34 +44,57 @@ public class MainMethodCallHandler implements MethodCallHandler {
                 result.error("Platform player " + id + " already exists", null, null);
                 break;
             }
-            List<Object> rawAudioEffects = call.argument("androidAudioEffects");
-            players.put(
-                id,
-                new AudioPlayer(
+            // If another engine already created a player with this ID, this
+            // engine attaches to it when asked to, and the remaining
+            // arguments are ignored.
+            AudioPlayer player = null;
+            if (Boolean.TRUE.equals(call.argument("androidAttach"))) {
+                player = AudioPlayerRegistry.attach(id, messenger);
+            } else if (AudioPlayerRegistry.contains(id)) {
+                result.error("Platform player " + id + " already exists in another engine", null, null);
+                break;
+            }
+            if (player == null) {
+                List<Object> rawAudioEffects = call.argument("androidAudioEffects");
+                player = new AudioPlayer(
                     applicationContext,
                     messenger,
                     id,
                     call.argument("audioLoadConfiguration"),
                     rawAudioEffects,
-                    call.argument("androidOffloadSchedulingEnabled")
-                )
-            );
+                    call.argument("androidOffloadSchedulingEnabled"),
+                    call.argument("androidMixerEnabled")
+                );
+                AudioPlayerRegistry.register(id, messenger, player);
+            }
+            players.put(id, player);
             result.success(null);
             break;
         }
         case "disposePlayer": {
             String id = call.argument("id");
-            AudioPlayer player = players.get(id);
-            if (player != null) {
-                player.dispose();
-                players.remove(id);
+            AudioPlayer player = players.remove(id);
+            if (player != null && AudioPlayerRegistry.release(id, messenger)) {
+                player.dispose(() -> result.success(new HashMap<String, Object>()));
+            } else {
+                result.success(new HashMap<String, Object>());
             }
+            break;
+        }
+        case "extractWaveform": {
+            WaveformExtractor.getInstance(applicationContext).extract(
+                call.argument("uri"),
+                call.argument("resolution"),
+                result);
+            break;
+        }
+        case "setTracingEnabled": {
+            Tracing.setEnabled(call.argument("enabled"));
             result.success(new HashMap<String, Object>());
             break;
         }
         case "disposeAllPlayers": {
-            dispose();
-            result.success(new HashMap<String, Object>());
+            dispose(() -> result.success(new HashMap<String, Object>()));
             break;
         }
         default:
@@ -70,9 +104,38 @@ public class MainMethodCallHandler implements MethodCallHandler {
     }
 
     void dispose() {
-        for (AudioPlayer player : new ArrayList<AudioPlayer>(players.values())) {
-            player.dispose();
+        dispose(null);
+    }
+
+    void onTrimMemory(int level) {
+        for (AudioPlayer player : players.values()) {
+            player.onTrimMemory(level);
+        }
+    }
+
+    // Releases this engine's reference to each of its players and disposes
+    // those no other engine references. Disposing does not block the main
+    // thread, so their playback threads shut down in parallel. onDisposed
+    // is invoked once every player has been released.
+    void dispose(final Runnable onDisposed) {
+        List<AudioPlayer> disposing = new ArrayList<AudioPlayer>();
+        for (Map.Entry<String, AudioPlayer> entry : players.entrySet()) {
+            if (AudioPlayerRegistry.release(entry.getKey(), messenger)) {
+                disposing.add(entry.getValue());
+            }
         }
         players.clear();
+        if (disposing.isEmpty()) {
+            if (onDisposed != null) onDisposed.run();
+            return;
+        }
+        final int[] remaining = { disposing.size() };
+        for (AudioPlayer player : disposing) {
+            player.dispose(() -> {
+                if (--remaining[0] == 0 && onDisposed != null) {
+                    onDisposed.run();
+                }
+            });
+        }
     }
 }
@@ -0,0 +1,201 @@
+package com.ryanheise.just_audio;
+
+import android.content.Context;
+import android.net.Uri;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.PlaybackException;
+import com.google.android.exoplayer2.upstream.BaseDataSource;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSourceException;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a local file identified by a file:// URI through a read-only memory
+ * mapping, so reads are copies out of the page cache without a system call
+ * each, and seeks are free within the mapped window.
+ *
+ * At most WINDOW_SIZE bytes of the file are mapped at a time, and the
+ * window moves when a read falls outside of it, which bounds the address
+ * space used for very large files. If a mapping cannot be created, the
+ * remaining reads go through the file channel instead.
+ *
+ * A mapped file that is truncated raises SIGBUS on the next access past
+ * its new end, which crashes the app rather than failing the read. Only
+ * files inside the app's own data directory, which no other app can write
+ * to, are therefore mapped, and other files are read through the file
+ * channel. Each window is mapped no further than the end of the data being
+ * read, and the file length is checked again at each remap, so that a
+ * truncation by the app itself fails the read with an error once the window
+ * moves. A truncation inside the current window is not detected, since
+ * checking the length before each read would cost the system call that
+ * mapping avoids and still race with the truncation, so the app must not
+ * truncate a file while it is being played.
+ */
+class MappedFileDataSource extends BaseDataSource {
+    static final String SCHEME = "file";
+
+    private static final long WINDOW_SIZE = 16 * 1024 * 1024;
+    // Window starts are aligned down to this, a multiple of the page size.
+    private static final long WINDOW_ALIGNMENT = 64 * 1024;
+
+    static class Factory implements DataSource.Factory {
+        private final Context context;
+
+        Factory(Context context) {
+            this.context = context;
+        }
+
+        @Override
+        public DataSource createDataSource() {
+            return new MappedFileDataSource(new File(context.getApplicationInfo().dataDir));
+        }
+    }
+
+    // Only files inside this directory are mapped, or any file if null.
+    @Nullable
+    private final File mappableDirectory;
+    private Uri uri;
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private boolean mappingDisabled;
+    private long position;
+    private long bytesRemaining;
+    private boolean opened;
+
+    MappedFileDataSource(@Nullable File mappableDirectory) {
+        super(false);
+        this.mappableDirectory = mappableDirectory;
+    }
+
+    @Override
+    public long open(DataSpec dataSpec) throws IOException {
+        try {
+            uri = dataSpec.uri;
+            transferInitializing(dataSpec);
+            file = new RandomAccessFile(uri.getPath(), "r");
+            channel = file.getChannel();
+            long fileLength = channel.size();
+            if (dataSpec.position > fileLength) {
+                throw new DataSourceException(PlaybackException.ERROR_CODE_IO_READ_POSITION_OUT_OF_RANGE);
+            }
+            position = dataSpec.position;
+            bytesRemaining = dataSpec.length == C.LENGTH_UNSET
+                    ? fileLength - dataSpec.position
+                    : Math.min(dataSpec.length, fileLength - dataSpec.position);
+            mappingDisabled = mappableDirectory != null && !isInside(new File(uri.getPath()), mappableDirectory);
+        } catch (DataSourceException e) {
+            throw e;
+        } catch (FileNotFoundException e) {
+            throw new DataSourceException(e, PlaybackException.ERROR_CODE_IO_FILE_NOT_FOUND);
+        } catch (SecurityException e) {
+            throw new DataSourceException(e, PlaybackException.ERROR_CODE_IO_NO_PERMISSION);
+        } catch (IOException e) {
+            throw new DataSourceException(e, PlaybackException.ERROR_CODE_IO_UNSPECIFIED);
+        }
+        opened = true;
+        transferStarted(dataSpec);
+        return bytesRemaining;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) return 0;
+        if (bytesRemaining == 0) return C.RESULT_END_OF_INPUT;
+        int bytesToRead = (int)Math.min(bytesRemaining, length);
+        int bytesRead;
+        try {
+            bytesRead = mapWindow() ? readMapped(buffer, offset, bytesToRead) : readChannel(buffer, offset, bytesToRead);
+        } catch (DataSourceException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new DataSourceException(e, PlaybackException.ERROR_CODE_IO_UNSPECIFIED);
+        }
+        if (bytesRead == -1) return C.RESULT_END_OF_INPUT;
+        position += bytesRead;
+        bytesRemaining -= bytesRead;
+        bytesTransferred(bytesRead);
+        return bytesRead;
+    }
+
+    // Ensures the window covers the current position, returning false if
+    // the file is not to be mapped.
+    private boolean mapWindow() throws IOException {
+        if (mappingDisabled) return false;
+        if (window != null && position >= windowStart && position < windowStart + window.capacity()) {
+            return true;
+        }
+        long end = position + bytesRemaining;
+        if (channel.size() < end) {
+            // Truncated since it was opened, so a mapping up to end would
+            // fault on access.
+            throw new DataSourceException(PlaybackException.ERROR_CODE_IO_READ_POSITION_OUT_OF_RANGE);
+        }
+        long start = position - position % WINDOW_ALIGNMENT;
+        long size = Math.min(WINDOW_SIZE, end - start);
+        // Drop the old window first so that it can be unmapped if mapping
+        // the new one runs out of address space.
+        window = null;
+        try {
+            window = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+        } catch (IOException e) {
+            // Typically ENOMEM when the address space is exhausted.
+            mappingDisabled = true;
+            return false;
+        }
+        windowStart = start;
+        return true;
+    }
+
+    private int readMapped(byte[] buffer, int offset, int length) {
+        int windowOffset = (int)(position - windowStart);
+        int bytesRead = Math.min(length, window.capacity() - windowOffset);
+        window.position(windowOffset);
+        window.get(buffer, offset, bytesRead);
+        return bytesRead;
+    }
+
+    private int readChannel(byte[] buffer, int offset, int length) throws IOException {
+        return channel.read(ByteBuffer.wrap(buffer, offset, length), position);
+    }
+
+    private static boolean isInside(File file, File directory) throws IOException {
+        return file.getCanonicalPath().startsWith(directory.getCanonicalPath() + File.separator);
+    }
+
+    @Nullable
+    @Override
+    public Uri getUri() {
+        return uri;
+    }
+
+    @Override
+    public void close() throws IOException {
+        uri = null;
+        // A mapping stays valid after its channel is closed and is unmapped
+        // when the buffer is collected.
+        window = null;
+        mappingDisabled = false;
+        try {
+            if (file != null) file.close();
+        } catch (IOException e) {
+            throw new DataSourceException(e, PlaybackException.ERROR_CODE_IO_UNSPECIFIED);
+        } finally {
+            file = null;
+            channel = null;
+            if (opened) {
+                opened = false;
+                transferEnded();
+            }
+        }
+    }
+}
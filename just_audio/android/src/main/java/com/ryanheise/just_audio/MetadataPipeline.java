@@ -0,0 +1,168 @@
+package com.ryanheise.just_audio;
+
+import android.os.Handler;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.metadata.Metadata;
+import com.google.android.exoplayer2.metadata.emsg.EventMessage;
+import com.google.android.exoplayer2.metadata.icy.IcyHeaders;
+import com.google.android.exoplayer2.metadata.icy.IcyInfo;
+import com.google.android.exoplayer2.metadata.id3.ApicFrame;
+import com.google.android.exoplayer2.metadata.id3.BinaryFrame;
+import com.google.android.exoplayer2.metadata.id3.CommentFrame;
+import com.google.android.exoplayer2.metadata.id3.GeobFrame;
+import com.google.android.exoplayer2.metadata.id3.Id3Frame;
+import com.google.android.exoplayer2.metadata.id3.PrivFrame;
+import com.google.android.exoplayer2.metadata.id3.TextInformationFrame;
+import com.google.android.exoplayer2.metadata.id3.UrlLinkFrame;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Delivers ICY, ID3 and emsg metadata on a dedicated event channel.
+ *
+ * Timed entries reach the player at their presentation time and carry it as
+ * their position, while static entries from an item's format carry none.
+ * Entries that repeat the last value seen for the same key (e.g. the same
+ * ICY title announced every metadata interval, or the same emsg event in
+ * each segment) are dropped, and the remaining entries that arrive during
+ * the same main looper iteration are sent together as one batch.
+ */
+class MetadataPipeline {
+    private final BetterEventChannel channel;
+    private final Handler handler;
+    private final Map<String, Object> lastEntries = new HashMap<>();
+    private List<Map<String, Object>> pendingEntries = new ArrayList<>();
+    private final Runnable flusher = this::flush;
+
+    MetadataPipeline(BetterEventChannel channel, Handler handler) {
+        this.channel = channel;
+        this.handler = handler;
+    }
+
+    // Adds the entries of metadata presented at the given position (in
+    // microseconds) of the given item. A null position marks metadata that
+    // describes the item as a whole, such as the tags in its format.
+    void add(Metadata metadata, Long position, int index) {
+        for (int i = 0; i < metadata.length(); i++) {
+            add(metadata.get(i), position, index);
+        }
+    }
+
+    void add(Metadata.Entry entry, Long position, int index) {
+        String key = getKey(entry);
+        if (key == null || entry.equals(lastEntries.get(key))) return;
+        lastEntries.put(key, entry);
+        Map<String, Object> map = toMap(entry);
+        map.put("position", position);
+        map.put("index", index);
+        if (pendingEntries.isEmpty()) {
+            handler.post(flusher);
+        }
+        pendingEntries.add(map);
+    }
+
+    // Forgets the entries seen so far, e.g. when a new item starts.
+    void reset() {
+        lastEntries.clear();
+    }
+
+    void dispose() {
+        handler.removeCallbacks(flusher);
+        pendingEntries.clear();
+        lastEntries.clear();
+        channel.endOfStream();
+    }
+
+    private void flush() {
+        if (pendingEntries.isEmpty()) return;
+        List<Map<String, Object>> entries = pendingEntries;
+        pendingEntries = new ArrayList<>();
+        channel.success(AudioPlayer.mapOf("entries", entries));
+    }
+
+    // Entries with the same key replace each other, so only a changed
+    // value is delivered.
+    @SuppressWarnings("deprecation")
+    private static String getKey(Metadata.Entry entry) {
+        if (entry instanceof IcyInfo) return "icy";
+        if (entry instanceof IcyHeaders) return "icyHeaders";
+        if (entry instanceof EventMessage) {
+            EventMessage message = (EventMessage)entry;
+            return "emsg|" + message.schemeIdUri + "|" + message.value + "|" + message.id;
+        }
+        if (entry instanceof TextInformationFrame) {
+            return "id3|" + ((Id3Frame)entry).id + "|" + ((TextInformationFrame)entry).description;
+        }
+        if (entry instanceof UrlLinkFrame) {
+            return "id3|" + ((Id3Frame)entry).id + "|" + ((UrlLinkFrame)entry).description;
+        }
+        if (entry instanceof CommentFrame) {
+            return "id3|" + ((Id3Frame)entry).id + "|" + ((CommentFrame)entry).description;
+        }
+        if (entry instanceof PrivFrame) {
+            return "id3|" + ((Id3Frame)entry).id + "|" + ((PrivFrame)entry).owner;
+        }
+        if (entry instanceof Id3Frame) return "id3|" + ((Id3Frame)entry).id;
+        return null;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Map<String, Object> toMap(Metadata.Entry entry) {
+        if (entry instanceof IcyInfo) {
+            IcyInfo info = (IcyInfo)entry;
+            return AudioPlayer.mapOf("type", "icy", "title", info.title, "url", info.url);
+        }
+        if (entry instanceof IcyHeaders) {
+            IcyHeaders headers = (IcyHeaders)entry;
+            return AudioPlayer.mapOf(
+                "type", "icyHeaders",
+                "bitrate", headers.bitrate,
+                "genre", headers.genre,
+                "name", headers.name,
+                "metadataInterval", headers.metadataInterval,
+                "url", headers.url,
+                "isPublic", headers.isPublic);
+        }
+        if (entry instanceof EventMessage) {
+            EventMessage message = (EventMessage)entry;
+            return AudioPlayer.mapOf(
+                "type", "emsg",
+                "schemeIdUri", message.schemeIdUri,
+                "value", message.value,
+                "duration", message.durationMs == C.TIME_UNSET ? null : 1000 * message.durationMs,
+                "id", message.id,
+                "data", message.messageData);
+        }
+        Id3Frame frame = (Id3Frame)entry;
+        Map<String, Object> map = AudioPlayer.mapOf("type", "id3", "id", frame.id);
+        if (frame instanceof TextInformationFrame) {
+            map.put("description", ((TextInformationFrame)frame).description);
+            map.put("value", ((TextInformationFrame)frame).value);
+        } else if (frame instanceof UrlLinkFrame) {
+            map.put("description", ((UrlLinkFrame)frame).description);
+            map.put("url", ((UrlLinkFrame)frame).url);
+        } else if (frame instanceof CommentFrame) {
+            map.put("language", ((CommentFrame)frame).language);
+            map.put("description", ((CommentFrame)frame).description);
+            map.put("text", ((CommentFrame)frame).text);
+        } else if (frame instanceof PrivFrame) {
+            map.put("owner", ((PrivFrame)frame).owner);
+            map.put("data", ((PrivFrame)frame).privateData);
+        } else if (frame instanceof ApicFrame) {
+            map.put("mimeType", ((ApicFrame)frame).mimeType);
+            map.put("description", ((ApicFrame)frame).description);
+            map.put("pictureType", ((ApicFrame)frame).pictureType);
+            map.put("data", ((ApicFrame)frame).pictureData);
+        } else if (frame instanceof GeobFrame) {
+            map.put("mimeType", ((GeobFrame)frame).mimeType);
+            map.put("filename", ((GeobFrame)frame).filename);
+            map.put("description", ((GeobFrame)frame).description);
+            map.put("data", ((GeobFrame)frame).data);
+        } else if (frame instanceof BinaryFrame) {
+            map.put("data", ((BinaryFrame)frame).data);
+        }
+        return map;
+    }
+}
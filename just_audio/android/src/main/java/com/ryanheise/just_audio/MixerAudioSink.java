@@ -0,0 +1,215 @@
+package com.ryanheise.just_audio;
+
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.PlaybackParameters;
+import com.google.android.exoplayer2.audio.AudioAttributes;
+import com.google.android.exoplayer2.audio.AudioSink;
+import com.google.android.exoplayer2.audio.AuxEffectInfo;
+import com.google.android.exoplayer2.util.MimeTypes;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * An AudioSink that feeds a player's decoded 16-bit PCM into the shared
+ * {@link AudioMixer} instead of its own AudioTrack.
+ *
+ * Input is converted to the mixer's stereo format and linearly resampled
+ * to the mixer's sample rate into a preallocated buffer, which is then
+ * written to the mixer input under a single lock. The position excludes
+ * audio that the mixer's AudioTrack has yet to play. Playback parameters
+ * are not applied, so speed and pitch stay at 1.0 in mixer mode.
+ */
+class MixerAudioSink implements AudioSink {
+    private final AudioMixer mixer;
+    private final short[] output = new short[AudioMixer.INPUT_CAPACITY_FRAMES * AudioMixer.CHANNEL_COUNT];
+    private AudioMixer.Input input;
+    private AudioAttributes audioAttributes = AudioAttributes.DEFAULT;
+    private int inputChannelCount;
+    // Input frames advanced per output frame.
+    private double step;
+    // Position of the next output frame between prevLeft/Right (0) and
+    // the next input frame (1).
+    private double phase;
+    private short prevLeft;
+    private short prevRight;
+    private long startMediaTimeUs = C.TIME_UNSET;
+    private long startConsumedFrames;
+    private boolean endOfStream;
+    private float volume = 1f;
+
+    MixerAudioSink(AudioMixer mixer) {
+        this.mixer = mixer;
+    }
+
+    @Override
+    public void setListener(Listener listener) {
+    }
+
+    @Override
+    public boolean supportsFormat(Format format) {
+        return getFormatSupport(format) != SINK_FORMAT_UNSUPPORTED;
+    }
+
+    @Override
+    public int getFormatSupport(Format format) {
+        return MimeTypes.AUDIO_RAW.equals(format.sampleMimeType) && format.pcmEncoding == C.ENCODING_PCM_16BIT
+                ? SINK_FORMAT_SUPPORTED_DIRECTLY
+                : SINK_FORMAT_UNSUPPORTED;
+    }
+
+    @Override
+    public long getCurrentPositionUs(boolean sourceEnded) {
+        if (input == null || startMediaTimeUs == C.TIME_UNSET) return CURRENT_POSITION_NOT_SET;
+        long frames = Math.max(0, input.getConsumedFrames() - startConsumedFrames - mixer.getLatencyFrames());
+        return startMediaTimeUs + frames * C.MICROS_PER_SECOND / mixer.sampleRate;
+    }
+
+    @Override
+    public void configure(Format inputFormat, int specifiedBufferSize, @Nullable int[] outputChannels) throws ConfigurationException {
+        if (!supportsFormat(inputFormat)) {
+            throw new ConfigurationException("Mixer requires 16-bit PCM", inputFormat);
+        }
+        inputChannelCount = inputFormat.channelCount;
+        step = (double)inputFormat.sampleRate / mixer.sampleRate;
+        if (input == null) {
+            input = mixer.addInput();
+            input.gain = volume;
+        }
+    }
+
+    @Override
+    public void play() {
+        if (input != null) input.setPlaying(true);
+    }
+
+    @Override
+    public void handleDiscontinuity() {
+    }
+
+    @Override
+    public boolean handleBuffer(ByteBuffer buffer, long presentationTimeUs, int encodedAccessUnitCount) {
+        if (startMediaTimeUs == C.TIME_UNSET) {
+            startMediaTimeUs = presentationTimeUs;
+            startConsumedFrames = input.getConsumedFrames() + input.getFrameCount();
+        }
+        ByteBuffer pcm = buffer.order(ByteOrder.nativeOrder());
+        int frameBytes = 2 * inputChannelCount;
+        // Each input frame produces at most this many output frames.
+        int maxOutputFrames = (int)Math.ceil(1.0 / step) + 1;
+        // Only this thread writes to the input, so space can only grow
+        // while the buffer is converted.
+        int available = input.availableFramesToWrite();
+        int frames = 0;
+        while (pcm.remaining() >= frameBytes && available - frames >= maxOutputFrames) {
+            int position = pcm.position();
+            short left = pcm.getShort(position);
+            short right = inputChannelCount > 1 ? pcm.getShort(position + 2) : left;
+            pcm.position(position + frameBytes);
+            while (phase < 1.0) {
+                output[frames * AudioMixer.CHANNEL_COUNT] = (short)(prevLeft + (left - prevLeft) * phase);
+                output[frames * AudioMixer.CHANNEL_COUNT + 1] = (short)(prevRight + (right - prevRight) * phase);
+                frames++;
+                phase += step;
+            }
+            phase -= 1.0;
+            prevLeft = left;
+            prevRight = right;
+        }
+        if (frames > 0) input.write(output, frames);
+        return pcm.remaining() < frameBytes;
+    }
+
+    @Override
+    public void playToEndOfStream() {
+        endOfStream = true;
+    }
+
+    @Override
+    public boolean isEnded() {
+        return input == null || (endOfStream && input.getFrameCount() == 0);
+    }
+
+    @Override
+    public boolean hasPendingData() {
+        return input != null && input.getFrameCount() > 0;
+    }
+
+    @Override
+    public void setPlaybackParameters(PlaybackParameters playbackParameters) {
+    }
+
+    @Override
+    public PlaybackParameters getPlaybackParameters() {
+        return PlaybackParameters.DEFAULT;
+    }
+
+    @Override
+    public void setSkipSilenceEnabled(boolean skipSilenceEnabled) {
+    }
+
+    @Override
+    public boolean getSkipSilenceEnabled() {
+        return false;
+    }
+
+    @Override
+    public void setAudioAttributes(AudioAttributes audioAttributes) {
+        this.audioAttributes = audioAttributes;
+    }
+
+    public AudioAttributes getAudioAttributes() {
+        return audioAttributes;
+    }
+
+    @Override
+    public void setAudioSessionId(int audioSessionId) {
+    }
+
+    @Override
+    public void setAuxEffectInfo(AuxEffectInfo auxEffectInfo) {
+    }
+
+    @Override
+    public void enableTunnelingV21() {
+    }
+
+    @Override
+    public void disableTunneling() {
+    }
+
+    @Override
+    public void setVolume(float volume) {
+        this.volume = volume;
+        if (input != null) input.gain = volume;
+    }
+
+    @Override
+    public void pause() {
+        if (input != null) input.setPlaying(false);
+    }
+
+    @Override
+    public void flush() {
+        if (input != null) input.clear();
+        startMediaTimeUs = C.TIME_UNSET;
+        endOfStream = false;
+        phase = 0;
+        prevLeft = 0;
+        prevRight = 0;
+    }
+
+    public void experimentalFlushWithoutAudioTrackRelease() {
+        flush();
+    }
+
+    @Override
+    public void reset() {
+        flush();
+        if (input != null) {
+            mixer.removeInput(input);
+            input = null;
+        }
+    }
+}
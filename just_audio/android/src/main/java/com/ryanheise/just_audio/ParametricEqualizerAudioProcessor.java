@@ -0,0 +1,231 @@
+package com.ryanheise.just_audio;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.audio.BaseAudioProcessor;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A parametric equalizer and gain stage implemented in Java as a chain of
+ * biquad filters (RBJ audio EQ cookbook), so that its output is the same
+ * on every device.
+ *
+ * Band parameters may be changed from any thread. They are picked up by
+ * the playback thread at the start of the next buffer, when the filter
+ * coefficients are recomputed into preallocated arrays, so processing
+ * does not allocate.
+ */
+class ParametricEqualizerAudioProcessor extends BaseAudioProcessor {
+    static final String TYPE = "AndroidParametricEqualizer";
+    static final int MAX_BANDS = 16;
+    static final int MAX_CHANNELS = 8;
+
+    static final int PEAKING = 0;
+    static final int LOW_SHELF = 1;
+    static final int HIGH_SHELF = 2;
+
+    // Used for any band parameter left unspecified.
+    static final double DEFAULT_FREQUENCY = 1000.0;
+    static final double DEFAULT_Q = 0.7071;
+
+    // Parameters, guarded by this.
+    private int bandCount;
+    private final int[] bandTypes = new int[MAX_BANDS];
+    private final double[] bandFrequencies = new double[MAX_BANDS];
+    private final double[] bandGains = new double[MAX_BANDS];
+    private final double[] bandQs = new double[MAX_BANDS];
+    private double gainDecibels;
+    private volatile boolean parametersChanged = true;
+    private volatile boolean enabled;
+
+    // Coefficients and filter state, owned by the playback thread.
+    private int activeBandCount;
+    private final double[] b0 = new double[MAX_BANDS];
+    private final double[] b1 = new double[MAX_BANDS];
+    private final double[] b2 = new double[MAX_BANDS];
+    private final double[] a1 = new double[MAX_BANDS];
+    private final double[] a2 = new double[MAX_BANDS];
+    private final double[] z1 = new double[MAX_BANDS * MAX_CHANNELS];
+    private final double[] z2 = new double[MAX_BANDS * MAX_CHANNELS];
+    private double linearGain = 1.0;
+
+    ParametricEqualizerAudioProcessor(Map<?, ?> json) {
+        enabled = Boolean.TRUE.equals(json.get("enabled"));
+        Double gain = (Double)json.get("gain");
+        gainDecibels = gain != null ? gain : 0.0;
+        List<?> rawBands = (List<?>)json.get("bands");
+        if (rawBands != null) {
+            for (int i = 0; i < rawBands.size() && i < MAX_BANDS; i++) {
+                Map<?, ?> band = (Map<?, ?>)rawBands.get(i);
+                Double frequency = (Double)band.get("frequency");
+                Double bandGain = (Double)band.get("gain");
+                Double q = (Double)band.get("q");
+                setBandParameters(i, decodeBandType((String)band.get("type")),
+                        frequency != null ? frequency : DEFAULT_FREQUENCY,
+                        bandGain != null ? bandGain : 0.0,
+                        q != null ? q : DEFAULT_Q);
+            }
+        }
+    }
+
+    private static int decodeBandType(String type) {
+        if ("lowShelf".equals(type)) return LOW_SHELF;
+        if ("highShelf".equals(type)) return HIGH_SHELF;
+        return PEAKING;
+    }
+
+    private static String encodeBandType(int type) {
+        switch (type) {
+        case LOW_SHELF: return "lowShelf";
+        case HIGH_SHELF: return "highShelf";
+        default: return "peaking";
+        }
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    synchronized void setBandParameters(int index, int type, double frequency, double gain, double q) {
+        if (index < 0 || index >= MAX_BANDS) {
+            throw new IllegalArgumentException("Band index out of range: " + index);
+        }
+        bandTypes[index] = type;
+        bandFrequencies[index] = frequency;
+        bandGains[index] = gain;
+        bandQs[index] = q;
+        bandCount = Math.max(bandCount, index + 1);
+        parametersChanged = true;
+    }
+
+    synchronized void setBandGain(int index, double gain) {
+        setBandParameters(index, bandTypes[index], bandFrequencies[index], gain, bandQs[index]);
+    }
+
+    synchronized void setGain(double gainDecibels) {
+        this.gainDecibels = gainDecibels;
+        parametersChanged = true;
+    }
+
+    synchronized Map<String, Object> getParameters() {
+        List<Object> rawBands = new ArrayList<>();
+        for (int i = 0; i < bandCount; i++) {
+            rawBands.add(AudioPlayer.mapOf(
+                "index", i,
+                "type", encodeBandType(bandTypes[i]),
+                "frequency", bandFrequencies[i],
+                "gain", bandGains[i],
+                "q", bandQs[i]
+            ));
+        }
+        return AudioPlayer.mapOf("gain", gainDecibels, "bands", rawBands);
+    }
+
+    @Override
+    protected AudioFormat onConfigure(AudioFormat inputAudioFormat) throws UnhandledAudioFormatException {
+        if (inputAudioFormat.encoding != C.ENCODING_PCM_16BIT || inputAudioFormat.channelCount > MAX_CHANNELS) {
+            throw new UnhandledAudioFormatException(inputAudioFormat);
+        }
+        parametersChanged = true;
+        return inputAudioFormat;
+    }
+
+    private synchronized void updateCoefficients() {
+        parametersChanged = false;
+        double sampleRate = inputAudioFormat.sampleRate;
+        activeBandCount = bandCount;
+        for (int b = 0; b < bandCount; b++) {
+            double a = Math.pow(10.0, bandGains[b] / 40.0);
+            double w0 = 2.0 * Math.PI * Math.min(bandFrequencies[b], sampleRate * 0.49) / sampleRate;
+            double cos = Math.cos(w0);
+            double alpha = Math.sin(w0) / (2.0 * (bandQs[b] > 0 ? bandQs[b] : DEFAULT_Q));
+            double nb0, nb1, nb2, na0, na1, na2;
+            switch (bandTypes[b]) {
+            case LOW_SHELF: {
+                double s = 2.0 * Math.sqrt(a) * alpha;
+                nb0 = a * ((a + 1) - (a - 1) * cos + s);
+                nb1 = 2 * a * ((a - 1) - (a + 1) * cos);
+                nb2 = a * ((a + 1) - (a - 1) * cos - s);
+                na0 = (a + 1) + (a - 1) * cos + s;
+                na1 = -2 * ((a - 1) + (a + 1) * cos);
+                na2 = (a + 1) + (a - 1) * cos - s;
+                break;
+            }
+            case HIGH_SHELF: {
+                double s = 2.0 * Math.sqrt(a) * alpha;
+                nb0 = a * ((a + 1) + (a - 1) * cos + s);
+                nb1 = -2 * a * ((a - 1) + (a + 1) * cos);
+                nb2 = a * ((a + 1) + (a - 1) * cos - s);
+                na0 = (a + 1) - (a - 1) * cos + s;
+                na1 = 2 * ((a - 1) - (a + 1) * cos);
+                na2 = (a + 1) - (a - 1) * cos - s;
+                break;
+            }
+            default:
+                nb0 = 1 + alpha * a;
+                nb1 = -2 * cos;
+                nb2 = 1 - alpha * a;
+                na0 = 1 + alpha / a;
+                na1 = -2 * cos;
+                na2 = 1 - alpha / a;
+                break;
+            }
+            b0[b] = nb0 / na0;
+            b1[b] = nb1 / na0;
+            b2[b] = nb2 / na0;
+            a1[b] = na1 / na0;
+            a2[b] = na2 / na0;
+        }
+        linearGain = Math.pow(10.0, gainDecibels / 20.0);
+    }
+
+    @Override
+    public void queueInput(ByteBuffer inputBuffer) {
+        int remaining = inputBuffer.remaining();
+        if (remaining == 0) return;
+        ByteBuffer outputBuffer = replaceOutputBuffer(remaining);
+        if (!enabled) {
+            outputBuffer.put(inputBuffer);
+            outputBuffer.flip();
+            return;
+        }
+        if (parametersChanged) updateCoefficients();
+        int channelCount = inputAudioFormat.channelCount;
+        int bands = activeBandCount;
+        double gain = linearGain;
+        while (inputBuffer.remaining() >= 2 * channelCount) {
+            for (int c = 0; c < channelCount; c++) {
+                double x = inputBuffer.getShort();
+                for (int b = 0; b < bands; b++) {
+                    int s = b * MAX_CHANNELS + c;
+                    // Transposed direct form II.
+                    double y = b0[b] * x + z1[s];
+                    z1[s] = b1[b] * x - a1[b] * y + z2[s];
+                    z2[s] = b2[b] * x - a2[b] * y;
+                    x = y;
+                }
+                x *= gain;
+                if (x > Short.MAX_VALUE) x = Short.MAX_VALUE;
+                else if (x < Short.MIN_VALUE) x = Short.MIN_VALUE;
+                outputBuffer.putShort((short)x);
+            }
+        }
+        inputBuffer.position(inputBuffer.limit());
+        outputBuffer.flip();
+    }
+
+    @Override
+    protected void onFlush() {
+        Arrays.fill(z1, 0.0);
+        Arrays.fill(z2, 0.0);
+    }
+
+    @Override
+    protected void onReset() {
+        onFlush();
+        parametersChanged = true;
+    }
+}
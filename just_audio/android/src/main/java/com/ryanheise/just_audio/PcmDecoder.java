@@ -0,0 +1,133 @@
+package com.ryanheise.just_audio;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.net.Uri;
+import io.flutter.FlutterInjector;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Decodes the first audio track of a URI to 16-bit PCM off the playback
+ * pipeline, for background analysis such as loudness measurement and
+ * waveform extraction.
+ */
+class PcmDecoder {
+    interface Callback {
+        void onFormat(int sampleRate, int channelCount);
+
+        // pcm holds whole frames in native byte order.
+        void onPcm(ByteBuffer pcm, long presentationTimeUs);
+    }
+
+    static MediaExtractor openExtractor(Context context, Uri uri) throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        try {
+            if (FlutterAssetDataSource.SCHEME.equals(uri.getScheme())) {
+                String key = uri.getPath().substring(1);
+                String path = FlutterInjector.instance().flutterLoader().getLookupKeyForAsset(key);
+                AssetFileDescriptor fd = context.getAssets().openFd(path);
+                try {
+                    extractor.setDataSource(fd.getFileDescriptor(), fd.getStartOffset(), fd.getLength());
+                } finally {
+                    fd.close();
+                }
+            } else {
+                extractor.setDataSource(context, uri, null);
+            }
+        } catch (IOException e) {
+            extractor.release();
+            throw e;
+        }
+        return extractor;
+    }
+
+    // Selects the first audio track and returns its format, or null if
+    // there is none.
+    static MediaFormat selectAudioTrack(MediaExtractor extractor) {
+        for (int i = 0; i < extractor.getTrackCount(); i++) {
+            MediaFormat format = extractor.getTrackFormat(i);
+            String mime = format.getString(MediaFormat.KEY_MIME);
+            if (mime != null && mime.startsWith("audio/")) {
+                extractor.selectTrack(i);
+                return format;
+            }
+        }
+        return null;
+    }
+
+    // Decodes from the sync point at or before startUs until the first
+    // sample at or after endUs, or to the end if endUs is negative. Returns
+    // false if the URI has no audio track.
+    @SuppressWarnings("deprecation")
+    static boolean decode(Context context, Uri uri, long startUs, long endUs, Callback callback) throws IOException {
+        MediaExtractor extractor = openExtractor(context, uri);
+        MediaCodec codec = null;
+        try {
+            MediaFormat format = selectAudioTrack(extractor);
+            if (format == null) return false;
+            if (startUs > 0) {
+                extractor.seekTo(startUs, MediaExtractor.SEEK_TO_PREVIOUS_SYNC);
+            }
+            codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+            codec.configure(format, null, null, 0);
+            codec.start();
+            boolean formatReported = false;
+            ByteBuffer[] inputBuffers = codec.getInputBuffers();
+            ByteBuffer[] outputBuffers = codec.getOutputBuffers();
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            boolean inputDone = false;
+            while (true) {
+                if (Thread.currentThread().isInterrupted()) return false;
+                if (!inputDone) {
+                    int inputIndex = codec.dequeueInputBuffer(10000);
+                    if (inputIndex >= 0) {
+                        int size = extractor.readSampleData(inputBuffers[inputIndex], 0);
+                        long sampleTime = extractor.getSampleTime();
+                        if (size < 0 || (endUs >= 0 && sampleTime >= endUs)) {
+                            codec.queueInputBuffer(inputIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            inputDone = true;
+                        } else {
+                            codec.queueInputBuffer(inputIndex, 0, size, sampleTime, 0);
+                            extractor.advance();
+                        }
+                    }
+                }
+                int outputIndex = codec.dequeueOutputBuffer(info, 10000);
+                if (outputIndex == MediaCodec.INFO_OUTPUT_BUFFERS_CHANGED) {
+                    outputBuffers = codec.getOutputBuffers();
+                } else if (outputIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    MediaFormat outputFormat = codec.getOutputFormat();
+                    callback.onFormat(
+                            outputFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE),
+                            outputFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT));
+                    formatReported = true;
+                } else if (outputIndex >= 0) {
+                    if (!formatReported) {
+                        callback.onFormat(
+                                format.getInteger(MediaFormat.KEY_SAMPLE_RATE),
+                                format.getInteger(MediaFormat.KEY_CHANNEL_COUNT));
+                        formatReported = true;
+                    }
+                    ByteBuffer output = outputBuffers[outputIndex];
+                    output.position(info.offset);
+                    output.limit(info.offset + info.size);
+                    callback.onPcm(output.slice().order(ByteOrder.nativeOrder()), info.presentationTimeUs);
+                    codec.releaseOutputBuffer(outputIndex, false);
+                    if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) break;
+                }
+            }
+            return true;
+        } finally {
+            if (codec != null) {
+                codec.stop();
+                codec.release();
+            }
+            extractor.release();
+        }
+    }
+}
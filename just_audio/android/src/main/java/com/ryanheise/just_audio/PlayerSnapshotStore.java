@@ -0,0 +1,156 @@
+package com.ryanheise.just_audio;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import io.flutter.plugin.common.MethodChannel.Result;
+import io.flutter.plugin.common.StandardMessageCodec;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stores player snapshots (source tree, index, position and modes) in the
+ * app's files directory, encoded with the same codec used on the method
+ * channel. Reads and writes run in order on a single background thread.
+ */
+class PlayerSnapshotStore {
+    private static final int VERSION = 1;
+
+    private static PlayerSnapshotStore instance;
+
+    static synchronized PlayerSnapshotStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new PlayerSnapshotStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    interface Callback {
+        void onLoaded(Map<?, ?> snapshot);
+        void onError(Exception e);
+    }
+
+    private final File directory;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+            runnable -> new Thread(runnable, "just_audio:snapshot"));
+
+    private PlayerSnapshotStore(Context context) {
+        directory = new File(context.getFilesDir(), "just_audio_snapshots");
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    // Encodes the snapshot on the calling thread so that later changes to
+    // the player state cannot leak into it, then writes it in the
+    // background, replacing any previous snapshot atomically.
+    void save(final String key, final Map<String, Object> snapshot, final Result result) {
+        final File file = getFile(key);
+        snapshot.put("version", VERSION);
+        final ByteBuffer buffer = StandardMessageCodec.INSTANCE.encodeMessage(snapshot);
+        buffer.flip();
+        executor.execute(() -> {
+            try {
+                directory.mkdirs();
+                File tmpFile = new File(directory, "." + key + ".tmp");
+                try (FileOutputStream out = new FileOutputStream(tmpFile)) {
+                    while (buffer.hasRemaining()) {
+                        out.getChannel().write(buffer);
+                    }
+                    out.getFD().sync();
+                }
+                if (!tmpFile.renameTo(file)) {
+                    throw new IOException("Failed to write " + file);
+                }
+                handler.post(() -> result.success(new HashMap<String, Object>()));
+            } catch (Exception e) {
+                handler.post(() -> result.error("Error: " + e, null, null));
+            }
+        });
+    }
+
+    void load(final String key, final Callback callback) {
+        final File file = getFile(key);
+        executor.execute(() -> {
+            try {
+                byte[] bytes = new byte[(int)file.length()];
+                try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+                    in.readFully(bytes);
+                }
+                Map<?, ?> snapshot = (Map<?, ?>)StandardMessageCodec.INSTANCE.decodeMessage(ByteBuffer.wrap(bytes));
+                if (snapshot == null || !Integer.valueOf(VERSION).equals(snapshot.get("version"))) {
+                    throw new IOException("Unsupported snapshot: " + key);
+                }
+                handler.post(() -> callback.onLoaded(snapshot));
+            } catch (Exception e) {
+                handler.post(() -> callback.onError(e));
+            }
+        });
+    }
+
+    // Replaces the IDs in a restored source tree with the IDs of the tree
+    // that the Dart side has rebuilt, both given in pre-order, after checking
+    // that the two trees have the same shape.
+    static void adoptSourceIds(Map<?, ?> json, List<?> ids, List<?> types) {
+        List<Map<Object, Object>> sources = new ArrayList<>();
+        collectSources(json, sources);
+        if (sources.size() != ids.size() || ids.size() != types.size()) {
+            throw new IllegalArgumentException("Snapshot has " + sources.size() + " audio sources but " + ids.size() + " were given");
+        }
+        for (int i = 0; i < sources.size(); i++) {
+            Object type = sources.get(i).get("type");
+            if (!type.equals(types.get(i))) {
+                throw new IllegalArgumentException("Audio source " + i + " is " + types.get(i) + " but the snapshot has " + type);
+            }
+        }
+        for (int i = 0; i < sources.size(); i++) {
+            sources.get(i).put("id", ids.get(i));
+        }
+    }
+
+    // Returns the shuffle order of each concatenating source, in pre-order.
+    static List<Object> getShuffleOrders(Map<?, ?> json) {
+        List<Map<Object, Object>> sources = new ArrayList<>();
+        collectSources(json, sources);
+        List<Object> shuffleOrders = new ArrayList<>();
+        for (Map<Object, Object> source : sources) {
+            if ("concatenating".equals(source.get("type"))) {
+                shuffleOrders.add(source.get("shuffleOrder"));
+            }
+        }
+        return shuffleOrders;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void collectSources(Object json, List<Map<Object, Object>> sources) {
+        Map<Object, Object> map = (Map<Object, Object>)json;
+        sources.add(map);
+        List<?> children = (List<?>)map.get("children");
+        if (children != null) {
+            for (Object child : children) {
+                collectSources(child, sources);
+            }
+        }
+        if (map.get("child") != null) {
+            collectSources(map.get("child"), sources);
+        }
+    }
+
+    private File getFile(String key) {
+        if (key == null || !key.matches("[A-Za-z0-9_.-]+") || key.startsWith(".")) {
+            throw new IllegalArgumentException("Invalid snapshot key: " + key);
+        }
+        return new File(directory, key);
+    }
+}
@@ -0,0 +1,81 @@
+package com.ryanheise.just_audio;
+
+import android.os.Build;
+import android.os.SystemClock;
+import com.google.android.exoplayer2.audio.AudioSink;
+import com.google.android.exoplayer2.audio.ForwardingAudioSink;
+
+/**
+ * Estimates the playback position more precisely than the player's own
+ * position, which is only updated about every 10ms and in whole
+ * milliseconds on the main thread.
+ *
+ * The audio sink reports its position from the audio output timestamps
+ * each time the playback thread queries it. That position is in the
+ * renderer's time base, which differs from the item position by an offset
+ * that only changes at discontinuities. The offset is estimated as the
+ * smallest difference seen between the extrapolated sink position and the
+ * player position, since the player position can only lag behind.
+ *
+ * Sample times are on the elapsed realtime clock, which unlike
+ * System.nanoTime keeps counting while the device sleeps.
+ */
+class PositionTracker {
+    private final Object lock = new Object();
+    private long sinkPositionUs = AudioSink.CURRENT_POSITION_NOT_SET;
+    private long sinkSampleTimeNs;
+    private long offsetUs = Long.MAX_VALUE;
+
+    // Wraps the audio sink to sample its position on the playback thread.
+    AudioSink wrap(AudioSink audioSink) {
+        return new ForwardingAudioSink(audioSink) {
+            @Override
+            public long getCurrentPositionUs(boolean sourceEnded) {
+                long positionUs = super.getCurrentPositionUs(sourceEnded);
+                if (positionUs != CURRENT_POSITION_NOT_SET) {
+                    long nowNs = elapsedRealtimeNanos();
+                    synchronized (lock) {
+                        sinkPositionUs = positionUs;
+                        sinkSampleTimeNs = nowNs;
+                    }
+                }
+                return positionUs;
+            }
+
+            @Override
+            public void flush() {
+                reset();
+                super.flush();
+            }
+        };
+    }
+
+    static long elapsedRealtimeNanos() {
+        if (Build.VERSION.SDK_INT >= 17) {
+            return SystemClock.elapsedRealtimeNanos();
+        }
+        return SystemClock.elapsedRealtime() * 1000000;
+    }
+
+    // Forgets the offset after a seek or an item transition.
+    void reset() {
+        synchronized (lock) {
+            sinkPositionUs = AudioSink.CURRENT_POSITION_NOT_SET;
+            offsetUs = Long.MAX_VALUE;
+        }
+    }
+
+    // Returns the position in microseconds at nowNs, given the player's
+    // current position. While paused the player position is exact.
+    long getPositionUs(long playerPositionMs, boolean playing, float speed, long nowNs) {
+        long playerPositionUs = 1000 * playerPositionMs;
+        synchronized (lock) {
+            if (!playing || sinkPositionUs == AudioSink.CURRENT_POSITION_NOT_SET) {
+                return playerPositionUs;
+            }
+            long sinkNowUs = sinkPositionUs + (long)((nowNs - sinkSampleTimeNs) / 1000 * speed);
+            offsetUs = Math.min(offsetUs, sinkNowUs - playerPositionUs);
+            return sinkNowUs - offsetUs;
+        }
+    }
+}
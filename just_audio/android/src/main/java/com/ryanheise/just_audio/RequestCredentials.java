@@ -0,0 +1,128 @@
+package com.ryanheise.just_audio;
+
+import android.net.Uri;
+import android.os.SystemClock;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.ResolvingDataSource;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Resolves HTTP request headers and URIs at the moment each request is
+ * made, so that expiring tokens and signed URLs can be rotated from Dart
+ * without re-preparing the player's sources.
+ *
+ * Requests to loopback hosts, which are those of the Dart proxy, are
+ * never rewritten.
+ *
+ * Credentials are valid for a TTL. A request made after they expire asks
+ * the listener for a refresh and waits up to REFRESH_TIMEOUT_MS for it to
+ * arrive before falling back to the stale credentials.
+ *
+ * The wait blocks the ExoPlayer loader thread making the request, which
+ * stalls loading (but not playback of what is already buffered). Only the
+ * first request after an expiry waits: if the refresh does not arrive in
+ * time, later requests go out with the stale credentials immediately until
+ * new ones are set.
+ */
+class RequestCredentials implements ResolvingDataSource.Resolver {
+    static final long REFRESH_TIMEOUT_MS = 500;
+
+    interface Listener {
+        // Called on a loader thread when the credentials have expired.
+        void onRequestCredentialsExpired();
+    }
+
+    private final Listener listener;
+    private Map<String, String> headers = Collections.emptyMap();
+    private Map<String, String> uris = Collections.emptyMap();
+    private Map<String, String> queryParameters = Collections.emptyMap();
+    // An elapsedRealtime timestamp, or 0 if the credentials never expire.
+    private long expiryTimeMs;
+    private boolean refreshRequested;
+    private boolean refreshTimedOut;
+
+    RequestCredentials(Listener listener) {
+        this.listener = listener;
+    }
+
+    synchronized void set(Map<String, String> headers, Map<String, String> uris, Map<String, String> queryParameters, Long ttlMs) {
+        this.headers = headers != null ? headers : Collections.<String, String>emptyMap();
+        this.uris = uris != null ? uris : Collections.<String, String>emptyMap();
+        this.queryParameters = queryParameters != null ? queryParameters : Collections.<String, String>emptyMap();
+        expiryTimeMs = ttlMs != null ? SystemClock.elapsedRealtime() + ttlMs : 0;
+        refreshRequested = false;
+        refreshTimedOut = false;
+        notifyAll();
+    }
+
+    // Asks the listener again for a refresh that is still outstanding, and
+    // lets the next request wait for it again.
+    synchronized void retryRefresh() {
+        if (!refreshRequested || !isExpired()) return;
+        refreshTimedOut = false;
+        listener.onRequestCredentialsExpired();
+    }
+
+    private boolean isExpired() {
+        return expiryTimeMs != 0 && SystemClock.elapsedRealtime() >= expiryTimeMs;
+    }
+
+    private void awaitRefreshIfExpired() {
+        if (!isExpired() || refreshTimedOut) return;
+        if (!refreshRequested) {
+            refreshRequested = true;
+            listener.onRequestCredentialsExpired();
+        }
+        long deadline = SystemClock.elapsedRealtime() + REFRESH_TIMEOUT_MS;
+        long remaining;
+        while (isExpired() && (remaining = deadline - SystemClock.elapsedRealtime()) > 0) {
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        refreshTimedOut = isExpired();
+    }
+
+    // Requests to the Dart loopback proxy are left alone: it looks up its
+    // sources by path and query, and sends the headers of the source itself
+    // to the origin.
+    private static boolean isLoopback(String host) {
+        return host != null && (host.startsWith("127.") || "localhost".equals(host)
+                || "::1".equals(host) || "[::1]".equals(host));
+    }
+
+    @Override
+    public synchronized DataSpec resolveDataSpec(DataSpec dataSpec) {
+        String scheme = dataSpec.uri.getScheme();
+        if (!"http".equals(scheme) && !"https".equals(scheme) || isLoopback(dataSpec.uri.getHost())) {
+            return dataSpec;
+        }
+        awaitRefreshIfExpired();
+        String uri = uris.get(dataSpec.uri.toString());
+        Uri resolvedUri = uri != null ? Uri.parse(uri) : dataSpec.uri;
+        if (!queryParameters.isEmpty()) {
+            Uri.Builder builder = resolvedUri.buildUpon().clearQuery();
+            for (String name : resolvedUri.getQueryParameterNames()) {
+                if (queryParameters.containsKey(name)) continue;
+                for (String value : resolvedUri.getQueryParameters(name)) {
+                    builder.appendQueryParameter(name, value);
+                }
+            }
+            for (Map.Entry<String, String> entry : queryParameters.entrySet()) {
+                builder.appendQueryParameter(entry.getKey(), entry.getValue());
+            }
+            resolvedUri = builder.build();
+        }
+        if (resolvedUri != dataSpec.uri) {
+            dataSpec = dataSpec.withUri(resolvedUri);
+        }
+        if (!headers.isEmpty()) {
+            dataSpec = dataSpec.withAdditionalHeaders(headers);
+        }
+        return dataSpec;
+    }
+}
@@ -0,0 +1,335 @@
+package com.ryanheise.just_audio;
+
+import android.net.Uri;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.PlaybackException;
+import com.google.android.exoplayer2.upstream.BaseDataSource;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSourceException;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lets the clips of one progressive source, such as the chapters of a long
+ * audiobook file, read it through a single upstream connection.
+ *
+ * ExoPlayer gives each clip its own media period and extractor, and each
+ * of them opens the file twice: at the start to read the header, and then
+ * at the clip start. The readers of a Connection are served from the first
+ * HEAD_SIZE bytes of the file and from a window over the last WINDOW_SIZE
+ * bytes read, and a reader that reaches the end of the window reads on from
+ * the shared upstream. The next chapter is prepared while the previous one
+ * has loaded just past its end, so it starts inside the window and chapter
+ * N+1 continues the request of chapter N rather than issuing a new one.
+ *
+ * A reader that needs bytes held by neither buffer while another reader is
+ * still positioned on the upstream waits up to a grace period, since its
+ * load is usually about to be cancelled (as the header load of a clip is
+ * once the clip is prepared), and then falls back to a connection of its
+ * own. A reader that is alone reopens the shared upstream where it needs it.
+ */
+class SharedConnectionDataSource extends BaseDataSource {
+    static final int HEAD_SIZE = 512 * 1024;
+    static final int WINDOW_SIZE = 4 * 1024 * 1024;
+    static final long GRACE_PERIOD_MS = 1000;
+    // Gaps up to this size ahead of the upstream are read through rather
+    // than reopened.
+    private static final int SKIP_LIMIT = 256 * 1024;
+    private static final int READ_SIZE = 64 * 1024;
+    // Returned by Connection.read when the reader should use its own
+    // connection.
+    private static final int FALL_BACK = Integer.MIN_VALUE;
+
+    static class Factory implements DataSource.Factory {
+        private final Connection connection;
+
+        Factory(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public DataSource createDataSource() {
+            return new SharedConnectionDataSource(connection);
+        }
+    }
+
+    // The upstream shared by the readers of one source, with the bytes it
+    // has returned. Everything is dropped once the last reader closes.
+    static class Connection {
+        private final DataSource.Factory upstreamFactory;
+        private final long gracePeriodMs;
+        private final List<SharedConnectionDataSource> readers = new ArrayList<>();
+        private DataSource upstream;
+        private Uri upstreamUri;
+        private Map<String, List<String>> responseHeaders = Collections.emptyMap();
+        // Position at which the upstream was opened.
+        private long upstreamStart;
+        // Position of the next byte the upstream returns.
+        private long upstreamPosition;
+        // Length of the source, or C.LENGTH_UNSET while unknown.
+        private long sourceLength = C.LENGTH_UNSET;
+        private byte[] head;
+        private int headLength;
+        // Ring buffer holding the bytes before upstreamPosition from
+        // windowStart(), each at its position modulo WINDOW_SIZE.
+        private byte[] window;
+
+        Connection(DataSource.Factory upstreamFactory) {
+            this(upstreamFactory, GRACE_PERIOD_MS);
+        }
+
+        Connection(DataSource.Factory upstreamFactory, long gracePeriodMs) {
+            this.upstreamFactory = upstreamFactory;
+            this.gracePeriodMs = gracePeriodMs;
+        }
+
+        synchronized long open(SharedConnectionDataSource reader) throws IOException {
+            readers.add(reader);
+            if (upstream == null && sourceLength == C.LENGTH_UNSET) {
+                reopen(reader);
+            }
+            if (sourceLength == C.LENGTH_UNSET) return C.LENGTH_UNSET;
+            if (reader.position > sourceLength) {
+                throw new DataSourceException(PlaybackException.ERROR_CODE_IO_READ_POSITION_OUT_OF_RANGE);
+            }
+            return sourceLength - reader.position;
+        }
+
+        // Reads at the reader's position, advancing it, or returns FALL_BACK
+        // if the reader should continue on its own connection.
+        synchronized int read(SharedConnectionDataSource reader, byte[] buffer, int offset, int length) throws IOException {
+            long deadline = 0;
+            while (true) {
+                long position = reader.position;
+                if (sourceLength != C.LENGTH_UNSET && position >= sourceLength) {
+                    return C.RESULT_END_OF_INPUT;
+                }
+                if (position < headLength) {
+                    int bytesRead = (int)Math.min(length, headLength - position);
+                    System.arraycopy(head, (int)position, buffer, offset, bytesRead);
+                    reader.position += bytesRead;
+                    return bytesRead;
+                }
+                if (position >= windowStart() && position < upstreamPosition) {
+                    int index = (int)(position % WINDOW_SIZE);
+                    int bytesRead = (int)Math.min(Math.min(length, upstreamPosition - position), WINDOW_SIZE - index);
+                    System.arraycopy(window, index, buffer, offset, bytesRead);
+                    reader.position += bytesRead;
+                    return bytesRead;
+                }
+                if (upstream != null && position >= upstreamPosition && position - upstreamPosition <= SKIP_LIMIT) {
+                    readUpstream();
+                    continue;
+                }
+                if (upstream == null || !isClaimedByOther(reader)) {
+                    reopen(reader);
+                    continue;
+                }
+                long now = System.nanoTime() / 1000000;
+                if (deadline == 0) deadline = now + gracePeriodMs;
+                if (now >= deadline) {
+                    reader.fallingBack = true;
+                    notifyAll();
+                    return FALL_BACK;
+                }
+                try {
+                    wait(deadline - now);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+        }
+
+        synchronized void close(SharedConnectionDataSource reader) {
+            readers.remove(reader);
+            notifyAll();
+            if (readers.isEmpty()) {
+                closeUpstream();
+                sourceLength = C.LENGTH_UNSET;
+                upstreamStart = 0;
+                upstreamPosition = 0;
+                head = null;
+                headLength = 0;
+                window = null;
+            }
+        }
+
+        DataSource createUpstream() {
+            return upstreamFactory.createDataSource();
+        }
+
+        synchronized Uri getUri() {
+            return upstreamUri;
+        }
+
+        synchronized Map<String, List<String>> getResponseHeaders() {
+            return responseHeaders;
+        }
+
+        private long windowStart() {
+            return Math.max(upstreamStart, upstreamPosition - WINDOW_SIZE);
+        }
+
+        // Whether another reader may still continue on the upstream.
+        private boolean isClaimedByOther(SharedConnectionDataSource reader) {
+            for (SharedConnectionDataSource other : readers) {
+                if (other != reader && !other.fallingBack
+                        && other.position >= windowStart() && other.position <= upstreamPosition) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void reopen(SharedConnectionDataSource reader) throws IOException {
+            closeUpstream();
+            DataSource dataSource = upstreamFactory.createDataSource();
+            long length;
+            try {
+                length = dataSource.open(reader.dataSpec.buildUpon()
+                        .setPosition(reader.position)
+                        .setLength(C.LENGTH_UNSET)
+                        .build());
+            } catch (IOException e) {
+                closeQuietly(dataSource);
+                throw e;
+            }
+            upstream = dataSource;
+            upstreamUri = dataSource.getUri();
+            responseHeaders = dataSource.getResponseHeaders();
+            upstreamStart = reader.position;
+            upstreamPosition = reader.position;
+            if (length != C.LENGTH_UNSET) {
+                sourceLength = reader.position + length;
+            }
+        }
+
+        private void readUpstream() throws IOException {
+            if (window == null) window = new byte[WINDOW_SIZE];
+            int index = (int)(upstreamPosition % WINDOW_SIZE);
+            int bytesRead;
+            try {
+                bytesRead = upstream.read(window, index, Math.min(READ_SIZE, WINDOW_SIZE - index));
+            } catch (IOException e) {
+                closeUpstream();
+                throw e;
+            }
+            if (bytesRead == C.RESULT_END_OF_INPUT) {
+                sourceLength = upstreamPosition;
+                closeUpstream();
+                return;
+            }
+            if (upstreamPosition == headLength && headLength < HEAD_SIZE) {
+                if (head == null) head = new byte[HEAD_SIZE];
+                int headBytes = Math.min(bytesRead, HEAD_SIZE - headLength);
+                System.arraycopy(window, index, head, headLength, headBytes);
+                headLength += headBytes;
+            }
+            upstreamPosition += bytesRead;
+        }
+
+        // The buffered bytes stay valid after the upstream is closed, but
+        // nothing more is appended to them.
+        private void closeUpstream() {
+            if (upstream == null) return;
+            closeQuietly(upstream);
+            upstream = null;
+        }
+
+        private static void closeQuietly(DataSource dataSource) {
+            try {
+                dataSource.close();
+            } catch (IOException e) {
+                // Nothing more will be read from it.
+            }
+        }
+    }
+
+    private final Connection connection;
+    private DataSpec dataSpec;
+    // The position of the next byte to read, guarded by connection.
+    private long position;
+    private boolean fallingBack;
+    private DataSource fallback;
+    private long bytesRemaining;
+    private boolean opened;
+
+    SharedConnectionDataSource(Connection connection) {
+        super(true);
+        this.connection = connection;
+    }
+
+    @Override
+    public long open(DataSpec dataSpec) throws IOException {
+        transferInitializing(dataSpec);
+        this.dataSpec = dataSpec;
+        synchronized (connection) {
+            position = dataSpec.position;
+            fallingBack = false;
+        }
+        long length = connection.open(this);
+        bytesRemaining = dataSpec.length != C.LENGTH_UNSET ? dataSpec.length : length;
+        opened = true;
+        transferStarted(dataSpec);
+        return bytesRemaining;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) return 0;
+        if (bytesRemaining == 0) return C.RESULT_END_OF_INPUT;
+        if (bytesRemaining != C.LENGTH_UNSET) {
+            length = (int)Math.min(length, bytesRemaining);
+        }
+        int bytesRead = fallback == null ? connection.read(this, buffer, offset, length) : FALL_BACK;
+        if (bytesRead == FALL_BACK) {
+            if (fallback == null) {
+                fallback = connection.createUpstream();
+                fallback.open(dataSpec.buildUpon()
+                        .setPosition(position)
+                        .setLength(bytesRemaining)
+                        .build());
+            }
+            bytesRead = fallback.read(buffer, offset, length);
+            if (bytesRead != C.RESULT_END_OF_INPUT) position += bytesRead;
+        }
+        if (bytesRead == C.RESULT_END_OF_INPUT) return C.RESULT_END_OF_INPUT;
+        if (bytesRemaining != C.LENGTH_UNSET) bytesRemaining -= bytesRead;
+        bytesTransferred(bytesRead);
+        return bytesRead;
+    }
+
+    @Nullable
+    @Override
+    public Uri getUri() {
+        if (fallback != null) return fallback.getUri();
+        Uri uri = connection.getUri();
+        return uri != null ? uri : dataSpec != null ? dataSpec.uri : null;
+    }
+
+    @Override
+    public Map<String, List<String>> getResponseHeaders() {
+        return fallback != null ? fallback.getResponseHeaders() : connection.getResponseHeaders();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (fallback != null) fallback.close();
+        } finally {
+            fallback = null;
+            connection.close(this);
+            if (opened) {
+                opened = false;
+                transferEnded();
+            }
+        }
+    }
+}
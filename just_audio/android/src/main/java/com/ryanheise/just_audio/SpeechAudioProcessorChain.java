@@ -0,0 +1,66 @@
+package com.ryanheise.just_audio;
+
+import com.google.android.exoplayer2.PlaybackParameters;
+import com.google.android.exoplayer2.audio.AudioProcessor;
+import com.google.android.exoplayer2.audio.DefaultAudioSink;
+import com.google.android.exoplayer2.audio.SilenceSkippingAudioProcessor;
+import com.google.android.exoplayer2.audio.SonicAudioProcessor;
+
+/**
+ * The audio sink's processor chain when the speech time-stretch processor
+ * is configured. Speed changes at the original pitch go to the
+ * time-stretch processor while it is enabled. Pitch changes, and all
+ * changes while it is disabled, go to Sonic as in the default chain.
+ */
+class SpeechAudioProcessorChain implements DefaultAudioSink.AudioProcessorChain {
+    private final AudioProcessor[] audioProcessors;
+    private final SilenceSkippingAudioProcessor silenceSkippingAudioProcessor = new SilenceSkippingAudioProcessor();
+    private final SonicAudioProcessor sonicAudioProcessor = new SonicAudioProcessor();
+    private final SpeechTimeStretchAudioProcessor timeStretchAudioProcessor;
+
+    SpeechAudioProcessorChain(AudioProcessor[] audioProcessors, SpeechTimeStretchAudioProcessor timeStretchAudioProcessor) {
+        this.timeStretchAudioProcessor = timeStretchAudioProcessor;
+        this.audioProcessors = new AudioProcessor[audioProcessors.length + 3];
+        System.arraycopy(audioProcessors, 0, this.audioProcessors, 0, audioProcessors.length);
+        this.audioProcessors[audioProcessors.length] = silenceSkippingAudioProcessor;
+        this.audioProcessors[audioProcessors.length + 1] = sonicAudioProcessor;
+        this.audioProcessors[audioProcessors.length + 2] = timeStretchAudioProcessor;
+    }
+
+    @Override
+    public AudioProcessor[] getAudioProcessors() {
+        return audioProcessors;
+    }
+
+    @Override
+    public PlaybackParameters applyPlaybackParameters(PlaybackParameters playbackParameters) {
+        if (timeStretchAudioProcessor.isEnabled() && playbackParameters.pitch == 1.0f) {
+            timeStretchAudioProcessor.setSpeed(playbackParameters.speed);
+            sonicAudioProcessor.setSpeed(1.0f);
+            sonicAudioProcessor.setPitch(1.0f);
+        } else {
+            timeStretchAudioProcessor.setSpeed(1.0f);
+            sonicAudioProcessor.setSpeed(playbackParameters.speed);
+            sonicAudioProcessor.setPitch(playbackParameters.pitch);
+        }
+        return playbackParameters;
+    }
+
+    @Override
+    public boolean applySkipSilenceEnabled(boolean skipSilenceEnabled) {
+        silenceSkippingAudioProcessor.setEnabled(skipSilenceEnabled);
+        return skipSilenceEnabled;
+    }
+
+    @Override
+    public long getMediaDuration(long playoutDuration) {
+        return timeStretchAudioProcessor.isActive()
+            ? timeStretchAudioProcessor.getMediaDuration(playoutDuration)
+            : sonicAudioProcessor.getMediaDuration(playoutDuration);
+    }
+
+    @Override
+    public long getSkippedOutputFrameCount() {
+        return silenceSkippingAudioProcessor.getSkippedFrames();
+    }
+}
@@ -0,0 +1,263 @@
+package com.ryanheise.just_audio;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.audio.BaseAudioProcessor;
+import com.google.android.exoplayer2.util.Util;
+import java.nio.ByteBuffer;
+
+/**
+ * Changes the speed of speech without changing its pitch, using WSOLA
+ * (waveform similarity overlap-add).
+ *
+ * Input is cut into 30ms segments taken at the speed-scaled analysis rate.
+ * Each segment is shifted by up to 8ms to where it best continues the
+ * previous one, and the two are cross-faded over 10ms. The similarity
+ * search runs on a 4x decimated mono signal and is then refined at full
+ * rate around the best match. That keeps the cost per output sample low
+ * and nearly independent of speed, and is accurate enough for speech at
+ * 1.5-4x.
+ *
+ * All buffers are allocated in onFlush, so steady-state processing does
+ * not allocate. Only 16-bit PCM is handled.
+ */
+class SpeechTimeStretchAudioProcessor extends BaseAudioProcessor {
+    static final String TYPE = "AndroidSpeechTimeStretch";
+
+    private static final int SEGMENT_MS = 30;
+    private static final int OVERLAP_MS = 10;
+    private static final int SEARCH_MS = 8;
+    private static final int DECIMATION = 4;
+    // Frames of input buffered per call in addition to one segment.
+    private static final int INPUT_CHUNK_FRAMES = 4096;
+    // Output frames after which getMediaDuration uses the measured ratio.
+    private static final int MIN_FRAMES_FOR_DURATION_RATIO = 1024;
+
+    private volatile boolean enabled;
+    private float speed = 1.0f;
+
+    // Processing state, owned by the playback thread.
+    private int channelCount;
+    private int segmentFrames;
+    private int overlapFrames;
+    private int searchFrames;
+    private double analysisHop;
+    private short[] input = new short[0];
+    private int inputFrames;
+    private double analysisPosition;
+    private short[] overlap = new short[0];
+    private boolean hasOverlap;
+    // Where the input that naturally follows the overlap starts.
+    private int tailEnd;
+    private long inputFrameCount;
+    private long outputFrameCount;
+
+    SpeechTimeStretchAudioProcessor(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    // Takes effect at the next flush, which the audio sink performs after
+    // applying new playback parameters.
+    void setSpeed(float speed) {
+        this.speed = speed;
+    }
+
+    @Override
+    public boolean isActive() {
+        return super.isActive() && Math.abs(speed - 1.0f) >= 0.0001f;
+    }
+
+    // Returns the media duration corresponding to a playout duration.
+    long getMediaDuration(long playoutDuration) {
+        if (outputFrameCount >= MIN_FRAMES_FOR_DURATION_RATIO) {
+            long consumedFrames = inputFrameCount - (inputFrames - (long)analysisPosition);
+            return Util.scaleLargeTimestamp(playoutDuration, consumedFrames, outputFrameCount);
+        }
+        return (long)(playoutDuration * (double)speed);
+    }
+
+    @Override
+    protected AudioFormat onConfigure(AudioFormat inputAudioFormat) throws UnhandledAudioFormatException {
+        if (inputAudioFormat.encoding != C.ENCODING_PCM_16BIT) {
+            throw new UnhandledAudioFormatException(inputAudioFormat);
+        }
+        return inputAudioFormat;
+    }
+
+    @Override
+    protected void onFlush() {
+        if (!isActive()) return;
+        channelCount = inputAudioFormat.channelCount;
+        int sampleRate = inputAudioFormat.sampleRate;
+        segmentFrames = sampleRate * SEGMENT_MS / 1000;
+        overlapFrames = sampleRate * OVERLAP_MS / 1000;
+        searchFrames = sampleRate * SEARCH_MS / 1000;
+        analysisHop = (segmentFrames - overlapFrames) * (double)speed;
+        int inputCapacity = (INPUT_CHUNK_FRAMES + segmentFrames + 2 * searchFrames + (int)analysisHop + 1) * channelCount;
+        if (input.length < inputCapacity) {
+            input = new short[inputCapacity];
+        }
+        if (overlap.length < overlapFrames * channelCount) {
+            overlap = new short[overlapFrames * channelCount];
+        }
+        inputFrames = 0;
+        analysisPosition = 0;
+        hasOverlap = false;
+        tailEnd = 0;
+        inputFrameCount = 0;
+        outputFrameCount = 0;
+    }
+
+    @Override
+    protected void onReset() {
+        speed = 1.0f;
+        input = new short[0];
+        overlap = new short[0];
+    }
+
+    @Override
+    public void queueInput(ByteBuffer inputBuffer) {
+        int capacityFrames = input.length / channelCount;
+        int frames = Math.min(inputBuffer.remaining() / (2 * channelCount), capacityFrames - inputFrames);
+        int offset = inputFrames * channelCount;
+        for (int i = 0; i < frames * channelCount; i++) {
+            input[offset + i] = inputBuffer.getShort();
+        }
+        inputFrames += frames;
+        inputFrameCount += frames;
+        process(false);
+    }
+
+    @Override
+    protected void onQueueEndOfStream() {
+        process(true);
+    }
+
+    private void process(boolean endOfStream) {
+        int hop = segmentFrames - overlapFrames;
+        int maxSegments = (int)Math.max(0, (inputFrames - analysisPosition) / analysisHop) + 1;
+        int maxOutputFrames = maxSegments * hop
+                + (endOfStream ? overlapFrames + (int)(inputFrames / Math.min(1.0f, speed)) + 1 : 0);
+        ByteBuffer output = replaceOutputBuffer(maxOutputFrames * channelCount * 2);
+        while (true) {
+            int nominal = (int)analysisPosition;
+            if (nominal + searchFrames + segmentFrames > inputFrames) break;
+            int start = hasOverlap ? findBestStart(nominal) : nominal;
+            if (hasOverlap) {
+                crossFade(output, start);
+            } else {
+                write(output, start, overlapFrames);
+            }
+            write(output, start + overlapFrames, segmentFrames - 2 * overlapFrames);
+            System.arraycopy(input, (start + segmentFrames - overlapFrames) * channelCount,
+                    overlap, 0, overlapFrames * channelCount);
+            hasOverlap = true;
+            tailEnd = start + segmentFrames;
+            outputFrameCount += hop;
+            analysisPosition += analysisHop;
+        }
+        if (endOfStream) {
+            // Play out what remains, skipping frames to keep the speed.
+            if (hasOverlap) {
+                output.asShortBuffer().put(overlap, 0, overlapFrames * channelCount);
+                output.position(output.position() + overlapFrames * channelCount * 2);
+            }
+            for (double i = tailEnd; (int)i < inputFrames; i += speed) {
+                write(output, (int)i, 1);
+            }
+            inputFrames = 0;
+            analysisPosition = 0;
+            hasOverlap = false;
+            tailEnd = 0;
+        } else {
+            compact();
+        }
+        output.flip();
+    }
+
+    // Discards input that no later segment can start in. Above 2x the next
+    // segment may start beyond the input received so far, in which case
+    // analysisPosition stays ahead of the (empty) buffer.
+    private void compact() {
+        int discard = Math.min(inputFrames, Math.max(0, (int)analysisPosition - searchFrames));
+        if (discard == 0) return;
+        System.arraycopy(input, discard * channelCount, input, 0, (inputFrames - discard) * channelCount);
+        inputFrames -= discard;
+        analysisPosition -= discard;
+        tailEnd = Math.max(0, tailEnd - discard);
+    }
+
+    // Finds the start near nominal where the input best matches the
+    // overlap, by normalized cross-correlation on a decimated mono signal
+    // followed by a full-rate refinement around the best coarse match.
+    private int findBestStart(int nominal) {
+        int low = Math.max(0, nominal - searchFrames);
+        int high = nominal + searchFrames;
+        int best = nominal;
+        double bestScore = -Double.MAX_VALUE;
+        for (int k = low; k <= high; k += DECIMATION) {
+            double score = similarity(k, DECIMATION);
+            if (score > bestScore) {
+                bestScore = score;
+                best = k;
+            }
+        }
+        // Coarse and full-rate scores are not comparable, so the coarse
+        // winner is scored again along with its neighbours.
+        int coarse = best;
+        bestScore = -Double.MAX_VALUE;
+        for (int k = Math.max(low, coarse - DECIMATION + 1); k <= Math.min(high, coarse + DECIMATION - 1); k++) {
+            double score = similarity(k, 1);
+            if (score > bestScore) {
+                bestScore = score;
+                best = k;
+            }
+        }
+        return best;
+    }
+
+    private double similarity(int start, int step) {
+        long correlation = 0;
+        long energy = 1;
+        for (int t = 0; t < overlapFrames; t += step) {
+            int a = 0;
+            int b = 0;
+            int overlapIndex = t * channelCount;
+            int inputIndex = (start + t) * channelCount;
+            for (int c = 0; c < channelCount; c++) {
+                a += overlap[overlapIndex + c];
+                b += input[inputIndex + c];
+            }
+            correlation += (long)a * b;
+            energy += (long)b * b;
+        }
+        return correlation * Math.abs((double)correlation) / energy;
+    }
+
+    private void crossFade(ByteBuffer output, int start) {
+        int inputIndex = start * channelCount;
+        for (int t = 0; t < overlapFrames; t++) {
+            int fadeIn = t;
+            int fadeOut = overlapFrames - t;
+            for (int c = 0; c < channelCount; c++) {
+                int i = t * channelCount + c;
+                output.putShort((short)((overlap[i] * fadeOut + input[inputIndex + i] * fadeIn) / overlapFrames));
+            }
+        }
+    }
+
+    private void write(ByteBuffer output, int start, int frames) {
+        int from = start * channelCount;
+        int to = from + frames * channelCount;
+        for (int i = from; i < to; i++) {
+            output.putShort(input[i]);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.ryanheise.just_audio;
+
+import android.net.Uri;
+import android.os.Handler;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.PlaybackException;
+import com.google.android.exoplayer2.upstream.BaseDataSource;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSourceException;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import io.flutter.plugin.common.MethodChannel;
+import io.flutter.plugin.common.MethodChannel.Result;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reads the bytes of a Dart StreamAudioSource directly over a method
+ * channel rather than through the Dart loopback HTTP proxy.
+ *
+ * Data is requested from Dart as byte ranges of CHUNK_SIZE bytes. While
+ * one chunk is being consumed, the next one is already being requested so
+ * that the round trip to Dart overlaps with extraction. A chunk shorter
+ * than requested marks the end of the source. A chunk that does not
+ * arrive within REQUEST_TIMEOUT_MS, e.g. because the engine serving the
+ * source has stopped responding, fails the read with an IOException
+ * rather than blocking the loader thread forever.
+ */
+class StreamDataSource extends BaseDataSource {
+    static final String SCHEME = "just-audio-stream";
+    static final int CHUNK_SIZE = 256 * 1024;
+    static final long REQUEST_TIMEOUT_MS = 10000;
+
+    static class Factory implements DataSource.Factory {
+        private final AtomicReference<MethodChannel> channel;
+        private final Handler handler;
+
+        Factory(AtomicReference<MethodChannel> channel, Handler handler) {
+            this.channel = channel;
+            this.handler = handler;
+        }
+
+        @Override
+        public DataSource createDataSource() {
+            return new StreamDataSource(channel, handler);
+        }
+    }
+
+    // A chunk requested from Dart that completes on the main thread.
+    private static class ChunkRequest implements Result {
+        final int length;
+        private byte[] bytes;
+        private Long sourceLength;
+        private IOException error;
+        private boolean done;
+
+        ChunkRequest(int length) {
+            this.length = length;
+        }
+
+        synchronized byte[] await() throws IOException {
+            long deadline = SystemClock.elapsedRealtime() + REQUEST_TIMEOUT_MS;
+            long remaining;
+            while (!done) {
+                if ((remaining = deadline - SystemClock.elapsedRealtime()) <= 0) {
+                    throw new IOException("StreamAudioSource request timed out after " + REQUEST_TIMEOUT_MS + " ms");
+                }
+                try {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+            if (error != null) throw error;
+            return bytes;
+        }
+
+        @Override
+        public synchronized void success(Object response) {
+            bytes = AudioPlayer.mapGet(response, "bytes");
+            sourceLength = AudioPlayer.getLong(AudioPlayer.mapGet(response, "sourceLength"));
+            if (bytes == null) bytes = new byte[0];
+            done = true;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void error(@NonNull String errorCode, String errorMessage, Object errorDetails) {
+            error = new IOException(errorCode + ": " + errorMessage);
+            done = true;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void notImplemented() {
+            error = new IOException("StreamAudioSource request not implemented");
+            done = true;
+            notifyAll();
+        }
+    }
+
+    // The channel of the engine currently serving stream sources.
+    private final AtomicReference<MethodChannel> channel;
+    private final Handler handler;
+    private Uri uri;
+    private String sourceId;
+    // Position in the source of the next chunk to request.
+    private long requestPosition;
+    // Position in the source after which no bytes are requested, or
+    // C.LENGTH_UNSET if unbounded.
+    private long endPosition;
+    private long bytesRemaining;
+    private byte[] chunk;
+    private int chunkOffset;
+    private ChunkRequest nextChunk;
+    private boolean opened;
+
+    StreamDataSource(AtomicReference<MethodChannel> channel, Handler handler) {
+        super(false);
+        this.channel = channel;
+        this.handler = handler;
+    }
+
+    @Override
+    public long open(DataSpec dataSpec) throws IOException {
+        transferInitializing(dataSpec);
+        uri = dataSpec.uri;
+        sourceId = uri.getSchemeSpecificPart();
+        requestPosition = dataSpec.position;
+        endPosition = dataSpec.length != C.LENGTH_UNSET ? dataSpec.position + dataSpec.length : C.LENGTH_UNSET;
+        ChunkRequest first = requestChunk();
+        chunk = first != null ? first.await() : new byte[0];
+        chunkOffset = 0;
+        Long sourceLength = first != null ? first.sourceLength : null;
+        if (sourceLength != null) {
+            if (dataSpec.position > sourceLength) {
+                throw new DataSourceException(PlaybackException.ERROR_CODE_IO_READ_POSITION_OUT_OF_RANGE);
+            }
+            if (endPosition == C.LENGTH_UNSET || endPosition > sourceLength) {
+                endPosition = sourceLength;
+            }
+        }
+        bytesRemaining = endPosition != C.LENGTH_UNSET ? endPosition - dataSpec.position : C.LENGTH_UNSET;
+        nextChunk = first != null && chunk.length == first.length ? requestChunk() : null;
+        opened = true;
+        transferStarted(dataSpec);
+        return bytesRemaining;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) return 0;
+        if (bytesRemaining == 0) return C.RESULT_END_OF_INPUT;
+        if (chunkOffset == chunk.length) {
+            if (nextChunk == null) return endOfInput();
+            ChunkRequest request = nextChunk;
+            chunk = request.await();
+            chunkOffset = 0;
+            nextChunk = chunk.length == request.length ? requestChunk() : null;
+            if (chunk.length == 0) return endOfInput();
+        }
+        int bytesRead = Math.min(length, chunk.length - chunkOffset);
+        if (bytesRemaining != C.LENGTH_UNSET) {
+            bytesRead = (int)Math.min(bytesRead, bytesRemaining);
+            bytesRemaining -= bytesRead;
+        }
+        System.arraycopy(chunk, chunkOffset, buffer, offset, bytesRead);
+        chunkOffset += bytesRead;
+        bytesTransferred(bytesRead);
+        return bytesRead;
+    }
+
+    // The source ran out of data. This is only the end of input if the
+    // requested range has been read in full.
+    private int endOfInput() throws IOException {
+        if (bytesRemaining != C.LENGTH_UNSET && bytesRemaining > 0) {
+            throw new DataSourceException(
+                new EOFException("StreamAudioSource ended " + bytesRemaining + " bytes early"),
+                PlaybackException.ERROR_CODE_IO_UNSPECIFIED);
+        }
+        return C.RESULT_END_OF_INPUT;
+    }
+
+    // Asynchronously requests the chunk at requestPosition, returning null
+    // if the requested range is already exhausted.
+    private ChunkRequest requestChunk() {
+        long end = requestPosition + CHUNK_SIZE;
+        boolean bounded = endPosition != C.LENGTH_UNSET;
+        if (bounded) {
+            end = Math.min(end, endPosition);
+            if (end <= requestPosition) return null;
+        }
+        final ChunkRequest request = new ChunkRequest((int)(end - requestPosition));
+        // Until the source length is known, the end is left open so that
+        // the source is not asked for a range past its end.
+        final Map<String, Object> arguments = AudioPlayer.mapOf(
+            "sourceId", sourceId,
+            "start", requestPosition,
+            "end", bounded ? end : null,
+            "length", request.length);
+        handler.post(() -> channel.get().invokeMethod("request", arguments, request));
+        requestPosition = end;
+        return request;
+    }
+
+    @Nullable
+    @Override
+    public Uri getUri() {
+        return uri;
+    }
+
+    @Override
+    public void close() {
+        uri = null;
+        chunk = null;
+        // Any read-ahead still in flight is simply dropped.
+        nextChunk = null;
+        if (opened) {
+            opened = false;
+            transferEnded();
+        }
+    }
+}
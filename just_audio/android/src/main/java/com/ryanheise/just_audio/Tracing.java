@@ -0,0 +1,48 @@
+package com.ryanheise.just_audio;
+
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * Optional system trace sections, visible in Perfetto and systrace
+ * captures of the app. Tracing is switched on and off at runtime and
+ * costs a single volatile read per call site while off.
+ *
+ * Synchronous sections are bracketed as:
+ *
+ *     boolean traced = Tracing.begin("load", null);
+ *     try { ... } finally { Tracing.end(traced); }
+ *
+ * so that a section begun while tracing was on is always ended, even if
+ * tracing is switched off in between.
+ */
+class Tracing {
+    private static final String PREFIX = "just_audio:";
+    private static volatile boolean enabled;
+
+    static void setEnabled(boolean enabled) {
+        Tracing.enabled = enabled;
+    }
+
+    static boolean begin(String name, String detail) {
+        if (!enabled || Build.VERSION.SDK_INT < 18) return false;
+        Trace.beginSection(detail != null ? PREFIX + name + " " + detail : PREFIX + name);
+        return true;
+    }
+
+    static void end(boolean traced) {
+        if (traced) Trace.endSection();
+    }
+
+    // Begins a section that ends on a later callback. Asynchronous
+    // sections require API 29.
+    static boolean beginAsync(String name, int cookie) {
+        if (!enabled || Build.VERSION.SDK_INT < 29) return false;
+        Trace.beginAsyncSection(PREFIX + name, cookie);
+        return true;
+    }
+
+    static void endAsync(boolean traced, String name, int cookie) {
+        if (traced && Build.VERSION.SDK_INT >= 29) Trace.endAsyncSection(PREFIX + name, cookie);
+    }
+}
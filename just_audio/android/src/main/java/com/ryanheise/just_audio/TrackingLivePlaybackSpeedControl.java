@@ -0,0 +1,89 @@
+package com.ryanheise.just_audio;
+
+import android.os.SystemClock;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.DefaultLivePlaybackSpeedControl;
+import com.google.android.exoplayer2.LivePlaybackSpeedControl;
+import com.google.android.exoplayer2.MediaItem;
+
+/**
+ * Forwards to another {@link LivePlaybackSpeedControl} while recording the
+ * live offset, target and adjusted speed that it last saw, and how long
+ * playback has been behind the target. ExoPlayer calls this on the playback
+ * thread while a live stream is playing, so the values are read from other
+ * threads through volatile fields.
+ */
+class TrackingLivePlaybackSpeedControl implements LivePlaybackSpeedControl {
+    private static final long BEHIND_TARGET_TOLERANCE_US =
+            1000 * DefaultLivePlaybackSpeedControl.DEFAULT_MAX_LIVE_OFFSET_ERROR_MS_FOR_UNIT_SPEED;
+    // Longer gaps between updates mean playback was paused in between.
+    private static final long MAX_UPDATE_INTERVAL_US = 1000000L;
+
+    private final LivePlaybackSpeedControl delegate;
+    private volatile long liveOffsetUs = C.TIME_UNSET;
+    private volatile long targetOffsetUs = C.TIME_UNSET;
+    private volatile float adjustedSpeed = 1.0f;
+    private volatile long behindTargetTimeUs;
+    private long lastUpdateTimeUs = C.TIME_UNSET;
+
+    TrackingLivePlaybackSpeedControl(LivePlaybackSpeedControl delegate) {
+        this.delegate = delegate;
+    }
+
+    long getLiveOffsetUs() {
+        return liveOffsetUs;
+    }
+
+    long getTargetOffsetUs() {
+        return targetOffsetUs;
+    }
+
+    float getAdjustedSpeed() {
+        return adjustedSpeed;
+    }
+
+    long getBehindTargetTimeUs() {
+        return behindTargetTimeUs;
+    }
+
+    @Override
+    public void setLiveConfiguration(MediaItem.LiveConfiguration liveConfiguration) {
+        // A new live item starts its own measurement.
+        lastUpdateTimeUs = C.TIME_UNSET;
+        behindTargetTimeUs = 0;
+        delegate.setLiveConfiguration(liveConfiguration);
+    }
+
+    @Override
+    public void setTargetLiveOffsetOverrideUs(long liveOffsetUs) {
+        delegate.setTargetLiveOffsetOverrideUs(liveOffsetUs);
+    }
+
+    @Override
+    public void notifyRebuffer() {
+        // Time spent rebuffering is not playback behind the target.
+        lastUpdateTimeUs = C.TIME_UNSET;
+        delegate.notifyRebuffer();
+    }
+
+    @Override
+    public float getAdjustedPlaybackSpeed(long liveOffsetUs, long bufferedDurationUs) {
+        float speed = delegate.getAdjustedPlaybackSpeed(liveOffsetUs, bufferedDurationUs);
+        long nowUs = 1000 * SystemClock.elapsedRealtime();
+        long targetUs = delegate.getTargetLiveOffsetUs();
+        if (lastUpdateTimeUs != C.TIME_UNSET && nowUs - lastUpdateTimeUs < MAX_UPDATE_INTERVAL_US
+                && targetUs != C.TIME_UNSET && liveOffsetUs > targetUs + BEHIND_TARGET_TOLERANCE_US) {
+            behindTargetTimeUs += nowUs - lastUpdateTimeUs;
+        }
+        lastUpdateTimeUs = nowUs;
+        this.liveOffsetUs = liveOffsetUs;
+        targetOffsetUs = targetUs;
+        adjustedSpeed = speed;
+        return speed;
+    }
+
+    @Override
+    public long getTargetLiveOffsetUs() {
+        return delegate.getTargetLiveOffsetUs();
+    }
+}
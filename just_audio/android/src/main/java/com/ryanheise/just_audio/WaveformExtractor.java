@@ -0,0 +1,286 @@
+package com.ryanheise.just_audio;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.database.Cursor;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.provider.OpenableColumns;
+import io.flutter.Log;
+import io.flutter.plugin.common.MethodChannel.Result;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Extracts a waveform overview of an audio URI as one peak and RMS pair per
+ * bin, at a requested number of bins.
+ *
+ * Long files are split into chunks that are decoded in parallel, each from
+ * the sync point before its start. Results are stored in a compact binary
+ * cache keyed by URI, resolution and the length and modification time of
+ * the content where these are known, so repeated requests do not decode
+ * and a file replaced at the same URI is decoded again.
+ */
+class WaveformExtractor {
+    static final String TAG = "WaveformExtractor";
+    // Files shorter than this are decoded as a single chunk.
+    static final long MIN_CHUNK_DURATION_US = 30000000L;
+    private static final int CACHE_VERSION = 1;
+    // The column that documents providers report modification times in.
+    private static final String COLUMN_LAST_MODIFIED = "last_modified";
+
+    private static WaveformExtractor instance;
+
+    static synchronized WaveformExtractor getInstance(Context context) {
+        if (instance == null) {
+            instance = new WaveformExtractor(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private final Context context;
+    private final File cacheDir;
+    private final int workerCount = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            workerCount, workerCount, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+            runnable -> new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, "just_audio:waveform"));
+
+    private WaveformExtractor(Context context) {
+        this.context = context;
+        cacheDir = new File(context.getCacheDir(), "just_audio_waveforms");
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    // Peak and RMS accumulators for a range of bins.
+    private static class Bins {
+        final float[] peaks;
+        final double[] sumSquares;
+        final long[] counts;
+
+        Bins(int resolution) {
+            peaks = new float[resolution];
+            sumSquares = new double[resolution];
+            counts = new long[resolution];
+        }
+
+        synchronized void merge(Bins other) {
+            for (int i = 0; i < peaks.length; i++) {
+                peaks[i] = Math.max(peaks[i], other.peaks[i]);
+                sumSquares[i] += other.sumSquares[i];
+                counts[i] += other.counts[i];
+            }
+        }
+    }
+
+    // Completes result on the main thread with the waveform of uri at the
+    // given resolution.
+    void extract(final String uri, final int resolution, final Result result) {
+        executor.execute(() -> {
+            try {
+                File cacheFile = getCacheFile(uri, resolution);
+                double[][] cached = readCache(cacheFile, resolution);
+                if (cached != null) {
+                    complete(result, cached);
+                    return;
+                }
+                long durationUs = probeDuration(uri);
+                if (durationUs <= 0) {
+                    fail(result, "Unknown duration: " + uri);
+                    return;
+                }
+                int chunkCount = (int)Math.max(1, Math.min(workerCount, durationUs / MIN_CHUNK_DURATION_US));
+                Bins total = new Bins(resolution);
+                AtomicInteger remaining = new AtomicInteger(chunkCount);
+                boolean[] failed = new boolean[1];
+                for (int i = 0; i < chunkCount; i++) {
+                    long startUs = durationUs * i / chunkCount;
+                    long endUs = i == chunkCount - 1 ? -1 : durationUs * (i + 1) / chunkCount;
+                    executor.execute(() -> {
+                        try {
+                            total.merge(decodeChunk(uri, startUs, endUs, durationUs, resolution));
+                        } catch (Exception e) {
+                            Log.w(TAG, "Waveform extraction failed for " + uri + ": " + e);
+                            synchronized (failed) {
+                                failed[0] = true;
+                            }
+                        }
+                        if (remaining.decrementAndGet() == 0) {
+                            synchronized (failed) {
+                                if (failed[0]) {
+                                    fail(result, "Failed to decode " + uri);
+                                    return;
+                                }
+                            }
+                            double[][] waveform = finish(total);
+                            writeCache(cacheFile, waveform);
+                            complete(result, waveform);
+                        }
+                    });
+                }
+            } catch (Exception e) {
+                fail(result, e.toString());
+            }
+        });
+    }
+
+    private long probeDuration(String uri) throws IOException {
+        MediaExtractor extractor = PcmDecoder.openExtractor(context, Uri.parse(uri));
+        try {
+            MediaFormat format = PcmDecoder.selectAudioTrack(extractor);
+            return format != null && format.containsKey(MediaFormat.KEY_DURATION) ? format.getLong(MediaFormat.KEY_DURATION) : -1;
+        } finally {
+            extractor.release();
+        }
+    }
+
+    private Bins decodeChunk(String uri, final long startUs, final long endUs, final long durationUs, final int resolution) throws IOException {
+        final Bins bins = new Bins(resolution);
+        PcmDecoder.decode(context, Uri.parse(uri), startUs, endUs, new PcmDecoder.Callback() {
+            int sampleRate;
+            int channelCount;
+
+            @Override
+            public void onFormat(int sampleRate, int channelCount) {
+                this.sampleRate = sampleRate;
+                this.channelCount = channelCount;
+            }
+
+            @Override
+            public void onPcm(ByteBuffer pcm, long presentationTimeUs) {
+                long frame = 0;
+                while (pcm.remaining() >= 2 * channelCount) {
+                    long timeUs = presentationTimeUs + frame * 1000000L / sampleRate;
+                    frame++;
+                    // Frames before the chunk start were decoded only to
+                    // prime the decoder from the preceding sync point.
+                    boolean inRange = timeUs >= startUs && (endUs < 0 || timeUs < endUs);
+                    int bin = (int)Math.min(resolution - 1, Math.max(0, timeUs * resolution / durationUs));
+                    for (int c = 0; c < channelCount; c++) {
+                        float sample = Math.abs(pcm.getShort() / 32768f);
+                        if (!inRange) continue;
+                        if (sample > bins.peaks[bin]) bins.peaks[bin] = sample;
+                        bins.sumSquares[bin] += sample * sample;
+                        bins.counts[bin]++;
+                    }
+                }
+            }
+        });
+        return bins;
+    }
+
+    private static double[][] finish(Bins bins) {
+        int resolution = bins.peaks.length;
+        double[] peaks = new double[resolution];
+        double[] rms = new double[resolution];
+        for (int i = 0; i < resolution; i++) {
+            peaks[i] = bins.peaks[i];
+            rms[i] = bins.counts[i] > 0 ? Math.sqrt(bins.sumSquares[i] / bins.counts[i]) : 0.0;
+        }
+        return new double[][] { peaks, rms };
+    }
+
+    private void complete(final Result result, final double[][] waveform) {
+        handler.post(() -> result.success(AudioPlayer.mapOf("peaks", waveform[0], "rms", waveform[1])));
+    }
+
+    private void fail(final Result result, final String message) {
+        handler.post(() -> result.error("waveform", message, null));
+    }
+
+    private File getCacheFile(String uri, int resolution) throws NoSuchAlgorithmException {
+        long[] version = getContentVersion(Uri.parse(uri));
+        String key = uri + "\n" + version[0] + "\n" + version[1];
+        MessageDigest digest = MessageDigest.getInstance("SHA-1");
+        StringBuilder name = new StringBuilder();
+        for (byte b : digest.digest(key.getBytes(Charset.forName("UTF-8")))) {
+            name.append(String.format("%02x", b));
+        }
+        return new File(cacheDir, name + "_" + resolution);
+    }
+
+    // Returns the length and modification time of the content at uri, each
+    // -1 if unknown. Assets only change when the app is updated, so they
+    // take the time of the last update.
+    private long[] getContentVersion(Uri uri) {
+        long[] version = { -1, -1 };
+        String scheme = uri.getScheme();
+        try {
+            if (scheme == null || ContentResolver.SCHEME_FILE.equals(scheme)) {
+                File file = new File(uri.getPath());
+                version[0] = file.length();
+                version[1] = file.lastModified();
+            } else if (FlutterAssetDataSource.SCHEME.equals(scheme)) {
+                version[1] = context.getPackageManager().getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+            } else if (ContentResolver.SCHEME_CONTENT.equals(scheme)) {
+                try (Cursor cursor = context.getContentResolver().query(uri, null, null, null, null)) {
+                    if (cursor != null && cursor.moveToFirst()) {
+                        int sizeIndex = cursor.getColumnIndex(OpenableColumns.SIZE);
+                        int modifiedIndex = cursor.getColumnIndex(COLUMN_LAST_MODIFIED);
+                        if (sizeIndex >= 0 && !cursor.isNull(sizeIndex)) version[0] = cursor.getLong(sizeIndex);
+                        if (modifiedIndex >= 0 && !cursor.isNull(modifiedIndex)) version[1] = cursor.getLong(modifiedIndex);
+                    }
+                }
+            }
+        } catch (RuntimeException | PackageManager.NameNotFoundException e) {
+            // The URI alone is then the key.
+        }
+        return version;
+    }
+
+    // The cache stores each bin as a pair of 16-bit fixed point values.
+    private static double[][] readCache(File file, int resolution) {
+        if (!file.exists()) return null;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readInt() != CACHE_VERSION || in.readInt() != resolution) return null;
+            double[] peaks = new double[resolution];
+            double[] rms = new double[resolution];
+            for (int i = 0; i < resolution; i++) {
+                peaks[i] = in.readUnsignedShort() / 65535.0;
+                rms[i] = in.readUnsignedShort() / 65535.0;
+            }
+            return new double[][] { peaks, rms };
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void writeCache(File file, double[][] waveform) {
+        cacheDir.mkdirs();
+        File tempFile = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tempFile))) {
+            out.writeInt(CACHE_VERSION);
+            out.writeInt(waveform[0].length);
+            for (int i = 0; i < waveform[0].length; i++) {
+                out.writeShort((int)Math.round(Math.min(1.0, waveform[0][i]) * 65535));
+                out.writeShort((int)Math.round(Math.min(1.0, waveform[1][i]) * 65535));
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write waveform cache: " + e);
+            return;
+        }
+        if (!tempFile.renameTo(file)) {
+            Log.w(TAG, "Failed to replace waveform cache");
+        }
+    }
+}
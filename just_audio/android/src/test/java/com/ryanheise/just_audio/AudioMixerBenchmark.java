@@ -0,0 +1,75 @@
+package com.ryanheise.just_audio;
+
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import org.junit.Test;
+
+/**
+ * Measures how the mixer's CPU use and the time it takes to mix each
+ * period grow with the number of playing inputs. A period that takes longer
+ * to mix than it takes to play would underrun the AudioTrack.
+ *
+ * Run with -PjustAudio.benchmarks=true.
+ */
+public class AudioMixerBenchmark {
+    private static final int SAMPLE_RATE = 48000;
+    private static final int SECONDS = 60;
+
+    @Test
+    public void mixingScalesWithInputs() {
+        AudioMixer mixer = new AudioMixer(SAMPLE_RATE);
+        short[] samples = new short[AudioMixer.PERIOD_FRAMES * AudioMixer.CHANNEL_COUNT];
+        for (int f = 0; f < AudioMixer.PERIOD_FRAMES; f++) {
+            short sample = (short)Math.round(8000 * Math.sin(2 * Math.PI * 440 * f / SAMPLE_RATE));
+            samples[f * AudioMixer.CHANNEL_COUNT] = sample;
+            samples[f * AudioMixer.CHANNEL_COUNT + 1] = sample;
+        }
+        float[] mix = new float[samples.length];
+        short[] output = new short[samples.length];
+        double periodNs = 1e9 * AudioMixer.PERIOD_FRAMES / SAMPLE_RATE;
+        int periods = SECONDS * SAMPLE_RATE / AudioMixer.PERIOD_FRAMES;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        StringBuilder results = new StringBuilder();
+        for (int inputCount : new int[] { 1, 2, 4, 8, 16 }) {
+            AudioMixer.Input[] inputs = new AudioMixer.Input[inputCount];
+            for (int i = 0; i < inputCount; i++) {
+                inputs[i] = new AudioMixer.Input(mixer);
+                inputs[i].setPlaying(true);
+            }
+            // Warm up the JIT.
+            for (int p = 0; p < periods / 4; p++) {
+                mixOnePeriod(inputs, samples, mix, output);
+            }
+            long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+            long totalNs = 0;
+            long worstNs = 0;
+            for (int p = 0; p < periods; p++) {
+                long ns = mixOnePeriod(inputs, samples, mix, output);
+                totalNs += ns;
+                worstNs = Math.max(worstNs, ns);
+            }
+            long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+            double load = totalNs / (periods * periodNs);
+            results.append(String.format(Locale.ROOT, "%d inputs: %.2f%% CPU, %.1f us/period, worst %.1f us, %d bytes allocated. ",
+                    inputCount, 100 * load, totalNs / 1e3 / periods, worstNs / 1e3, allocated));
+            // Generous bounds so that the benchmark holds on slow machines.
+            assertTrue(results.toString(), load < 0.1);
+            assertTrue(results.toString(), worstNs < periodNs);
+            assertTrue(results.toString(), allocated < 16 * 1024);
+        }
+    }
+
+    // Feeds each input the period its player would write and returns the
+    // time taken to mix it.
+    private static long mixOnePeriod(AudioMixer.Input[] inputs, short[] samples, float[] mix, short[] output) {
+        for (AudioMixer.Input input : inputs) {
+            input.write(samples, AudioMixer.PERIOD_FRAMES);
+        }
+        long start = System.nanoTime();
+        AudioMixer.mixPeriod(inputs, mix, output);
+        return System.nanoTime() - start;
+    }
+}
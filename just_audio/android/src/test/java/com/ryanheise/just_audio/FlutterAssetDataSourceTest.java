@@ -0,0 +1,66 @@
+package com.ryanheise.just_audio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import android.content.res.AssetFileDescriptor;
+import android.os.ParcelFileDescriptor;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * Reads an uncompressed asset the way it lies in an APK: at an offset
+ * within a larger file.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FlutterAssetDataSourceTest {
+    private static final int APK_SIZE = 64 * 1024;
+    private static final int ASSET_OFFSET = 1000;
+    private static final int ASSET_LENGTH = 20000;
+
+    private final byte[] apk = new byte[APK_SIZE];
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        new Random(0).nextBytes(apk);
+        file = File.createTempFile("asset", ".apk");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(apk);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void opensAtTheAssetPosition() throws IOException {
+        for (long position : new long[] { 0, 1, 12345, ASSET_LENGTH - 1 }) {
+            try (AssetFileDescriptor assetFileDescriptor = new AssetFileDescriptor(
+                    ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY), ASSET_OFFSET, ASSET_LENGTH);
+                    FileInputStream inputStream = FlutterAssetDataSource.openInputStream(assetFileDescriptor, position)) {
+                int length = (int)Math.min(4096, ASSET_LENGTH - position);
+                byte[] data = new byte[length];
+                int offset = 0;
+                int bytesRead;
+                while (offset < length && (bytesRead = inputStream.read(data, offset, length - offset)) > 0) {
+                    offset += bytesRead;
+                }
+                assertEquals(length, offset);
+                int start = (int)(ASSET_OFFSET + position);
+                assertArrayEquals("At " + position, Arrays.copyOfRange(apk, start, start + length), data);
+            }
+        }
+    }
+}
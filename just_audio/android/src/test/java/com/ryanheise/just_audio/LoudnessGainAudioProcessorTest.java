@@ -0,0 +1,82 @@
+package com.ryanheise.just_audio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.audio.AudioProcessor.AudioFormat;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.junit.Test;
+
+public class LoudnessGainAudioProcessorTest {
+    private static final int SAMPLE_RATE = 44100;
+    private static final int CHANNEL_COUNT = 2;
+    private static final short LEVEL = 10000;
+    private static final int RAMP_FRAMES = SAMPLE_RATE * LoudnessGainAudioProcessor.RAMP_DURATION_MS / 1000;
+
+    private static LoudnessGainAudioProcessor createProcessor() throws Exception {
+        LoudnessGainAudioProcessor processor = new LoudnessGainAudioProcessor(true);
+        processor.configure(new AudioFormat(SAMPLE_RATE, CHANNEL_COUNT, C.ENCODING_PCM_16BIT));
+        processor.flush();
+        return processor;
+    }
+
+    // Processes frames of constant input and returns the left channel.
+    private static short[] process(LoudnessGainAudioProcessor processor, int frames) {
+        ByteBuffer input = ByteBuffer.allocateDirect(frames * CHANNEL_COUNT * 2).order(ByteOrder.nativeOrder());
+        for (int i = 0; i < frames * CHANNEL_COUNT; i++) {
+            input.putShort(LEVEL);
+        }
+        input.flip();
+        processor.queueInput(input);
+        ByteBuffer output = processor.getOutput();
+        short[] left = new short[output.remaining() / (2 * CHANNEL_COUNT)];
+        for (int f = 0; f < left.length; f++) {
+            left[f] = output.getShort(f * CHANNEL_COUNT * 2);
+            assertEquals(left[f], output.getShort(f * CHANNEL_COUNT * 2 + 2));
+        }
+        return left;
+    }
+
+    @Test
+    public void gainOfANewItemAppliesAtOnce() throws Exception {
+        LoudnessGainAudioProcessor processor = createProcessor();
+        processor.setGain(0.5f);
+        assertEquals(LEVEL / 2, process(processor, 100)[0]);
+        processor.setNextGain(0.25f);
+        processor.onStreamChanged();
+        assertEquals(LEVEL / 4, process(processor, 100)[0]);
+    }
+
+    @Test
+    public void lateGainIsRampedTo() throws Exception {
+        LoudnessGainAudioProcessor processor = createProcessor();
+        assertEquals(LEVEL, process(processor, 100)[99]);
+        processor.rampToGain(0.5f);
+        // Spread over several buffers, as ExoPlayer hands them over.
+        short[] first = process(processor, RAMP_FRAMES / 2);
+        short[] second = process(processor, RAMP_FRAMES);
+        assertTrue(first[0] < LEVEL && first[0] > LEVEL - 10);
+        short previous = LEVEL;
+        for (short[] samples : new short[][] { first, second }) {
+            for (short sample : samples) {
+                assertTrue(sample <= previous);
+                assertTrue(previous - sample <= 2);
+                previous = sample;
+            }
+        }
+        assertEquals(LEVEL / 2, second[second.length - 1]);
+        assertEquals(LEVEL / 2, process(processor, 100)[0]);
+    }
+
+    @Test
+    public void flushEndsARamp() throws Exception {
+        LoudnessGainAudioProcessor processor = createProcessor();
+        process(processor, 100);
+        processor.rampToGain(2f);
+        process(processor, 100);
+        processor.flush();
+        assertEquals(LEVEL * 2, process(processor, 100)[0]);
+    }
+}
@@ -0,0 +1,103 @@
+package com.ryanheise.just_audio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import android.net.Uri;
+import com.google.android.exoplayer2.PlaybackException;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSourceException;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Reads a temporary file through MappedFileDataSource, mapped and through
+ * the file channel, and checks that a truncation fails the read once the
+ * window moves. The file spans more than one window.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 29)
+public class MappedFileDataSourceTest {
+    private static final int FILE_SIZE = 24 * 1024 * 1024;
+    private static final int READ_SIZE = 16 * 1024;
+
+    private final Random random = new Random(0);
+    private File directory;
+    private File file;
+    private byte[] content;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("mapped", "");
+        assertTrue(directory.delete() && directory.mkdir());
+        file = new File(directory, "audio.bin");
+        content = new byte[FILE_SIZE];
+        random.nextBytes(content);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(content);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+        directory.delete();
+    }
+
+    @Test
+    public void readsTheFileWhetherMappedOrNot() throws IOException {
+        assertArrayEquals(content, readAll(new MappedFileDataSource(null), 0));
+        // Files outside of the mappable directory go through the channel.
+        File elsewhere = new File(directory, "elsewhere");
+        assertArrayEquals(Arrays.copyOfRange(content, 12345, FILE_SIZE),
+                readAll(new MappedFileDataSource(elsewhere), 12345));
+    }
+
+    @Test
+    public void truncationFailsTheReadAtTheNextWindow() throws IOException {
+        MappedFileDataSource dataSource = new MappedFileDataSource(null);
+        dataSource.open(new DataSpec(Uri.fromFile(file)));
+        byte[] buffer = new byte[READ_SIZE];
+        // Reads up to the end of the first window.
+        for (int i = 0; i < 16 * 1024 * 1024 / READ_SIZE; i++) {
+            assertEquals(READ_SIZE, dataSource.read(buffer, 0, READ_SIZE));
+        }
+        try (RandomAccessFile truncating = new RandomAccessFile(file, "rw")) {
+            truncating.setLength(FILE_SIZE / 2);
+        }
+        try {
+            dataSource.read(buffer, 0, READ_SIZE);
+            fail("Read past a truncation");
+        } catch (DataSourceException e) {
+            assertEquals(PlaybackException.ERROR_CODE_IO_READ_POSITION_OUT_OF_RANGE, e.reason);
+        } finally {
+            dataSource.close();
+        }
+    }
+
+    private byte[] readAll(DataSource dataSource, long position) throws IOException {
+        long length = dataSource.open(new DataSpec.Builder().setUri(Uri.fromFile(file)).setPosition(position).build());
+        byte[] data = new byte[(int)length];
+        int offset = 0;
+        int bytesRead;
+        while ((bytesRead = dataSource.read(data, offset, Math.min(READ_SIZE, data.length - offset))) > 0) {
+            offset += bytesRead;
+        }
+        dataSource.close();
+        assertEquals(data.length, offset);
+        return data;
+    }
+}
@@ -0,0 +1,111 @@
+package com.ryanheise.just_audio;
+
+import static com.ryanheise.just_audio.TestMethodCalls.call;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.android.exoplayer2.robolectric.ShadowMediaCodecConfig;
+import com.ryanheise.just_audio.TestMethodCalls.PendingResult;
+import java.util.Locale;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+import org.robolectric.shadows.ShadowLooper;
+
+/**
+ * Plays a progressive item through AudioPlayer against ShapingHttpServer
+ * and checks time to first audio and stall ratio for each network profile,
+ * reporting the measurements in the assertion messages. The thresholds are
+ * loose enough to hold on CI machines, so a failure means a regression in
+ * startup or buffering rather than noise. To compare load control
+ * settings, pass them to playThrough.
+ *
+ * The server paces in real time, so Robolectric's paused clock is advanced
+ * in step with the wall clock while the player runs. Each profile takes
+ * about as long as the item plays, so this only runs with
+ * -PjustAudio.benchmarks=true.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 29, shadows = ShadowRealtimeAudioTrack.class)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class NetworkEmulationBenchmark {
+    // 8 kHz mono 16-bit PCM is 128 kbps, within every profile's bandwidth.
+    private static final int SAMPLE_RATE = 8000;
+    private static final int CONTENT_SECONDS = 10;
+    private static final long TIMEOUT_MS = 60000;
+
+    @Rule
+    public final ShadowMediaCodecConfig mediaCodecConfig = ShadowMediaCodecConfig.forAllSupportedMimeTypes();
+
+    @Test
+    public void threeG() throws Exception {
+        NetworkProfile profile = NetworkProfile.threeG();
+        Map<?, ?> metrics = playThrough(profile, null);
+        assertStartup(profile, metrics, 3000);
+        assertStallRatio(profile, metrics, 0.05);
+    }
+
+    @Test
+    public void flappingWifi() throws Exception {
+        NetworkProfile profile = NetworkProfile.flappingWifi();
+        Map<?, ?> metrics = playThrough(profile, null);
+        assertStartup(profile, metrics, 3000);
+        assertStallRatio(profile, metrics, 0.3);
+    }
+
+    @Test
+    public void satellite() throws Exception {
+        NetworkProfile profile = NetworkProfile.satellite();
+        Map<?, ?> metrics = playThrough(profile, null);
+        assertStartup(profile, metrics, 5000);
+        assertStallRatio(profile, metrics, 0.05);
+    }
+
+    // Plays the test item to the end over the given network and returns the
+    // player's playback quality metrics.
+    private Map<?, ?> playThrough(NetworkProfile profile, Map<?, ?> audioLoadConfiguration) throws Exception {
+        try (ShapingHttpServer server = new ShapingHttpServer(ShapingHttpServer.createWav(SAMPLE_RATE, CONTENT_SECONDS), profile)) {
+            AudioPlayer player = TestMethodCalls.createPlayer("network-emulation", audioLoadConfiguration);
+            try {
+                PendingResult load = call(player, "load", AudioPlayer.mapOf(
+                        "audioSource", AudioPlayer.mapOf("type", "progressive", "id", "0", "uri", server.getUri()),
+                        "initialPosition", null,
+                        "initialIndex", null));
+                PendingResult play = call(player, "play", AudioPlayer.mapOf());
+                TestMethodCalls.runUntilDone(play, TIMEOUT_MS);
+                assertNull(load.errorMessage, load.errorMessage);
+                assertNull(play.errorMessage, play.errorMessage);
+                PendingResult metricsResult = call(player, "getPlaybackQualityMetrics", AudioPlayer.mapOf());
+                Map<?, ?> metrics = (Map<?, ?>)metricsResult.value;
+                assertTrue(profile + ": no audio was played", metrics.get("timeToFirstAudio") != null);
+                long playTimeMs = AudioPlayer.getLong(metrics.get("playTime")) / 1000;
+                assertTrue(describe(profile, metrics), playTimeMs >= CONTENT_SECONDS * 900);
+                return metrics;
+            } finally {
+                player.dispose();
+                ShadowLooper.idleMainLooper();
+            }
+        }
+    }
+
+    private static String describe(NetworkProfile profile, Map<?, ?> metrics) {
+        return String.format(Locale.ROOT, "%s: time to first audio %d ms, %d rebuffers, %d ms rebuffering, %d ms played, stall ratio %.3f",
+                profile, AudioPlayer.getLong(metrics.get("timeToFirstAudio")) / 1000, metrics.get("rebufferCount"),
+                AudioPlayer.getLong(metrics.get("rebufferTime")) / 1000, AudioPlayer.getLong(metrics.get("playTime")) / 1000,
+                metrics.get("stallRatio"));
+    }
+
+    private static void assertStartup(NetworkProfile profile, Map<?, ?> metrics, long maxMs) {
+        long timeToFirstAudio = AudioPlayer.getLong(metrics.get("timeToFirstAudio"));
+        assertTrue(describe(profile, metrics), timeToFirstAudio / 1000 <= maxMs);
+    }
+
+    private static void assertStallRatio(NetworkProfile profile, Map<?, ?> metrics, double maxRatio) {
+        double stallRatio = (Double)metrics.get("stallRatio");
+        assertTrue(describe(profile, metrics), stallRatio <= maxRatio);
+    }
+}
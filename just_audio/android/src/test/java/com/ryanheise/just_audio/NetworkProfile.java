@@ -0,0 +1,58 @@
+package com.ryanheise.just_audio;
+
+/**
+ * The bandwidth, latency and outage pattern of an emulated network link, as
+ * served by ShapingHttpServer.
+ */
+final class NetworkProfile {
+    final String name;
+    final long bitsPerSecond;
+    // Added to the time to first byte of every request.
+    final long latencyMs;
+    // If downMs is positive, the link alternates between upMs of service
+    // and downMs of outage, starting with service.
+    final long upMs;
+    final long downMs;
+
+    NetworkProfile(String name, long bitsPerSecond, long latencyMs, long upMs, long downMs) {
+        this.name = name;
+        this.bitsPerSecond = bitsPerSecond;
+        this.latencyMs = latencyMs;
+        this.upMs = upMs;
+        this.downMs = downMs;
+    }
+
+    // The loopback interface, with nothing in the way.
+    static NetworkProfile loopback() {
+        return new NetworkProfile("loopback", 1000000000, 0, 0, 0);
+    }
+
+    // A congested HSPA connection.
+    static NetworkProfile threeG() {
+        return new NetworkProfile("3G", 400000, 300, 0, 0);
+    }
+
+    // Wi-Fi at the edge of its range, dropping out for 1.5 s every 3 s.
+    static NetworkProfile flappingWifi() {
+        return new NetworkProfile("flapping Wi-Fi", 2000000, 20, 3000, 1500);
+    }
+
+    // A geostationary link, with a round trip of over half a second.
+    static NetworkProfile satellite() {
+        return new NetworkProfile("satellite", 1000000, 650, 0, 0);
+    }
+
+    boolean isDown(long elapsedMs) {
+        return downMs > 0 && elapsedMs % (upMs + downMs) >= upMs;
+    }
+
+    // Returns how long the link stays down after elapsedMs.
+    long remainingDownMs(long elapsedMs) {
+        return isDown(elapsedMs) ? upMs + downMs - elapsedMs % (upMs + downMs) : 0;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,59 @@
+package com.ryanheise.just_audio;
+
+import static com.ryanheise.just_audio.ParametricEqualizerAudioProcessorTest.SAMPLE_RATE;
+import static com.ryanheise.just_audio.ParametricEqualizerAudioProcessorTest.band;
+import static com.ryanheise.just_audio.ParametricEqualizerAudioProcessorTest.createEqualizer;
+import static com.ryanheise.just_audio.ParametricEqualizerAudioProcessorTest.sine;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.junit.Test;
+
+/**
+ * Measures the throughput and allocations of a 10 band equalizer.
+ *
+ * Run with -PjustAudio.benchmarks=true.
+ */
+public class ParametricEqualizerAudioProcessorBenchmark {
+    @Test
+    public void tenBands() throws Exception {
+        List<Map<String, Object>> bands = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            bands.add(band("peaking", 31.25 * (1 << i), i % 2 == 0 ? 3.0 : -3.0, 1.4));
+        }
+        ParametricEqualizerAudioProcessor equalizer = createEqualizer(-1.0, bands);
+        // ExoPlayer hands the processors buffers of this order of size.
+        int bufferFrames = 4096;
+        ByteBuffer input = sine(440, 8000, bufferFrames);
+        int seconds = 60;
+        int buffers = seconds * SAMPLE_RATE / bufferFrames;
+        // Warm up the JIT and the processor's output buffer.
+        for (int i = 0; i < buffers / 4; i++) {
+            input.rewind();
+            equalizer.queueInput(input);
+            equalizer.getOutput();
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < buffers; i++) {
+            input.rewind();
+            equalizer.queueInput(input);
+            equalizer.getOutput();
+        }
+        long elapsedNs = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        double realtimeFactor = seconds * 1e9 / elapsedNs;
+        String result = String.format(Locale.ROOT, "10 bands, stereo %d Hz: %.1f ns/frame, %.0fx realtime, %d bytes allocated",
+                SAMPLE_RATE, (double)elapsedNs / (buffers * bufferFrames), realtimeFactor, allocated);
+        // Generous bounds so that the benchmark holds on slow machines.
+        assertTrue(result, realtimeFactor > 20);
+        assertTrue(result, allocated < 16 * 1024);
+    }
+}
@@ -0,0 +1,156 @@
+package com.ryanheise.just_audio;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.audio.AudioProcessor.AudioFormat;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class ParametricEqualizerAudioProcessorTest {
+    static final int SAMPLE_RATE = 44100;
+    private static final int CHANNEL_COUNT = 2;
+
+    static Map<String, Object> band(String type, Double frequency, Double gain, Double q) {
+        Map<String, Object> band = new HashMap<>();
+        band.put("type", type);
+        band.put("frequency", frequency);
+        band.put("gain", gain);
+        band.put("q", q);
+        return band;
+    }
+
+    static ParametricEqualizerAudioProcessor createEqualizer(Double gain, List<Map<String, Object>> bands) throws Exception {
+        Map<String, Object> json = new HashMap<>();
+        json.put("type", ParametricEqualizerAudioProcessor.TYPE);
+        json.put("enabled", true);
+        json.put("gain", gain);
+        json.put("bands", bands);
+        ParametricEqualizerAudioProcessor equalizer = new ParametricEqualizerAudioProcessor(json);
+        equalizer.configure(new AudioFormat(SAMPLE_RATE, CHANNEL_COUNT, C.ENCODING_PCM_16BIT));
+        equalizer.flush();
+        return equalizer;
+    }
+
+    static ByteBuffer sine(double frequency, double amplitude, int frames) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(frames * CHANNEL_COUNT * 2).order(ByteOrder.nativeOrder());
+        for (int f = 0; f < frames; f++) {
+            short sample = (short)Math.round(amplitude * Math.sin(2 * Math.PI * frequency * f / SAMPLE_RATE));
+            for (int c = 0; c < CHANNEL_COUNT; c++) {
+                buffer.putShort(sample);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static short[] process(ParametricEqualizerAudioProcessor equalizer, ByteBuffer input) {
+        equalizer.queueInput(input);
+        ByteBuffer output = equalizer.getOutput();
+        short[] samples = new short[output.remaining() / 2];
+        output.asShortBuffer().get(samples);
+        return samples;
+    }
+
+    // The RMS of the left channel, skipping the filters' initial transient.
+    private static double rms(short[] samples) {
+        double sum = 0;
+        int count = 0;
+        for (int i = SAMPLE_RATE / 10 * CHANNEL_COUNT; i < samples.length; i += CHANNEL_COUNT) {
+            sum += (double)samples[i] * samples[i];
+            count++;
+        }
+        return Math.sqrt(sum / count);
+    }
+
+    private static double gainDecibels(ParametricEqualizerAudioProcessor equalizer, double frequency) {
+        ByteBuffer input = sine(frequency, 8000, SAMPLE_RATE / 2);
+        short[] in = new short[input.remaining() / 2];
+        input.duplicate().order(ByteOrder.nativeOrder()).asShortBuffer().get(in);
+        short[] out = process(equalizer, input);
+        return 20 * Math.log10(rms(out) / rms(in));
+    }
+
+    @Test
+    public void missingBandValuesUseDefaults() throws Exception {
+        List<Map<String, Object>> bands = new ArrayList<>();
+        bands.add(band("peaking", null, null, null));
+        Map<String, Object> json = new HashMap<>();
+        json.put("enabled", true);
+        json.put("bands", bands);
+        ParametricEqualizerAudioProcessor equalizer = new ParametricEqualizerAudioProcessor(json);
+        Map<?, ?> parameters = equalizer.getParameters();
+        assertEquals(0.0, (Double)parameters.get("gain"), 0.0);
+        Map<?, ?> parsedBand = (Map<?, ?>)((List<?>)parameters.get("bands")).get(0);
+        assertEquals(ParametricEqualizerAudioProcessor.DEFAULT_FREQUENCY, (Double)parsedBand.get("frequency"), 0.0);
+        assertEquals(0.0, (Double)parsedBand.get("gain"), 0.0);
+        assertEquals(ParametricEqualizerAudioProcessor.DEFAULT_Q, (Double)parsedBand.get("q"), 0.0);
+    }
+
+    @Test
+    public void flatBandsAreTransparent() throws Exception {
+        List<Map<String, Object>> bands = new ArrayList<>();
+        bands.add(band("lowShelf", 100.0, 0.0, 0.7071));
+        bands.add(band("peaking", 1000.0, 0.0, 1.0));
+        bands.add(band("highShelf", 8000.0, 0.0, 0.7071));
+        ParametricEqualizerAudioProcessor equalizer = createEqualizer(0.0, bands);
+        ByteBuffer input = sine(440, 8000, 4096);
+        short[] in = new short[input.remaining() / 2];
+        input.duplicate().order(ByteOrder.nativeOrder()).asShortBuffer().get(in);
+        short[] out = process(equalizer, input);
+        assertEquals(in.length, out.length);
+        for (int i = 0; i < in.length; i++) {
+            assertEquals(in[i], out[i], 1);
+        }
+    }
+
+    @Test
+    public void disabledPassesThrough() throws Exception {
+        List<Map<String, Object>> bands = new ArrayList<>();
+        bands.add(band("peaking", 1000.0, 12.0, 1.0));
+        ParametricEqualizerAudioProcessor equalizer = createEqualizer(6.0, bands);
+        equalizer.setEnabled(false);
+        ByteBuffer input = sine(1000, 8000, 4096);
+        short[] in = new short[input.remaining() / 2];
+        input.duplicate().order(ByteOrder.nativeOrder()).asShortBuffer().get(in);
+        short[] out = process(equalizer, input);
+        for (int i = 0; i < in.length; i++) {
+            assertEquals(in[i], out[i]);
+        }
+    }
+
+    @Test
+    public void peakingBandBoostsOnlyAroundItsFrequency() throws Exception {
+        List<Map<String, Object>> bands = new ArrayList<>();
+        bands.add(band("peaking", 1000.0, 6.0, 1.0));
+        assertEquals(6.0, gainDecibels(createEqualizer(0.0, bands), 1000), 0.2);
+        assertEquals(0.0, gainDecibels(createEqualizer(0.0, bands), 50), 0.2);
+        assertEquals(0.0, gainDecibels(createEqualizer(0.0, bands), 15000), 0.2);
+    }
+
+    @Test
+    public void shelvesAffectTheirSideOfTheSpectrum() throws Exception {
+        List<Map<String, Object>> bands = new ArrayList<>();
+        bands.add(band("lowShelf", 200.0, -6.0, 0.7071));
+        bands.add(band("highShelf", 5000.0, 3.0, 0.7071));
+        assertEquals(-6.0, gainDecibels(createEqualizer(0.0, bands), 30), 0.3);
+        assertEquals(0.0, gainDecibels(createEqualizer(0.0, bands), 1200), 0.5);
+        assertEquals(3.0, gainDecibels(createEqualizer(0.0, bands), 16000), 0.3);
+    }
+
+    @Test
+    public void gainStageAndBandChangesApplyToTheNextBuffer() throws Exception {
+        List<Map<String, Object>> bands = new ArrayList<>();
+        bands.add(band("peaking", 1000.0, 0.0, 1.0));
+        ParametricEqualizerAudioProcessor equalizer = createEqualizer(-6.0, bands);
+        assertEquals(-6.0, gainDecibels(equalizer, 440), 0.1);
+        equalizer.setGain(0.0);
+        equalizer.setBandGain(0, -12.0);
+        assertEquals(-12.0, gainDecibels(equalizer, 1000), 0.3);
+    }
+}
@@ -0,0 +1,93 @@
+package com.ryanheise.just_audio;
+
+import static com.ryanheise.just_audio.AudioPlayer.mapOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+/**
+ * Restores a snapshot's source tree into the IDs of the tree that Dart
+ * rebuilt after a cold start.
+ */
+public class PlayerSnapshotStoreTest {
+    private static Map<String, Object> progressive(String id, String uri) {
+        return mapOf("type", "progressive", "id", id, "uri", uri);
+    }
+
+    // A playlist holding a clipped item and a looping item.
+    private static Map<String, Object> snapshotTree() {
+        return mapOf(
+                "type", "concatenating",
+                "id", "old-0",
+                "shuffleOrder", Arrays.asList(2, 0, 1),
+                "children", new ArrayList<Object>(Arrays.asList(
+                        progressive("old-1", "https://foo.foo/a.mp3"),
+                        mapOf("type", "clipping", "id", "old-2", "child", progressive("old-3", "https://foo.foo/b.mp3")),
+                        mapOf("type", "looping", "id", "old-4", "count", 2, "child", mapOf(
+                                "type", "concatenating",
+                                "id", "old-5",
+                                "shuffleOrder", Arrays.asList(0),
+                                "children", new ArrayList<Object>(Arrays.asList(
+                                        progressive("old-6", "https://foo.foo/c.mp3"))))))));
+    }
+
+    private static final List<String> TYPES = Arrays.asList(
+            "concatenating", "progressive", "clipping", "progressive", "looping", "concatenating", "progressive");
+
+    private static List<String> ids(Map<?, ?> json) {
+        List<String> ids = new ArrayList<>();
+        ids.add((String)json.get("id"));
+        if (json.get("children") != null) {
+            for (Object child : (List<?>)json.get("children")) {
+                ids.addAll(ids((Map<?, ?>)child));
+            }
+        }
+        if (json.get("child") != null) {
+            ids.addAll(ids((Map<?, ?>)json.get("child")));
+        }
+        return ids;
+    }
+
+    @Test
+    public void restoredSourcesAdoptTheDartIds() {
+        Map<String, Object> json = snapshotTree();
+        List<String> dartIds = Arrays.asList("a", "b", "c", "d", "e", "f", "g");
+        PlayerSnapshotStore.adoptSourceIds(json, dartIds, TYPES);
+        assertEquals(dartIds, ids(json));
+        // Only the IDs change.
+        Map<?, ?> clipped = (Map<?, ?>)((Map<?, ?>)((List<?>)json.get("children")).get(1)).get("child");
+        assertEquals("https://foo.foo/b.mp3", clipped.get("uri"));
+    }
+
+    @Test
+    public void shuffleOrdersAreReturnedInPreOrder() {
+        assertEquals(Arrays.asList(Arrays.asList(2, 0, 1), Arrays.asList(0)),
+                PlayerSnapshotStore.getShuffleOrders(snapshotTree()));
+    }
+
+    @Test
+    public void mismatchedTreesAreRejected() {
+        List<List<String>> typeLists = Arrays.asList(
+                TYPES.subList(0, 6),
+                Arrays.asList("concatenating", "progressive", "progressive", "clipping", "looping", "concatenating", "progressive"));
+        for (List<String> types : typeLists) {
+            Map<String, Object> json = snapshotTree();
+            List<String> dartIds = new ArrayList<>();
+            for (int i = 0; i < types.size(); i++) {
+                dartIds.add("id" + i);
+            }
+            try {
+                PlayerSnapshotStore.adoptSourceIds(json, dartIds, types);
+                fail("Accepted " + types);
+            } catch (IllegalArgumentException e) {
+                // The snapshot must be left as it was.
+                assertEquals(Arrays.asList("old-0", "old-1", "old-2", "old-3", "old-4", "old-5", "old-6"), ids(json));
+            }
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.ryanheise.just_audio;
+
+import static com.ryanheise.just_audio.TestMethodCalls.call;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.android.exoplayer2.robolectric.ShadowMediaCodecConfig;
+import com.ryanheise.just_audio.TestMethodCalls.PendingResult;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+import org.robolectric.shadows.ShadowLooper;
+
+/**
+ * Measures the playlist methods on synthetic playlists of 1k, 10k and 100k
+ * silence items. For each method it checks latency percentiles from the
+ * call until its result, the bytes allocated on the main thread and, for
+ * load, the retained heap per item, and reports them in the assertion
+ * messages. Each measure has a limit of a fixed allowance plus a cost per
+ * item, generous enough for CI machines but tight enough to fail if an
+ * operation becomes quadratic.
+ *
+ * Only runs with -PjustAudio.benchmarks=true.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 29)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class PlaylistScaleBenchmark {
+    private static final int SAMPLES = 30;
+    private static final int INSERT_COUNT = 10;
+    private static final long TIMEOUT_MS = 60000;
+
+    // Latency limits for all but load: 20 ms plus 5 us per item.
+    private static final double LATENCY_BASE_MS = 20;
+    private static final double LATENCY_PER_ITEM_MS = 0.005;
+    // Load also decodes the whole tree: 200 ms plus 20 us per item.
+    private static final double LOAD_LATENCY_BASE_MS = 200;
+    private static final double LOAD_LATENCY_PER_ITEM_MS = 0.02;
+    // Allocation limits on the main thread: 256 KB plus 512 bytes per item.
+    // Every playlist method carries a shuffle order of the whole playlist.
+    private static final long ALLOCATION_BASE = 256 * 1024;
+    private static final long ALLOCATION_PER_ITEM = 512;
+    private static final long LOAD_ALLOCATION_PER_ITEM = 8 * 1024;
+    private static final long HEAP_PER_ITEM = 4 * 1024;
+
+    @Rule
+    public final ShadowMediaCodecConfig mediaCodecConfig = ShadowMediaCodecConfig.forAllSupportedMimeTypes();
+
+    private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+    private final Random random = new Random(0);
+    private int nextId;
+
+    @Test
+    public void oneThousandItems() throws Exception {
+        measure(1000);
+    }
+
+    @Test
+    public void tenThousandItems() throws Exception {
+        measure(10000);
+    }
+
+    @Test
+    public void oneHundredThousandItems() throws Exception {
+        measure(100000);
+    }
+
+    private void measure(int size) throws Exception {
+        // A smaller run first, so that the measurements are of compiled
+        // code.
+        run(100, false);
+        run(size, true);
+    }
+
+    private void run(int size, boolean report) throws Exception {
+        AudioPlayer player = TestMethodCalls.createPlayer("scale", null);
+        try {
+            List<Integer> shuffleOrder = identityOrder(size);
+            List<Object> children = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                children.add(silence());
+            }
+            Map<String, Object> root = AudioPlayer.mapOf(
+                    "type", "concatenating",
+                    "id", "root",
+                    "useLazyPreparation", true,
+                    "shuffleOrder", shuffleOrder,
+                    "children", children);
+
+            Runtime runtime = Runtime.getRuntime();
+            System.gc();
+            long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+            Sample load = time(player, "load", AudioPlayer.mapOf(
+                    "audioSource", root,
+                    "initialPosition", null,
+                    "initialIndex", null));
+            System.gc();
+            long heapGrowth = runtime.totalMemory() - runtime.freeMemory() - heapBefore;
+
+            Samples insertAll = new Samples("concatenatingInsertAll");
+            Samples removeRange = new Samples("concatenatingRemoveRange");
+            Samples move = new Samples("concatenatingMove");
+            Samples setShuffleOrder = new Samples("setShuffleOrder");
+            Samples seek = new Samples("seek");
+            for (int i = 0; i < SAMPLES; i++) {
+                // Inserts in the middle and removes the same items again,
+                // so that the playlist keeps its size.
+                int index = size / 2;
+                List<Object> inserted = new ArrayList<>();
+                for (int j = 0; j < INSERT_COUNT; j++) {
+                    inserted.add(silence());
+                }
+                insertAll.add(time(player, "concatenatingInsertAll", AudioPlayer.mapOf(
+                        "id", "root",
+                        "index", index,
+                        "children", inserted,
+                        "shuffleOrder", identityOrder(size + INSERT_COUNT))));
+                removeRange.add(time(player, "concatenatingRemoveRange", AudioPlayer.mapOf(
+                        "id", "root",
+                        "startIndex", index,
+                        "endIndex", index + INSERT_COUNT,
+                        "shuffleOrder", identityOrder(size))));
+                move.add(time(player, "concatenatingMove", AudioPlayer.mapOf(
+                        "id", "root",
+                        "currentIndex", random.nextInt(size),
+                        "newIndex", random.nextInt(size),
+                        "shuffleOrder", identityOrder(size))));
+                List<Integer> shuffled = identityOrder(size);
+                Collections.shuffle(shuffled, random);
+                setShuffleOrder.add(time(player, "setShuffleOrder", AudioPlayer.mapOf(
+                        "audioSource", AudioPlayer.mapOf(
+                                "type", "concatenating",
+                                "id", "root",
+                                "shuffleOrder", shuffled,
+                                "children", children))));
+                seek.add(time(player, "seek", AudioPlayer.mapOf(
+                        "position", 0,
+                        "index", random.nextInt(size),
+                        "seekMode", 0)));
+            }
+
+            if (!report) return;
+            String loadResult = String.format(Locale.ROOT, "%d items: load %.1f ms, %d bytes allocated, %d bytes retained per item",
+                    size, load.latencyMs, load.allocatedBytes, heapGrowth / size);
+            assertTrue(loadResult, load.latencyMs <= LOAD_LATENCY_BASE_MS + LOAD_LATENCY_PER_ITEM_MS * size);
+            assertTrue(loadResult, load.allocatedBytes <= ALLOCATION_BASE + LOAD_ALLOCATION_PER_ITEM * size);
+            assertTrue(loadResult, heapGrowth <= HEAP_PER_ITEM * size);
+            for (Samples samples : Arrays.asList(insertAll, removeRange, move, setShuffleOrder, seek)) {
+                samples.report(size);
+            }
+        } finally {
+            player.dispose();
+            ShadowLooper.idleMainLooper();
+        }
+    }
+
+    private Map<String, Object> silence() {
+        return AudioPlayer.mapOf(
+                "type", "silence",
+                "id", "item" + nextId++,
+                "duration", 1000000L);
+    }
+
+    private static List<Integer> identityOrder(int length) {
+        List<Integer> order = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            order.add(i);
+        }
+        return order;
+    }
+
+    // Calls method and runs the main looper until its result arrives,
+    // advancing the clock for any delayed work of the playback thread.
+    private Sample time(AudioPlayer player, String method, Map<String, Object> arguments) {
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long startNs = System.nanoTime();
+        PendingResult result = call(player, method, arguments);
+        while (!result.done) {
+            assertTrue(method + " timed out", System.nanoTime() - startNs < TIMEOUT_MS * 1000000);
+            ShadowLooper.idleMainLooper(1, TimeUnit.MILLISECONDS);
+            Thread.yield();
+        }
+        long elapsedNs = System.nanoTime() - startNs;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        assertNull(method, result.errorMessage);
+        return new Sample(elapsedNs / 1e6, allocated);
+    }
+
+    private static class Sample {
+        final double latencyMs;
+        final long allocatedBytes;
+
+        Sample(double latencyMs, long allocatedBytes) {
+            this.latencyMs = latencyMs;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+
+    private static class Samples {
+        final String method;
+        final List<Sample> samples = new ArrayList<>();
+
+        Samples(String method) {
+            this.method = method;
+        }
+
+        void add(Sample sample) {
+            samples.add(sample);
+        }
+
+        void report(int size) {
+            double[] latencies = new double[samples.size()];
+            long maxAllocated = 0;
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = samples.get(i).latencyMs;
+                maxAllocated = Math.max(maxAllocated, samples.get(i).allocatedBytes);
+            }
+            Arrays.sort(latencies);
+            double p50 = percentile(latencies, 50);
+            double p90 = percentile(latencies, 90);
+            double p99 = percentile(latencies, 99);
+            String result = String.format(Locale.ROOT, "%d items: %s p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, up to %d bytes allocated",
+                    size, method, p50, p90, p99, maxAllocated);
+            // p90 rather than p99, which with this many samples is the
+            // slowest call and at the mercy of GC pauses.
+            assertTrue(result, p90 <= LATENCY_BASE_MS + LATENCY_PER_ITEM_MS * size);
+            assertTrue(result, maxAllocated <= ALLOCATION_BASE + ALLOCATION_PER_ITEM * size);
+        }
+
+        private static double percentile(double[] sorted, int percentile) {
+            int index = (int)Math.ceil(percentile / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(0, index)];
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.ryanheise.just_audio;
+
+import static com.ryanheise.just_audio.TestMethodCalls.call;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import android.net.Uri;
+import com.google.android.exoplayer2.robolectric.ShadowMediaCodecConfig;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.ryanheise.just_audio.TestMethodCalls.PendingResult;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+import org.robolectric.shadows.ShadowLooper;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 29, shadows = ShadowRealtimeAudioTrack.class)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class RequestCredentialsTest {
+    private static final long TIMEOUT_MS = 30000;
+
+    @Rule
+    public final ShadowMediaCodecConfig mediaCodecConfig = ShadowMediaCodecConfig.forAllSupportedMimeTypes();
+
+    private final RequestCredentials credentials = new RequestCredentials(() -> {});
+
+    @Test
+    public void queryParametersAreAddedToRemoteRequests() {
+        credentials.set(Collections.singletonMap("Authorization", "Bearer a"), null,
+                Collections.singletonMap("token", "a"), null);
+        DataSpec resolved = credentials.resolveDataSpec(new DataSpec(Uri.parse("https://foo.foo/foo.mp3?token=old&x=1")));
+        assertEquals("https://foo.foo/foo.mp3?x=1&token=a", resolved.uri.toString());
+        assertEquals("Bearer a", resolved.httpRequestHeaders.get("Authorization"));
+    }
+
+    @Test
+    public void proxiedRequestsAreUnchanged() {
+        Map<String, String> uris = new HashMap<>();
+        uris.put("http://127.0.0.1:8080/id/foo.mp3", "https://foo.foo/foo.mp3");
+        credentials.set(Collections.singletonMap("Authorization", "Bearer a"), uris,
+                Collections.singletonMap("token", "a"), null);
+        // The Dart proxy finds its handler by exactly this path and query.
+        for (String uri : new String[] {
+                "http://127.0.0.1:8080/id/foo.mp3",
+                "http://127.0.0.1:8080/id/foo.mp3?x=1",
+                "http://localhost:8080/id/foo.mp3" }) {
+            DataSpec resolved = credentials.resolveDataSpec(new DataSpec(Uri.parse(uri)));
+            assertEquals(uri, resolved.uri.toString());
+            assertEquals(Collections.emptyMap(), resolved.httpRequestHeaders);
+        }
+    }
+
+    @Test
+    public void outstandingRefreshIsRequestedAgain() {
+        final int[] refreshRequests = new int[1];
+        RequestCredentials expiring = new RequestCredentials(() -> refreshRequests[0]++);
+        expiring.set(null, null, Collections.singletonMap("token", "a"), 0L);
+        expiring.resolveDataSpec(new DataSpec(Uri.parse("https://foo.foo/foo.mp3")));
+        assertEquals(1, refreshRequests[0]);
+        // E.g. the engine that was asked has detached.
+        expiring.retryRefresh();
+        assertEquals(2, refreshRequests[0]);
+        expiring.set(null, null, Collections.singletonMap("token", "b"), null);
+        expiring.retryRefresh();
+        assertEquals(2, refreshRequests[0]);
+    }
+
+    // ShapingHttpServer, like the Dart proxy, answers 404 if the query is
+    // changed.
+    @Test
+    public void proxiedSourcePlaysWithQueryCredentials() throws Exception {
+        byte[] wav = ShapingHttpServer.createWav(8000, 1);
+        try (ShapingHttpServer server = new ShapingHttpServer(wav, NetworkProfile.loopback())) {
+            AudioPlayer player = TestMethodCalls.createPlayer("request-credentials", null);
+            try {
+                PendingResult setCredentials = call(player, "setRequestCredentials", AudioPlayer.mapOf(
+                        "headers", null,
+                        "uris", null,
+                        "queryParameters", AudioPlayer.mapOf("token", "a"),
+                        "ttl", null));
+                assertNull(setCredentials.errorMessage, setCredentials.errorMessage);
+                PendingResult load = call(player, "load", AudioPlayer.mapOf(
+                        "audioSource", AudioPlayer.mapOf("type", "progressive", "id", "0", "uri", server.getUri()),
+                        "initialPosition", null,
+                        "initialIndex", null));
+                TestMethodCalls.runUntilDone(load, TIMEOUT_MS);
+                assertNull(load.errorMessage, load.errorMessage);
+                PendingResult play = call(player, "play", AudioPlayer.mapOf());
+                TestMethodCalls.runUntilDone(play, TIMEOUT_MS);
+                assertNull(play.errorMessage, play.errorMessage);
+            } finally {
+                player.dispose();
+                ShadowLooper.idleMainLooper();
+            }
+        }
+    }
+}
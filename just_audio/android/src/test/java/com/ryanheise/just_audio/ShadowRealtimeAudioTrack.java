@@ -0,0 +1,70 @@
+package com.ryanheise.just_audio;
+
+import android.media.AudioTrack;
+import android.os.Build;
+import android.os.SystemClock;
+import java.nio.ByteBuffer;
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.annotation.RealObject;
+import org.robolectric.shadows.ShadowAudioTrack;
+
+/**
+ * An AudioTrack that consumes audio in real time on Robolectric's clock.
+ * Robolectric's own shadow counts every written frame as played at once,
+ * which would let playback run as fast as the network delivers and hide
+ * every rebuffer.
+ */
+@Implements(AudioTrack.class)
+public class ShadowRealtimeAudioTrack extends ShadowAudioTrack {
+    private static final int BUFFER_MS = 250;
+
+    @RealObject
+    private AudioTrack audioTrack;
+    private long writtenFrames;
+    private long playedFrames;
+    private long lastUpdateMs = -1;
+    // Carries the fraction of a frame left over from each update, in
+    // frames * 1000.
+    private long remainder;
+
+    @Override
+    @Implementation(minSdk = Build.VERSION_CODES.LOLLIPOP)
+    protected int write(ByteBuffer audioData, int sizeInBytes, int writeMode) {
+        updatePlayedFrames();
+        int frameSize = audioTrack.getFormat().getFrameSizeInBytes();
+        long capacityFrames = (long)audioTrack.getSampleRate() * BUFFER_MS / 1000;
+        long freeFrames = Math.max(0, capacityFrames - (writtenFrames - playedFrames));
+        int bytes = (int)Math.min(sizeInBytes / frameSize, freeFrames) * frameSize;
+        audioData.position(audioData.position() + bytes);
+        writtenFrames += bytes / frameSize;
+        return bytes;
+    }
+
+    @Override
+    @Implementation
+    protected int getPlaybackHeadPosition() {
+        updatePlayedFrames();
+        return (int)playedFrames;
+    }
+
+    @Override
+    @Implementation
+    protected void flush() {
+        super.flush();
+        writtenFrames = 0;
+        playedFrames = 0;
+        remainder = 0;
+    }
+
+    private void updatePlayedFrames() {
+        long nowMs = SystemClock.uptimeMillis();
+        if (lastUpdateMs >= 0 && audioTrack.getPlayState() == AudioTrack.PLAYSTATE_PLAYING) {
+            long elapsed = (nowMs - lastUpdateMs) * audioTrack.getSampleRate() + remainder;
+            remainder = elapsed % 1000;
+            // An underrun plays silence, which does not advance the head.
+            playedFrames = Math.min(writtenFrames, playedFrames + elapsed / 1000);
+        }
+        lastUpdateMs = nowMs;
+    }
+}
@@ -0,0 +1,157 @@
+package com.ryanheise.just_audio;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.Locale;
+
+/**
+ * A loopback HTTP server that serves a single file through an emulated
+ * network link. Each response is delayed by the profile's latency and paced
+ * to its bandwidth in real time. When the link goes down, open connections
+ * are reset mid-transfer and new requests wait until it comes back, which
+ * is how a client sees a Wi-Fi dropout.
+ *
+ * Range requests of the form "bytes=start-" are supported so that the
+ * player can resume after a reset. Like the Dart loopback proxy, which
+ * finds a source by its path and query, the server answers any other
+ * request target with 404.
+ */
+class ShapingHttpServer implements Closeable {
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final int CHUNK_SIZE = 1024;
+    private static final String PATH = "/audio.wav";
+
+    private final byte[] content;
+    private final NetworkProfile profile;
+    private final ServerSocket serverSocket;
+    private final long startNs = System.nanoTime();
+
+    ShapingHttpServer(byte[] content, NetworkProfile profile) throws IOException {
+        this.content = content;
+        this.profile = profile;
+        serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        Thread acceptThread = new Thread(this::acceptLoop, "ShapingHttpServer");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    String getUri() {
+        return "http://127.0.0.1:" + serverSocket.getLocalPort() + PATH;
+    }
+
+    // A 440 Hz tone as a 16-bit mono WAV file.
+    static byte[] createWav(int sampleRate, int seconds) {
+        int dataSize = seconds * sampleRate * 2;
+        ByteBuffer wav = ByteBuffer.allocate(44 + dataSize).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put(new byte[] { 'R', 'I', 'F', 'F' }).putInt(36 + dataSize);
+        wav.put(new byte[] { 'W', 'A', 'V', 'E', 'f', 'm', 't', ' ' }).putInt(16);
+        wav.putShort((short)1).putShort((short)1).putInt(sampleRate).putInt(sampleRate * 2);
+        wav.putShort((short)2).putShort((short)16);
+        wav.put(new byte[] { 'd', 'a', 't', 'a' }).putInt(dataSize);
+        for (int i = 0; i < seconds * sampleRate; i++) {
+            wav.putShort((short)(8000 * Math.sin(2 * Math.PI * 440 * i / sampleRate)));
+        }
+        return wav.array();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private long elapsedMs() {
+        return (System.nanoTime() - startNs) / 1000000;
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                // The server was closed.
+                return;
+            }
+            Thread connectionThread = new Thread(() -> serve(socket), "ShapingHttpServer:connection");
+            connectionThread.setDaemon(true);
+            connectionThread.start();
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), ASCII));
+            String requestLine = reader.readLine();
+            if (requestLine == null) return;
+            String[] request = requestLine.split(" ");
+            long rangeStart = 0;
+            String line;
+            while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                String header = line.toLowerCase(Locale.US);
+                if (header.startsWith("range: bytes=")) {
+                    String range = header.substring("range: bytes=".length());
+                    rangeStart = Long.parseLong(range.substring(0, range.indexOf('-')).trim());
+                }
+            }
+            Thread.sleep(profile.remainingDownMs(elapsedMs()) + profile.latencyMs);
+            if (request.length < 2 || !PATH.equals(request[1])) {
+                socket.getOutputStream().write(("HTTP/1.1 404 Not Found\r\n"
+                        + "Content-Length: 0\r\n"
+                        + "Connection: close\r\n\r\n").getBytes(ASCII));
+                return;
+            }
+            int start = (int)Math.min(rangeStart, content.length);
+            StringBuilder response = new StringBuilder();
+            if (rangeStart > 0) {
+                response.append("HTTP/1.1 206 Partial Content\r\n");
+                response.append("Content-Range: bytes ").append(start).append('-').append(content.length - 1)
+                        .append('/').append(content.length).append("\r\n");
+            } else {
+                response.append("HTTP/1.1 200 OK\r\n");
+            }
+            response.append("Content-Type: audio/wav\r\n");
+            response.append("Content-Length: ").append(content.length - start).append("\r\n");
+            response.append("Accept-Ranges: bytes\r\n");
+            response.append("Connection: close\r\n\r\n");
+            OutputStream out = socket.getOutputStream();
+            out.write(response.toString().getBytes(ASCII));
+            long sendStartNs = System.nanoTime();
+            long sentBytes = 0;
+            for (int offset = start; offset < content.length; offset += CHUNK_SIZE) {
+                if (profile.isDown(elapsedMs())) {
+                    // Reset rather than close, so that the client sees an
+                    // error instead of a truncated file.
+                    socket.setSoLinger(true, 0);
+                    return;
+                }
+                long dueNs = sendStartNs + sentBytes * 8 * 1000000000L / profile.bitsPerSecond;
+                long waitNs = dueNs - System.nanoTime();
+                if (waitNs > 0) {
+                    Thread.sleep(waitNs / 1000000, (int)(waitNs % 1000000));
+                }
+                int length = Math.min(CHUNK_SIZE, content.length - offset);
+                out.write(content, offset, length);
+                out.flush();
+                sentBytes += length;
+            }
+        } catch (IOException e) {
+            // The client closed the connection.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+}
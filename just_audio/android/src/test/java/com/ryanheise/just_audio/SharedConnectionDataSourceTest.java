@@ -0,0 +1,148 @@
+package com.ryanheise.just_audio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.net.Uri;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.ByteArrayDataSource;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * Plays the loads of two consecutive chapter clips of one file against a
+ * Connection in the order ExoPlayer issues them, and counts the upstream
+ * requests.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SharedConnectionDataSourceTest {
+    // Large enough that the start of the file has left the window by the
+    // end of the first chapter.
+    private static final int FILE_SIZE = 12 * 1024 * 1024;
+    private static final int CHAPTER_END = 8 * 1024 * 1024;
+    private static final int READ_SIZE = 4096;
+    private static final Uri URI = Uri.parse("https://example.com/book.mp3");
+
+    private final byte[] content = new byte[FILE_SIZE];
+    private final AtomicInteger requests = new AtomicInteger();
+    private final DataSource.Factory upstreamFactory = () -> {
+        requests.incrementAndGet();
+        return new ByteArrayDataSource(content);
+    };
+
+    @Before
+    public void setUp() {
+        new Random(0).nextBytes(content);
+    }
+
+    @Test
+    public void nextChapterContinuesTheRequest() throws IOException {
+        SharedConnectionDataSource.Connection connection = new SharedConnectionDataSource.Connection(upstreamFactory);
+        // Chapter N has loaded a little past its end.
+        SharedConnectionDataSource chapter = new SharedConnectionDataSource(connection);
+        assertEquals(FILE_SIZE, chapter.open(dataSpec(0)));
+        assertArrayEquals(range(0, CHAPTER_END + 100000), read(chapter, CHAPTER_END + 100000));
+        // Chapter N+1 reads the header, is prepared and then loads from its
+        // start.
+        SharedConnectionDataSource header = new SharedConnectionDataSource(connection);
+        header.open(dataSpec(0));
+        assertArrayEquals(range(0, 64 * 1024), read(header, 64 * 1024));
+        header.close();
+        SharedConnectionDataSource nextChapter = new SharedConnectionDataSource(connection);
+        long start = CHAPTER_END - 5000;
+        assertEquals(FILE_SIZE - start, nextChapter.open(dataSpec(start)));
+        assertArrayEquals(range((int)start, FILE_SIZE), read(nextChapter, FILE_SIZE - start));
+        assertEquals(C.RESULT_END_OF_INPUT, nextChapter.read(new byte[READ_SIZE], 0, READ_SIZE));
+        chapter.close();
+        nextChapter.close();
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void cancelledLoadDoesNotOpenAConnection() throws Exception {
+        SharedConnectionDataSource.Connection connection = new SharedConnectionDataSource.Connection(upstreamFactory);
+        SharedConnectionDataSource chapter = new SharedConnectionDataSource(connection);
+        chapter.open(dataSpec(0));
+        read(chapter, CHAPTER_END);
+        // The header load reads on past the header until it is cancelled,
+        // which interrupts its thread.
+        SharedConnectionDataSource header = new SharedConnectionDataSource(connection);
+        header.open(dataSpec(0));
+        AtomicReference<Exception> error = new AtomicReference<>();
+        Thread loader = new Thread(() -> {
+            try {
+                read(header, FILE_SIZE);
+            } catch (Exception e) {
+                error.set(e);
+            }
+        });
+        loader.start();
+        Thread.sleep(100);
+        loader.interrupt();
+        loader.join();
+        assertTrue(String.valueOf(error.get()), error.get() instanceof InterruptedIOException);
+        header.close();
+        chapter.close();
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void readerFallsBackAfterTheGracePeriod() throws IOException {
+        SharedConnectionDataSource.Connection connection = new SharedConnectionDataSource.Connection(upstreamFactory, 50);
+        SharedConnectionDataSource chapter = new SharedConnectionDataSource(connection);
+        chapter.open(dataSpec(0));
+        read(chapter, CHAPTER_END);
+        SharedConnectionDataSource other = new SharedConnectionDataSource(connection);
+        other.open(dataSpec(0));
+        assertArrayEquals(content, read(other, FILE_SIZE));
+        other.close();
+        // The first reader still continues on the shared upstream.
+        assertArrayEquals(range(CHAPTER_END, FILE_SIZE), read(chapter, FILE_SIZE - CHAPTER_END));
+        chapter.close();
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void lastReaderReopensTheSharedUpstream() throws IOException {
+        SharedConnectionDataSource.Connection connection = new SharedConnectionDataSource.Connection(upstreamFactory);
+        SharedConnectionDataSource reader = new SharedConnectionDataSource(connection);
+        reader.open(dataSpec(0));
+        read(reader, 100000);
+        reader.close();
+        reader.open(dataSpec(CHAPTER_END));
+        assertArrayEquals(range(CHAPTER_END, FILE_SIZE), read(reader, FILE_SIZE - CHAPTER_END));
+        reader.close();
+        assertEquals(2, requests.get());
+    }
+
+    private static DataSpec dataSpec(long position) {
+        return new DataSpec.Builder().setUri(URI).setPosition(position).build();
+    }
+
+    private byte[] range(int from, int to) {
+        return Arrays.copyOfRange(content, from, to);
+    }
+
+    private static byte[] read(DataSource dataSource, long length) throws IOException {
+        byte[] data = new byte[(int)length];
+        int offset = 0;
+        while (offset < data.length) {
+            int bytesRead = dataSource.read(data, offset, Math.min(READ_SIZE, data.length - offset));
+            if (bytesRead == C.RESULT_END_OF_INPUT) break;
+            offset += bytesRead;
+        }
+        assertEquals(data.length, offset);
+        return data;
+    }
+}
@@ -0,0 +1,93 @@
+package com.ryanheise.just_audio;
+
+import static com.ryanheise.just_audio.SpeechTimeStretchAudioProcessorTest.SAMPLE_RATE;
+import static com.ryanheise.just_audio.SpeechTimeStretchAudioProcessorTest.TONE_FREQUENCY;
+import static com.ryanheise.just_audio.SpeechTimeStretchAudioProcessorTest.createProcessor;
+import static com.ryanheise.just_audio.SpeechTimeStretchAudioProcessorTest.createSonic;
+import static com.ryanheise.just_audio.SpeechTimeStretchAudioProcessorTest.durationError;
+import static com.ryanheise.just_audio.SpeechTimeStretchAudioProcessorTest.inputFrames;
+import static com.ryanheise.just_audio.SpeechTimeStretchAudioProcessorTest.outputFrequency;
+import static com.ryanheise.just_audio.SpeechTimeStretchAudioProcessorTest.process;
+import static com.ryanheise.just_audio.SpeechTimeStretchAudioProcessorTest.speech;
+import static com.ryanheise.just_audio.SpeechTimeStretchAudioProcessorTest.split;
+import static org.junit.Assert.assertTrue;
+
+import com.google.android.exoplayer2.audio.AudioProcessor;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Locale;
+import org.junit.Test;
+
+/**
+ * Measures the throughput and allocations of the speech time-stretch over a
+ * minute of speech, next to ExoPlayer's Sonic at the same speed. Sonic's cost
+ * varies with the pitch it detects, so it is reported for comparison rather
+ * than used as a bound.
+ *
+ * Run with -PjustAudio.benchmarks=true.
+ */
+public class SpeechTimeStretchAudioProcessorBenchmark {
+    private static final int SECONDS = 60;
+
+    @Test
+    public void speed1_5() throws Exception {
+        compareWithSonic(1.5f);
+    }
+
+    @Test
+    public void speed2() throws Exception {
+        compareWithSonic(2.0f);
+    }
+
+    @Test
+    public void speed3() throws Exception {
+        compareWithSonic(3.0f);
+    }
+
+    private void compareWithSonic(float speed) throws Exception {
+        List<ByteBuffer> speech = split(speech(SECONDS));
+        // Warm up the JIT and the processors' buffers.
+        process(createProcessor(speed), speech.subList(0, speech.size() / 4));
+        process(createSonic(speed), speech.subList(0, speech.size() / 4));
+
+        Run processor = run(createProcessor(speed), speed, speech);
+        Run sonic = run(createSonic(speed), speed, speech);
+        String result = String.format(Locale.ROOT,
+                "%.1fx: SpeechTimeStretchAudioProcessor %.0fx realtime, duration error %.2f%%, pitch error %.2f%%, %d bytes allocated;"
+                + " SonicAudioProcessor %.0fx realtime, duration error %.2f%%, pitch error %.2f%%",
+                speed, processor.realtimeFactor, 100 * processor.durationError,
+                100 * (outputFrequency(createProcessor(speed)) / TONE_FREQUENCY - 1), processor.allocated,
+                sonic.realtimeFactor, 100 * sonic.durationError,
+                100 * (outputFrequency(createSonic(speed)) / TONE_FREQUENCY - 1));
+        // Generous bounds so that the benchmark holds on slow machines.
+        assertTrue(result, processor.realtimeFactor > 20);
+        assertTrue(result, processor.allocated < 16 * 1024);
+    }
+
+    // Processes the buffers, measuring the time taken and the allocations
+    // on this thread.
+    private static Run run(AudioProcessor processor, float speed, List<ByteBuffer> buffers) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        long outputFrames = process(processor, buffers);
+        long elapsedNs = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        long inputFrames = inputFrames(buffers);
+        return new Run(inputFrames * 1e9 / SAMPLE_RATE / elapsedNs, durationError(speed, inputFrames, outputFrames), allocated);
+    }
+
+    private static class Run {
+        final double realtimeFactor;
+        final double durationError;
+        final long allocated;
+
+        Run(double realtimeFactor, double durationError, long allocated) {
+            this.realtimeFactor = realtimeFactor;
+            this.durationError = durationError;
+            this.allocated = allocated;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.ryanheise.just_audio;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.audio.AudioProcessor;
+import com.google.android.exoplayer2.audio.AudioProcessor.AudioFormat;
+import com.google.android.exoplayer2.audio.SonicAudioProcessor;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Checks that SpeechTimeStretchAudioProcessor keeps the duration of speech
+ * in line with the speed and the pitch of a tone unchanged, at the speeds
+ * it is meant for.
+ */
+public class SpeechTimeStretchAudioProcessorTest {
+    static final int SAMPLE_RATE = 44100;
+    private static final int CHANNEL_COUNT = 2;
+    // ExoPlayer hands the processors buffers of this order of size.
+    private static final int BUFFER_FRAMES = 4096;
+    private static final int SECONDS = 10;
+    static final double TONE_FREQUENCY = 220;
+
+    @Test
+    public void speed1_5() throws Exception {
+        checkDurationAndPitch(1.5f);
+    }
+
+    @Test
+    public void speed2() throws Exception {
+        checkDurationAndPitch(2.0f);
+    }
+
+    @Test
+    public void speed3() throws Exception {
+        checkDurationAndPitch(3.0f);
+    }
+
+    private void checkDurationAndPitch(float speed) throws Exception {
+        List<ByteBuffer> speech = split(speech(SECONDS));
+        long outputFrames = process(createProcessor(speed), speech);
+        assertEquals(0, durationError(speed, inputFrames(speech), outputFrames), 0.02);
+        assertEquals(0, outputFrequency(createProcessor(speed)) / TONE_FREQUENCY - 1, 0.03);
+    }
+
+    static SpeechTimeStretchAudioProcessor createProcessor(float speed) throws Exception {
+        SpeechTimeStretchAudioProcessor processor = new SpeechTimeStretchAudioProcessor(true);
+        processor.setSpeed(speed);
+        processor.configure(new AudioFormat(SAMPLE_RATE, CHANNEL_COUNT, C.ENCODING_PCM_16BIT));
+        processor.flush();
+        return processor;
+    }
+
+    static SonicAudioProcessor createSonic(float speed) throws Exception {
+        SonicAudioProcessor sonic = new SonicAudioProcessor();
+        sonic.setSpeed(speed);
+        sonic.configure(new AudioFormat(SAMPLE_RATE, CHANNEL_COUNT, C.ENCODING_PCM_16BIT));
+        sonic.flush();
+        return sonic;
+    }
+
+    // Feeds the buffers through processor as the audio sink does,
+    // returning the number of frames output.
+    static long process(AudioProcessor processor, List<ByteBuffer> buffers) {
+        long outputFrames = 0;
+        for (ByteBuffer buffer : buffers) {
+            buffer.rewind();
+            while (buffer.hasRemaining()) {
+                processor.queueInput(buffer);
+                outputFrames += drain(processor);
+            }
+        }
+        processor.queueEndOfStream();
+        return outputFrames + drain(processor);
+    }
+
+    static long inputFrames(List<ByteBuffer> buffers) {
+        long frames = 0;
+        for (ByteBuffer buffer : buffers) {
+            frames += buffer.capacity() / (2 * CHANNEL_COUNT);
+        }
+        return frames;
+    }
+
+    // The relative difference between the output duration and the input
+    // duration divided by the speed.
+    static double durationError(float speed, long inputFrames, long outputFrames) {
+        return (double)outputFrames * speed / inputFrames - 1;
+    }
+
+    private static int drain(AudioProcessor processor) {
+        ByteBuffer output = processor.getOutput();
+        int frames = output.remaining() / (2 * CHANNEL_COUNT);
+        output.position(output.limit());
+        return frames;
+    }
+
+    // The frequency of a stretched tone, from the zero crossings of the
+    // left channel.
+    static double outputFrequency(AudioProcessor processor) {
+        List<Short> samples = new ArrayList<>();
+        for (ByteBuffer buffer : split(tone(2))) {
+            while (buffer.hasRemaining()) {
+                processor.queueInput(buffer);
+                ByteBuffer output = processor.getOutput();
+                while (output.hasRemaining()) {
+                    samples.add(output.getShort());
+                    output.getShort();
+                }
+            }
+        }
+        int crossings = 0;
+        for (int i = 1; i < samples.size(); i++) {
+            if (samples.get(i - 1) < 0 && samples.get(i) >= 0) crossings++;
+        }
+        return crossings * (double)SAMPLE_RATE / samples.size();
+    }
+
+    static List<ByteBuffer> split(short[] samples) {
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (int offset = 0; offset < samples.length; offset += BUFFER_FRAMES * CHANNEL_COUNT) {
+            int length = Math.min(BUFFER_FRAMES * CHANNEL_COUNT, samples.length - offset);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(length * 2).order(ByteOrder.nativeOrder());
+            buffer.asShortBuffer().put(samples, offset, length);
+            buffers.add(buffer);
+        }
+        return buffers;
+    }
+
+    // A voiced signal shaped like speech: a harmonic series over a gliding
+    // fundamental, four syllables a second and a pause every two seconds.
+    static short[] speech(int seconds) {
+        short[] samples = new short[seconds * SAMPLE_RATE * CHANNEL_COUNT];
+        double phase = 0;
+        for (int f = 0; f < seconds * SAMPLE_RATE; f++) {
+            double t = (double)f / SAMPLE_RATE;
+            double fundamental = 145 + 35 * Math.sin(2 * Math.PI * 3 * t);
+            phase += 2 * Math.PI * fundamental / SAMPLE_RATE;
+            double value = 0;
+            for (int h = 1; h <= 10; h++) {
+                value += Math.sin(h * phase) / h;
+            }
+            double envelope = t % 2 < 1.8 ? Math.abs(Math.sin(2 * Math.PI * 2 * t)) : 0;
+            short sample = (short)(5000 * envelope * value);
+            for (int c = 0; c < CHANNEL_COUNT; c++) {
+                samples[f * CHANNEL_COUNT + c] = sample;
+            }
+        }
+        return samples;
+    }
+
+    private static short[] tone(int seconds) {
+        short[] samples = new short[seconds * SAMPLE_RATE * CHANNEL_COUNT];
+        for (int f = 0; f < seconds * SAMPLE_RATE; f++) {
+            short sample = (short)(8000 * Math.sin(2 * Math.PI * TONE_FREQUENCY * f / SAMPLE_RATE));
+            for (int c = 0; c < CHANNEL_COUNT; c++) {
+                samples[f * CHANNEL_COUNT + c] = sample;
+            }
+        }
+        return samples;
+    }
+}
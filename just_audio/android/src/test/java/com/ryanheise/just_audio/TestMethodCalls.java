@@ -0,0 +1,88 @@
+package com.ryanheise.just_audio;
+
+import static org.junit.Assert.assertTrue;
+
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+/**
+ * Drives an AudioPlayer through onMethodCall as the Dart side would, on the
+ * Robolectric main thread. The player's channels are not listened to, so
+ * results are read from the method calls directly.
+ */
+final class TestMethodCalls {
+    private static final long STEP_MS = 5;
+
+    private TestMethodCalls() {
+    }
+
+    static AudioPlayer createPlayer(String id, Map<?, ?> audioLoadConfiguration) {
+        return new AudioPlayer(RuntimeEnvironment.getApplication(), new NullBinaryMessenger(),
+                id, audioLoadConfiguration, new ArrayList<Object>(), false, false);
+    }
+
+    static PendingResult call(AudioPlayer player, String method, Map<String, Object> arguments) {
+        PendingResult result = new PendingResult();
+        player.onMethodCall(new MethodCall(method, arguments), result);
+        return result;
+    }
+
+    // Advances the main looper and the clock by the wall clock time that
+    // has passed until result is completed, for players that load from a
+    // server running in real time.
+    static void runUntilDone(PendingResult result, long timeoutMs) throws InterruptedException {
+        long startNs = System.nanoTime();
+        long advancedMs = 0;
+        while (!result.done) {
+            Thread.sleep(STEP_MS);
+            long elapsedMs = (System.nanoTime() - startNs) / 1000000;
+            assertTrue("Timed out", elapsedMs < timeoutMs);
+            ShadowLooper.idleMainLooper(elapsedMs - advancedMs, TimeUnit.MILLISECONDS);
+            advancedMs = elapsedMs;
+        }
+    }
+
+    static class PendingResult implements MethodChannel.Result {
+        volatile boolean done;
+        Object value;
+        String errorMessage;
+
+        @Override
+        public void success(Object result) {
+            value = result;
+            done = true;
+        }
+
+        @Override
+        public void error(String errorCode, String errorMessage, Object errorDetails) {
+            this.errorMessage = errorCode + ": " + errorMessage;
+            done = true;
+        }
+
+        @Override
+        public void notImplemented() {
+            error("notImplemented", null, null);
+        }
+    }
+
+    private static class NullBinaryMessenger implements BinaryMessenger {
+        @Override
+        public void send(String channel, ByteBuffer message) {
+        }
+
+        @Override
+        public void send(String channel, ByteBuffer message, BinaryReply callback) {
+        }
+
+        @Override
+        public void setMessageHandler(String channel, BinaryMessageHandler handler) {
+        }
+    }
+}
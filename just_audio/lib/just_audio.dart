@@ -65,6 +65,16 @@ class AudioPlayer {
 
   final bool _androidOffloadSchedulingEnabled;
 
+  final bool _androidMixerEnabled;
+
+  /// Whether the player ID was given by the app, in which case the native
+  /// player may be shared with other Flutter engines.
+  final bool _sharedId;
+
+  /// Whether the native platform was activated by [attach] rather than to
+  /// load an audio source.
+  bool _attached = false;
+
   /// This is `true` when the audio player needs to engage the native platform
   /// side of the plugin to decode or play audio, and is `false` when the native
   /// resources are not needed (i.e. after initial instantiation and after [stop]).
@@ -97,8 +107,13 @@ class AudioPlayer {
   /// subscribe to the new platform's events.
   StreamSubscription<PlayerDataMessage>? _playerDataSubscription;
 
+  /// The subscription to the metadata event channel of the current platform
+  /// implementation.
+  StreamSubscription<MetadataMessage>? _metadataSubscription;
+
   final String _id;
   final _proxy = _ProxyHttpServer();
+  _AndroidStreamChannel? _androidStreamChannel;
   AudioSource? _audioSource;
   final Map<String, AudioSource> _audioSources = {};
   bool _disposed = false;
@@ -128,6 +143,10 @@ class AudioPlayer {
   final _androidAudioSessionIdSubject = BehaviorSubject<int?>();
   final _positionDiscontinuitySubject =
       PublishSubject<PositionDiscontinuity>(sync: true);
+  final _requestCredentialsExpiredSubject = PublishSubject<void>();
+  final _metadataSubject = PublishSubject<List<MetadataEntry>>();
+  final _positionFrameSubject = PublishSubject<PositionFrame>();
+  final _monotonicClock = _MonotonicClock();
   var _seeking = false;
   // ignore: close_sinks
   BehaviorSubject<Duration>? _positionSubject;
@@ -138,12 +157,27 @@ class AudioPlayer {
   bool _playInterrupted = false;
   bool _platformLoading = false;
   AndroidAudioAttributes? _androidAudioAttributes;
+  _RequestCredentials? _requestCredentials;
+  Duration _loadDebounce = Duration.zero;
+  Duration? _hibernationIdleTimeout;
+  bool _hibernateOnMemoryPressure = false;
+  bool _positionStreamEnabled = false;
+  Duration? _positionStreamInterval;
   final bool _androidApplyAudioAttributes;
   final bool _handleAudioSessionActivation;
 
   /// Counts how many times [_setPlatformActive] is called.
   int _activationCount = 0;
 
+  /// Counts how many times [_load] is called.
+  int _loadCount = 0;
+
+  /// Overrides whether [StreamAudioSource]s are served to the platform over a
+  /// method channel (as on Android) rather than the local proxy, so that tests
+  /// can exercise the channel on any platform.
+  @visibleForTesting
+  static bool? debugUseAndroidStreamChannel;
+
   /// Creates an [AudioPlayer].
   ///
   /// Apps requesting remote URLs should set the [userAgent] parameter which
@@ -176,6 +210,16 @@ class AudioPlayer {
   ///
   /// The default audio loading and buffering behaviour can be configured via
   /// the [audioLoadConfiguration] parameter.
+  ///
+  /// On Android, players created with [androidMixerEnabled] set to `true` mix
+  /// their decoded audio in software into a single shared output rather than
+  /// each opening an output of their own, which suits apps layering many
+  /// sounds at once. Speed and pitch are not applied in this mode.
+  ///
+  /// A random [playerId] is generated unless one is given. On Android, players
+  /// created with the same [playerId] in different Flutter engines of the same
+  /// process (e.g. a UI engine and a background service engine) share a single
+  /// native player. See [attach].
   AudioPlayer({
     String? userAgent,
     bool handleInterruptions = true,
@@ -184,8 +228,11 @@ class AudioPlayer {
     AudioLoadConfiguration? audioLoadConfiguration,
     AudioPipeline? audioPipeline,
     bool androidOffloadSchedulingEnabled = false,
+    bool androidMixerEnabled = false,
     bool useProxyForRequestHeaders = true,
-  })  : _id = _uuid.v4(),
+    String? playerId,
+  })  : _id = playerId ?? _uuid.v4(),
+        _sharedId = playerId != null,
         _userAgent = userAgent,
         _androidApplyAudioAttributes =
             androidApplyAudioAttributes && _isAndroid(),
@@ -193,6 +240,7 @@ class AudioPlayer {
         _audioLoadConfiguration = audioLoadConfiguration,
         _audioPipeline = audioPipeline ?? AudioPipeline(),
         _androidOffloadSchedulingEnabled = androidOffloadSchedulingEnabled,
+        _androidMixerEnabled = androidMixerEnabled,
         _useProxyForRequestHeaders = useProxyForRequestHeaders {
     _audioPipeline._setup(this);
     if (_audioLoadConfiguration?.darwinLoadControl != null) {
@@ -551,6 +599,23 @@ class AudioPlayer {
   Stream<PositionDiscontinuity> get positionDiscontinuityStream =>
       _positionDiscontinuitySubject.stream;
 
+  /// (Android) A stream that emits when the credentials set via
+  /// [setRequestCredentials] have expired and a request needs fresh ones.
+  Stream<void> get requestCredentialsExpiredStream =>
+      _requestCredentialsExpiredSubject.stream;
+
+  /// (Android) A stream of the positions sampled by the platform while
+  /// enabled with [setPositionStreamEnabled].
+  Stream<PositionFrame> get positionFrameStream =>
+      _positionFrameSubject.stream;
+
+  /// (Android) A stream of batches of ICY, ID3 and emsg metadata entries.
+  /// Timed entries are emitted when playback reaches their position, and the
+  /// tags of each item's format are emitted without a position when its
+  /// tracks are selected. An entry that repeats the previous value for the
+  /// same key is not emitted again.
+  Stream<List<MetadataEntry>> get metadataStream => _metadataSubject.stream;
+
   /// Whether the player should automatically delay playback in order to
   /// minimize stalling. (iOS 10.0 or later only)
   bool get automaticallyWaitsToMinimizeStalling =>
@@ -573,8 +638,14 @@ class AudioPlayer {
 
   Duration _getPositionFor(PlaybackEvent playbackEvent) {
     if (playing && processingState == ProcessingState.ready) {
-      final result = playbackEvent.updatePosition +
-          (DateTime.now().difference(playbackEvent.updateTime)) * speed;
+      // The platform's monotonic clock is immune to changes of the wall
+      // clock, so it is preferred when the platform provides it.
+      final updateMonotonicTime = playbackEvent._updateMonotonicTime;
+      final monotonicNow = _monotonicClock.now;
+      final elapsed = updateMonotonicTime != null && monotonicNow != null
+          ? monotonicNow - updateMonotonicTime
+          : DateTime.now().difference(playbackEvent.updateTime);
+      final result = playbackEvent.updatePosition + elapsed * speed;
       return playbackEvent.duration == null || result <= playbackEvent.duration!
           ? result
           : playbackEvent.duration!;
@@ -833,9 +904,11 @@ class AudioPlayer {
   Future<Duration?> _load(AudioPlayerPlatform platform, AudioSource source,
       {_InitialSeekValues? initialSeekValues}) async {
     final activationNumber = _activationCount;
+    final loadNumber = ++_loadCount;
     void checkInterruption() {
-      if (_activationCount != activationNumber) {
-        // the platform has changed since we started loading, so abort.
+      if (_activationCount != activationNumber || _loadCount != loadNumber) {
+        // the platform has changed or a later load has superseded this one
+        // since we started loading, so abort.
         throw PlatformException(code: 'abort', message: 'Loading interrupted');
       }
     }
@@ -845,15 +918,20 @@ class AudioPlayer {
       checkInterruption();
       source._shuffle(initialIndex: initialSeekValues?.index ?? 0);
       _broadcastSequence();
-      _durationFuture = platform
-          .load(LoadRequest(
-            audioSourceMessage: source._toMessage(),
-            initialPosition: initialSeekValues?.position,
-            initialIndex: initialSeekValues?.index,
-          ))
-          .then((response) => response.duration);
-      final duration = await _durationFuture;
+      final responseFuture = platform.load(LoadRequest(
+        audioSourceMessage: source._toMessage(),
+        initialPosition: initialSeekValues?.position,
+        initialIndex: initialSeekValues?.index,
+      ));
+      _durationFuture = responseFuture.then((response) => response.duration);
+      final response = await responseFuture;
       checkInterruption();
+      if (response.cancelled) {
+        // A later load reached the platform first, e.g. from another engine
+        // sharing this player, so this one never started.
+        throw PlatformException(code: 'abort', message: 'Loading interrupted');
+      }
+      final duration = response.duration;
       _durationSubject.add(duration);
       if (platform != _platformValue) {
         // the platform has changed since we started loading, so abort.
@@ -933,7 +1011,7 @@ class AudioPlayer {
       if (!playing) return;
       // TODO: rewrite this to more cleanly handle simultaneous load/play
       // requests which each may result in platform play requests.
-      final requireActive = _audioSource != null;
+      final requireActive = _audioSource != null || _attached;
       if (requireActive) {
         if (_active) {
           // If the native platform is already active, send it a play request.
@@ -1134,7 +1212,12 @@ class AudioPlayer {
   /// an audio source has been loaded.
   ///
   /// A `null` [position] seeks to the head of a live stream.
-  Future<void> seek(final Duration? position, {int? index}) async {
+  ///
+  /// On Android, [seekMode] [SeekMode.fast] lands on the nearest sync point
+  /// rather than exactly on [position], which is cheaper while the user drags
+  /// a seek bar. Other platforms always seek exactly.
+  Future<void> seek(final Duration? position,
+      {int? index, SeekMode seekMode = SeekMode.exact}) async {
     if (_disposed) return;
     _initialSeekValues = null;
     switch (processingState) {
@@ -1153,8 +1236,10 @@ class AudioPlayer {
               PositionDiscontinuityReason.seek,
               prevPlaybackEvent,
               _playbackEvent));
-          await (await _platform)
-              .seek(SeekRequest(position: position, index: index));
+          await (await _platform).seek(SeekRequest(
+              position: position,
+              index: index,
+              seekMode: SeekModeMessage.values[seekMode.index]));
         } finally {
           _seeking = false;
         }
@@ -1195,6 +1280,225 @@ class AudioPlayer {
         usage: audioAttributes.usage.value));
   }
 
+  /// (Android) Attaches to the native player that another Flutter engine in
+  /// this process created with the same `playerId`, so that this engine can
+  /// control and observe it without starting a second playback pipeline. The
+  /// player's current playback event is delivered once attached. The settings
+  /// of this [AudioPlayer] are not applied to the shared player, and no audio
+  /// source may have been set on it. If no such player exists yet, an idle one
+  /// is created.
+  ///
+  /// The native player is released once every engine has disposed of or
+  /// stopped its [AudioPlayer].
+  Future<void> attach() async {
+    if (_disposed) return;
+    if (!_sharedId) {
+      throw StateError('attach requires a playerId');
+    }
+    if (_audioSource != null) {
+      throw StateError('attach must be called before setting an audio source');
+    }
+    await _setPlatformActive(true, attach: true);
+  }
+
+  /// (Android) Sets credentials that are applied to each HTTP request at the
+  /// moment it is made, so that expiring tokens and signed URLs can be rotated
+  /// without reloading the audio source. [headers] are added to each request,
+  /// [uris] maps an original URI to the URI to request in its place, and
+  /// [queryParameters] replace any query parameters of the same name.
+  /// Sources served through the local proxy, such as [StreamAudioSource]s
+  /// and sources with headers unless the player was created with
+  /// `useProxyForRequestHeaders: false`, are not affected.
+  ///
+  /// If [ttl] is given, a request made after it elapses emits on
+  /// [requestCredentialsExpiredStream] and briefly waits for new credentials
+  /// to be set before going out with the stale ones.
+  Future<void> setRequestCredentials({
+    Map<String, String>? headers,
+    Map<String, String>? uris,
+    Map<String, String>? queryParameters,
+    Duration? ttl,
+  }) async {
+    if (_disposed) return;
+    if (!_isAndroid() && !_isUnitTest()) return;
+    final credentials = _requestCredentials = _RequestCredentials(
+      headers: headers,
+      uris: uris,
+      queryParameters: queryParameters,
+      expiry: ttl == null ? null : DateTime.now().add(ttl),
+    );
+    await (await _platform).setRequestCredentials(credentials._toRequest());
+  }
+
+  /// (Android) Sets how long a load waits before it starts, so that a load
+  /// superseded within [window] by another is never started. This avoids
+  /// starting and tearing down the loading of each item while the user
+  /// skips rapidly through a list. A superseded load throws a
+  /// [PlayerInterruptedException]. The default of [Duration.zero] starts
+  /// each load immediately.
+  Future<void> setLoadDebounce(Duration window) async {
+    if (_disposed) return;
+    if (!_isAndroid() && !_isUnitTest()) return;
+    _loadDebounce = window;
+    await (await _platform)
+        .setLoadDebounce(SetLoadDebounceRequest(window: window));
+  }
+
+  /// (Android) Sets when this player hibernates, releasing its decoders,
+  /// buffers and media sources while keeping its queue, position and
+  /// settings. It hibernates once it has been paused for [idleTimeout], if
+  /// not `null`, and, if [onMemoryPressure] is `true`, when the system is low
+  /// on memory. A hibernated player is rebuilt when it is next played or
+  /// seeked, which rebuffers the current item. By default, the player never
+  /// hibernates.
+  Future<void> setHibernationPolicy(
+      {Duration? idleTimeout, bool onMemoryPressure = false}) async {
+    if (_disposed) return;
+    if (!_isAndroid() && !_isUnitTest()) return;
+    _hibernationIdleTimeout = idleTimeout;
+    _hibernateOnMemoryPressure = onMemoryPressure;
+    await (await _platform).setHibernationPolicy(SetHibernationPolicyRequest(
+        idleTimeout: idleTimeout, onMemoryPressure: onMemoryPressure));
+  }
+
+  /// (Android) Enables or disables [positionFrameStream], which emits the
+  /// position every [interval] while playing, and once when playback stops.
+  /// The platform's default interval of 50ms is used if [interval] is
+  /// `null`. Intervals below 16ms are raised to 16ms.
+  Future<void> setPositionStreamEnabled(bool enabled,
+      {Duration? interval}) async {
+    if (_disposed) return;
+    if (!_isAndroid() && !_isUnitTest()) return;
+    _positionStreamEnabled = enabled;
+    _positionStreamInterval = interval;
+    await (await _platform).setPositionStreamEnabled(
+        SetPositionStreamEnabledRequest(enabled: enabled, interval: interval));
+  }
+
+  /// (Android) Returns the counts and latencies of the seeks made by this
+  /// player since its platform player was created, or `null` on other
+  /// platforms.
+  Future<SeekMetrics?> getSeekMetrics() async {
+    if (_disposed) return null;
+    if (!_isAndroid() && !_isUnitTest()) return null;
+    final response =
+        await (await _platform).getSeekMetrics(GetSeekMetricsRequest());
+    return SeekMetrics._fromMessage(response);
+  }
+
+  /// (Android) Returns measures of how quickly playback started and how often
+  /// it stalled to rebuffer since the platform player was created, or `null`
+  /// on other platforms.
+  Future<PlaybackQualityMetrics?> getPlaybackQualityMetrics() async {
+    if (_disposed) return null;
+    if (!_isAndroid() && !_isUnitTest()) return null;
+    final response = await (await _platform)
+        .getPlaybackQualityMetrics(GetPlaybackQualityMetricsRequest());
+    return PlaybackQualityMetrics._fromMessage(response);
+  }
+
+  /// (Android) Saves the loaded audio source, the current index and position,
+  /// and the loop and shuffle modes under [key], which may contain only
+  /// letters, digits, `_`, `.` and `-`. After a cold start, [restoreSnapshot]
+  /// resumes from them without sending every item of a large playlist to the
+  /// platform again.
+  ///
+  /// This method throws an [Exception] if no audio source has been loaded.
+  Future<void> saveSnapshot(String key) async {
+    if (_disposed) return;
+    if (!_isAndroid() && !_isUnitTest()) return;
+    if (!_active || _audioSource == null) {
+      throw Exception('Must load an AudioSource before saving a snapshot');
+    }
+    await (await _platform).saveSnapshot(SaveSnapshotRequest(key: key));
+  }
+
+  /// (Android) Restores the snapshot saved under [key] by [saveSnapshot] and
+  /// returns the duration of the restored item as soon as it is known, or
+  /// `null` if unavailable.
+  ///
+  /// [source] must be rebuilt with the same structure as the saved source,
+  /// e.g. from the app's own playlist store, so that it can still be edited
+  /// after the restore. Only the IDs and types of its items are sent to the
+  /// platform, which checks the types against the snapshot and adopts the
+  /// IDs. The saved shuffle orders, index, position and modes are kept.
+  ///
+  /// This method throws the same exceptions as [load], and a
+  /// [PlayerException] if the snapshot is missing or does not match [source].
+  Future<Duration?> restoreSnapshot(String key, AudioSource source) async {
+    if (_disposed) return null;
+    if (!_isAndroid() && !_isUnitTest()) return null;
+    _audioSource = null;
+    _initialSeekValues = null;
+    // Activate without a source so that activation does not load one.
+    await _setPlatformActive(true)?.catchError((dynamic e) async => null);
+    if (_disposed) return null;
+    _audioSource = source;
+    _broadcastSequence();
+    return await _restoreSnapshot(await _platform, key, source);
+  }
+
+  Future<Duration?> _restoreSnapshot(
+      AudioPlayerPlatform platform, String key, AudioSource source) async {
+    final activationNumber = _activationCount;
+    final loadNumber = ++_loadCount;
+    void checkInterruption() {
+      if (_activationCount != activationNumber || _loadCount != loadNumber) {
+        throw PlatformException(code: 'abort', message: 'Loading interrupted');
+      }
+    }
+
+    try {
+      await source._setup(this);
+      checkInterruption();
+      final responseFuture = platform.restoreSnapshot(RestoreSnapshotRequest(
+        key: key,
+        audioSourceMessage: source._toMessage(),
+      ));
+      _durationFuture = responseFuture.then((response) => response.duration);
+      final response = await responseFuture;
+      checkInterruption();
+      if (response.cancelled) {
+        throw PlatformException(code: 'abort', message: 'Loading interrupted');
+      }
+      _adoptShuffleOrders(source, response.shuffleOrders.iterator);
+      _broadcastSequence();
+      final duration = response.duration;
+      _durationSubject.add(duration);
+      await processingStateStream
+          .firstWhere((state) => state != ProcessingState.loading);
+      checkInterruption();
+      return duration;
+    } on PlatformException catch (e) {
+      try {
+        throw PlayerException(int.parse(e.code), e.message);
+      } on FormatException catch (_) {
+        if (e.code == 'abort') {
+          throw PlayerInterruptedException(e.message);
+        } else {
+          throw PlayerException(9999999, e.message);
+        }
+      }
+    }
+  }
+
+  /// Replaces the shuffle order of each [ConcatenatingAudioSource] within
+  /// [source], in pre-order, with the next of [shuffleOrders].
+  void _adoptShuffleOrders(
+      AudioSource source, Iterator<List<int>> shuffleOrders) {
+    if (source is ConcatenatingAudioSource) {
+      if (!shuffleOrders.moveNext()) return;
+      source._shuffleOrder.indices
+        ..clear()
+        ..addAll(shuffleOrders.current);
+      for (var child in source.children) {
+        _adoptShuffleOrders(child, shuffleOrders);
+      }
+    } else if (source is LoopingAudioSource) {
+      _adoptShuffleOrders(source.child, shuffleOrders);
+    }
+  }
+
   /// Release all resources associated with this player. You must invoke this
   /// after you are done with the player.
   Future<void> dispose() async {
@@ -1214,6 +1518,7 @@ class AudioPlayer {
     }
     _audioSources.clear();
     _proxy.stop();
+    _androidStreamChannel?.stop();
     await _durationSubject.close();
     await _loopModeSubject.close();
     await _shuffleModeEnabledSubject.close();
@@ -1223,6 +1528,9 @@ class AudioPlayer {
     await _pitchSubject.close();
     await _sequenceSubject.close();
     await _shuffleIndicesSubject.close();
+    await _requestCredentialsExpiredSubject.close();
+    await _metadataSubject.close();
+    await _positionFrameSubject.close();
   }
 
   /// Switch to using the native platform when [active] is `true` and using the
@@ -1231,12 +1539,16 @@ class AudioPlayer {
   /// otherwise.
   ///
   /// The platform will not switch if [active] == [_active] unless [force] is
-  /// `true`.
+  /// `true`. If [attach] is `true`, the native platform is attached to a
+  /// player shared with another engine without applying this player's state.
   Future<Duration?>? _setPlatformActive(bool active,
-      {Completer<void>? playCompleter, bool force = false}) {
+      {Completer<void>? playCompleter,
+      bool force = false,
+      bool attach = false}) {
     if (_disposed) return null;
     if (!force && (active == _active)) return _durationFuture;
-    _platformLoading = active;
+    // An attached player reports the shared player's state as it is.
+    _platformLoading = active && !attach;
 
     // Warning! Tricky async code lies ahead.
     // (This should definitely be made less tricky)
@@ -1278,6 +1590,7 @@ class AudioPlayer {
     // This method updates _active and _platform before yielding to the next
     // task in the event loop.
     _active = active;
+    _attached = attach;
     final position = this.position;
     final currentIndex = this.currentIndex;
     final audioSource = _audioSource;
@@ -1304,6 +1617,19 @@ class AudioPlayer {
           _shuffleModeEnabledSubject
               .add(message.shuffleMode != ShuffleModeMessage.none);
         }
+        if (message.requestCredentialsExpired == true) {
+          _requestCredentialsExpiredSubject.add(null);
+        }
+        if (message.positionFrame != null) {
+          final frame = message.positionFrame!;
+          _monotonicClock.sync(frame.monotonicTime);
+          _positionFrameSubject.add(PositionFrame._fromMessage(frame));
+        }
+      });
+      _metadataSubscription =
+          platform.metadataMessageStream.listen((message) {
+        _metadataSubject
+            .add(message.entries.map(MetadataEntry._fromMessage).toList());
       });
       _playbackEventSubscription =
           platform.playbackEventMessageStream.listen((message) {
@@ -1335,7 +1661,16 @@ class AudioPlayer {
               : IcyMetadata._fromMessage(message.icyMetadata!),
           currentIndex: index,
           androidAudioSessionId: message.androidAudioSessionId,
-        );
+          androidOffload: message.androidOffload == null
+              ? null
+              : AndroidOffloadState._fromMessage(message.androidOffload!),
+          androidLive: message.androidLive == null
+              ? null
+              : AndroidLiveState._fromMessage(message.androidLive!),
+        ).._updateMonotonicTime = message.updateMonotonicTime;
+        if (message.updateMonotonicTime != null) {
+          _monotonicClock.sync(message.updateMonotonicTime!);
+        }
         _durationFuture = Future.value(playbackEvent.duration);
         if (playbackEvent == _playbackEvent) {
           return;
@@ -1356,6 +1691,7 @@ class AudioPlayer {
     Future<AudioPlayerPlatform> setPlatform() async {
       _playbackEventSubscription?.cancel();
       _playerDataSubscription?.cancel();
+      _metadataSubscription?.cancel();
       if (!force) {
         final oldPlatform = _platformValue!;
         if (oldPlatform is! _IdleAudioPlayer) {
@@ -1380,6 +1716,8 @@ class AudioPlayer {
                       .toList()
                   : [],
               androidOffloadSchedulingEnabled: _androidOffloadSchedulingEnabled,
+              androidMixerEnabled: _androidMixerEnabled,
+              androidAttach: _sharedId ? true : null,
             )))
           : (_idlePlatform =
               _IdleAudioPlayer(id: _id, sequenceStream: sequenceStream));
@@ -1387,7 +1725,7 @@ class AudioPlayer {
 
       _platformValue = platform;
 
-      if (active) {
+      if (active && !attach) {
         if (audioSource != null) {
           _playbackEventSubject.add(_playbackEvent = _playbackEvent.copyWith(
             updatePosition: position,
@@ -1412,6 +1750,44 @@ class AudioPlayer {
                 platform, _androidAudioAttributes!);
             if (checkInterruption()) return platform;
           }
+          if (_requestCredentials != null) {
+            try {
+              await platform
+                  .setRequestCredentials(_requestCredentials!._toRequest());
+            } catch (e) {
+              // setRequestCredentials not supported on this platform.
+            }
+            if (checkInterruption()) return platform;
+          }
+          if (_positionStreamEnabled) {
+            try {
+              await platform.setPositionStreamEnabled(
+                  SetPositionStreamEnabledRequest(
+                      enabled: true, interval: _positionStreamInterval));
+            } catch (e) {
+              // setPositionStreamEnabled not supported on this platform.
+            }
+            if (checkInterruption()) return platform;
+          }
+          if (_loadDebounce != Duration.zero) {
+            try {
+              await platform.setLoadDebounce(
+                  SetLoadDebounceRequest(window: _loadDebounce));
+            } catch (e) {
+              // setLoadDebounce not supported on this platform.
+            }
+            if (checkInterruption()) return platform;
+          }
+          if (_hibernationIdleTimeout != null || _hibernateOnMemoryPressure) {
+            try {
+              await platform.setHibernationPolicy(SetHibernationPolicyRequest(
+                  idleTimeout: _hibernationIdleTimeout,
+                  onMemoryPressure: _hibernateOnMemoryPressure));
+            } catch (e) {
+              // setHibernationPolicy not supported on this platform.
+            }
+            if (checkInterruption()) return platform;
+          }
         }
         if (!automaticallyWaitsToMinimizeStalling) {
           // Only set if different from default.
@@ -1505,6 +1881,45 @@ class AudioPlayer {
       await file.delete(recursive: true);
     }
   }
+
+  /// (Android) Extracts a waveform overview of the audio at [uri], such as a
+  /// file, content or `asset:///` URI, as [resolution] bins spanning its
+  /// duration. Returns `null` on other platforms.
+  ///
+  /// The audio is decoded in the background, and the result is cached so
+  /// that a later request for the same unchanged audio does not decode it
+  /// again.
+  static Future<Waveform?> extractWaveform(Uri uri,
+      {int resolution = 1000}) async {
+    if (!_isAndroid() && !_isUnitTest()) return null;
+    final response = await _pluginPlatform.extractWaveform(
+        ExtractWaveformRequest(uri: uri.toString(), resolution: resolution));
+    return Waveform._fromMessage(response);
+  }
+
+  /// (Android) Switches system trace sections for player operations such as
+  /// method calls, loading, seeking and releasing on or off. The sections
+  /// appear in Perfetto and systrace captures of the app. Tracing is off by
+  /// default.
+  static Future<void> setTracingEnabled(bool enabled) async {
+    if (!_isAndroid() && !_isUnitTest()) return;
+    await _pluginPlatform
+        .setTracingEnabled(SetTracingEnabledRequest(enabled: enabled));
+  }
+}
+
+/// A waveform overview returned by [AudioPlayer.extractWaveform].
+class Waveform {
+  /// The peak amplitude of each bin, from 0.0 to 1.0.
+  final List<double> peaks;
+
+  /// The RMS amplitude of each bin, from 0.0 to 1.0.
+  final List<double> rms;
+
+  Waveform({required this.peaks, required this.rms});
+
+  Waveform._fromMessage(ExtractWaveformResponse message)
+      : this(peaks: message.peaks, rms: message.rms);
 }
 
 /// Captures the details of any error accessing, loading or playing an audio
@@ -1564,6 +1979,19 @@ class PlaybackEvent {
   /// The current Android AudioSession ID if set.
   final int? androidAudioSessionId;
 
+  /// (Android) Whether audio offload is in use and how long the CPU has slept
+  /// because of it.
+  final AndroidOffloadState? androidOffload;
+
+  /// (Android) The live latency of the current item, or `null` if it is not
+  /// live.
+  final AndroidLiveState? androidLive;
+
+  // When updatePosition was sampled on the platform's monotonic clock, if
+  // the platform provides it. This is not carried over by copyWith, since a
+  // copy's updateTime is no longer that of the platform.
+  Duration? _updateMonotonicTime;
+
   PlaybackEvent({
     this.processingState = ProcessingState.idle,
     DateTime? updateTime,
@@ -1573,6 +2001,8 @@ class PlaybackEvent {
     this.icyMetadata,
     this.currentIndex,
     this.androidAudioSessionId,
+    this.androidOffload,
+    this.androidLive,
   }) : updateTime = updateTime ?? DateTime.now();
 
   /// Returns a copy of this event with given properties replaced.
@@ -1585,6 +2015,8 @@ class PlaybackEvent {
     IcyMetadata? icyMetadata,
     int? currentIndex,
     int? androidAudioSessionId,
+    AndroidOffloadState? androidOffload,
+    AndroidLiveState? androidLive,
   }) =>
       PlaybackEvent(
         processingState: processingState ?? this.processingState,
@@ -1596,6 +2028,8 @@ class PlaybackEvent {
         currentIndex: currentIndex ?? this.currentIndex,
         androidAudioSessionId:
             androidAudioSessionId ?? this.androidAudioSessionId,
+        androidOffload: androidOffload ?? this.androidOffload,
+        androidLive: androidLive ?? this.androidLive,
       );
 
   @override
@@ -1608,6 +2042,8 @@ class PlaybackEvent {
         icyMetadata,
         currentIndex,
         androidAudioSessionId,
+        androidOffload,
+        androidLive,
       );
 
   @override
@@ -1621,13 +2057,143 @@ class PlaybackEvent {
       duration == other.duration &&
       icyMetadata == other.icyMetadata &&
       currentIndex == other.currentIndex &&
-      androidAudioSessionId == other.androidAudioSessionId;
+      androidAudioSessionId == other.androidAudioSessionId &&
+      androidOffload == other.androidOffload &&
+      androidLive == other.androidLive;
 
   @override
   String toString() =>
       "{processingState=$processingState, updateTime=$updateTime, updatePosition=$updatePosition, bufferedPosition=$bufferedPosition, duration=$duration, currentIndex=$currentIndex}";
 }
 
+/// (Android) A position sampled by the platform while
+/// [AudioPlayer.setPositionStreamEnabled] is enabled.
+class PositionFrame {
+  /// The position when the frame was sampled.
+  final Duration position;
+
+  /// The playback speed, or 0 while not playing.
+  final double speed;
+
+  /// The index of the current item.
+  final int currentIndex;
+
+  PositionFrame({
+    required this.position,
+    required this.speed,
+    required this.currentIndex,
+  });
+
+  PositionFrame._fromMessage(PositionFrameMessage message)
+      : this(
+          position: message.position,
+          speed: message.speed,
+          currentIndex: message.currentIndex,
+        );
+
+  @override
+  String toString() =>
+      'position=$position,speed=$speed,currentIndex=$currentIndex';
+}
+
+/// (Android) The state of audio offload, in which the audio is decoded in
+/// hardware so that the CPU can sleep between large buffers.
+class AndroidOffloadState {
+  /// Whether the current audio is being offloaded.
+  final bool active;
+
+  /// Whether the CPU is currently sleeping while offloaded audio plays.
+  final bool sleeping;
+
+  /// The total time the CPU has slept while offloaded audio played.
+  final Duration sleepTime;
+
+  /// Why offload cannot be used with the current settings, or `null` if it
+  /// can: `disabled`, `mixer`, `audioProcessor`, `unsupported`, `speed`,
+  /// `pitch`, `skipSilence` or `audioEffect`.
+  final String? disabledReason;
+
+  AndroidOffloadState({
+    required this.active,
+    required this.sleeping,
+    required this.sleepTime,
+    required this.disabledReason,
+  });
+
+  AndroidOffloadState._fromMessage(AndroidOffloadMessage message)
+      : this(
+          active: message.active,
+          sleeping: message.sleeping,
+          sleepTime: message.sleepTime,
+          disabledReason: message.disabledReason,
+        );
+
+  @override
+  int get hashCode => Object.hash(active, sleeping, sleepTime, disabledReason);
+
+  @override
+  bool operator ==(Object other) =>
+      other.runtimeType == runtimeType &&
+      other is AndroidOffloadState &&
+      other.active == active &&
+      other.sleeping == sleeping &&
+      other.sleepTime == sleepTime &&
+      other.disabledReason == disabledReason;
+
+  @override
+  String toString() => 'active=$active,sleeping=$sleeping,'
+      'sleepTime=$sleepTime,disabledReason=$disabledReason';
+}
+
+/// (Android) The latency of a live item behind the live edge.
+class AndroidLiveState {
+  /// The current offset behind the live edge, or `null` if unknown.
+  final Duration? offset;
+
+  /// The offset that the playback speed is adjusted towards, or `null` if
+  /// unknown.
+  final Duration? targetOffset;
+
+  /// The speed at which the player is catching up to [targetOffset].
+  final double speed;
+
+  /// The total time this item has played further behind the live edge than
+  /// [targetOffset].
+  final Duration behindTargetTime;
+
+  AndroidLiveState({
+    required this.offset,
+    required this.targetOffset,
+    required this.speed,
+    required this.behindTargetTime,
+  });
+
+  AndroidLiveState._fromMessage(AndroidLiveMessage message)
+      : this(
+          offset: message.offset,
+          targetOffset: message.targetOffset,
+          speed: message.speed,
+          behindTargetTime: message.behindTargetTime,
+        );
+
+  @override
+  int get hashCode =>
+      Object.hash(offset, targetOffset, speed, behindTargetTime);
+
+  @override
+  bool operator ==(Object other) =>
+      other.runtimeType == runtimeType &&
+      other is AndroidLiveState &&
+      other.offset == offset &&
+      other.targetOffset == targetOffset &&
+      other.speed == speed &&
+      other.behindTargetTime == behindTargetTime;
+
+  @override
+  String toString() => 'offset=$offset,targetOffset=$targetOffset,'
+      'speed=$speed,behindTargetTime=$behindTargetTime';
+}
+
 /// Enumerates the different processing states of a player.
 enum ProcessingState {
   /// The player has not loaded an [AudioSource].
@@ -1768,6 +2334,44 @@ class IcyMetadata {
       other.headers == headers;
 }
 
+/// An ICY, ID3 or emsg metadata entry.
+class MetadataEntry {
+  /// The kind of entry: "icy", "icyHeaders", "id3" or "emsg".
+  final String type;
+
+  /// The position in the item at which the entry is presented, or `null` for
+  /// entries that describe the item as a whole, such as the ID3 tags of a
+  /// file.
+  final Duration? position;
+
+  /// The index of the item in [AudioPlayer.sequence] the entry belongs to.
+  final int index;
+
+  /// The type-specific fields of the entry, e.g. "title" and "url" for ICY
+  /// entries or "id", "description" and "value" for ID3 text frames.
+  final Map<String, dynamic> fields;
+
+  static MetadataEntry _fromMessage(MetadataEntryMessage message) =>
+      MetadataEntry(
+        type: message.type,
+        position: message.position,
+        index: message.index,
+        fields: message.fields,
+      );
+
+  MetadataEntry({
+    required this.type,
+    required this.position,
+    required this.index,
+    required this.fields,
+  });
+
+  @override
+  String toString() =>
+      'MetadataEntry(type: $type, position: $position, index: $index, '
+      'fields: $fields)';
+}
+
 /// Encapsulates the [sequence] and [currentIndex] state and ensures
 /// consistency such that [currentIndex] is within the range of
 /// `sequence.length`. If `sequence.length` is 0, then [currentIndex] is also
@@ -2017,6 +2621,127 @@ class AndroidExtractorOptions {
       );
 }
 
+class AdaptiveAudioSourceOptions {
+  final AndroidLiveConfiguration? androidLiveConfiguration;
+
+  const AdaptiveAudioSourceOptions({
+    this.androidLiveConfiguration,
+  });
+
+  AdaptiveAudioSourceOptionsMessage _toMessage() =>
+      AdaptiveAudioSourceOptionsMessage(
+        androidLiveConfiguration: androidLiveConfiguration?._toMessage(),
+      );
+}
+
+/// (Android) Live offset targets for a single DASH or HLS live stream. Any
+/// value left null is taken from the media, or else from the
+/// [AndroidLivePlaybackSpeedControl] of the player.
+class AndroidLiveConfiguration {
+  /// (Android) The target live offset.
+  final Duration? targetOffset;
+
+  /// (Android) The minimum allowed live offset.
+  final Duration? minOffset;
+
+  /// (Android) The maximum allowed live offset.
+  final Duration? maxOffset;
+
+  /// (Android) The minimum playback speed to use when adjusting playback speed
+  /// to approach the target live offset.
+  final double? minPlaybackSpeed;
+
+  /// (Android) The maximum playback speed to use when adjusting playback speed
+  /// to approach the target live offset.
+  final double? maxPlaybackSpeed;
+
+  const AndroidLiveConfiguration({
+    this.targetOffset,
+    this.minOffset,
+    this.maxOffset,
+    this.minPlaybackSpeed,
+    this.maxPlaybackSpeed,
+  });
+
+  AndroidLiveConfigurationMessage _toMessage() =>
+      AndroidLiveConfigurationMessage(
+        targetOffset: targetOffset,
+        minOffset: minOffset,
+        maxOffset: maxOffset,
+        minPlaybackSpeed: minPlaybackSpeed,
+        maxPlaybackSpeed: maxPlaybackSpeed,
+      );
+}
+
+/// Serves [StreamAudioSource]s to the Android data source over a method
+/// channel, avoiding the copy through the loopback HTTP proxy.
+class _AndroidStreamChannel {
+  final MethodChannel _channel;
+  final Map<String, StreamAudioSource> _sources = {};
+
+  _AndroidStreamChannel(String playerId)
+      : _channel =
+            MethodChannel('com.ryanheise.just_audio.stream.$playerId') {
+    _channel.setMethodCallHandler(_handleMethodCall);
+  }
+
+  /// Register a [StreamAudioSource] and return the URI the native player
+  /// uses to request it.
+  Uri addStreamAudioSource(StreamAudioSource source) {
+    _sources[source._id] = source;
+    return Uri(scheme: 'just-audio-stream', path: source._id);
+  }
+
+  Future<dynamic> _handleMethodCall(MethodCall call) async {
+    switch (call.method) {
+      case 'request':
+        final args = call.arguments as Map<dynamic, dynamic>;
+        final source = _sources[args['sourceId'] as String];
+        if (source == null) {
+          throw PlatformException(
+              code: 'notFound', message: 'Unknown source ${args['sourceId']}');
+        }
+        final start = args['start'] as int;
+        // The end is omitted until the platform knows the source length, in
+        // which case the first length bytes from start are returned.
+        final end = args['end'] as int?;
+        final response = await source.request(start, end);
+        // A source that does not support range requests responds from the
+        // beginning, so skip ahead to the requested start.
+        var skip = response.offset == null ? start : 0;
+        var remaining = args['length'] as int;
+        final builder = BytesBuilder(copy: false);
+        await for (final data in response.stream) {
+          var chunk = data;
+          if (skip > 0) {
+            if (chunk.length <= skip) {
+              skip -= chunk.length;
+              continue;
+            }
+            chunk = chunk.sublist(skip);
+            skip = 0;
+          }
+          if (chunk.length > remaining) chunk = chunk.sublist(0, remaining);
+          builder.add(chunk);
+          remaining -= chunk.length;
+          if (remaining == 0) break;
+        }
+        return <dynamic, dynamic>{
+          'bytes': builder.takeBytes(),
+          'sourceLength': response.sourceLength ??
+              (response.offset == null ? response.contentLength : null),
+        };
+      default:
+        throw UnimplementedError('${call.method} has not been implemented');
+    }
+  }
+
+  void stop() {
+    _channel.setMethodCallHandler(null);
+    _sources.clear();
+  }
+}
+
 /// A local proxy HTTP server for making remote GET requests with headers.
 class _ProxyHttpServer {
   late HttpServer _server;
@@ -2290,7 +3015,10 @@ abstract class UriAudioSource extends IndexedAudioSource {
   Future<void> _setup(AudioPlayer player) async {
     await super._setup(player);
     if (uri.scheme == 'asset') {
-      _overrideUri = await _loadAsset(uri.pathSegments.join('/'));
+      // Android reads assets directly from the APK.
+      if (!_isAndroid()) {
+        _overrideUri = await _loadAsset(uri.pathSegments.join('/'));
+      }
     } else if (uri.scheme != 'file' &&
         !kIsWeb &&
         player._useProxyForRequestHeaders &&
@@ -2397,8 +3125,13 @@ class ProgressiveAudioSource extends UriAudioSource {
 /// If headers are set, just_audio will create a cleartext local HTTP proxy on
 /// your device to forward HTTP requests with headers included.
 class DashAudioSource extends UriAudioSource {
+  final AdaptiveAudioSourceOptions? options;
+
   DashAudioSource(Uri uri,
-      {Map<String, String>? headers, dynamic tag, Duration? duration})
+      {Map<String, String>? headers,
+      dynamic tag,
+      Duration? duration,
+      this.options})
       : super(uri, headers: headers, tag: tag, duration: duration);
 
   @override
@@ -2407,6 +3140,7 @@ class DashAudioSource extends UriAudioSource {
         uri: _effectiveUri.toString(),
         headers: _mergedHeaders,
         tag: tag,
+        options: options?._toMessage(),
       );
 }
 
@@ -2424,8 +3158,13 @@ class DashAudioSource extends UriAudioSource {
 /// If headers are set, just_audio will create a cleartext local HTTP proxy on
 /// your device to forward HTTP requests with headers included.
 class HlsAudioSource extends UriAudioSource {
+  final AdaptiveAudioSourceOptions? options;
+
   HlsAudioSource(Uri uri,
-      {Map<String, String>? headers, dynamic tag, Duration? duration})
+      {Map<String, String>? headers,
+      dynamic tag,
+      Duration? duration,
+      this.options})
       : super(uri, headers: headers, tag: tag, duration: duration);
 
   @override
@@ -2434,6 +3173,7 @@ class HlsAudioSource extends UriAudioSource {
         uri: _effectiveUri.toString(),
         headers: _mergedHeaders,
         tag: tag,
+        options: options?._toMessage(),
       );
 }
 
@@ -2762,6 +3502,10 @@ abstract class StreamAudioSource extends IndexedAudioSource {
       final response = await request();
       _uri = _encodeDataUrl(await base64.encoder.bind(response.stream).join(),
           response.contentType);
+    } else if (AudioPlayer.debugUseAndroidStreamChannel ?? _isAndroid()) {
+      _uri =
+          (player._androidStreamChannel ??= _AndroidStreamChannel(player._id))
+              .addStreamAudioSource(this);
     } else {
       await player._proxy.ensureRunning();
       _uri = player._proxy.addStreamAudioSource(this);
@@ -3479,6 +4223,93 @@ class DefaultShuffleOrder extends ShuffleOrder {
 /// An enumeration of modes that can be passed to [AudioPlayer.setLoopMode].
 enum LoopMode { off, one, all }
 
+/// An enumeration of modes that can be passed to [AudioPlayer.seek].
+enum SeekMode {
+  /// Lands exactly on the requested position.
+  exact,
+
+  /// Lands on the nearest sync point to the requested position.
+  fast,
+}
+
+/// The counts and latencies of the seeks made by an [AudioPlayer].
+class SeekMetrics {
+  /// The number of seeks requested.
+  final int requestCount;
+
+  /// The number of seeks issued to the player. A seek requested while another
+  /// is still in flight replaces any other waiting seek, so this may be less
+  /// than [requestCount].
+  final int issueCount;
+
+  /// The time the last issued seek took to complete.
+  final Duration lastLatency;
+
+  /// The average time an issued seek took to complete.
+  final Duration averageLatency;
+
+  SeekMetrics({
+    required this.requestCount,
+    required this.issueCount,
+    required this.lastLatency,
+    required this.averageLatency,
+  });
+
+  SeekMetrics._fromMessage(GetSeekMetricsResponse message)
+      : this(
+          requestCount: message.requestCount,
+          issueCount: message.issueCount,
+          lastLatency: message.lastLatency,
+          averageLatency: message.averageLatency,
+        );
+
+  @override
+  String toString() => 'requestCount=$requestCount,issueCount=$issueCount,'
+      'lastLatency=$lastLatency,averageLatency=$averageLatency';
+}
+
+/// Measures of how quickly an [AudioPlayer] started playing and how often it
+/// stalled to rebuffer.
+class PlaybackQualityMetrics {
+  /// The mean time from a request to play until audio was first heard, or
+  /// `null` if no audio has been played yet.
+  final Duration? timeToFirstAudio;
+
+  /// The number of times playback stalled to rebuffer.
+  final int rebufferCount;
+
+  /// The total time spent rebuffering.
+  final Duration rebufferTime;
+
+  /// The total time spent playing.
+  final Duration playTime;
+
+  /// The fraction of [rebufferTime] in [rebufferTime] and [playTime] combined.
+  final double stallRatio;
+
+  PlaybackQualityMetrics({
+    required this.timeToFirstAudio,
+    required this.rebufferCount,
+    required this.rebufferTime,
+    required this.playTime,
+    required this.stallRatio,
+  });
+
+  PlaybackQualityMetrics._fromMessage(GetPlaybackQualityMetricsResponse message)
+      : this(
+          timeToFirstAudio: message.timeToFirstAudio,
+          rebufferCount: message.rebufferCount,
+          rebufferTime: message.rebufferTime,
+          playTime: message.playTime,
+          stallRatio: message.stallRatio,
+        );
+
+  @override
+  String toString() =>
+      'timeToFirstAudio=$timeToFirstAudio,rebufferCount=$rebufferCount,'
+      'rebufferTime=$rebufferTime,playTime=$playTime,stallRatio=$stallRatio';
+}
+
 /// The stand-in platform implementation to use when the player is in the idle
 /// state and the native platform is deallocated.
 class _IdleAudioPlayer extends AudioPlayerPlatform {
@@ -3612,6 +4443,53 @@ class _IdleAudioPlayer extends AudioPlayerPlatform {
     return SetAndroidAudioAttributesResponse();
   }
 
+  @override
+  Future<SetRequestCredentialsResponse> setRequestCredentials(
+      SetRequestCredentialsRequest request) async {
+    return SetRequestCredentialsResponse();
+  }
+
+  @override
+  Future<SetLoadDebounceResponse> setLoadDebounce(
+      SetLoadDebounceRequest request) async {
+    return SetLoadDebounceResponse();
+  }
+
+  @override
+  Future<SetHibernationPolicyResponse> setHibernationPolicy(
+      SetHibernationPolicyRequest request) async {
+    return SetHibernationPolicyResponse();
+  }
+
+  @override
+  Future<SetPositionStreamEnabledResponse> setPositionStreamEnabled(
+      SetPositionStreamEnabledRequest request) async {
+    return SetPositionStreamEnabledResponse();
+  }
+
+  @override
+  Future<GetSeekMetricsResponse> getSeekMetrics(
+      GetSeekMetricsRequest request) async {
+    return GetSeekMetricsResponse(
+      requestCount: 0,
+      issueCount: 0,
+      lastLatency: Duration.zero,
+      averageLatency: Duration.zero,
+    );
+  }
+
+  @override
+  Future<GetPlaybackQualityMetricsResponse> getPlaybackQualityMetrics(
+      GetPlaybackQualityMetricsRequest request) async {
+    return GetPlaybackQualityMetricsResponse(
+      timeToFirstAudio: null,
+      rebufferCount: 0,
+      rebufferTime: Duration.zero,
+      playTime: Duration.zero,
+      stallRatio: 0.0,
+    );
+  }
+
   @override
   Future<DisposeResponse> dispose(DisposeRequest request) async {
     return DisposeResponse();
@@ -3649,6 +4527,25 @@ class _IdleAudioPlayer extends AudioPlayerPlatform {
   }
 }
 
+/// Maps the platform's monotonic clock onto a local [Stopwatch].
+class _MonotonicClock {
+  final _stopwatch = Stopwatch()..start();
+  Duration? _offset;
+
+  /// The current time on the platform's monotonic clock, or `null` before
+  /// the first [sync].
+  Duration? get now => _offset == null ? null : _stopwatch.elapsed - _offset!;
+
+  /// Records that the platform's clock read [platformTime] before now.
+  /// Delivery only ever delays a sample, so the smallest offset seen is the
+  /// most accurate. It also follows the platform clock when the platform
+  /// clock counts deep sleep and the local one does not.
+  void sync(Duration platformTime) {
+    final offset = _stopwatch.elapsed - platformTime;
+    if (_offset == null || offset < _offset!) _offset = offset;
+  }
+}
+
 /// Holds the initial requested position and index for a newly loaded audio
 /// source.
 class _InitialSeekValues {
@@ -3658,6 +4555,34 @@ class _InitialSeekValues {
   _InitialSeekValues({required this.position, required this.index});
 }
 
+/// The request credentials most recently set on an [AudioPlayer], kept so that
+/// they can be sent again when the native platform is reactivated.
+class _RequestCredentials {
+  final Map<String, String>? headers;
+  final Map<String, String>? uris;
+  final Map<String, String>? queryParameters;
+  final DateTime? expiry;
+
+  _RequestCredentials({
+    this.headers,
+    this.uris,
+    this.queryParameters,
+    this.expiry,
+  });
+
+  SetRequestCredentialsRequest _toRequest() {
+    final expiry = this.expiry;
+    var ttl = expiry?.difference(DateTime.now());
+    if (ttl != null && ttl.isNegative) ttl = Duration.zero;
+    return SetRequestCredentialsRequest(
+      headers: headers,
+      uris: uris,
+      queryParameters: queryParameters,
+      ttl: ttl,
+    );
+  }
+}
+
 class AudioPipeline {
   final List<AndroidAudioEffect> androidAudioEffects;
   final List<DarwinAudioEffect> darwinAudioEffects;
@@ -3765,6 +4690,48 @@ class AndroidLoudnessEnhancer extends AudioEffect with AndroidAudioEffect {
       );
 }
 
+/// An Android [AudioEffect] that plays each item at the same loudness by
+/// applying a gain that brings the item's integrated loudness to
+/// [targetLoudness].
+///
+/// The loudness of local files, content URIs and assets is measured in the
+/// background and remembered across launches. The loudness of other items is
+/// taken from their ReplayGain track gain tag. An item whose loudness is not
+/// yet known plays unchanged, and a loudness that becomes known while the item
+/// plays is faded to rather than applied abruptly.
+class AndroidLoudnessNormalizer extends AudioEffect with AndroidAudioEffect {
+  /// The loudness in LUFS that each item is brought to. The default is the
+  /// ReplayGain reference level.
+  final double targetLoudness;
+
+  AndroidLoudnessNormalizer({this.targetLoudness = -18.0});
+
+  @override
+  String get _type => 'AndroidLoudnessNormalizer';
+
+  @override
+  AudioEffectMessage _toMessage() => AndroidLoudnessNormalizerMessage(
+        enabled: enabled,
+        targetLoudness: targetLoudness,
+      );
+}
+
+/// An Android [AudioEffect] that changes the speed of speech without changing
+/// its pitch, using a time-stretch tuned for voice that sounds clearer than
+/// the default at speeds of 1.5x and above. It applies to speeds set with
+/// [AudioPlayer.setSpeed] while the pitch is 1.0, and a change in
+/// [enabled] takes effect when the speed is next set.
+class AndroidSpeechTimeStretch extends AudioEffect with AndroidAudioEffect {
+  AndroidSpeechTimeStretch();
+
+  @override
+  String get _type => 'AndroidSpeechTimeStretch';
+
+  @override
+  AudioEffectMessage _toMessage() =>
+      AndroidSpeechTimeStretchMessage(enabled: enabled);
+}
+
 /// A frequency band within an [AndroidEqualizer].
 class AndroidEqualizerBand {
   final AudioPlayer _player;
@@ -3897,6 +4864,119 @@ class AndroidEqualizer extends AudioEffect with AndroidAudioEffect {
       );
 }
 
+/// The filter shape of an [AndroidParametricEqualizerBand].
+enum AndroidParametricEqualizerBandType {
+  /// Boosts or cuts around the band's frequency.
+  peaking,
+
+  /// Boosts or cuts below the band's frequency.
+  lowShelf,
+
+  /// Boosts or cuts above the band's frequency.
+  highShelf,
+}
+
+/// A filter band within an [AndroidParametricEqualizer].
+class AndroidParametricEqualizerBand {
+  AndroidParametricEqualizer? _equalizer;
+  int? _index;
+
+  /// The filter shape of this band.
+  final AndroidParametricEqualizerBandType type;
+
+  /// The center frequency (peaking) or corner frequency (shelves) of this band
+  /// in hertz.
+  final double frequency;
+
+  /// The quality factor of this band. Higher values give a narrower peak or a
+  /// steeper shelf.
+  final double q;
+  final BehaviorSubject<double> _gainSubject;
+
+  AndroidParametricEqualizerBand({
+    this.type = AndroidParametricEqualizerBandType.peaking,
+    required this.frequency,
+    double gain = 0.0,
+    this.q = 0.7071,
+  }) : _gainSubject = BehaviorSubject.seeded(gain);
+
+  /// The gain for this band in decibels.
+  double get gain => _gainSubject.nvalue!;
+
+  /// A stream of the current gain for this band in decibels.
+  Stream<double> get gainStream => _gainSubject.stream;
+
+  /// Sets the gain for this band in decibels.
+  Future<void> setGain(double gain) async {
+    _gainSubject.add(gain);
+    final equalizer = _equalizer;
+    if (equalizer != null && equalizer._active) {
+      await (await equalizer._player!._platform)
+          .androidParametricEqualizerBandSetGain(
+              AndroidParametricEqualizerBandSetGainRequest(
+                  bandIndex: _index!, gain: gain));
+    }
+  }
+
+  AndroidParametricEqualizerBandMessage _toMessage() =>
+      AndroidParametricEqualizerBandMessage(
+        type: AndroidParametricEqualizerBandTypeMessage.values[type.index],
+        frequency: frequency,
+        gain: gain,
+        q: q,
+      );
+}
+
+/// An [AudioEffect] for Android that applies a parametric equalizer followed
+/// by a gain stage to an [AudioPlayer]'s audio signal.
+///
+/// Unlike [AndroidEqualizer], the filters are computed by just_audio itself
+/// rather than by the device, so the bands are chosen by the app and sound the
+/// same on every device. Up to 16 bands are supported.
+class AndroidParametricEqualizer extends AudioEffect with AndroidAudioEffect {
+  /// The filter bands of this equalizer, applied in order.
+  final List<AndroidParametricEqualizerBand> bands;
+  final BehaviorSubject<double> _gainSubject;
+
+  AndroidParametricEqualizer({
+    required this.bands,
+    double gain = 0.0,
+  })  : assert(bands.length <= 16),
+        _gainSubject = BehaviorSubject.seeded(gain) {
+    for (var i = 0; i < bands.length; i++) {
+      assert(bands[i]._equalizer == null);
+      bands[i]
+        .._equalizer = this
+        .._index = i;
+    }
+  }
+
+  @override
+  String get _type => 'AndroidParametricEqualizer';
+
+  /// The gain applied after the bands in decibels.
+  double get gain => _gainSubject.nvalue!;
+
+  /// A stream of the current gain in decibels.
+  Stream<double> get gainStream => _gainSubject.stream;
+
+  /// Sets the gain applied after the bands in decibels.
+  Future<void> setGain(double gain) async {
+    _gainSubject.add(gain);
+    if (_active) {
+      await (await _player!._platform).androidParametricEqualizerSetGain(
+          AndroidParametricEqualizerSetGainRequest(gain: gain));
+    }
+  }
+
+  @override
+  AudioEffectMessage _toMessage() => AndroidParametricEqualizerMessage(
+        enabled: enabled,
+        gain: gain,
+        bands: bands.map((band) => band._toMessage()).toList(),
+      );
+}
+
 bool _isAndroid() => !kIsWeb && Platform.isAndroid;
 bool _isDarwin() => !kIsWeb && (Platform.isIOS || Platform.isMacOS);
 bool _isUnitTest() => !kIsWeb && Platform.environment['FLUTTER_TEST'] == 'true';
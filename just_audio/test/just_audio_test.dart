@@ -2,6 +2,7 @@ import 'dart:async';
 import 'dart:convert';
 import 'dart:io';
 import 'dart:math';
+import 'dart:typed_data';
 
 import 'package:audio_session/audio_session.dart';
 import 'package:flutter/services.dart';
@@ -496,6 +497,128 @@ void runTests() {
     await player.dispose();
   });
 
+  // Simulates the Android data source requesting a byte range over the
+  // stream channel of the given player.
+  Future<Map<dynamic, dynamic>> requestStreamRange(
+      String playerId, String sourceId, int start, int? end,
+      {int? length}) async {
+    const codec = StandardMethodCodec();
+    final completer = Completer<ByteData?>();
+    await _ambiguate(TestDefaultBinaryMessengerBinding.instance)!
+        .defaultBinaryMessenger
+        .handlePlatformMessage(
+            'com.ryanheise.just_audio.stream.$playerId',
+            codec.encodeMethodCall(MethodCall('request', <dynamic, dynamic>{
+              'sourceId': sourceId,
+              'start': start,
+              'end': end,
+              'length': length ?? end! - start,
+            })),
+            completer.complete);
+    return codec.decodeEnvelope((await completer.future)!)
+        as Map<dynamic, dynamic>;
+  }
+
+  test('stream-source-channel', () async {
+    AudioPlayer.debugUseAndroidStreamChannel = true;
+    final player = AudioPlayer();
+    try {
+      await player.setAudioSource(TestStreamAudioSource(tag: 'stream-test'));
+      final uri = Uri.parse(player.icyMetadata!.info!.url!);
+      expect(uri.scheme, equals('just-audio-stream'));
+      final playerId = mock.mostRecentPlayer!.id;
+      final sourceId = uri.path;
+
+      Future<void> testRequest(int start, int? end, {int? length}) async {
+        final response = await requestStreamRange(playerId, sourceId, start, end,
+            length: length);
+        expect(
+            response['bytes'],
+            equals(byteRangeData.sublist(
+                start, min(end ?? start + length!, byteRangeData.length))));
+        expect(response['sourceLength'], equals(byteRangeData.length));
+      }
+
+      await testRequest(0, 200);
+      await testRequest(20, 60);
+      // Before the source length is known, the platform asks for a length
+      // rather than an end, and gets the bytes that exist.
+      await testRequest(150, null, length: 256);
+      await testRequest(0, null, length: 100);
+
+      // A source without range support is skipped ahead to the start.
+      final noRangeSource = NoRangeTestStreamAudioSource();
+      await player.setAudioSource(noRangeSource);
+      final noRangeUri = Uri.parse(player.icyMetadata!.info!.url!);
+      final noRangeResponse =
+          await requestStreamRange(playerId, noRangeUri.path, 20, 60);
+      expect(noRangeResponse['bytes'], equals(byteRangeData.sublist(20, 60)));
+      expect(noRangeResponse['sourceLength'], equals(byteRangeData.length));
+
+      expect(requestStreamRange(playerId, 'unknown', 0, 10),
+          throwsA(isA<PlatformException>()));
+    } finally {
+      AudioPlayer.debugUseAndroidStreamChannel = null;
+      await player.dispose();
+    }
+  });
+
+  test('stream-source-channel benchmark', () async {
+    const sourceLength = 16 * 1024 * 1024;
+    // The chunk size requested by the Android StreamDataSource.
+    const chunkSize = 256 * 1024;
+    final source = BenchmarkStreamAudioSource(sourceLength);
+
+    // Proxy: the platform reads the whole source over loopback HTTP.
+    AudioPlayer.debugUseAndroidStreamChannel = false;
+    final proxyPlayer = AudioPlayer();
+    await proxyPlayer.setAudioSource(source);
+    final proxyUri = Uri.parse(proxyPlayer.icyMetadata!.info!.url!);
+    final proxyStopwatch = Stopwatch()..start();
+    final request = await HttpClient().getUrl(proxyUri);
+    final response = await request.close();
+    var proxyBytes = 0;
+    await for (var chunk in response) {
+      proxyBytes += chunk.length;
+    }
+    proxyStopwatch.stop();
+    await proxyPlayer.dispose();
+
+    // Channel: the platform requests the source chunk by chunk.
+    AudioPlayer.debugUseAndroidStreamChannel = true;
+    final channelPlayer = AudioPlayer();
+    var channelBytes = 0;
+    final channelStopwatch = Stopwatch();
+    try {
+      await channelPlayer.setAudioSource(BenchmarkStreamAudioSource(sourceLength));
+      final uri = Uri.parse(channelPlayer.icyMetadata!.info!.url!);
+      final playerId = mock.mostRecentPlayer!.id;
+      channelStopwatch.start();
+      for (var start = 0; start < sourceLength; start += chunkSize) {
+        final response = await requestStreamRange(
+            playerId, uri.path, start, min(start + chunkSize, sourceLength));
+        channelBytes += (response['bytes'] as Uint8List).length;
+      }
+      channelStopwatch.stop();
+    } finally {
+      AudioPlayer.debugUseAndroidStreamChannel = null;
+      await channelPlayer.dispose();
+    }
+
+    expect(proxyBytes, equals(sourceLength));
+    expect(channelBytes, equals(sourceLength));
+    double throughput(Stopwatch stopwatch) =>
+        sourceLength / 1024 / 1024 / (stopwatch.elapsedMicroseconds / 1e6);
+    // The Dart side is single threaded, so elapsed time here is the Dart CPU
+    // time spent serving the source.
+    // ignore: avoid_print
+    print('stream source ${sourceLength ~/ 1024 ~/ 1024} MB: '
+        'proxy ${proxyStopwatch.elapsedMilliseconds} ms '
+        '(${throughput(proxyStopwatch).toStringAsFixed(1)} MB/s), '
+        'channel ${channelStopwatch.elapsedMilliseconds} ms '
+        '(${throughput(channelStopwatch).toStringAsFixed(1)} MB/s)');
+  }, tags: ['benchmark']);
+
   test('sequence', () async {
     final source1 = ConcatenatingAudioSource(children: [
       LoopingAudioSource(
@@ -1320,6 +1443,395 @@ void runTests() {
     await player.dispose();
   });
 
+  test('setRequestCredentials', () async {
+    final player = AudioPlayer();
+    await player.setRequestCredentials(
+      headers: {'Authorization': 'Bearer a'},
+      ttl: const Duration(minutes: 5),
+    );
+    await player.setUrl('https://foo.foo/foo.mp3');
+    final platformPlayer = mock.mostRecentPlayer!;
+    // Credentials set while idle are sent when the platform is activated.
+    expect(platformPlayer.requestCredentials?.headers,
+        equals({'Authorization': 'Bearer a'}));
+    expect(platformPlayer.requestCredentials!.ttl!,
+        lessThanOrEqualTo(const Duration(minutes: 5)));
+    final expired = player.requestCredentialsExpiredStream.first;
+    platformPlayer.dataController
+        .add(PlayerDataMessage(requestCredentialsExpired: true));
+    await expired;
+    await player.setRequestCredentials(
+        uris: {'https://foo.foo/foo.mp3': 'https://foo.foo/foo.mp3?sig=b'});
+    expect(platformPlayer.requestCredentials?.headers, equals(null));
+    expect(platformPlayer.requestCredentials?.uris,
+        equals({'https://foo.foo/foo.mp3': 'https://foo.foo/foo.mp3?sig=b'}));
+    expect(platformPlayer.requestCredentials?.ttl, equals(null));
+    await player.dispose();
+  });
+
+  test('setRequestCredentials with a proxied source', () async {
+    final server = MockWebServer();
+    await server.start();
+    final player = AudioPlayer();
+    await player.setRequestCredentials(queryParameters: {'token': 'a'});
+    // Headers route the source through the proxy.
+    final uri = Uri.parse(
+        'http://${InternetAddress.loopbackIPv4.address}:${server.port}/proxy/foo.mp3');
+    await player.setUrl('$uri', headers: {'custom-header': 'Hello'});
+    expect(mock.mostRecentPlayer!.requestCredentials?.queryParameters,
+        equals({'token': 'a'}));
+    // The platform requests the proxy URI as is, without the credentials.
+    final proxyUri = Uri.parse(player.icyMetadata!.info!.url!);
+    expect(proxyUri.host, equals(InternetAddress.loopbackIPv4.address));
+    final request = await HttpClient().getUrl(proxyUri);
+    final response = await request.close();
+    final responseText = await response.transform(utf8.decoder).join();
+    expect(response.statusCode, equals(HttpStatus.ok));
+    expect(responseText, equals('Hello'));
+    await server.stop();
+    await player.dispose();
+  });
+
+  test('metadataStream', () async {
+    final player = AudioPlayer();
+    await player.setUrl('https://foo.foo/foo.mp3');
+    final platformPlayer = mock.mostRecentPlayer!;
+    final batch = player.metadataStream.first;
+    platformPlayer.metadataController
+        .add(MetadataMessage.fromMap(<String, dynamic>{
+      'entries': [
+        {
+          'type': 'id3',
+          'index': 0,
+          'position': null,
+          'id': 'TIT2',
+          'description': null,
+          'value': 'Title',
+        },
+        {
+          'type': 'icy',
+          'index': 0,
+          'position': 2000000,
+          'title': 'Song',
+          'url': null,
+        },
+      ],
+    }));
+    final entries = await batch;
+    expect(entries.length, equals(2));
+    // Tags of the item's format carry no position.
+    expect(entries[0].type, equals('id3'));
+    expect(entries[0].position, isNull);
+    expect(entries[0].fields['value'], equals('Title'));
+    expect(entries[0].fields.containsKey('index'), isFalse);
+    expect(entries[1].type, equals('icy'));
+    expect(entries[1].position, equals(const Duration(seconds: 2)));
+    expect(entries[1].index, equals(0));
+    expect(entries[1].fields['title'], equals('Song'));
+    await player.dispose();
+  });
+
+  test('setLoadDebounce', () async {
+    final player = AudioPlayer();
+    // Set while idle, it is sent when the platform is activated.
+    await player.setLoadDebounce(const Duration(milliseconds: 50));
+    await player.setUrl('https://foo.foo/foo.mp3');
+    final platformPlayer = mock.mostRecentPlayer!;
+    expect(platformPlayer.loadDebounce,
+        equals(const Duration(milliseconds: 50)));
+    // A load superseded within the window is cancelled and never started.
+    final superseded = player.setUrl('https://bar.bar/bar.mp3');
+    final latest = player.setUrl('https://baz.baz/baz.mp3');
+    await expectLater(superseded, throwsA(isA<PlayerInterruptedException>()));
+    expect(await latest, equals(audioSourceDuration));
+    expect(
+        platformPlayer.loadedUris,
+        equals([
+          'https://foo.foo/foo.mp3',
+          'https://baz.baz/baz.mp3',
+        ]));
+    await player.setLoadDebounce(Duration.zero);
+    expect(platformPlayer.loadDebounce, equals(Duration.zero));
+    await player.dispose();
+  });
+
+  test('setHibernationPolicy', () async {
+    final player = AudioPlayer();
+    // Set while idle, it is sent when the platform is activated.
+    await player.setHibernationPolicy(
+        idleTimeout: const Duration(seconds: 30), onMemoryPressure: true);
+    await player.setUrl('https://foo.foo/foo.mp3');
+    final platformPlayer = mock.mostRecentPlayer!;
+    expect(platformPlayer.hibernationPolicy!.idleTimeout,
+        equals(const Duration(seconds: 30)));
+    expect(platformPlayer.hibernationPolicy!.onMemoryPressure, isTrue);
+    expect(platformPlayer.hibernationPolicy!.toMap()['idleTimeout'],
+        equals(30000000));
+    await player.setHibernationPolicy();
+    expect(platformPlayer.hibernationPolicy!.idleTimeout, isNull);
+    expect(platformPlayer.hibernationPolicy!.onMemoryPressure, isFalse);
+    await player.dispose();
+  });
+
+  test('seekMode', () async {
+    final player = AudioPlayer();
+    await player.setUrl('https://foo.foo/foo.mp3');
+    final platformPlayer = mock.mostRecentPlayer!;
+    await player.seek(const Duration(seconds: 10));
+    await player.seek(const Duration(seconds: 20), seekMode: SeekMode.fast);
+    expect(player.position, equals(const Duration(seconds: 20)));
+    expect(platformPlayer.seekModes,
+        equals([SeekModeMessage.exact, SeekModeMessage.fast]));
+    expect(
+        SeekRequest(seekMode: SeekModeMessage.fast).toMap()['seekMode'],
+        equals(1));
+    await player.dispose();
+  });
+
+  test('getSeekMetrics', () async {
+    final player = AudioPlayer();
+    await player.setUrl('https://foo.foo/foo.mp3');
+    await player.seek(const Duration(seconds: 10));
+    final metrics = (await player.getSeekMetrics())!;
+    expect(metrics.requestCount, equals(1));
+    expect(metrics.issueCount, equals(1));
+    expect(metrics.lastLatency, equals(const Duration(milliseconds: 20)));
+    expect(metrics.averageLatency, equals(const Duration(milliseconds: 10)));
+    expect(
+        GetSeekMetricsResponse.fromMap(<dynamic, dynamic>{
+          'requestCount': 3,
+          'issueCount': 2,
+          'lastLatency': 5000,
+          'averageLatency': 4000,
+        }).averageLatency,
+        equals(const Duration(milliseconds: 4)));
+    await player.dispose();
+  });
+
+  test('getPlaybackQualityMetrics', () async {
+    final player = AudioPlayer();
+    // The idle platform has played nothing.
+    final idle = (await player.getPlaybackQualityMetrics())!;
+    expect(idle.timeToFirstAudio, isNull);
+    expect(idle.playTime, equals(Duration.zero));
+    await player.setUrl('https://foo.foo/foo.mp3');
+    final metrics = (await player.getPlaybackQualityMetrics())!;
+    expect(metrics.timeToFirstAudio, equals(const Duration(milliseconds: 300)));
+    expect(metrics.rebufferCount, equals(1));
+    expect(metrics.rebufferTime, equals(const Duration(seconds: 1)));
+    expect(metrics.playTime, equals(const Duration(seconds: 9)));
+    expect(metrics.stallRatio, equals(0.1));
+    final response = GetPlaybackQualityMetricsResponse.fromMap(
+        <dynamic, dynamic>{
+      'timeToFirstAudio': null,
+      'rebufferCount': 0,
+      'rebufferTime': 0,
+      'playTime': 2000000,
+      'stallRatio': 0.0,
+    });
+    expect(response.timeToFirstAudio, isNull);
+    expect(response.playTime, equals(const Duration(seconds: 2)));
+    await player.dispose();
+  });
+
+  test('androidOffload and androidLive', () async {
+    final player = AudioPlayer();
+    await player.setUrl('https://foo.foo/foo.mp3');
+    final platformPlayer = mock.mostRecentPlayer!;
+    expect(player.playbackEvent.androidOffload, isNull);
+    expect(player.playbackEvent.androidLive, isNull);
+    platformPlayer.androidOffload = AndroidOffloadMessage(
+      active: true,
+      sleeping: true,
+      sleepTime: const Duration(seconds: 3),
+      disabledReason: null,
+    );
+    platformPlayer.androidLive = AndroidLiveMessage(
+      offset: const Duration(seconds: 12),
+      targetOffset: const Duration(seconds: 10),
+      speed: 1.03,
+      behindTargetTime: const Duration(seconds: 4),
+    );
+    await player.seek(Duration.zero);
+    final event = await player.playbackEventStream
+        .firstWhere((event) => event.androidLive != null);
+    expect(event.androidOffload!.active, isTrue);
+    expect(event.androidOffload!.sleeping, isTrue);
+    expect(event.androidOffload!.sleepTime, equals(const Duration(seconds: 3)));
+    expect(event.androidLive!.offset, equals(const Duration(seconds: 12)));
+    expect(event.androidLive!.targetOffset,
+        equals(const Duration(seconds: 10)));
+    expect(event.androidLive!.speed, equals(1.03));
+    expect(event.androidLive!.behindTargetTime,
+        equals(const Duration(seconds: 4)));
+    final message = PlaybackEventMessage.fromMap(<dynamic, dynamic>{
+      'processingState': 3,
+      'updateTime': 0,
+      'updatePosition': 0,
+      'bufferedPosition': 0,
+      'duration': null,
+      'icyMetadata': null,
+      'currentIndex': 0,
+      'androidAudioSessionId': null,
+      'androidOffload': <dynamic, dynamic>{
+        'active': false,
+        'sleeping': false,
+        'sleepTime': 1500000,
+        'disabledReason': 'audioProcessor',
+      },
+      'androidLive': null,
+    });
+    expect(message.androidOffload!.sleepTime,
+        equals(const Duration(milliseconds: 1500)));
+    expect(message.androidOffload!.disabledReason, equals('audioProcessor'));
+    expect(message.androidLive, isNull);
+    await player.dispose();
+  });
+
+  test('position stream', () async {
+    final player = AudioPlayer();
+    await player.setUrl('https://foo.foo/foo.mp3');
+    final platformPlayer = mock.mostRecentPlayer!;
+    await player.setPositionStreamEnabled(true,
+        interval: const Duration(milliseconds: 20));
+    expect(platformPlayer.positionStreamRequest!.toMap(),
+        equals(<dynamic, dynamic>{'enabled': true, 'interval': 20000}));
+    final bytes = ByteData(24)
+      ..setInt64(0, 5000000, Endian.little)
+      ..setInt64(8, 1000000000, Endian.little)
+      ..setFloat32(16, 1.5, Endian.little)
+      ..setInt32(20, 3, Endian.little);
+    final frameFuture = player.positionFrameStream.first;
+    platformPlayer.dataController.add(PlayerDataMessage.fromMap(
+        <dynamic, dynamic>{'positionFrame': bytes.buffer.asUint8List()}));
+    final frame = await frameFuture;
+    expect(frame.position, equals(const Duration(seconds: 5)));
+    expect(frame.speed, equals(1.5));
+    expect(frame.currentIndex, equals(3));
+
+    // The position is extrapolated on the platform's monotonic clock, so a
+    // wall clock that has since jumped by an hour does not move it.
+    player.play();
+    platformPlayer.eventController.add(PlaybackEventMessage(
+      processingState: ProcessingStateMessage.ready,
+      updateTime: DateTime.now().subtract(const Duration(hours: 1)),
+      updatePosition: const Duration(seconds: 5),
+      bufferedPosition: const Duration(seconds: 5),
+      duration: audioSourceDuration,
+      icyMetadata: null,
+      currentIndex: 0,
+      androidAudioSessionId: null,
+      updateMonotonicTime: const Duration(seconds: 1000),
+    ));
+    await player.playbackEventStream.firstWhere(
+        (event) => event.updatePosition == const Duration(seconds: 5));
+    expect(player.position, greaterThanOrEqualTo(const Duration(seconds: 5)));
+    expect(player.position, lessThan(const Duration(seconds: 6)));
+    await player.pause();
+    await player.setPositionStreamEnabled(false);
+    expect(platformPlayer.positionStreamRequest!.enabled, isFalse);
+    await player.dispose();
+  });
+
+  test('snapshot', () async {
+    ConcatenatingAudioSource createSource(int seed) =>
+        ConcatenatingAudioSource(
+          shuffleOrder: DefaultShuffleOrder(random: Random(seed)),
+          children: [
+            for (var i = 0; i < 8; i++)
+              i == 1
+                  ? ClippingAudioSource(
+                      child: ProgressiveAudioSource(
+                          Uri.parse('https://foo.foo/$i.mp3')),
+                      start: const Duration(seconds: 1),
+                    )
+                  : AudioSource.uri(Uri.parse('https://foo.foo/$i.mp3')),
+          ],
+        );
+    final player = AudioPlayer();
+    await player.setShuffleModeEnabled(true);
+    await player.setAudioSource(createSource(1),
+        initialIndex: 2, initialPosition: const Duration(seconds: 5));
+    await player.saveSnapshot('queue');
+    final savedIds = mock.mostRecentPlayer!.sourceIds;
+    final savedShuffleIndices = player.shuffleIndices;
+    await player.dispose();
+
+    // After a cold start, the app rebuilds its source, which has new IDs.
+    final restoredPlayer = AudioPlayer();
+    final rebuilt = createSource(2);
+    final duration = await restoredPlayer.restoreSnapshot('queue', rebuilt);
+    final platformPlayer = mock.mostRecentPlayer!;
+    expect(duration, equals(audioSourceDuration));
+    expect(restoredPlayer.currentIndex, equals(2));
+    expect(restoredPlayer.position, equals(const Duration(seconds: 5)));
+    expect(restoredPlayer.sequence!.length, equals(8));
+    expect(restoredPlayer.shuffleIndices, equals(savedShuffleIndices));
+    expect(platformPlayer.sourceIds.length, equals(savedIds.length));
+    expect(platformPlayer.sourceIds, isNot(contains(savedIds.first)));
+    // Edits of the rebuilt source refer to the IDs that the platform adopted.
+    await rebuilt.add(AudioSource.uri(Uri.parse('https://foo.foo/8.mp3')));
+    expect(platformPlayer.insertedIntoIds.single,
+        equals(platformPlayer.sourceIds.first));
+    await restoredPlayer.dispose();
+
+    final mismatchedPlayer = AudioPlayer();
+    try {
+      await mismatchedPlayer.restoreSnapshot(
+          'queue',
+          ConcatenatingAudioSource(children: [
+            AudioSource.uri(Uri.parse('https://foo.foo/0.mp3')),
+          ]));
+      fail('exception expected');
+    } on PlayerException catch (e) {
+      expect(e.message, equals('Mismatched snapshot'));
+    }
+    await mismatchedPlayer.dispose();
+  });
+
+  test('load cancelled by the platform', () async {
+    final player = AudioPlayer();
+    await player.setUrl('https://foo.foo/foo.mp3');
+    final platformPlayer = mock.mostRecentPlayer!;
+    await player.setLoadDebounce(const Duration(milliseconds: 50));
+    // Another engine sharing the player loads while this load is debounced,
+    // so only the platform knows that this load was superseded.
+    final cancelled = player.setUrl('https://bar.bar/bar.mp3');
+    await Future<void>.delayed(Duration.zero);
+    final other = platformPlayer.load(LoadRequest(
+        audioSourceMessage: ProgressiveAudioSourceMessage(
+            id: 'other', uri: 'https://baz.baz/baz.mp3')));
+    await expectLater(cancelled, throwsA(isA<PlayerInterruptedException>()));
+    expect((await other).cancelled, isFalse);
+    expect(platformPlayer.loadedUris.last, equals('https://baz.baz/baz.mp3'));
+    await player.dispose();
+  });
+
+  test('androidMixerEnabled', () async {
+    final player = AudioPlayer(androidMixerEnabled: true);
+    await player.setUrl('https://foo.foo/foo.mp3');
+    expect(mock.mostRecentPlayer!.androidMixerEnabled, equals(true));
+    await player.dispose();
+  });
+
+  test('playerId and attach', () async {
+    final player = AudioPlayer(playerId: 'shared');
+    await player.attach();
+    final platform = mock.mostRecentPlayer!;
+    expect(platform.id, equals('shared'));
+    expect(platform.androidAttach, equals(true));
+    // Attaching does not load anything into the shared player.
+    expect(platform._audioSource, isNull);
+    expect(player.processingState, equals(ProcessingState.idle));
+    await player.dispose();
+
+    final unshared = AudioPlayer();
+    await unshared.setUrl('https://foo.foo/foo.mp3');
+    expect(mock.mostRecentPlayer!.androidAttach, isNull);
+    await expectLater(unshared.attach(), throwsStateError);
+    await unshared.dispose();
+  });
+
   test('AndroidLoudnessEnhancer', () async {
     final loudnessEnhancer = AndroidLoudnessEnhancer();
     final player = AudioPlayer(
@@ -1340,6 +1852,103 @@ void runTests() {
     expect(await loudnessEnhancer.enabledStream.first, equals(true));
   });
 
+  test('AndroidParametricEqualizer', () async {
+    final equalizer = AndroidParametricEqualizer(
+      bands: [
+        AndroidParametricEqualizerBand(
+          type: AndroidParametricEqualizerBandType.lowShelf,
+          frequency: 100,
+          gain: 3.0,
+        ),
+        AndroidParametricEqualizerBand(frequency: 1000, q: 1.4),
+      ],
+      gain: -1.0,
+    );
+    final player = AudioPlayer(
+      audioPipeline: AudioPipeline(androidAudioEffects: [equalizer]),
+    );
+    expect(equalizer.enabled, equals(false));
+    expect(equalizer.gain, equals(-1.0));
+    expect(equalizer.bands[1].gain, equals(0.0));
+    // Changes made while idle are sent with the effect on activation.
+    await equalizer.bands[1].setGain(-4.0);
+    await equalizer.setEnabled(true);
+    await player.setUrl('https://foo.foo/foo.mp3');
+    final platformPlayer = mock.mostRecentPlayer!;
+    final message = platformPlayer.androidAudioEffects.single.toMap();
+    expect(message['type'], equals('AndroidParametricEqualizer'));
+    expect(message['enabled'], equals(true));
+    expect(message['gain'], equals(-1.0));
+    expect(
+        message['bands'],
+        equals([
+          {'type': 'lowShelf', 'frequency': 100.0, 'gain': 3.0, 'q': 0.7071},
+          {'type': 'peaking', 'frequency': 1000.0, 'gain': -4.0, 'q': 1.4},
+        ]));
+    // Changes made while active are sent immediately.
+    await equalizer.bands[0].setGain(6.0);
+    expect(equalizer.bands[0].gain, equals(6.0));
+    expect(await equalizer.bands[0].gainStream.first, equals(6.0));
+    expect(platformPlayer.parametricEqualizerBandGains, equals({0: 6.0}));
+    await equalizer.setGain(2.0);
+    expect(equalizer.gain, equals(2.0));
+    expect(await equalizer.gainStream.first, equals(2.0));
+    expect(platformPlayer.parametricEqualizerGain, equals(2.0));
+    await player.dispose();
+  });
+
+  test('extractWaveform', () async {
+    final uri = Uri.parse('file:///foo.mp3');
+    final waveform = (await AudioPlayer.extractWaveform(uri, resolution: 100))!;
+    expect(waveform.peaks, equals(List.filled(100, 0.5)));
+    expect(waveform.rms, equals(List.filled(100, 0.25)));
+    await expectLater(AudioPlayer.extractWaveform(Uri.parse('file:///bar.mp3')),
+        throwsA(isA<PlatformException>()));
+    final response = ExtractWaveformResponse.fromMap(<dynamic, dynamic>{
+      'peaks': Float64List.fromList([0.5, 1.0]),
+      'rms': Float64List.fromList([0.25, 0.5]),
+    });
+    expect(response.peaks, equals([0.5, 1.0]));
+    expect(response.rms, equals([0.25, 0.5]));
+  });
+
+  test('setTracingEnabled', () async {
+    await AudioPlayer.setTracingEnabled(true);
+    expect(mock.tracingEnabled, equals(true));
+    await AudioPlayer.setTracingEnabled(false);
+    expect(mock.tracingEnabled, equals(false));
+  });
+
+  test('AndroidLoudnessNormalizer', () async {
+    final normalizer = AndroidLoudnessNormalizer(targetLoudness: -16.0);
+    final player = AudioPlayer(
+      audioPipeline: AudioPipeline(androidAudioEffects: [normalizer]),
+    );
+    expect(normalizer.enabled, equals(false));
+    await normalizer.setEnabled(true);
+    await player.setUrl('https://foo.foo/foo.mp3');
+    final message = mock.mostRecentPlayer!.androidAudioEffects.single.toMap();
+    expect(message['type'], equals('AndroidLoudnessNormalizer'));
+    expect(message['enabled'], equals(true));
+    expect(message['targetLoudness'], equals(-16.0));
+    expect(AndroidLoudnessNormalizer().targetLoudness, equals(-18.0));
+    await player.dispose();
+  });
+
+  test('AndroidSpeechTimeStretch', () async {
+    final timeStretch = AndroidSpeechTimeStretch();
+    final player = AudioPlayer(
+      audioPipeline: AudioPipeline(androidAudioEffects: [timeStretch]),
+    );
+    expect(timeStretch.enabled, equals(false));
+    await timeStretch.setEnabled(true);
+    await player.setUrl('https://foo.foo/foo.mp3');
+    final message = mock.mostRecentPlayer!.androidAudioEffects.single.toMap();
+    expect(message['type'], equals('AndroidSpeechTimeStretch'));
+    expect(message['enabled'], equals(true));
+    await player.dispose();
+  });
+
   test('AndroidEqualizer', () async {
     final equalizer = AndroidEqualizer();
     final player = AudioPlayer(
@@ -1374,6 +1983,7 @@ class MockJustAudio extends Mock
     implements JustAudioPlatform {
   MockAudioPlayer? mostRecentPlayer;
   final _players = <String, MockAudioPlayer>{};
+  var tracingEnabled = false;
 
   @override
   Future<AudioPlayerPlatform> init(InitRequest request) async {
@@ -1405,6 +2015,25 @@ class MockJustAudio extends Mock
     _players.clear();
     return DisposeAllPlayersResponse();
   }
+
+  @override
+  Future<SetTracingEnabledResponse> setTracingEnabled(
+      SetTracingEnabledRequest request) async {
+    tracingEnabled = request.enabled;
+    return SetTracingEnabledResponse();
+  }
+
+  @override
+  Future<ExtractWaveformResponse> extractWaveform(
+      ExtractWaveformRequest request) async {
+    if (request.uri != 'file:///foo.mp3') {
+      throw PlatformException(code: 'waveform', message: 'Failed to decode');
+    }
+    return ExtractWaveformResponse(
+      peaks: List.filled(request.resolution, 0.5),
+      rms: List.filled(request.resolution, 0.25),
+    );
+  }
 }
 
 const audioSourceDuration = Duration(minutes: 2);
@@ -1441,7 +2070,14 @@ final icyMetadataMessage = IcyMetadataMessage(
 
 class MockAudioPlayer extends AudioPlayerPlatform {
   final eventController = StreamController<PlaybackEventMessage>();
+  final dataController = StreamController<PlayerDataMessage>();
+  final metadataController = StreamController<MetadataMessage>();
   final AudioLoadConfigurationMessage? audioLoadConfiguration;
+  final bool? androidMixerEnabled;
+  final bool? androidAttach;
+  final List<AudioEffectMessage> androidAudioEffects;
+  final parametricEqualizerBandGains = <int, double>{};
+  double? parametricEqualizerGain;
   AudioSourceMessage? _audioSource;
   ProcessingStateMessage _processingState = ProcessingStateMessage.idle;
   Duration _updatePosition = Duration.zero;
@@ -1454,21 +2090,56 @@ class MockAudioPlayer extends AudioPlayerPlatform {
   Completer<dynamic>? _playCompleter;
   Timer? _playTimer;
   LoopModeMessage _loopMode = LoopModeMessage.off;
+  SetRequestCredentialsRequest? requestCredentials;
+  Duration loadDebounce = Duration.zero;
+  SetHibernationPolicyRequest? hibernationPolicy;
+  Completer<LoadResponse>? _pendingLoad;
+  final loadedUris = <String>[];
+  final seekModes = <SeekModeMessage>[];
+  final insertedIntoIds = <String>[];
+  AndroidOffloadMessage? androidOffload;
+  AndroidLiveMessage? androidLive;
+  SetPositionStreamEnabledRequest? positionStreamRequest;
+  List<dynamic> sourceIds = <dynamic>[];
+
+  // Snapshots outlive the players, as they do on disk.
+  static final snapshots = <String, Map<String, dynamic>>{};
 
   MockAudioPlayer(InitRequest request)
       : audioLoadConfiguration = request.audioLoadConfiguration,
+        androidMixerEnabled = request.androidMixerEnabled,
+        androidAttach = request.androidAttach,
+        androidAudioEffects = request.androidAudioEffects,
         super(request.id);
 
   @override
   Stream<PlayerDataMessage> get playerDataMessageStream =>
-      StreamController<PlayerDataMessage>().stream;
+      dataController.stream;
+
+  @override
+  Stream<MetadataMessage> get metadataMessageStream =>
+      metadataController.stream;
 
   @override
   Stream<PlaybackEventMessage> get playbackEventMessageStream =>
       eventController.stream;
 
   @override
-  Future<LoadResponse> load(LoadRequest request) async {
+  Future<LoadResponse> load(LoadRequest request) {
+    if (loadDebounce == Duration.zero) return _load(request);
+    // Like the Android implementation, a load waits for the debounce window
+    // and a later load cancels it at once.
+    _pendingLoad?.complete(LoadResponse(duration: null, cancelled: true));
+    final pendingLoad = _pendingLoad = Completer<LoadResponse>();
+    Future<void>.delayed(loadDebounce, () {
+      if (pendingLoad.isCompleted) return;
+      _pendingLoad = null;
+      pendingLoad.complete(_load(request));
+    });
+    return pendingLoad.future;
+  }
+
+  Future<LoadResponse> _load(LoadRequest request) async {
     final audioSource = request.audioSourceMessage;
     _processingState = ProcessingStateMessage.loading;
     _broadcastPlaybackEvent();
@@ -1481,6 +2152,7 @@ class MockAudioPlayer extends AudioPlayerPlatform {
         throw PlatformException(code: 'error', message: 'Unknown error');
       }
       _duration = audioSourceDuration;
+      loadedUris.add(audioSource.uri);
     } else if (audioSource is ClippingAudioSourceMessage) {
       _duration = (audioSource.end ?? audioSourceDuration) -
           (audioSource.start ?? Duration.zero);
@@ -1490,6 +2162,7 @@ class MockAudioPlayer extends AudioPlayerPlatform {
       _duration = audioSourceDuration;
     }
     _audioSource = audioSource;
+    sourceIds = _sourceMap(audioSource)['ids'] as List<dynamic>;
     _index = request.initialIndex ?? 0;
     // Simulate loading time.
     await Future<dynamic>.delayed(const Duration(milliseconds: 100));
@@ -1536,6 +2209,7 @@ class MockAudioPlayer extends AudioPlayerPlatform {
 
   @override
   Future<SeekResponse> seek(SeekRequest request) async {
+    seekModes.add(request.seekMode);
     _setPosition(request.position ?? Duration.zero);
     _index = request.index ?? 0;
     _broadcastPlaybackEvent();
@@ -1556,6 +2230,109 @@ class MockAudioPlayer extends AudioPlayerPlatform {
     return SetAndroidAudioAttributesResponse();
   }
 
+  @override
+  Future<SetRequestCredentialsResponse> setRequestCredentials(
+      SetRequestCredentialsRequest request) async {
+    requestCredentials = request;
+    return SetRequestCredentialsResponse();
+  }
+
+  @override
+  Future<SetLoadDebounceResponse> setLoadDebounce(
+      SetLoadDebounceRequest request) async {
+    loadDebounce = request.window;
+    return SetLoadDebounceResponse();
+  }
+
+  @override
+  Future<SetHibernationPolicyResponse> setHibernationPolicy(
+      SetHibernationPolicyRequest request) async {
+    hibernationPolicy = request;
+    return SetHibernationPolicyResponse();
+  }
+
+  @override
+  Future<SetPositionStreamEnabledResponse> setPositionStreamEnabled(
+      SetPositionStreamEnabledRequest request) async {
+    positionStreamRequest = request;
+    return SetPositionStreamEnabledResponse();
+  }
+
+  @override
+  Future<GetSeekMetricsResponse> getSeekMetrics(
+      GetSeekMetricsRequest request) async {
+    return GetSeekMetricsResponse(
+      requestCount: seekModes.length,
+      issueCount: seekModes.length,
+      lastLatency: const Duration(milliseconds: 20),
+      averageLatency: const Duration(milliseconds: 10),
+    );
+  }
+
+  @override
+  Future<GetPlaybackQualityMetricsResponse> getPlaybackQualityMetrics(
+      GetPlaybackQualityMetricsRequest request) async {
+    return GetPlaybackQualityMetricsResponse(
+      timeToFirstAudio: const Duration(milliseconds: 300),
+      rebufferCount: 1,
+      rebufferTime: const Duration(seconds: 1),
+      playTime: const Duration(seconds: 9),
+      stallRatio: 0.1,
+    );
+  }
+
+  // The IDs and types of the sources in pre-order, as sent on a restore.
+  Map<dynamic, dynamic> _sourceMap(AudioSourceMessage audioSource) =>
+      RestoreSnapshotRequest(key: '', audioSourceMessage: audioSource).toMap();
+
+  List<List<int>> _shuffleOrders(AudioSourceMessage audioSource) {
+    if (audioSource is ConcatenatingAudioSourceMessage) {
+      return [
+        audioSource.shuffleOrder,
+        for (var child in audioSource.children) ..._shuffleOrders(child),
+      ];
+    } else if (audioSource is LoopingAudioSourceMessage) {
+      return _shuffleOrders(audioSource.child);
+    }
+    return [];
+  }
+
+  @override
+  Future<SaveSnapshotResponse> saveSnapshot(SaveSnapshotRequest request) async {
+    snapshots[request.key] = <String, dynamic>{
+      'ids': sourceIds,
+      'types': _sourceMap(_audioSource!)['types'],
+      'shuffleOrders': _shuffleOrders(_audioSource!),
+      'index': _index,
+      'position': _position,
+    };
+    return SaveSnapshotResponse();
+  }
+
+  @override
+  Future<RestoreSnapshotResponse> restoreSnapshot(
+      RestoreSnapshotRequest request) async {
+    final snapshot = snapshots[request.key];
+    final map = request.toMap();
+    if (snapshot == null) {
+      throw PlatformException(code: 'error', message: 'No snapshot');
+    }
+    if ((snapshot['types'] as List).join(',') !=
+        (map['types'] as List).join(',')) {
+      throw PlatformException(code: 'error', message: 'Mismatched snapshot');
+    }
+    sourceIds = map['ids'] as List<dynamic>;
+    _duration = audioSourceDuration;
+    _index = snapshot['index'] as int?;
+    _setPosition(snapshot['position'] as Duration);
+    _processingState = ProcessingStateMessage.ready;
+    _broadcastPlaybackEvent();
+    return RestoreSnapshotResponse(
+      duration: _duration,
+      shuffleOrders: snapshot['shuffleOrders'] as List<List<int>>,
+    );
+  }
+
   @override
   Future<SetAutomaticallyWaitsToMinimizeStallingResponse>
       setAutomaticallyWaitsToMinimizeStalling(
@@ -1615,6 +2392,7 @@ class MockAudioPlayer extends AudioPlayerPlatform {
   Future<ConcatenatingInsertAllResponse> concatenatingInsertAll(
       ConcatenatingInsertAllRequest request) async {
     // TODO
+    insertedIntoIds.add(request.id);
     return ConcatenatingInsertAllResponse();
   }
 
@@ -1660,6 +2438,8 @@ class MockAudioPlayer extends AudioPlayerPlatform {
       duration: _duration,
       currentIndex: _index,
       androidAudioSessionId: null,
+      androidOffload: androidOffload,
+      androidLive: androidLive,
     ));
   }
 
@@ -1733,6 +2513,22 @@ class MockAudioPlayer extends AudioPlayerPlatform {
       AndroidEqualizerBandSetGainRequest request) async {
     return AndroidEqualizerBandSetGainResponse();
   }
+
+  @override
+  Future<AndroidParametricEqualizerBandSetGainResponse>
+      androidParametricEqualizerBandSetGain(
+          AndroidParametricEqualizerBandSetGainRequest request) async {
+    parametricEqualizerBandGains[request.bandIndex] = request.gain;
+    return AndroidParametricEqualizerBandSetGainResponse();
+  }
+
+  @override
+  Future<AndroidParametricEqualizerSetGainResponse>
+      androidParametricEqualizerSetGain(
+          AndroidParametricEqualizerSetGainRequest request) async {
+    parametricEqualizerGain = request.gain;
+    return AndroidParametricEqualizerSetGainResponse();
+  }
 }
 
 final byteRangeData = List.generate(200, (i) => i);
@@ -1752,6 +2548,50 @@ class TestStreamAudioSource extends StreamAudioSource {
   }
 }
 
+class NoRangeTestStreamAudioSource extends StreamAudioSource {
+  NoRangeTestStreamAudioSource({dynamic tag}) : super(tag: tag);
+
+  @override
+  Future<StreamAudioResponse> request([int? start, int? end]) async {
+    return StreamAudioResponse(
+      rangeRequestsSupported: false,
+      contentType: 'audio/mock',
+      stream: Stream.fromIterable(
+          [byteRangeData.sublist(0, 50), byteRangeData.sublist(50)]),
+      contentLength: byteRangeData.length,
+      offset: null,
+      sourceLength: null,
+    );
+  }
+}
+
+class BenchmarkStreamAudioSource extends StreamAudioSource {
+  static const _blockSize = 64 * 1024;
+  final int length;
+  final _block = Uint8List(_blockSize);
+
+  BenchmarkStreamAudioSource(this.length);
+
+  @override
+  Future<StreamAudioResponse> request([int? start, int? end]) async {
+    start ??= 0;
+    end ??= length;
+    return StreamAudioResponse(
+      contentType: 'audio/mock',
+      stream: _blocks(start, end),
+      contentLength: end - start,
+      offset: start,
+      sourceLength: length,
+    );
+  }
+
+  Stream<List<int>> _blocks(int start, int end) async* {
+    for (var position = start; position < end; position += _blockSize) {
+      yield Uint8List.sublistView(_block, 0, min(_blockSize, end - position));
+    }
+  }
+}
+
 class MockWebServer {
   late HttpServer _server;
   int get port => _server.port;
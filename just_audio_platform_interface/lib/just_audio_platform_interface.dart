@@ -1,4 +1,5 @@
 import 'dart:async';
+import 'dart:typed_data';
 
 import 'package:plugin_platform_interface/plugin_platform_interface.dart';
 
@@ -50,6 +51,20 @@ abstract class JustAudioPlatform extends PlatformInterface {
       DisposeAllPlayersRequest request) {
     throw UnimplementedError('disposeAllPlayers() has not been implemented.');
   }
+
+  /// On Android, extracts a waveform overview of an audio URI, and is not
+  /// implemented on other platforms.
+  Future<ExtractWaveformResponse> extractWaveform(
+      ExtractWaveformRequest request) {
+    throw UnimplementedError('extractWaveform() has not been implemented.');
+  }
+
+  /// On Android, switches system trace sections for player operations on or
+  /// off, and is not implemented on other platforms.
+  Future<SetTracingEnabledResponse> setTracingEnabled(
+      SetTracingEnabledRequest request) {
+    throw UnimplementedError('setTracingEnabled() has not been implemented.');
+  }
 }
 
 /// A nested platform interface for communicating with a particular player
@@ -76,6 +91,10 @@ abstract class AudioPlayerPlatform {
   Stream<PlayerDataMessage> get playerDataMessageStream =>
       const Stream<PlayerDataMessage>.empty();
 
+  /// A broadcast stream of batches of ICY, ID3 and emsg metadata.
+  Stream<MetadataMessage> get metadataMessageStream =>
+      const Stream<MetadataMessage>.empty();
+
   /// Loads an audio source.
   Future<LoadResponse> load(LoadRequest request) {
     throw UnimplementedError("load() has not been implemented.");
@@ -175,6 +194,67 @@ abstract class AudioPlayerPlatform {
         "setAndroidAudioAttributes() has not been implemented.");
   }
 
+  /// On Android, sets the credentials applied to each HTTP request at the
+  /// moment it is made, and does nothing on other platforms.
+  Future<SetRequestCredentialsResponse> setRequestCredentials(
+      SetRequestCredentialsRequest request) {
+    throw UnimplementedError(
+        "setRequestCredentials() has not been implemented.");
+  }
+
+  /// On Android, sets how long a load waits for a later load to supersede it
+  /// before it starts, and does nothing on other platforms.
+  Future<SetLoadDebounceResponse> setLoadDebounce(
+      SetLoadDebounceRequest request) {
+    throw UnimplementedError("setLoadDebounce() has not been implemented.");
+  }
+
+  /// On Android, sets when an idle player releases its decoders and buffers
+  /// until it is next played or seeked, and does nothing on other platforms.
+  Future<SetHibernationPolicyResponse> setHibernationPolicy(
+      SetHibernationPolicyRequest request) {
+    throw UnimplementedError(
+        "setHibernationPolicy() has not been implemented.");
+  }
+
+  /// On Android, sends the position on the data channel as a
+  /// [PositionFrameMessage] at the requested interval while playing, and is
+  /// not implemented on other platforms.
+  Future<SetPositionStreamEnabledResponse> setPositionStreamEnabled(
+      SetPositionStreamEnabledRequest request) {
+    throw UnimplementedError(
+        "setPositionStreamEnabled() has not been implemented.");
+  }
+
+  /// On Android, gets the counts and latencies of this player's seeks, and
+  /// is not implemented on other platforms.
+  Future<GetSeekMetricsResponse> getSeekMetrics(
+      GetSeekMetricsRequest request) {
+    throw UnimplementedError("getSeekMetrics() has not been implemented.");
+  }
+
+  /// On Android, gets measures of startup time and rebuffering, and is not
+  /// implemented on other platforms.
+  Future<GetPlaybackQualityMetricsResponse> getPlaybackQualityMetrics(
+      GetPlaybackQualityMetricsRequest request) {
+    throw UnimplementedError(
+        "getPlaybackQualityMetrics() has not been implemented.");
+  }
+
+  /// On Android, saves the loaded source tree, index, position and modes
+  /// under a key so that they can be restored after a cold start, and is not
+  /// implemented on other platforms.
+  Future<SaveSnapshotResponse> saveSnapshot(SaveSnapshotRequest request) {
+    throw UnimplementedError("saveSnapshot() has not been implemented.");
+  }
+
+  /// On Android, loads a snapshot saved by [saveSnapshot], and is not
+  /// implemented on other platforms.
+  Future<RestoreSnapshotResponse> restoreSnapshot(
+      RestoreSnapshotRequest request) {
+    throw UnimplementedError("restoreSnapshot() has not been implemented.");
+  }
+
   /// This method has been superseded by [JustAudioPlatform.disposePlayer].
   /// For backward compatibility, this method will still be called as a
   /// fallback if [JustAudioPlatform.disposePlayer] is not implemented.
@@ -230,6 +310,22 @@ abstract class AudioPlayerPlatform {
     throw UnimplementedError(
         "androidEqualizerBandSetGain() has not been implemented.");
   }
+
+  /// Sets the gain for an Android parametric equalizer band.
+  Future<AndroidParametricEqualizerBandSetGainResponse>
+      androidParametricEqualizerBandSetGain(
+          AndroidParametricEqualizerBandSetGainRequest request) {
+    throw UnimplementedError(
+        "androidParametricEqualizerBandSetGain() has not been implemented.");
+  }
+
+  /// Sets the overall gain of the Android parametric equalizer.
+  Future<AndroidParametricEqualizerSetGainResponse>
+      androidParametricEqualizerSetGain(
+          AndroidParametricEqualizerSetGainRequest request) {
+    throw UnimplementedError(
+        "androidParametricEqualizerSetGain() has not been implemented.");
+  }
 }
 
 /// A data update communicated from the platform implementation to the Flutter
@@ -244,6 +340,8 @@ class PlayerDataMessage {
   final double? pitch;
   final LoopModeMessage? loopMode;
   final ShuffleModeMessage? shuffleMode;
+  final bool? requestCredentialsExpired;
+  final PositionFrameMessage? positionFrame;
   // TODO: Eventually move other state here?
   // bufferedPosition, androidAudioSessionId, icyMetadata
 
@@ -254,6 +352,8 @@ class PlayerDataMessage {
     this.pitch,
     this.loopMode,
     this.shuffleMode,
+    this.requestCredentialsExpired,
+    this.positionFrame,
   });
 
   static PlayerDataMessage fromMap(Map<dynamic, dynamic> map) =>
@@ -268,6 +368,98 @@ class PlayerDataMessage {
         shuffleMode: map['shuffleMode'] != null
             ? ShuffleModeMessage.values[map['shuffleMode'] as int]
             : null,
+        requestCredentialsExpired: map['requestCredentialsExpired'] as bool?,
+        positionFrame: map['positionFrame'] != null
+            ? PositionFrameMessage.fromBytes(map['positionFrame'] as Uint8List)
+            : null,
+      );
+}
+
+/// A position sampled by the platform implementation while the position
+/// stream is enabled.
+class PositionFrameMessage {
+  /// The position at [monotonicTime].
+  final Duration position;
+
+  /// When the position was sampled, on the platform's monotonic clock, which
+  /// is also that of [PlaybackEventMessage.updateMonotonicTime].
+  final Duration monotonicTime;
+
+  /// The playback speed, or 0 while not playing.
+  final double speed;
+
+  final int currentIndex;
+
+  PositionFrameMessage({
+    required this.position,
+    required this.monotonicTime,
+    required this.speed,
+    required this.currentIndex,
+  });
+
+  /// Decodes a frame of 24 little-endian bytes: the position and monotonic
+  /// time (int64 microseconds), the speed (float32) and the index (int32).
+  static PositionFrameMessage fromBytes(Uint8List bytes) {
+    final data = ByteData.sublistView(bytes);
+    return PositionFrameMessage(
+      position: Duration(microseconds: data.getInt64(0, Endian.little)),
+      monotonicTime: Duration(microseconds: data.getInt64(8, Endian.little)),
+      speed: data.getFloat32(16, Endian.little),
+      currentIndex: data.getInt32(20, Endian.little),
+    );
+  }
+}
+
+/// A batch of metadata entries communicated from the platform implementation
+/// to the Flutter plugin.
+class MetadataMessage {
+  final List<MetadataEntryMessage> entries;
+
+  MetadataMessage({required this.entries});
+
+  static MetadataMessage fromMap(Map<dynamic, dynamic> map) => MetadataMessage(
+        entries: (map['entries'] as List<dynamic>)
+            .map((dynamic entry) =>
+                MetadataEntryMessage.fromMap(entry as Map<dynamic, dynamic>))
+            .toList(),
+      );
+}
+
+/// An ICY, ID3 or emsg metadata entry communicated from the platform
+/// implementation to the Flutter plugin.
+class MetadataEntryMessage {
+  /// The kind of entry: "icy", "icyHeaders", "id3" or "emsg".
+  final String type;
+
+  /// The position in the item at which the entry is presented, or `null` for
+  /// entries that describe the item as a whole, such as the tags of a file.
+  final Duration? position;
+
+  /// The index of the item the entry belongs to.
+  final int index;
+
+  /// The type-specific fields of the entry.
+  final Map<String, dynamic> fields;
+
+  MetadataEntryMessage({
+    required this.type,
+    required this.position,
+    required this.index,
+    required this.fields,
+  });
+
+  static MetadataEntryMessage fromMap(Map<dynamic, dynamic> map) =>
+      MetadataEntryMessage(
+        type: map['type'] as String,
+        position: map['position'] != null
+            ? Duration(microseconds: map['position'] as int)
+            : null,
+        index: map['index'] as int,
+        fields: {
+          for (var entry in map.entries)
+            if (!const ['type', 'position', 'index'].contains(entry.key))
+              entry.key as String: entry.value,
+        },
       );
 }
 
@@ -282,6 +474,12 @@ class PlaybackEventMessage {
   final IcyMetadataMessage? icyMetadata;
   final int? currentIndex;
   final int? androidAudioSessionId;
+  final AndroidOffloadMessage? androidOffload;
+  final AndroidLiveMessage? androidLive;
+
+  /// When [updatePosition] was sampled, on the platform's monotonic clock, or
+  /// `null` if the platform does not provide it.
+  final Duration? updateMonotonicTime;
 
   PlaybackEventMessage({
     required this.processingState,
@@ -292,6 +490,9 @@ class PlaybackEventMessage {
     required this.icyMetadata,
     required this.currentIndex,
     required this.androidAudioSessionId,
+    this.androidOffload,
+    this.androidLive,
+    this.updateMonotonicTime,
   });
 
   static PlaybackEventMessage fromMap(Map<dynamic, dynamic> map) =>
@@ -312,6 +513,69 @@ class PlaybackEventMessage {
                 map['icyMetadata'] as Map<dynamic, dynamic>),
         currentIndex: map['currentIndex'] as int?,
         androidAudioSessionId: map['androidAudioSessionId'] as int?,
+        androidOffload: map['androidOffload'] == null
+            ? null
+            : AndroidOffloadMessage.fromMap(
+                map['androidOffload'] as Map<dynamic, dynamic>),
+        androidLive: map['androidLive'] == null
+            ? null
+            : AndroidLiveMessage.fromMap(
+                map['androidLive'] as Map<dynamic, dynamic>),
+        updateMonotonicTime: map['updateMonotonicTime'] == null
+            ? null
+            : Duration(microseconds: map['updateMonotonicTime'] as int),
+      );
+}
+
+/// The state of audio offload communicated from the Android implementation.
+class AndroidOffloadMessage {
+  final bool active;
+  final bool sleeping;
+  final Duration sleepTime;
+  final String? disabledReason;
+
+  AndroidOffloadMessage({
+    required this.active,
+    required this.sleeping,
+    required this.sleepTime,
+    required this.disabledReason,
+  });
+
+  static AndroidOffloadMessage fromMap(Map<dynamic, dynamic> map) =>
+      AndroidOffloadMessage(
+        active: map['active'] as bool,
+        sleeping: map['sleeping'] as bool,
+        sleepTime: Duration(microseconds: map['sleepTime'] as int),
+        disabledReason: map['disabledReason'] as String?,
+      );
+}
+
+/// The live latency of the current item communicated from the Android
+/// implementation.
+class AndroidLiveMessage {
+  final Duration? offset;
+  final Duration? targetOffset;
+  final double speed;
+  final Duration behindTargetTime;
+
+  AndroidLiveMessage({
+    required this.offset,
+    required this.targetOffset,
+    required this.speed,
+    required this.behindTargetTime,
+  });
+
+  static AndroidLiveMessage fromMap(Map<dynamic, dynamic> map) =>
+      AndroidLiveMessage(
+        offset: map['offset'] == null
+            ? null
+            : Duration(microseconds: map['offset'] as int),
+        targetOffset: map['targetOffset'] == null
+            ? null
+            : Duration(microseconds: map['targetOffset'] as int),
+        speed: map['speed'] as double,
+        behindTargetTime:
+            Duration(microseconds: map['behindTargetTime'] as int),
       );
 }
 
@@ -397,6 +661,12 @@ class InitRequest {
   final List<AudioEffectMessage> androidAudioEffects;
   final List<AudioEffectMessage> darwinAudioEffects;
   final bool? androidOffloadSchedulingEnabled;
+  final bool? androidMixerEnabled;
+
+  /// (Android) Whether to attach to the player with [id] if another Flutter
+  /// engine in this process has already created it, rather than fail. The
+  /// other arguments are then ignored.
+  final bool? androidAttach;
 
   InitRequest({
     required this.id,
@@ -404,6 +674,8 @@ class InitRequest {
     this.androidAudioEffects = const [],
     this.darwinAudioEffects = const [],
     this.androidOffloadSchedulingEnabled,
+    this.androidMixerEnabled,
+    this.androidAttach,
   });
 
   Map<dynamic, dynamic> toMap() => <dynamic, dynamic>{
@@ -416,6 +688,8 @@ class InitRequest {
             .map((audioEffect) => audioEffect.toMap())
             .toList(),
         'androidOffloadSchedulingEnabled': androidOffloadSchedulingEnabled,
+        'androidMixerEnabled': androidMixerEnabled,
+        'androidAttach': androidAttach,
       };
 }
 
@@ -453,6 +727,59 @@ class DisposeAllPlayersResponse {
       DisposeAllPlayersResponse();
 }
 
+/// Information communicated to the platform implementation when extracting a
+/// waveform.
+class ExtractWaveformRequest {
+  final String uri;
+
+  /// The number of bins.
+  final int resolution;
+
+  ExtractWaveformRequest({required this.uri, required this.resolution});
+
+  Map<dynamic, dynamic> toMap() => <dynamic, dynamic>{
+        'uri': uri,
+        'resolution': resolution,
+      };
+}
+
+/// Information returned by the platform implementation after extracting a
+/// waveform.
+class ExtractWaveformResponse {
+  /// The peak amplitude of each bin, from 0.0 to 1.0.
+  final List<double> peaks;
+
+  /// The RMS amplitude of each bin, from 0.0 to 1.0.
+  final List<double> rms;
+
+  ExtractWaveformResponse({required this.peaks, required this.rms});
+
+  static ExtractWaveformResponse fromMap(Map<dynamic, dynamic> map) =>
+      ExtractWaveformResponse(
+        peaks: List<double>.from(map['peaks'] as List),
+        rms: List<double>.from(map['rms'] as List),
+      );
+}
+
+/// Information communicated to the platform implementation when switching
+/// tracing on or off.
+class SetTracingEnabledRequest {
+  final bool enabled;
+
+  SetTracingEnabledRequest({required this.enabled});
+
+  Map<dynamic, dynamic> toMap() => <dynamic, dynamic>{
+        'enabled': enabled,
+      };
+}
+
+/// Information returned by the platform implementation after switching
+/// tracing on or off.
+class SetTracingEnabledResponse {
+  static SetTracingEnabledResponse fromMap(Map<dynamic, dynamic> map) =>
+      SetTracingEnabledResponse();
+}
+
 /// Information communicated to the platform implementation when loading an
 /// audio source.
 class LoadRequest {
@@ -478,12 +805,17 @@ class LoadRequest {
 class LoadResponse {
   final Duration? duration;
 
-  LoadResponse({required this.duration});
+  /// Whether the load was superseded by a later load before it started, in
+  /// which case nothing was loaded.
+  final bool cancelled;
+
+  LoadResponse({required this.duration, this.cancelled = false});
 
   static LoadResponse fromMap(Map<dynamic, dynamic> map) => LoadResponse(
       duration: map['duration'] == null || map['duration'] as int < 0
           ? null
-          : Duration(microseconds: map['duration'] as int));
+          : Duration(microseconds: map['duration'] as int),
+      cancelled: map['cancelled'] as bool? ?? false);
 }
 
 /// Information communicated to the platform implementation when playing an
@@ -732,15 +1064,21 @@ class SetAllowsExternalPlaybackResponse {
 class SeekRequest {
   final Duration? position;
   final int? index;
+  final SeekModeMessage seekMode;
 
-  SeekRequest({this.position, this.index});
+  SeekRequest(
+      {this.position, this.index, this.seekMode = SeekModeMessage.exact});
 
   Map<dynamic, dynamic> toMap() => <dynamic, dynamic>{
         'position': position?.inMicroseconds,
         'index': index,
+        'seekMode': seekMode.index,
       };
 }
 
+/// How precisely a seek lands on the requested position.
+enum SeekModeMessage { exact, fast }
+
 /// Information returned by the platform implementation after seeking to a
 /// position and index.
 class SeekResponse {
@@ -774,6 +1112,275 @@ class SetAndroidAudioAttributesResponse {
       SetAndroidAudioAttributesResponse();
 }
 
+/// Information communicated to the platform implementation when setting the
+/// request credentials.
+class SetRequestCredentialsRequest {
+  final Map<String, String>? headers;
+  final Map<String, String>? uris;
+  final Map<String, String>? queryParameters;
+  final Duration? ttl;
+
+  SetRequestCredentialsRequest({
+    this.headers,
+    this.uris,
+    this.queryParameters,
+    this.ttl,
+  });
+
+  Map<dynamic, dynamic> toMap() => <dynamic, dynamic>{
+        'headers': headers,
+        'uris': uris,
+        'queryParameters': queryParameters,
+        'ttl': ttl?.inMicroseconds,
+      };
+}
+
+/// Information returned by the platform implementation after setting the
+/// request credentials.
+class SetRequestCredentialsResponse {
+  static SetRequestCredentialsResponse fromMap(Map<dynamic, dynamic> map) =>
+      SetRequestCredentialsResponse();
+}
+
+/// Information communicated to the platform implementation when setting the
+/// load debounce window.
+class SetLoadDebounceRequest {
+  final Duration window;
+
+  SetLoadDebounceRequest({required this.window});
+
+  Map<dynamic, dynamic> toMap() => <dynamic, dynamic>{
+        'window': window.inMicroseconds,
+      };
+}
+
+/// Information returned by the platform implementation after setting the
+/// load debounce window.
+class SetLoadDebounceResponse {
+  static SetLoadDebounceResponse fromMap(Map<dynamic, dynamic> map) =>
+      SetLoadDebounceResponse();
+}
+
+/// Information communicated to the platform implementation when setting the
+/// hibernation policy.
+class SetHibernationPolicyRequest {
+  /// How long the player must be paused before it hibernates, or `null` to
+  /// not hibernate when idle.
+  final Duration? idleTimeout;
+
+  /// Whether the player hibernates when the system is low on memory.
+  final bool onMemoryPressure;
+
+  SetHibernationPolicyRequest({
+    this.idleTimeout,
+    required this.onMemoryPressure,
+  });
+
+  Map<dynamic, dynamic> toMap() => <dynamic, dynamic>{
+        'idleTimeout': idleTimeout?.inMicroseconds,
+        'onMemoryPressure': onMemoryPressure,
+      };
+}
+
+/// Information returned by the platform implementation after setting the
+/// hibernation policy.
+class SetHibernationPolicyResponse {
+  static SetHibernationPolicyResponse fromMap(Map<dynamic, dynamic> map) =>
+      SetHibernationPolicyResponse();
+}
+
+/// Information communicated to the platform implementation when enabling or
+/// disabling the position stream.
+class SetPositionStreamEnabledRequest {
+  final bool enabled;
+
+  /// The interval between frames, or `null` for the platform's default.
+  final Duration? interval;
+
+  SetPositionStreamEnabledRequest({required this.enabled, this.interval});
+
+  Map<dynamic, dynamic> toMap() => <dynamic, dynamic>{
+        'enabled': enabled,
+        'interval': interval?.inMicroseconds,
+      };
+}
+
+/// Information returned by the platform implementation after enabling or
+/// disabling the position stream.
+class SetPositionStreamEnabledResponse {
+  static SetPositionStreamEnabledResponse fromMap(Map<dynamic, dynamic> map) =>
+      SetPositionStreamEnabledResponse();
+}
+
+/// Information communicated to the platform implementation when getting the
+/// seek metrics.
+class GetSeekMetricsRequest {
+  Map<dynamic, dynamic> toMap() => <dynamic, dynamic>{};
+}
+
+/// Information returned by the platform implementation when getting the seek
+/// metrics.
+class GetSeekMetricsResponse {
+  /// The number of seeks requested.
+  final int requestCount;
+
+  /// The number of seeks issued to the player. Requests that arrive while a
+  /// seek is in flight are coalesced, so this may be less than
+  /// [requestCount].
+  final int issueCount;
+
+  /// The time the last issued seek took to complete.
+  final Duration lastLatency;
+
+  /// The average time an issued seek took to complete.
+  final Duration averageLatency;
+
+  GetSeekMetricsResponse({
+    required this.requestCount,
+    required this.issueCount,
+    required this.lastLatency,
+    required this.averageLatency,
+  });
+
+  static GetSeekMetricsResponse fromMap(Map<dynamic, dynamic> map) =>
+      GetSeekMetricsResponse(
+        requestCount: map['requestCount'] as int,
+        issueCount: map['issueCount'] as int,
+        lastLatency: Duration(microseconds: map['lastLatency'] as int),
+        averageLatency: Duration(microseconds: map['averageLatency'] as int),
+      );
+}
+
+/// Information communicated to the platform implementation when getting the
+/// playback quality metrics.
+class GetPlaybackQualityMetricsRequest {
+  Map<dynamic, dynamic> toMap() => <dynamic, dynamic>{};
+}
+
+/// Information returned by the platform implementation when getting the
+/// playback quality metrics.
+class GetPlaybackQualityMetricsResponse {
+  /// The mean time from a request to play until audio was first heard, or
+  /// `null` if no audio has been played yet.
+  final Duration? timeToFirstAudio;
+
+  /// The number of times playback stalled to rebuffer.
+  final int rebufferCount;
+
+  /// The total time spent rebuffering.
+  final Duration rebufferTime;
+
+  /// The total time spent playing.
+  final Duration playTime;
+
+  /// The fraction of [rebufferTime] in [rebufferTime] and [playTime] combined.
+  final double stallRatio;
+
+  GetPlaybackQualityMetricsResponse({
+    required this.timeToFirstAudio,
+    required this.rebufferCount,
+    required this.rebufferTime,
+    required this.playTime,
+    required this.stallRatio,
+  });
+
+  static GetPlaybackQualityMetricsResponse fromMap(Map<dynamic, dynamic> map) =>
+      GetPlaybackQualityMetricsResponse(
+        timeToFirstAudio: map['timeToFirstAudio'] != null
+            ? Duration(microseconds: map['timeToFirstAudio'] as int)
+            : null,
+        rebufferCount: map['rebufferCount'] as int,
+        rebufferTime: Duration(microseconds: map['rebufferTime'] as int),
+        playTime: Duration(microseconds: map['playTime'] as int),
+        stallRatio: map['stallRatio'] as double,
+      );
+}
+
+/// Information communicated to the platform implementation when saving a
+/// snapshot.
+class SaveSnapshotRequest {
+  final String key;
+
+  SaveSnapshotRequest({required this.key});
+
+  Map<dynamic, dynamic> toMap() => <dynamic, dynamic>{
+        'key': key,
+      };
+}
+
+/// Information returned by the platform implementation after saving a
+/// snapshot.
+class SaveSnapshotResponse {
+  static SaveSnapshotResponse fromMap(Map<dynamic, dynamic> map) =>
+      SaveSnapshotResponse();
+}
+
+/// Information communicated to the platform implementation when restoring a
+/// snapshot.
+///
+/// Only the IDs and types of the sources in [audioSourceMessage] are sent, in
+/// pre-order. The platform checks them against the snapshot's tree and then
+/// adopts these IDs so that later playlist edits find their sources.
+class RestoreSnapshotRequest {
+  final String key;
+  final AudioSourceMessage audioSourceMessage;
+
+  RestoreSnapshotRequest({
+    required this.key,
+    required this.audioSourceMessage,
+  });
+
+  Map<dynamic, dynamic> toMap() {
+    final ids = <String>[];
+    final types = <String>[];
+    void visit(Map<dynamic, dynamic> map) {
+      ids.add(map['id'] as String);
+      types.add(map['type'] as String);
+      for (var child in map['children'] as List<dynamic>? ?? <dynamic>[]) {
+        visit(child as Map<dynamic, dynamic>);
+      }
+      if (map['child'] != null) visit(map['child'] as Map<dynamic, dynamic>);
+    }
+
+    visit(audioSourceMessage.toMap());
+    return <dynamic, dynamic>{
+      'key': key,
+      'ids': ids,
+      'types': types,
+    };
+  }
+}
+
+/// Information returned by the platform implementation after restoring a
+/// snapshot.
+class RestoreSnapshotResponse {
+  final Duration? duration;
+
+  /// The restored shuffle order of each concatenating source, in pre-order.
+  final List<List<int>> shuffleOrders;
+
+  /// Whether the restore was superseded by a later load before it started,
+  /// in which case nothing was loaded.
+  final bool cancelled;
+
+  RestoreSnapshotResponse({
+    required this.duration,
+    required this.shuffleOrders,
+    this.cancelled = false,
+  });
+
+  static RestoreSnapshotResponse fromMap(Map<dynamic, dynamic> map) =>
+      RestoreSnapshotResponse(
+        duration: map['duration'] == null || map['duration'] as int < 0
+            ? null
+            : Duration(microseconds: map['duration'] as int),
+        shuffleOrders: (map['shuffleOrders'] as List<dynamic>)
+            .map((order) => (order as List<dynamic>).cast<int>())
+            .toList(),
+        cancelled: map['cancelled'] as bool? ?? false,
+      );
+}
+
 /// The parameter of [AudioPlayerPlatform.dispose] which is deprecated.
 class DisposeRequest {
   Map<dynamic, dynamic> toMap() => <dynamic, dynamic>{};
@@ -1052,6 +1659,58 @@ class ProgressiveAudioSourceOptionsMessage {
       };
 }
 
+/// Options for loading DASH and HLS audio sources to be communicated with the
+/// platform implementation.
+class AdaptiveAudioSourceOptionsMessage {
+  final AndroidLiveConfigurationMessage? androidLiveConfiguration;
+
+  const AdaptiveAudioSourceOptionsMessage({
+    this.androidLiveConfiguration,
+  });
+
+  Map<dynamic, dynamic> toMap() => <dynamic, dynamic>{
+        'androidLiveConfiguration': androidLiveConfiguration?.toMap(),
+      };
+}
+
+/// Live offset targets for a single live stream on Android to be communicated
+/// with the platform implementation. Any value left null is taken from the
+/// media, or else from the live playback speed control.
+class AndroidLiveConfigurationMessage {
+  /// (Android) The target live offset.
+  final Duration? targetOffset;
+
+  /// (Android) The minimum allowed live offset.
+  final Duration? minOffset;
+
+  /// (Android) The maximum allowed live offset.
+  final Duration? maxOffset;
+
+  /// (Android) The minimum playback speed to use when adjusting playback speed
+  /// to approach the target live offset.
+  final double? minPlaybackSpeed;
+
+  /// (Android) The maximum playback speed to use when adjusting playback speed
+  /// to approach the target live offset.
+  final double? maxPlaybackSpeed;
+
+  const AndroidLiveConfigurationMessage({
+    this.targetOffset,
+    this.minOffset,
+    this.maxOffset,
+    this.minPlaybackSpeed,
+    this.maxPlaybackSpeed,
+  });
+
+  Map<dynamic, dynamic> toMap() => <dynamic, dynamic>{
+        'targetOffset': targetOffset?.inMicroseconds,
+        'minOffset': minOffset?.inMicroseconds,
+        'maxOffset': maxOffset?.inMicroseconds,
+        'minPlaybackSpeed': minPlaybackSpeed,
+        'maxPlaybackSpeed': maxPlaybackSpeed,
+      };
+}
+
 /// Options for loading audio assets on iOS/macOS to be communicated with the
 /// platform implementation.
 class DarwinAssetOptionsMessage {
@@ -1146,11 +1805,14 @@ class ProgressiveAudioSourceMessage extends UriAudioSourceMessage {
 /// Information about a DASH audio source to be communicated with the platform
 /// implementation.
 class DashAudioSourceMessage extends UriAudioSourceMessage {
+  final AdaptiveAudioSourceOptionsMessage? options;
+
   DashAudioSourceMessage({
     required super.id,
     required super.uri,
     super.headers,
     super.tag,
+    this.options,
   });
 
   @override
@@ -1159,17 +1821,21 @@ class DashAudioSourceMessage extends UriAudioSourceMessage {
         'id': id,
         'uri': uri,
         'headers': headers,
+        'options': options?.toMap(),
       };
 }
 
 /// Information about a HLS audio source to be communicated with the platform
 /// implementation.
 class HlsAudioSourceMessage extends UriAudioSourceMessage {
+  final AdaptiveAudioSourceOptionsMessage? options;
+
   HlsAudioSourceMessage({
     required super.id,
     required super.uri,
     super.headers,
     super.tag,
+    this.options,
   });
 
   @override
@@ -1178,6 +1844,7 @@ class HlsAudioSourceMessage extends UriAudioSourceMessage {
         'id': id,
         'uri': uri,
         'headers': headers,
+        'options': options?.toMap(),
       };
 }
 
@@ -1366,6 +2033,58 @@ class AndroidEqualizerBandSetGainResponse {
       AndroidEqualizerBandSetGainResponse();
 }
 
+/// Information communicated to the platform implementation when setting the
+/// gain for a parametric equalizer band.
+class AndroidParametricEqualizerBandSetGainRequest {
+  final int bandIndex;
+  final double gain;
+
+  AndroidParametricEqualizerBandSetGainRequest({
+    required this.bandIndex,
+    required this.gain,
+  });
+
+  Map<dynamic, dynamic> toMap() => <dynamic, dynamic>{
+        'bandIndex': bandIndex,
+        'gain': gain,
+      };
+}
+
+/// Information returned by the platform implementation after setting the gain
+/// for a parametric equalizer band.
+class AndroidParametricEqualizerBandSetGainResponse {
+  AndroidParametricEqualizerBandSetGainResponse();
+
+  static AndroidParametricEqualizerBandSetGainResponse fromMap(
+          Map<dynamic, dynamic> map) =>
+      AndroidParametricEqualizerBandSetGainResponse();
+}
+
+/// Information communicated to the platform implementation when setting the
+/// overall gain of the parametric equalizer.
+class AndroidParametricEqualizerSetGainRequest {
+  /// The gain in decibels.
+  final double gain;
+
+  AndroidParametricEqualizerSetGainRequest({
+    required this.gain,
+  });
+
+  Map<dynamic, dynamic> toMap() => <dynamic, dynamic>{
+        'gain': gain,
+      };
+}
+
+/// Information returned by the platform implementation after setting the
+/// overall gain of the parametric equalizer.
+class AndroidParametricEqualizerSetGainResponse {
+  AndroidParametricEqualizerSetGainResponse();
+
+  static AndroidParametricEqualizerSetGainResponse fromMap(
+          Map<dynamic, dynamic> map) =>
+      AndroidParametricEqualizerSetGainResponse();
+}
+
 /// Information about an audio effect to be communicated with the platform
 /// implementation.
 abstract class AudioEffectMessage {
@@ -1394,6 +2113,37 @@ class AndroidLoudnessEnhancerMessage extends AudioEffectMessage {
       };
 }
 
+/// Information about a loudness normalizer to be communicated with the
+/// platform implementation.
+class AndroidLoudnessNormalizerMessage extends AudioEffectMessage {
+  /// The loudness in LUFS that each item is brought to.
+  final double targetLoudness;
+
+  AndroidLoudnessNormalizerMessage({
+    required super.enabled,
+    required this.targetLoudness,
+  });
+
+  @override
+  Map<dynamic, dynamic> toMap() => <dynamic, dynamic>{
+        'type': 'AndroidLoudnessNormalizer',
+        'enabled': enabled,
+        'targetLoudness': targetLoudness,
+      };
+}
+
+/// Information about a speech time-stretch effect to be communicated with the
+/// platform implementation.
+class AndroidSpeechTimeStretchMessage extends AudioEffectMessage {
+  AndroidSpeechTimeStretchMessage({required super.enabled});
+
+  @override
+  Map<dynamic, dynamic> toMap() => <dynamic, dynamic>{
+        'type': 'AndroidSpeechTimeStretch',
+        'enabled': enabled,
+      };
+}
+
 /// Information about an equalizer band to be communicated with the platform
 /// implementation.
 class AndroidEqualizerBandMessage {
@@ -1485,3 +2235,58 @@ class AndroidEqualizerMessage extends AudioEffectMessage {
         'parameters': parameters?.toMap(),
       };
 }
+
+/// The filter shape of a parametric equalizer band communicated with the
+/// platform implementation.
+enum AndroidParametricEqualizerBandTypeMessage { peaking, lowShelf, highShelf }
+
+/// Information about a parametric equalizer band to be communicated with the
+/// platform implementation.
+class AndroidParametricEqualizerBandMessage {
+  final AndroidParametricEqualizerBandTypeMessage type;
+
+  /// The center frequency (peaking) or corner frequency (shelves) in hertz.
+  final double frequency;
+
+  /// The gain for this band in decibels.
+  final double gain;
+
+  /// The quality factor of this band.
+  final double q;
+
+  AndroidParametricEqualizerBandMessage({
+    required this.type,
+    required this.frequency,
+    required this.gain,
+    required this.q,
+  });
+
+  Map<dynamic, dynamic> toMap() => <dynamic, dynamic>{
+        'type': type.name,
+        'frequency': frequency,
+        'gain': gain,
+        'q': q,
+      };
+}
+
+/// Information about the parametric equalizer to be communicated with the
+/// platform implementation.
+class AndroidParametricEqualizerMessage extends AudioEffectMessage {
+  /// The overall gain in decibels.
+  final double gain;
+  final List<AndroidParametricEqualizerBandMessage> bands;
+
+  AndroidParametricEqualizerMessage({
+    required super.enabled,
+    required this.gain,
+    required this.bands,
+  });
+
+  @override
+  Map<dynamic, dynamic> toMap() => <dynamic, dynamic>{
+        'type': 'AndroidParametricEqualizer',
+        'enabled': enabled,
+        'gain': gain,
+        'bands': bands.map((band) => band.toMap()).toList(),
+      };
+}
@@ -29,6 +29,22 @@ class MethodChannelJustAudio extends JustAudioPlatform {
         (await _mainChannel.invokeMethod<Map<dynamic, dynamic>>(
             'disposeAllPlayers', request.toMap()))!);
   }
+
+  @override
+  Future<ExtractWaveformResponse> extractWaveform(
+      ExtractWaveformRequest request) async {
+    return ExtractWaveformResponse.fromMap(
+        (await _mainChannel.invokeMethod<Map<dynamic, dynamic>>(
+            'extractWaveform', request.toMap()))!);
+  }
+
+  @override
+  Future<SetTracingEnabledResponse> setTracingEnabled(
+      SetTracingEnabledRequest request) async {
+    return SetTracingEnabledResponse.fromMap(
+        (await _mainChannel.invokeMethod<Map<dynamic, dynamic>>(
+            'setTracingEnabled', request.toMap()))!);
+  }
 }
 
 /// An implementation of [AudioPlayerPlatform] that uses method channels.
@@ -53,6 +69,13 @@ class MethodChannelAudioPlayer extends AudioPlayerPlatform {
           .map((dynamic map) =>
               PlayerDataMessage.fromMap(map as Map<dynamic, dynamic>));
 
+  @override
+  Stream<MetadataMessage> get metadataMessageStream =>
+      EventChannel('com.ryanheise.just_audio.metadata.$id')
+          .receiveBroadcastStream()
+          .map((dynamic map) =>
+              MetadataMessage.fromMap(map as Map<dynamic, dynamic>));
+
   @override
   Future<LoadResponse> load(LoadRequest request) async {
     return LoadResponse.fromMap((await _channel
@@ -169,6 +192,69 @@ class MethodChannelAudioPlayer extends AudioPlayerPlatform {
             'setAndroidAudioAttributes', request.toMap()))!);
   }
 
+  @override
+  Future<SetRequestCredentialsResponse> setRequestCredentials(
+      SetRequestCredentialsRequest request) async {
+    return SetRequestCredentialsResponse.fromMap(
+        (await _channel.invokeMethod<Map<dynamic, dynamic>>(
+            'setRequestCredentials', request.toMap()))!);
+  }
+
+  @override
+  Future<SetLoadDebounceResponse> setLoadDebounce(
+      SetLoadDebounceRequest request) async {
+    return SetLoadDebounceResponse.fromMap(
+        (await _channel.invokeMethod<Map<dynamic, dynamic>>(
+            'setLoadDebounce', request.toMap()))!);
+  }
+
+  @override
+  Future<SetHibernationPolicyResponse> setHibernationPolicy(
+      SetHibernationPolicyRequest request) async {
+    return SetHibernationPolicyResponse.fromMap(
+        (await _channel.invokeMethod<Map<dynamic, dynamic>>(
+            'setHibernationPolicy', request.toMap()))!);
+  }
+
+  @override
+  Future<SetPositionStreamEnabledResponse> setPositionStreamEnabled(
+      SetPositionStreamEnabledRequest request) async {
+    return SetPositionStreamEnabledResponse.fromMap(
+        (await _channel.invokeMethod<Map<dynamic, dynamic>>(
+            'setPositionStreamEnabled', request.toMap()))!);
+  }
+
+  @override
+  Future<GetSeekMetricsResponse> getSeekMetrics(
+      GetSeekMetricsRequest request) async {
+    return GetSeekMetricsResponse.fromMap(
+        (await _channel.invokeMethod<Map<dynamic, dynamic>>(
+            'getSeekMetrics', request.toMap()))!);
+  }
+
+  @override
+  Future<GetPlaybackQualityMetricsResponse> getPlaybackQualityMetrics(
+      GetPlaybackQualityMetricsRequest request) async {
+    return GetPlaybackQualityMetricsResponse.fromMap(
+        (await _channel.invokeMethod<Map<dynamic, dynamic>>(
+            'getPlaybackQualityMetrics', request.toMap()))!);
+  }
+
+  @override
+  Future<SaveSnapshotResponse> saveSnapshot(SaveSnapshotRequest request) async {
+    return SaveSnapshotResponse.fromMap(
+        (await _channel.invokeMethod<Map<dynamic, dynamic>>(
+            'saveSnapshot', request.toMap()))!);
+  }
+
+  @override
+  Future<RestoreSnapshotResponse> restoreSnapshot(
+      RestoreSnapshotRequest request) async {
+    return RestoreSnapshotResponse.fromMap(
+        (await _channel.invokeMethod<Map<dynamic, dynamic>>(
+            'restoreSnapshot', request.toMap()))!);
+  }
+
   @override
   Future<DisposeResponse> dispose(DisposeRequest request) async {
     return DisposeResponse.fromMap((await _channel
@@ -231,4 +317,22 @@ class MethodChannelAudioPlayer extends AudioPlayerPlatform {
         (await _channel.invokeMethod<Map<dynamic, dynamic>>(
             'androidEqualizerBandSetGain', request.toMap()))!);
   }
+
+  @override
+  Future<AndroidParametricEqualizerBandSetGainResponse>
+      androidParametricEqualizerBandSetGain(
+          AndroidParametricEqualizerBandSetGainRequest request) async {
+    return AndroidParametricEqualizerBandSetGainResponse.fromMap(
+        (await _channel.invokeMethod<Map<dynamic, dynamic>>(
+            'androidParametricEqualizerBandSetGain', request.toMap()))!);
+  }
+
+  @override
+  Future<AndroidParametricEqualizerSetGainResponse>
+      androidParametricEqualizerSetGain(
+          AndroidParametricEqualizerSetGainRequest request) async {
+    return AndroidParametricEqualizerSetGainResponse.fromMap(
+        (await _channel.invokeMethod<Map<dynamic, dynamic>>(
+            'androidParametricEqualizerSetGain', request.toMap()))!);
+  }
 }